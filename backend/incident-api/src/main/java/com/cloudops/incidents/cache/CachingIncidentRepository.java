@@ -0,0 +1,343 @@
+package com.cloudops.incidents.cache;
+
+import com.cloudops.incidents.config.CacheProperties;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentCursor;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentPage;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of any IncidentRepository (decorator).
+ *
+ * Three bounded Caffeine caches (W-TinyLFU eviction: frequently read
+ * entries survive a burst of one-off reads), each with a time-to-live:
+ * - incidents: findById results
+ * - incidents.missing: IDs that were not found (negative cache), so
+ *   polling a deleted incident doesn't reach the store every time
+ * - incidents.lists: findByServiceName/Severity/Status/ErrorType and
+ *   findByFilter results, and first pages from findPage (the dashboard
+ *   views), for equality criteria only; time ranges differ per request
+ *
+ * Writes go to the delegate first, then invalidate (write-through
+ * invalidation):
+ * - the incident and its negative entry
+ * - every cached list that contains the incident or whose filter
+ *   matches its new state
+ * A conflicting replace() also invalidates the incident, since the
+ * conflict means the cached copy may be out of date.
+ *
+ * A read that started before a write could otherwise put what it read
+ * into the cache after the write invalidated it. findById is safe because
+ * Caffeine's invalidate waits for a load of the same key; lists and
+ * negative entries are only cached if no write happened while loading.
+ *
+ * Writes made by other instances sharing the same store are seen once the
+ * entries expire. findAll, counts and later pages always go to the delegate.
+ *
+ * Metrics (per cache, tag cache=incidents|incidents.missing|incidents.lists):
+ * cache_gets_total{result=hit|miss}, cache_evictions_total, cache_size
+ */
+public class CachingIncidentRepository implements IncidentRepository, AutoCloseable {
+
+    private static final int FULL_LIST = -1;
+
+    private final IncidentRepository delegate;
+    private final Cache<String, Incident> byId;
+    private final Cache<String, Boolean> missing;
+    private final Cache<ListKey, CachedList> lists;
+
+    /** Writes so far; a load only caches its result if this didn't change meanwhile */
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * @param delegate The repository doing the actual work
+     * @param properties Cache sizes and lifetimes
+     * @param meterRegistry Where the cache statistics are registered
+     */
+    public CachingIncidentRepository(IncidentRepository delegate, CacheProperties properties,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(properties.getMissingMaximumSize())
+                .expireAfterWrite(properties.getMissingExpireAfterWrite())
+                .recordStats()
+                .build();
+        this.lists = Caffeine.newBuilder()
+                .maximumSize(properties.getListMaximumSize())
+                .expireAfterWrite(properties.getListExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "incidents");
+        CaffeineCacheMetrics.monitor(meterRegistry, missing, "incidents.missing");
+        CaffeineCacheMetrics.monitor(meterRegistry, lists, "incidents.lists");
+    }
+
+    @Override
+    public List<Incident> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Returns the cached incident, or loads it (one load per ID at a time).
+     * A 404 is remembered for a few seconds.
+     */
+    @Override
+    public Incident findById(String id) {
+        if (missing.getIfPresent(id) != null) {
+            throw notFound(id);
+        }
+        long seen = writes.get();
+        try {
+            return byId.get(id, delegate::findById);
+        } catch (ApiException e) {
+            if (e.getStatusCode() == 404 && writes.get() == seen) {
+                missing.put(id, Boolean.TRUE);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Incident> findByServiceName(String serviceName) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setServiceName(serviceName);
+        return list(filter, () -> delegate.findByServiceName(serviceName));
+    }
+
+    @Override
+    public List<Incident> findBySeverity(Severity severity) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setSeverity(severity);
+        return list(filter, () -> delegate.findBySeverity(severity));
+    }
+
+    @Override
+    public List<Incident> findByStatus(IncidentStatus status) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setStatus(status);
+        return list(filter, () -> delegate.findByStatus(status));
+    }
+
+    @Override
+    public List<Incident> findByErrorType(ErrorType errorType) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setErrorType(errorType);
+        return list(filter, () -> delegate.findByErrorType(errorType));
+    }
+
+    /**
+     * Cached for filters with only equality criteria (an empty filter
+     * means findAll, which is never cached).
+     */
+    @Override
+    public List<Incident> findByFilter(IncidentFilter filter) {
+        if (filter == null || !filter.hasIndexedCriteria() || !isCacheable(filter)) {
+            return delegate.findByFilter(filter);
+        }
+        return list(filter, () -> delegate.findByFilter(filter));
+    }
+
+    /**
+     * First pages of equality-only (or no) filters are cached; later
+     * pages, like most cursors, are only ever read once.
+     */
+    @Override
+    public IncidentPage findPage(IncidentFilter filter, IncidentCursor after, int limit) {
+        IncidentFilter criteria = filter != null ? filter : new IncidentFilter();
+        if (after != null || !isCacheable(criteria)) {
+            return delegate.findPage(filter, after, limit);
+        }
+        ListKey key = new ListKey(criteria, limit);
+        CachedList cached = lists.getIfPresent(key);
+        if (cached != null) {
+            return new IncidentPage(cached.incidents, cached.nextCursor);
+        }
+        long seen = writes.get();
+        IncidentPage page = delegate.findPage(filter, null, limit);
+        if (writes.get() == seen) {
+            lists.put(key, new CachedList(key, page.getItems(), page.getNextCursor()));
+        }
+        return page;
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public long countBySeverity(Severity severity) {
+        return delegate.countBySeverity(severity);
+    }
+
+    @Override
+    public long countByStatus(IncidentStatus status) {
+        return delegate.countByStatus(status);
+    }
+
+    @Override
+    public String checkHealth() {
+        return delegate.checkHealth();
+    }
+
+    @Override
+    public Incident save(Incident incident) {
+        Incident stored = delegate.save(incident);
+        invalidate(stored.getId(), stored);
+        return stored;
+    }
+
+    @Override
+    public Incident replace(Incident incident, long expectedVersion) {
+        Incident stored = delegate.replace(incident, expectedVersion);
+        invalidate(incident.getId(), stored);
+        return stored;
+    }
+
+    @Override
+    public Incident deleteById(String id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            invalidate(id, null);
+        }
+    }
+
+    @Override
+    public Incident deleteById(String id, long expectedVersion) {
+        try {
+            return delegate.deleteById(id, expectedVersion);
+        } finally {
+            invalidate(id, null);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+
+    /**
+     * Drops everything cached about an incident after a write.
+     *
+     * @param id The incident written
+     * @param current Its new state (null if deleted or unknown)
+     */
+    private void invalidate(String id, Incident current) {
+        writes.incrementAndGet();
+        byId.invalidate(id);
+        missing.invalidate(id);
+        lists.asMap().values().removeIf(list -> list.ids.contains(id)
+                || (current != null && list.filter.matches(current)));
+    }
+
+    private List<Incident> list(IncidentFilter filter, Supplier<List<Incident>> load) {
+        ListKey key = new ListKey(filter, FULL_LIST);
+        CachedList cached = lists.getIfPresent(key);
+        if (cached != null) {
+            return new ArrayList<>(cached.incidents);
+        }
+        long seen = writes.get();
+        List<Incident> loaded = load.get();
+        if (writes.get() == seen) {
+            lists.put(key, new CachedList(key, loaded, null));
+        }
+        return loaded;
+    }
+
+    private static boolean isCacheable(IncidentFilter filter) {
+        return filter.getFrom() == null && filter.getTo() == null && filter.getUpdatedSince() == null;
+    }
+
+    private static ApiException notFound(String id) {
+        return new ApiException("Incident not found with id: " + id, 404);
+    }
+
+    /**
+     * Identifies a cached list: its equality criteria, and the page size
+     * for first pages (FULL_LIST for whole lists).
+     */
+    private static final class ListKey {
+        final String serviceName;
+        final Severity severity;
+        final IncidentStatus status;
+        final ErrorType errorType;
+        final int limit;
+
+        ListKey(IncidentFilter filter, int limit) {
+            this.serviceName = filter.getServiceName();
+            this.severity = filter.getSeverity();
+            this.status = filter.getStatus();
+            this.errorType = filter.getErrorType();
+            this.limit = limit;
+        }
+
+        IncidentFilter toFilter() {
+            IncidentFilter filter = new IncidentFilter();
+            filter.setServiceName(serviceName);
+            filter.setSeverity(severity);
+            filter.setStatus(status);
+            filter.setErrorType(errorType);
+            return filter;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ListKey)) {
+                return false;
+            }
+            ListKey that = (ListKey) other;
+            return limit == that.limit && severity == that.severity && status == that.status
+                    && errorType == that.errorType && Objects.equals(serviceName, that.serviceName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serviceName, severity, status, errorType, limit);
+        }
+    }
+
+    /**
+     * A cached list or first page, with what invalidation needs to check.
+     */
+    private static final class CachedList {
+        final IncidentFilter filter;
+        final List<Incident> incidents;
+        final IncidentCursor nextCursor;
+        final Set<String> ids = new HashSet<>();
+
+        CachedList(ListKey key, List<Incident> incidents, IncidentCursor nextCursor) {
+            this.filter = key.toFilter();
+            this.incidents = Collections.unmodifiableList(new ArrayList<>(incidents));
+            this.nextCursor = nextCursor;
+            for (Incident incident : incidents) {
+                ids.add(incident.getId());
+            }
+        }
+    }
+}
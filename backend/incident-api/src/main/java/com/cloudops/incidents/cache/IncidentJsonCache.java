@@ -0,0 +1,148 @@
+package com.cloudops.incidents.cache;
+
+import com.cloudops.incidents.config.CacheProperties;
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.Incident;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the serialized JSON of recently read incidents, so GET requests
+ * for an unchanged incident skip both IncidentResponse.from() and Jackson
+ * and write the stored bytes straight to the response.
+ *
+ * Entries are keyed by incident ID and tagged with the version they were
+ * made from. Every write bumps the version, so the JSON of an older
+ * version is never returned: it is replaced on the next read, and
+ * IncidentService also drops it as soon as the incident changes.
+ * This holds for writes made by other instances too.
+ *
+ * List pages are put together from the same per-incident JSON: the
+ * bytes are copied into one array between "[", "," and "]", which is
+ * exactly what Jackson would have written for the list.
+ *
+ * Bounded by total bytes (W-TinyLFU eviction, so hot incidents survive
+ * a bulk read of cold ones), and entries not read for a while expire.
+ *
+ * Metrics (tag cache=incidents.json):
+ * cache_gets_total{result=hit|miss}, cache_evictions_total, cache_size
+ */
+public class IncidentJsonCache {
+
+    private static final byte[] EMPTY_ARRAY = {'[', ']'};
+
+    private final ObjectMapper objectMapper;
+
+    /** null when disabled (every read serializes) */
+    private final Cache<String, SerializedIncident> cache;
+
+    /**
+     * Hits and misses are counted here by hand: JSON of an older version
+     * is found in the cache but is a miss.
+     */
+    private final StatsCounter stats = new ConcurrentStatsCounter();
+
+    /**
+     * @param properties Whether to cache, and how much
+     * @param objectMapper Spring's ObjectMapper, so the JSON matches other responses
+     * @param meterRegistry Where the cache statistics are registered
+     */
+    public IncidentJsonCache(CacheProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        if (properties.isJsonEnabled()) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(properties.getJsonMaximumBytes())
+                    .weigher((String id, SerializedIncident entry) -> entry.getJson().length)
+                    .expireAfterAccess(properties.getJsonExpireAfterAccess())
+                    .recordStats(() -> stats)
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "incidents.json");
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Returns the JSON of this version of the incident, serializing it
+     * only if it isn't cached yet.
+     *
+     * @param incident The incident as just read from the repository
+     * @return Its JSON, tagged with its version
+     */
+    public SerializedIncident get(Incident incident) {
+        if (cache == null) {
+            return serialize(incident);
+        }
+        SerializedIncident cached = cache.asMap().get(incident.getId());
+        if (cached != null && cached.getVersion() == incident.getVersion()) {
+            stats.recordHits(1);
+            return cached;
+        }
+        stats.recordMisses(1);
+        SerializedIncident fresh = serialize(incident);
+        // A slow reader must not put back an older version than a faster one stored
+        cache.asMap().merge(incident.getId(), fresh,
+                (old, latest) -> old.getVersion() > latest.getVersion() ? old : latest);
+        return fresh;
+    }
+
+    /**
+     * Returns the incidents as one JSON array, in list order.
+     *
+     * @param incidents The incidents as just read from the repository
+     * @return UTF-8 JSON array, the same as serializing their IncidentResponses
+     */
+    public byte[] toJsonArray(List<Incident> incidents) {
+        if (incidents.isEmpty()) {
+            return EMPTY_ARRAY.clone();
+        }
+        List<byte[]> parts = new ArrayList<>(incidents.size());
+        int length = 1 + incidents.size();   // "[", the commas and "]"
+        for (Incident incident : incidents) {
+            byte[] json = get(incident).getJson();
+            parts.add(json);
+            length += json.length;
+        }
+
+        byte[] array = new byte[length];
+        int position = 0;
+        array[position++] = '[';
+        for (byte[] json : parts) {
+            if (position > 1) {
+                array[position++] = ',';
+            }
+            System.arraycopy(json, 0, array, position, json.length);
+            position += json.length;
+        }
+        array[position] = ']';
+        return array;
+    }
+
+    /**
+     * Drops the cached JSON of an incident that changed or was deleted.
+     */
+    public void invalidate(String id) {
+        if (cache != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    private SerializedIncident serialize(Incident incident) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(IncidentResponse.from(incident));
+            return new SerializedIncident(incident.getId(), incident.getVersion(), json);
+        } catch (JsonProcessingException e) {
+            throw new ApiException("Cannot serialize incident " + incident.getId(), 500);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cloudops.incidents.cache;
+
+/**
+ * One incident version as ready-to-send JSON (the IncidentResponse form),
+ * as kept by IncidentJsonCache.
+ *
+ * The bytes are shared between requests and must not be modified.
+ */
+public final class SerializedIncident {
+
+    private final String id;
+    private final long version;
+    private final byte[] json;
+
+    /**
+     * @param id The incident's ID
+     * @param version The version the JSON was made from
+     * @param json UTF-8 JSON of the incident
+     */
+    public SerializedIncident(String id, long version, byte[] json) {
+        this.id = id;
+        this.version = version;
+        this.json = json;
+    }
+
+    /** Gets the incident's ID */
+    public String getId() { return id; }
+
+    /** Gets the version the JSON was made from (also the ETag) */
+    public long getVersion() { return version; }
+
+    /** Gets the UTF-8 JSON (shared, don't modify) */
+    public byte[] getJson() { return json; }
+}
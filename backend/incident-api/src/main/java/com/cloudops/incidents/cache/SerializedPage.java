@@ -0,0 +1,26 @@
+package com.cloudops.incidents.cache;
+
+/**
+ * One page of the incident list as a ready-to-send JSON array, put
+ * together from the cached JSON of each incident (see IncidentJsonCache).
+ */
+public final class SerializedPage {
+
+    private final byte[] json;
+    private final String nextCursor;
+
+    /**
+     * @param json UTF-8 JSON array of the incidents on this page
+     * @param nextCursor Cursor for the next page (null on the last page)
+     */
+    public SerializedPage(byte[] json, String nextCursor) {
+        this.json = json;
+        this.nextCursor = nextCursor;
+    }
+
+    /** Gets the UTF-8 JSON array */
+    public byte[] getJson() { return json; }
+
+    /** Gets the cursor for the next page (null on the last page) */
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,35 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.service.IncidentAggregator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Builds the IncidentAggregator from AggregationProperties.
+ * 
+ * The aggregator is kept up to date by IncidentService on every write, and
+ * seeded here with the incidents already in the repository (for example
+ * recovered from the write-ahead log) that fall inside the retention window.
+ */
+@Configuration
+@EnableConfigurationProperties(AggregationProperties.class)
+public class AggregationConfig {
+
+    @Bean
+    public IncidentAggregator incidentAggregator(AggregationProperties properties,
+                                                 IncidentRepository incidentRepository) {
+        Clock clock = Clock.systemUTC();
+        IncidentAggregator aggregator = new IncidentAggregator(properties.getBucketSize(),
+                properties.getRetention(), clock);
+
+        IncidentFilter retained = new IncidentFilter();
+        retained.setFrom(clock.instant().minus(properties.getRetention()));
+        incidentRepository.findByFilter(retained).forEach(incident -> aggregator.record(null, incident));
+        return aggregator;
+    }
+}
@@ -0,0 +1,31 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the rolling incident counts behind GET /api/incidents/aggregate,
+ * bound from "incidents.aggregation.*" in application.yml.
+ * 
+ * Example:
+ * incidents:
+ *   aggregation:
+ *     bucket-size: 1m
+ *     retention: 24h
+ */
+@ConfigurationProperties(prefix = "incidents.aggregation")
+public class AggregationProperties {
+
+    /** Finest time resolution; query intervals must be a multiple of this */
+    private Duration bucketSize = Duration.ofMinutes(1);
+
+    /** How far back counts are kept (must be a multiple of bucketSize) */
+    private Duration retention = Duration.ofHours(24);
+
+    public Duration getBucketSize() { return bucketSize; }
+    public void setBucketSize(Duration bucketSize) { this.bucketSize = bucketSize; }
+
+    public Duration getRetention() { return retention; }
+    public void setRetention(Duration retention) { this.retention = retention; }
+}
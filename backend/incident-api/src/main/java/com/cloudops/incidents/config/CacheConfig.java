@@ -0,0 +1,25 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.cache.IncidentJsonCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Builds the cache of serialized incident JSON from CacheProperties.
+ * 
+ * The incident read cache (CachingIncidentRepository) wraps the repository
+ * and is built in RepositoryConfig.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    @Bean
+    public IncidentJsonCache incidentJsonCache(CacheProperties properties, ObjectMapper objectMapper,
+                                               MeterRegistry meterRegistry) {
+        return new IncidentJsonCache(properties, objectMapper, meterRegistry);
+    }
+}
@@ -0,0 +1,95 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the incident read cache (see CachingIncidentRepository)
+ * and the cache of serialized incident JSON (see IncidentJsonCache),
+ * bound from "incidents.cache.*" in application.yml.
+ *
+ * The read cache is worth enabling when incidents are stored remotely
+ * (dynamodb mode); with in-memory storage every read is already a map
+ * lookup. The JSON cache is on by default: it saves mapping and
+ * serializing the same incident version on every GET, whatever the store.
+ *
+ * Example:
+ * incidents:
+ *   cache:
+ *     enabled: true
+ *     maximum-size: 100000
+ *     expire-after-write: 60s
+ *     json-maximum-bytes: 67108864
+ */
+@ConfigurationProperties(prefix = "incidents.cache")
+public class CacheProperties {
+
+    /** Whether reads go through the cache */
+    private boolean enabled = false;
+
+    /** Most incidents kept by ID */
+    private long maximumSize = 100_000;
+
+    /**
+     * How long a cached incident is used. Writes through this instance
+     * invalidate at once; this bounds how long writes made by other
+     * instances (sharing the same table) go unseen.
+     */
+    private Duration expireAfterWrite = Duration.ofSeconds(60);
+
+    /** Most IDs remembered as not found */
+    private long missingMaximumSize = 10_000;
+
+    /** How long an ID is remembered as not found */
+    private Duration missingExpireAfterWrite = Duration.ofSeconds(5);
+
+    /** Most filtered lists and first pages kept */
+    private long listMaximumSize = 1_000;
+
+    /** How long a cached list or first page is used */
+    private Duration listExpireAfterWrite = Duration.ofSeconds(5);
+
+    /** Whether GET responses reuse serialized incident JSON */
+    private boolean jsonEnabled = true;
+
+    /** Most bytes of serialized JSON kept (64 MB) */
+    private long jsonMaximumBytes = 64L * 1024 * 1024;
+
+    /**
+     * Serialized JSON not read for this long is dropped. Updates drop
+     * entries straight away; this frees the JSON of incidents nobody reads
+     * any more (e.g. removed by retention).
+     */
+    private Duration jsonExpireAfterAccess = Duration.ofMinutes(10);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getMaximumSize() { return maximumSize; }
+    public void setMaximumSize(long maximumSize) { this.maximumSize = maximumSize; }
+
+    public Duration getExpireAfterWrite() { return expireAfterWrite; }
+    public void setExpireAfterWrite(Duration expireAfterWrite) { this.expireAfterWrite = expireAfterWrite; }
+
+    public long getMissingMaximumSize() { return missingMaximumSize; }
+    public void setMissingMaximumSize(long missingMaximumSize) { this.missingMaximumSize = missingMaximumSize; }
+
+    public Duration getMissingExpireAfterWrite() { return missingExpireAfterWrite; }
+    public void setMissingExpireAfterWrite(Duration missingExpireAfterWrite) { this.missingExpireAfterWrite = missingExpireAfterWrite; }
+
+    public long getListMaximumSize() { return listMaximumSize; }
+    public void setListMaximumSize(long listMaximumSize) { this.listMaximumSize = listMaximumSize; }
+
+    public Duration getListExpireAfterWrite() { return listExpireAfterWrite; }
+    public void setListExpireAfterWrite(Duration listExpireAfterWrite) { this.listExpireAfterWrite = listExpireAfterWrite; }
+
+    public boolean isJsonEnabled() { return jsonEnabled; }
+    public void setJsonEnabled(boolean jsonEnabled) { this.jsonEnabled = jsonEnabled; }
+
+    public long getJsonMaximumBytes() { return jsonMaximumBytes; }
+    public void setJsonMaximumBytes(long jsonMaximumBytes) { this.jsonMaximumBytes = jsonMaximumBytes; }
+
+    public Duration getJsonExpireAfterAccess() { return jsonExpireAfterAccess; }
+    public void setJsonExpireAfterAccess(Duration jsonExpireAfterAccess) { this.jsonExpireAfterAccess = jsonExpireAfterAccess; }
+}
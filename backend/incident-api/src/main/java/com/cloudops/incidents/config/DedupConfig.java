@@ -0,0 +1,43 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.service.IncidentDeduplicator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Builds the IncidentDeduplicator from DedupProperties.
+ *
+ * Incidents already in the repository (for example recovered from the
+ * write-ahead log) that were reported within the window are indexed here,
+ * so an alert storm that spans a restart still lands on the same incident.
+ *
+ * Spring calls close() on shutdown, which stops the index cleanup thread.
+ */
+@Configuration
+@EnableConfigurationProperties(DedupProperties.class)
+public class DedupConfig {
+
+    @Bean
+    public IncidentDeduplicator incidentDeduplicator(DedupProperties properties,
+                                                     IncidentRepository incidentRepository) {
+        Clock clock = Clock.systemUTC();
+        Duration window = properties.isEnabled() ? properties.getWindow() : Duration.ZERO;
+        IncidentDeduplicator deduplicator = new IncidentDeduplicator(incidentRepository, window, clock);
+
+        if (deduplicator.isEnabled()) {
+            IncidentFilter recent = new IncidentFilter();
+            recent.setUpdatedSince(clock.instant().minus(window));
+            incidentRepository.findByFilter(recent).stream()
+                    .filter(incident -> incident.getStatus() != IncidentStatus.RESOLVED)
+                    .forEach(deduplicator::remember);
+        }
+        return deduplicator;
+    }
+}
@@ -0,0 +1,34 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for merging duplicate incident reports (see IncidentDeduplicator),
+ * bound from "incidents.dedup.*" in application.yml.
+ *
+ * Example:
+ * incidents:
+ *   dedup:
+ *     enabled: true
+ *     window: 10m
+ */
+@ConfigurationProperties(prefix = "incidents.dedup")
+public class DedupProperties {
+
+    /** Whether duplicate reports are merged at all (false = every POST creates an incident) */
+    private boolean enabled = true;
+
+    /**
+     * A report is a duplicate if an open incident with the same service, error
+     * type and correlation ID was last seen less than this long ago.
+     */
+    private Duration window = Duration.ofMinutes(10);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getWindow() { return window; }
+    public void setWindow(Duration window) { this.window = window; }
+}
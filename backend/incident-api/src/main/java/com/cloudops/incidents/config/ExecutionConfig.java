@@ -0,0 +1,46 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.execution.RequestExecutor;
+import com.cloudops.incidents.execution.VirtualThreads;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sets up the request execution mode from ExecutionProperties.
+ * 
+ * - PLATFORM and VIRTUAL: incident requests run inline (RequestExecutor.inline());
+ *   for VIRTUAL, Tomcat's thread pool is replaced by one virtual thread per request
+ * - ASYNC: incident requests run on RequestExecutor's own bounded pool
+ * 
+ * Spring calls close() on the executor at shutdown.
+ */
+@Configuration
+@EnableConfigurationProperties(ExecutionProperties.class)
+public class ExecutionConfig {
+
+    @Bean
+    public RequestExecutor requestExecutor(ExecutionProperties properties, MeterRegistry meterRegistry) {
+        if (properties.getMode() != ExecutionProperties.Mode.ASYNC) {
+            return RequestExecutor.inline();
+        }
+        return new RequestExecutor(properties.getThreads(), properties.getQueueCapacity(), properties.getTimeout(),
+                meterRegistry);
+    }
+
+    /**
+     * In VIRTUAL mode, gives Tomcat an executor that runs each request on a
+     * new virtual thread (server.tomcat.threads.* no longer apply).
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequests(ExecutionProperties properties) {
+        return protocolHandler -> {
+            if (properties.getMode() == ExecutionProperties.Mode.VIRTUAL) {
+                protocolHandler.setExecutor(VirtualThreads.newPerTaskExecutor());
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * How incident API requests are executed (see RequestExecutor), bound from
+ * "incidents.execution.*" in application.yml.
+ *
+ * Example:
+ * incidents:
+ *   execution:
+ *     mode: async
+ *     threads: 200
+ *     queue-capacity: 1000
+ */
+@ConfigurationProperties(prefix = "incidents.execution")
+public class ExecutionProperties {
+
+    /**
+     * Where the incident endpoints run:
+     * - PLATFORM: on Tomcat's request thread (server.tomcat.threads.max of them).
+     *   A slow store can tie up every thread, and then /health waits too
+     * - ASYNC: on a dedicated pool of threads; Tomcat's threads are handed
+     *   back at once, so /health and other endpoints keep answering, and
+     *   requests beyond threads + queue-capacity get 503 right away
+     * - VIRTUAL: Tomcat runs every request on its own virtual thread, so
+     *   blocking on the store costs no platform thread (needs Java 21)
+     */
+    public enum Mode { PLATFORM, ASYNC, VIRTUAL }
+
+    private Mode mode = Mode.PLATFORM;
+
+    /** Threads running incident requests (ASYNC) */
+    private int threads = 200;
+
+    /** Requests that may wait for a thread before clients get 503 (ASYNC) */
+    private int queueCapacity = 1000;
+
+    /** Reads still running after this long are answered with 503 (ASYNC); changes always finish */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    public Mode getMode() { return mode; }
+    public void setMode(Mode mode) { this.mode = mode; }
+
+    public int getThreads() { return threads; }
+    public void setThreads(int threads) { this.threads = threads; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public Duration getTimeout() { return timeout; }
+    public void setTimeout(Duration timeout) { this.timeout = timeout; }
+}
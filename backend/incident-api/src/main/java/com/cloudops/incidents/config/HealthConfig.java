@@ -0,0 +1,29 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.service.DiagnosticsIngestionPipeline;
+import com.cloudops.incidents.service.HealthMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Builds the HealthMonitor behind /health/live and /health/ready.
+ * 
+ * Spring calls close() on shutdown, which stops the refresh thread.
+ */
+@Configuration
+@EnableConfigurationProperties(HealthProperties.class)
+public class HealthConfig {
+
+    @Bean
+    public HealthMonitor healthMonitor(IncidentRepository incidentRepository,
+                                       DiagnosticsRepository diagnosticsRepository,
+                                       DiagnosticsIngestionPipeline pipeline,
+                                       MeterRegistry meterRegistry,
+                                       HealthProperties properties) {
+        return new HealthMonitor(incidentRepository, diagnosticsRepository, pipeline, meterRegistry, properties);
+    }
+}
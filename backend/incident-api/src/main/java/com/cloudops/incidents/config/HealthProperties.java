@@ -0,0 +1,64 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Thresholds for the readiness probe, bound from "incidents.health.*" in application.yml.
+ * 
+ * The instance reports not-ready (HTTP 503 on /health/ready) as soon as any
+ * one of these limits is crossed, so the load balancer stops sending it traffic.
+ * 
+ * Example:
+ * incidents:
+ *   health:
+ *     refresh-interval: 2s
+ *     max-queue-saturation: 0.9
+ *     max-p99-latency: 2s
+ */
+@ConfigurationProperties(prefix = "incidents.health")
+public class HealthProperties {
+
+    /** How often the checks are recomputed in the background */
+    private Duration refreshInterval = Duration.ofSeconds(2);
+
+    /** Liveness fails if the checks haven't been refreshed for this long (monitor thread stuck) */
+    private Duration staleAfter = Duration.ofSeconds(30);
+
+    /** Not ready when the ingestion queue is at least this full (0.0 - 1.0) */
+    private double maxQueueSaturation = 0.9;
+
+    /** Not ready when less than this fraction of the max heap is free after GC (0.0 - 1.0) */
+    private double minHeapFree = 0.1;
+
+    /** Not ready when the p99 API latency of the recent window is above this */
+    private Duration maxP99Latency = Duration.ofSeconds(2);
+
+    /** Requests needed before the latency check judges a window */
+    private int minLatencySamples = 50;
+
+    /** Longest latency window; a quiet window is restarted after this long */
+    private Duration latencyWindow = Duration.ofMinutes(1);
+
+    public Duration getRefreshInterval() { return refreshInterval; }
+    public void setRefreshInterval(Duration refreshInterval) { this.refreshInterval = refreshInterval; }
+
+    public Duration getStaleAfter() { return staleAfter; }
+    public void setStaleAfter(Duration staleAfter) { this.staleAfter = staleAfter; }
+
+    public double getMaxQueueSaturation() { return maxQueueSaturation; }
+    public void setMaxQueueSaturation(double maxQueueSaturation) { this.maxQueueSaturation = maxQueueSaturation; }
+
+    public double getMinHeapFree() { return minHeapFree; }
+    public void setMinHeapFree(double minHeapFree) { this.minHeapFree = minHeapFree; }
+
+    public Duration getMaxP99Latency() { return maxP99Latency; }
+    public void setMaxP99Latency(Duration maxP99Latency) { this.maxP99Latency = maxP99Latency; }
+
+    public int getMinLatencySamples() { return minLatencySamples; }
+    public void setMinLatencySamples(int minLatencySamples) { this.minLatencySamples = minLatencySamples; }
+
+    public Duration getLatencyWindow() { return latencyWindow; }
+    public void setLatencyWindow(Duration latencyWindow) { this.latencyWindow = latencyWindow; }
+}
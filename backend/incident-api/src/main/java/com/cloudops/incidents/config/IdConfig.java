@@ -0,0 +1,21 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.util.UuidGenerator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Chooses the ID generator for new incidents from IdProperties.
+ */
+@Configuration
+@EnableConfigurationProperties(IdProperties.class)
+public class IdConfig {
+
+    @Bean
+    public UuidGenerator incidentIdGenerator(IdProperties properties) {
+        return properties.getStrategy() == IdProperties.Strategy.RANDOM
+                ? UuidGenerator.random()
+                : UuidGenerator.timeOrdered();
+    }
+}
@@ -0,0 +1,29 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for how new incident IDs are generated, bound from
+ * "incidents.ids.*" in application.yml.
+ *
+ * Example:
+ * incidents:
+ *   ids:
+ *     strategy: time-ordered
+ */
+@ConfigurationProperties(prefix = "incidents.ids")
+public class IdProperties {
+
+    /**
+     * ID generation strategies (see UuidGenerator).
+     * - TIME_ORDERED: UUIDv7, sorted by creation time, cheap to generate (default)
+     * - RANDOM: UUIDv4, reveals nothing about creation time
+     */
+    public enum Strategy { TIME_ORDERED, RANDOM }
+
+    /** Which strategy to use for new incidents */
+    private Strategy strategy = Strategy.TIME_ORDERED;
+
+    public Strategy getStrategy() { return strategy; }
+    public void setStrategy(Strategy strategy) { this.strategy = strategy; }
+}
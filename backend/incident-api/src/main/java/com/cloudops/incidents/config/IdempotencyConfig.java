@@ -0,0 +1,26 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.service.IdempotencyCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Builds the cache of POST /api/incidents responses by Idempotency-Key
+ * from IdempotencyProperties.
+ */
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyCache<IncidentResponse> incidentIdempotencyCache(IdempotencyProperties properties,
+                                                                       MeterRegistry meterRegistry) {
+        return new IdempotencyCache<>("incidents.create", properties.getTtl(), properties.getMaxKeys(),
+                Clock.systemUTC(), meterRegistry);
+    }
+}
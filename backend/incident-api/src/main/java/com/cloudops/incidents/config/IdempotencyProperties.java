@@ -0,0 +1,31 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the Idempotency-Key header on POST /api/incidents,
+ * bound from "incidents.idempotency.*" in application.yml.
+ *
+ * Example:
+ * incidents:
+ *   idempotency:
+ *     ttl: 24h
+ *     max-keys: 100000
+ */
+@ConfigurationProperties(prefix = "incidents.idempotency")
+public class IdempotencyProperties {
+
+    /** How long a key is remembered; a retry after this creates a new incident */
+    private Duration ttl = Duration.ofHours(24);
+
+    /** Most keys remembered at once; the oldest are forgotten first */
+    private int maxKeys = 100_000;
+
+    public Duration getTtl() { return ttl; }
+    public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+    public int getMaxKeys() { return maxKeys; }
+    public void setMaxKeys(int maxKeys) { this.maxKeys = maxKeys; }
+}
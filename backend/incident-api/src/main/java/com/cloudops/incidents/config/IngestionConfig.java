@@ -0,0 +1,32 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.metrics.IngestionPipelineMetrics;
+import com.cloudops.incidents.service.DiagnosticsIngestionPipeline;
+import com.cloudops.incidents.service.DiagnosticsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Builds the diagnostics ingestion pipeline from IngestionProperties.
+ * 
+ * Spring calls close() on shutdown, which lets queued batches drain.
+ * The pipeline's counters are published as diagnostics.pipeline.* metrics.
+ */
+@Configuration
+@EnableConfigurationProperties(IngestionProperties.class)
+public class IngestionConfig {
+
+    @Bean
+    public DiagnosticsIngestionPipeline diagnosticsIngestionPipeline(DiagnosticsService diagnosticsService,
+                                                                     IngestionProperties properties,
+                                                                     MeterRegistry meterRegistry) {
+        DiagnosticsIngestionPipeline pipeline = new DiagnosticsIngestionPipeline(diagnosticsService,
+                properties.getWorkers(), properties.getQueueCapacity(), properties.getShutdownTimeout());
+        // Bound here rather than declared as a MeterBinder bean: Spring binds MeterBinder
+        // beans while creating the registry, and the pipeline itself needs the registry
+        new IngestionPipelineMetrics(pipeline).bindTo(meterRegistry);
+        return pipeline;
+    }
+}
@@ -0,0 +1,38 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the diagnostics ingestion pipeline, bound from
+ * "incidents.ingestion.diagnostics.*" in application.yml.
+ * 
+ * Example:
+ * incidents:
+ *   ingestion:
+ *     diagnostics:
+ *       workers: 4
+ *       queue-capacity: 512
+ */
+@ConfigurationProperties(prefix = "incidents.ingestion.diagnostics")
+public class IngestionProperties {
+
+    /** Worker threads that validate and store queued batches */
+    private int workers = 2;
+
+    /** Batches that may wait in the queue before clients get HTTP 429 */
+    private int queueCapacity = 256;
+
+    /** How long shutdown waits for queued batches to be stored */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    public int getWorkers() { return workers; }
+    public void setWorkers(int workers) { this.workers = workers; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public Duration getShutdownTimeout() { return shutdownTimeout; }
+    public void setShutdownTimeout(Duration shutdownTimeout) { this.shutdownTimeout = shutdownTimeout; }
+}
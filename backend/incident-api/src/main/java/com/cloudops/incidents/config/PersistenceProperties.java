@@ -0,0 +1,209 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.persistence.FsyncPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for how incidents are stored, bound from "incidents.persistence.*"
+ * in application.yml.
+ * 
+ * Example:
+ * incidents:
+ *   persistence:
+ *     mode: wal
+ *     directory: /var/lib/incident-tracker
+ *     fsync: always
+ */
+@ConfigurationProperties(prefix = "incidents.persistence")
+public class PersistenceProperties {
+
+    /**
+     * Storage modes for incidents.
+     * - MEMORY: RAM only, data is lost on restart (default)
+     * - WAL: RAM plus write-ahead log and snapshots on local disk
+     * - DYNAMODB: a DynamoDB table (settings under dynamodb)
+     */
+    public enum Mode { MEMORY, WAL, DYNAMODB }
+
+    /** Which storage mode to use */
+    private Mode mode = Mode.MEMORY;
+
+    /** Directory for write-ahead log segments and snapshots (WAL mode) */
+    private String directory = "./data/incidents";
+
+    /** When log writes are forced to disk (WAL mode) */
+    private FsyncPolicy fsync = FsyncPolicy.ALWAYS;
+
+    /** Maximum time between fsyncs when fsync=interval */
+    private Duration fsyncInterval = Duration.ofMillis(100);
+
+    /** Log records after which a new snapshot is written */
+    private long snapshotEvery = 100_000;
+
+    /** How often to check whether a snapshot is due */
+    private Duration snapshotCheckInterval = Duration.ofSeconds(30);
+
+    /** Settings for diagnostic record storage */
+    private Diagnostics diagnostics = new Diagnostics();
+
+    /** Settings for the DynamoDB tables (DYNAMODB modes) */
+    private DynamoDb dynamodb = new DynamoDb();
+
+    public Mode getMode() { return mode; }
+    public void setMode(Mode mode) { this.mode = mode; }
+
+    public String getDirectory() { return directory; }
+    public void setDirectory(String directory) { this.directory = directory; }
+
+    public FsyncPolicy getFsync() { return fsync; }
+    public void setFsync(FsyncPolicy fsync) { this.fsync = fsync; }
+
+    public Duration getFsyncInterval() { return fsyncInterval; }
+    public void setFsyncInterval(Duration fsyncInterval) { this.fsyncInterval = fsyncInterval; }
+
+    public long getSnapshotEvery() { return snapshotEvery; }
+    public void setSnapshotEvery(long snapshotEvery) { this.snapshotEvery = snapshotEvery; }
+
+    public Duration getSnapshotCheckInterval() { return snapshotCheckInterval; }
+    public void setSnapshotCheckInterval(Duration snapshotCheckInterval) { this.snapshotCheckInterval = snapshotCheckInterval; }
+
+    public Diagnostics getDiagnostics() { return diagnostics; }
+    public void setDiagnostics(Diagnostics diagnostics) { this.diagnostics = diagnostics; }
+
+    public DynamoDb getDynamodb() { return dynamodb; }
+    public void setDynamodb(DynamoDb dynamodb) { this.dynamodb = dynamodb; }
+
+    /**
+     * Whether incidents or diagnostic records live in DynamoDB, i.e. in a
+     * table shared with other instances rather than in this process.
+     */
+    public boolean usesDynamoDb() {
+        return mode == Mode.DYNAMODB || diagnostics.getMode() == Diagnostics.Mode.DYNAMODB;
+    }
+
+    /**
+     * Settings for diagnostic records, bound from "incidents.persistence.diagnostics.*".
+     */
+    public static class Diagnostics {
+
+        /**
+         * Storage modes for diagnostic records.
+         * - MEMORY: everything on the heap, lost on restart (default)
+         * - SEGMENTS: metadata on the heap, payloads in memory-mapped segment files
+         * - DYNAMODB: a DynamoDB table (settings under incidents.persistence.dynamodb)
+         */
+        public enum Mode { MEMORY, SEGMENTS, DYNAMODB }
+
+        /** Which storage mode to use */
+        private Mode mode = Mode.MEMORY;
+
+        /** Directory for segment files (SEGMENTS mode) */
+        private String directory = "./data/diagnostics";
+
+        /** Size of each segment file in bytes */
+        private int segmentSize = 64 * 1024 * 1024;
+
+        /** Start a new segment once the active one is this old */
+        private Duration segmentMaxAge = Duration.ofHours(1);
+
+        public Mode getMode() { return mode; }
+        public void setMode(Mode mode) { this.mode = mode; }
+
+        public String getDirectory() { return directory; }
+        public void setDirectory(String directory) { this.directory = directory; }
+
+        public int getSegmentSize() { return segmentSize; }
+        public void setSegmentSize(int segmentSize) { this.segmentSize = segmentSize; }
+
+        public Duration getSegmentMaxAge() { return segmentMaxAge; }
+        public void setSegmentMaxAge(Duration segmentMaxAge) { this.segmentMaxAge = segmentMaxAge; }
+    }
+
+    /**
+     * Settings for DynamoDB storage, bound from "incidents.persistence.dynamodb.*".
+     * Credentials come from the default AWS provider chain (environment,
+     * profile, instance/task role).
+     */
+    public static class DynamoDb {
+
+        /** Use the in-process stand-in (LocalDynamoDbClient) instead of AWS; data is lost on restart */
+        private boolean local = false;
+
+        /** Endpoint override, e.g. http://localhost:8000 for DynamoDB Local (empty = AWS) */
+        private String endpoint;
+
+        /** AWS region of the tables */
+        private String region = "us-east-1";
+
+        /** Name of the incidents table */
+        private String incidentsTable = "incidents";
+
+        /** Name of the diagnostics table */
+        private String diagnosticsTable = "incident-diagnostics";
+
+        /** Create missing tables on startup (always done for the local stand-in) */
+        private boolean createTables = false;
+
+        /** Most BatchWriteItem requests outstanding at once, per table */
+        private int maxInFlightBatches = 16;
+
+        /** Most writes waiting for a batch, per table (more fail with 503) */
+        private int writeQueueCapacity = 10_000;
+
+        /** Attempts per request when throttled, including the first */
+        private int maxAttempts = 8;
+
+        /** Backoff cap after the first throttled attempt (doubles each attempt) */
+        private Duration baseDelay = Duration.ofMillis(25);
+
+        /** Largest backoff cap */
+        private Duration maxDelay = Duration.ofSeconds(2);
+
+        /** How long a request waits for DynamoDB before failing with 503 */
+        private Duration requestTimeout = Duration.ofSeconds(15);
+
+        /** How long cached counts (metrics gauges) are used before being recounted */
+        private Duration countRefreshInterval = Duration.ofSeconds(30);
+
+        public boolean isLocal() { return local; }
+        public void setLocal(boolean local) { this.local = local; }
+
+        public String getEndpoint() { return endpoint; }
+        public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
+
+        public String getRegion() { return region; }
+        public void setRegion(String region) { this.region = region; }
+
+        public String getIncidentsTable() { return incidentsTable; }
+        public void setIncidentsTable(String incidentsTable) { this.incidentsTable = incidentsTable; }
+
+        public String getDiagnosticsTable() { return diagnosticsTable; }
+        public void setDiagnosticsTable(String diagnosticsTable) { this.diagnosticsTable = diagnosticsTable; }
+
+        public boolean isCreateTables() { return createTables; }
+        public void setCreateTables(boolean createTables) { this.createTables = createTables; }
+
+        public int getMaxInFlightBatches() { return maxInFlightBatches; }
+        public void setMaxInFlightBatches(int maxInFlightBatches) { this.maxInFlightBatches = maxInFlightBatches; }
+
+        public int getWriteQueueCapacity() { return writeQueueCapacity; }
+        public void setWriteQueueCapacity(int writeQueueCapacity) { this.writeQueueCapacity = writeQueueCapacity; }
+
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+        public Duration getBaseDelay() { return baseDelay; }
+        public void setBaseDelay(Duration baseDelay) { this.baseDelay = baseDelay; }
+
+        public Duration getMaxDelay() { return maxDelay; }
+        public void setMaxDelay(Duration maxDelay) { this.maxDelay = maxDelay; }
+
+        public Duration getRequestTimeout() { return requestTimeout; }
+        public void setRequestTimeout(Duration requestTimeout) { this.requestTimeout = requestTimeout; }
+
+        public Duration getCountRefreshInterval() { return countRefreshInterval; }
+        public void setCountRefreshInterval(Duration countRefreshInterval) { this.countRefreshInterval = countRefreshInterval; }
+    }
+}
@@ -0,0 +1,180 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.cache.CachingIncidentRepository;
+import com.cloudops.incidents.dynamodb.DynamoBatchWriter;
+import com.cloudops.incidents.dynamodb.DynamoRetry;
+import com.cloudops.incidents.dynamodb.DynamoTables;
+import com.cloudops.incidents.dynamodb.LocalDynamoDbClient;
+import com.cloudops.incidents.metrics.InstrumentedDiagnosticsRepository;
+import com.cloudops.incidents.metrics.InstrumentedIncidentRepository;
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.DurableIncidentRepository;
+import com.cloudops.incidents.repository.DynamoDiagnosticsRepository;
+import com.cloudops.incidents.repository.DynamoIncidentRepository;
+import com.cloudops.incidents.repository.InMemoryDiagnosticsRepository;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.repository.SegmentedDiagnosticsRepository;
+import com.cloudops.incidents.search.IndexedDiagnosticsRepository;
+import com.cloudops.incidents.search.IndexedIncidentRepository;
+import com.cloudops.incidents.search.SearchIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chooses and builds the repository implementations.
+ * 
+ * The storage backend is picked from configuration instead of by
+ * component scanning, so the service layer always gets exactly one
+ * IncidentRepository and one DiagnosticsRepository.
+ * 
+ * incidents.persistence.mode:
+ * - memory (default): InMemoryIncidentRepository
+ * - wal: DurableIncidentRepository (in-memory + write-ahead log + snapshots)
+ * - dynamodb: DynamoIncidentRepository
+ * 
+ * incidents.persistence.diagnostics.mode:
+ * - memory (default): InMemoryDiagnosticsRepository
+ * - segments: SegmentedDiagnosticsRepository (payloads in memory-mapped files)
+ * - dynamodb: DynamoDiagnosticsRepository
+ * 
+ * Both DynamoDB repositories share one DynamoDbAsyncClient, created only
+ * when a dynamodb mode is selected (incidents.persistence.dynamodb.*).
+ * 
+ * Whichever is chosen is wrapped in decorators:
+ * - Indexed*Repository keeps the full-text SearchIndex up to date
+ *   (when incidents.search.enabled is true; in dynamodb mode only
+ *   with incidents.search.with-dynamodb, see SearchProperties)
+ * - CachingIncidentRepository serves repeated reads from memory
+ *   (when incidents.cache.enabled is true)
+ * - Instrumented*Repository, outermost, records operation latencies
+ *   (including indexing) and store sizes (see /actuator/prometheus)
+ */
+@Configuration
+@EnableConfigurationProperties({PersistenceProperties.class, CacheProperties.class})
+public class RepositoryConfig {
+
+    /**
+     * Builds the incident repository for the configured mode.
+     * Spring calls close() on shutdown, which flushes the write-ahead log.
+     */
+    @Bean
+    public IncidentRepository incidentRepository(PersistenceProperties properties, SearchProperties search,
+                                                 CacheProperties cache, SearchIndex searchIndex,
+                                                 ObjectProvider<DynamoDbAsyncClient> dynamoDb, MeterRegistry registry)
+            throws IOException {
+        IncidentRepository repository;
+        if (properties.getMode() == PersistenceProperties.Mode.DYNAMODB) {
+            PersistenceProperties.DynamoDb settings = properties.getDynamodb();
+            DynamoDbAsyncClient client = dynamoDb.getObject();
+            String table = settings.getIncidentsTable();
+            if (settings.isLocal() || settings.isCreateTables()) {
+                DynamoTables.createIfMissing(client, DynamoTables.incidentsTable(table));
+            }
+            DynamoRetry retry = retry(table, settings, registry);
+            repository = new DynamoIncidentRepository(client, table, retry,
+                    writer(client, table, Collections.singletonList(DynamoTables.ID), retry, settings, registry),
+                    settings.getRequestTimeout(), settings.getCountRefreshInterval());
+        } else if (properties.getMode() == PersistenceProperties.Mode.WAL) {
+            repository = new DurableIncidentRepository(new InMemoryIncidentRepository(),
+                    Paths.get(properties.getDirectory()), properties.getFsync(), properties.getFsyncInterval(),
+                    properties.getSnapshotEvery(), properties.getSnapshotCheckInterval());
+        } else {
+            repository = new InMemoryIncidentRepository();
+        }
+        if (search.isActive(properties)) {
+            repository = new IndexedIncidentRepository(repository, searchIndex);
+        }
+        if (cache.isEnabled()) {
+            repository = new CachingIncidentRepository(repository, cache, registry);
+        }
+        return new InstrumentedIncidentRepository(repository, registry);
+    }
+
+    /**
+     * Builds the diagnostics repository for the configured mode.
+     */
+    @Bean
+    public DiagnosticsRepository diagnosticsRepository(PersistenceProperties properties, SearchProperties search,
+                                                       SearchIndex searchIndex, IncidentRepository incidentRepository,
+                                                       ObjectProvider<DynamoDbAsyncClient> dynamoDb,
+                                                       MeterRegistry registry) throws IOException {
+        PersistenceProperties.Diagnostics diagnostics = properties.getDiagnostics();
+        DiagnosticsRepository repository;
+        if (diagnostics.getMode() == PersistenceProperties.Diagnostics.Mode.DYNAMODB) {
+            PersistenceProperties.DynamoDb settings = properties.getDynamodb();
+            DynamoDbAsyncClient client = dynamoDb.getObject();
+            String table = settings.getDiagnosticsTable();
+            if (settings.isLocal() || settings.isCreateTables()) {
+                DynamoTables.createIfMissing(client, DynamoTables.diagnosticsTable(table));
+            }
+            DynamoRetry retry = retry(table, settings, registry);
+            List<String> key = Arrays.asList(DynamoTables.INCIDENT_ID, DynamoTables.ID);
+            repository = new DynamoDiagnosticsRepository(client, table, retry,
+                    writer(client, table, key, retry, settings, registry),
+                    settings.getRequestTimeout(), settings.getCountRefreshInterval());
+        } else if (diagnostics.getMode() == PersistenceProperties.Diagnostics.Mode.SEGMENTS) {
+            repository = new SegmentedDiagnosticsRepository(Paths.get(diagnostics.getDirectory()),
+                    diagnostics.getSegmentSize(), diagnostics.getSegmentMaxAge());
+        } else {
+            repository = new InMemoryDiagnosticsRepository();
+        }
+        if (search.isActive(properties) && search.isIndexDiagnostics()) {
+            repository = new IndexedDiagnosticsRepository(repository, searchIndex, incidentRepository.findAll());
+        }
+        return new InstrumentedDiagnosticsRepository(repository, registry);
+    }
+
+    /**
+     * Builds the DynamoDB client, only when a repository asks for it.
+     * 
+     * With incidents.persistence.dynamodb.local=true this is the in-process
+     * stand-in; otherwise the AWS SDK's asynchronous client (Netty), with
+     * the SDK's own retries turned off because DynamoRetry does them.
+     */
+    @Bean
+    @Lazy
+    public DynamoDbAsyncClient dynamoDbClient(PersistenceProperties properties) {
+        PersistenceProperties.DynamoDb settings = properties.getDynamodb();
+        if (settings.isLocal()) {
+            return new LocalDynamoDbClient();
+        }
+        DynamoDbAsyncClientBuilder builder = DynamoDbAsyncClient.builder()
+                .region(Region.of(settings.getRegion()))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .retryPolicy(RetryPolicy.none())
+                        .build());
+        if (settings.getEndpoint() != null && !settings.getEndpoint().isEmpty()) {
+            builder.endpointOverride(URI.create(settings.getEndpoint()));
+        }
+        return builder.build();
+    }
+
+    private static DynamoRetry retry(String table, PersistenceProperties.DynamoDb settings, MeterRegistry registry) {
+        return new DynamoRetry(table, settings.getMaxAttempts(), settings.getBaseDelay(), settings.getMaxDelay(),
+                registry);
+    }
+
+    private static DynamoBatchWriter writer(DynamoDbAsyncClient client, String table, List<String> key,
+                                            DynamoRetry retry, PersistenceProperties.DynamoDb settings,
+                                            MeterRegistry registry) {
+        return new DynamoBatchWriter(client, table, key, retry, settings.getMaxInFlightBatches(),
+                settings.getWriteQueueCapacity(), registry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.persistence.IncidentArchive;
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.service.IncidentChangeFeed;
+import com.cloudops.incidents.service.RetentionEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Builds the RetentionEngine (and its archive) from RetentionProperties.
+ *
+ * Resolved incidents already in the repository (for example recovered from
+ * the write-ahead log) are queued here, so incidents resolved before a
+ * restart are still removed on time.
+ *
+ * Spring calls close() on shutdown, which stops the retention thread.
+ */
+@Configuration
+@EnableConfigurationProperties(RetentionProperties.class)
+public class RetentionConfig {
+
+    @Bean
+    public RetentionEngine retentionEngine(RetentionProperties properties,
+                                           IncidentRepository incidentRepository,
+                                           DiagnosticsRepository diagnosticsRepository,
+                                           IncidentChangeFeed incidentChangeFeed,
+                                           ObjectMapper objectMapper,
+                                           MeterRegistry meterRegistry) throws IOException {
+        IncidentArchive archive = properties.getArchive().isEnabled()
+                ? new IncidentArchive(Paths.get(properties.getArchive().getDirectory()), objectMapper)
+                : null;
+        Duration interval = properties.isEnabled() ? properties.getInterval() : Duration.ZERO;
+        RetentionEngine engine = new RetentionEngine(incidentRepository, diagnosticsRepository, incidentChangeFeed,
+                archive, properties.getResolvedTtl(), interval, properties.getBatchSize(),
+                Clock.systemUTC(), meterRegistry);
+
+        if (engine.isEnabled()) {
+            for (Incident incident : incidentRepository.findByStatus(IncidentStatus.RESOLVED)) {
+                engine.record(null, incident);
+            }
+        }
+        return engine;
+    }
+}
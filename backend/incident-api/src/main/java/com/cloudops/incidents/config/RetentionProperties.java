@@ -0,0 +1,73 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for removing old resolved incidents (see RetentionEngine),
+ * bound from "incidents.retention.*" in application.yml.
+ *
+ * Example:
+ * incidents:
+ *   retention:
+ *     enabled: true
+ *     resolved-ttl: 7d
+ *     interval: 1m
+ *     batch-size: 500
+ *     archive:
+ *       enabled: true
+ *       directory: ./data/archive
+ */
+@ConfigurationProperties(prefix = "incidents.retention")
+public class RetentionProperties {
+
+    /** Whether resolved incidents are ever removed (false = keep everything) */
+    private boolean enabled = true;
+
+    /** How long an incident stays after its last change once it is RESOLVED */
+    private Duration resolvedTtl = Duration.ofDays(7);
+
+    /** Time between retention passes */
+    private Duration interval = Duration.ofMinutes(1);
+
+    /** Most incidents removed (and archived) in one step of a pass */
+    private int batchSize = 500;
+
+    /** Where removed incidents are copied to before they leave memory */
+    private Archive archive = new Archive();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getResolvedTtl() { return resolvedTtl; }
+    public void setResolvedTtl(Duration resolvedTtl) { this.resolvedTtl = resolvedTtl; }
+
+    public Duration getInterval() { return interval; }
+    public void setInterval(Duration interval) { this.interval = interval; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public Archive getArchive() { return archive; }
+    public void setArchive(Archive archive) { this.archive = archive; }
+
+    /**
+     * Settings for the archive of removed incidents, bound from
+     * "incidents.retention.archive.*".
+     */
+    public static class Archive {
+
+        /** Whether removed incidents are archived (false = they are simply dropped) */
+        private boolean enabled = false;
+
+        /** Directory of the compressed archive files */
+        private String directory = "./data/archive";
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getDirectory() { return directory; }
+        public void setDirectory(String directory) { this.directory = directory; }
+    }
+}
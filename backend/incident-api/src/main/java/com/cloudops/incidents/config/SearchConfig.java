@@ -0,0 +1,23 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.search.SearchIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Builds the full-text SearchIndex.
+ *
+ * The index is filled by the Indexed*Repository decorators that
+ * RepositoryConfig adds when incidents.search.enabled is true.
+ */
+@Configuration
+@EnableConfigurationProperties(SearchProperties.class)
+public class SearchConfig {
+
+    @Bean
+    public SearchIndex searchIndex(MeterRegistry meterRegistry) {
+        return new SearchIndex(meterRegistry);
+    }
+}
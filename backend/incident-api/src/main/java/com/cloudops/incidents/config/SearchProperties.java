@@ -0,0 +1,51 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for full-text search (GET /api/search, see SearchIndex),
+ * bound from "incidents.search.*" in application.yml.
+ *
+ * Example:
+ * incidents:
+ *   search:
+ *     enabled: true
+ *     index-diagnostics: true
+ *     with-dynamodb: false
+ *
+ * The index lives in each instance's memory and is rebuilt from the store
+ * at startup. With DynamoDB that means a full read of the tables on every
+ * start, and an index that only sees the writes of its own instance, so in
+ * dynamodb mode search stays off unless with-dynamodb is set.
+ */
+@ConfigurationProperties(prefix = "incidents.search")
+public class SearchProperties {
+
+    /** Whether incidents are indexed at all (false = GET /api/search returns 503) */
+    private boolean enabled = true;
+
+    /** Whether diagnostic record data is indexed too (the bulk of the index) */
+    private boolean indexDiagnostics = true;
+
+    /** Whether to keep the index even when a store is in DynamoDB (see above) */
+    private boolean withDynamodb = false;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public boolean isIndexDiagnostics() { return indexDiagnostics; }
+    public void setIndexDiagnostics(boolean indexDiagnostics) { this.indexDiagnostics = indexDiagnostics; }
+
+    public boolean isWithDynamodb() { return withDynamodb; }
+    public void setWithDynamodb(boolean withDynamodb) { this.withDynamodb = withDynamodb; }
+
+    /**
+     * Whether the index is kept for the given storage settings.
+     *
+     * @param persistence The storage settings
+     * @return true if enabled, and either no store is in DynamoDB or with-dynamodb is set
+     */
+    public boolean isActive(PersistenceProperties persistence) {
+        return enabled && (withDynamodb || !persistence.usesDynamoDb());
+    }
+}
@@ -0,0 +1,24 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.service.IncidentChangeFeed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Builds the incident change feed from StreamProperties.
+ * 
+ * Spring calls close() on shutdown, which ends every open stream.
+ */
+@Configuration
+@EnableConfigurationProperties(StreamProperties.class)
+public class StreamConfig {
+
+    @Bean
+    public IncidentChangeFeed incidentChangeFeed(StreamProperties properties, ObjectMapper objectMapper,
+                                                 MeterRegistry meterRegistry) {
+        return new IncidentChangeFeed(properties, objectMapper, meterRegistry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudops.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the incident change feed (GET /api/incidents/stream),
+ * bound from "incidents.stream.*" in application.yml.
+ * 
+ * Example:
+ * incidents:
+ *   stream:
+ *     replay-buffer: 10000
+ *     subscriber-queue: 256
+ */
+@ConfigurationProperties(prefix = "incidents.stream")
+public class StreamProperties {
+
+    /** Recent events kept for clients resuming with Last-Event-ID */
+    private int replayBuffer = 10_000;
+
+    /** Events that may wait for one slow subscriber before it is disconnected */
+    private int subscriberQueue = 256;
+
+    /** Maximum number of connected subscribers; more get HTTP 503 */
+    private int maxSubscribers = 10_000;
+
+    /** Threads that write events to subscribers (not one per connection) */
+    private int dispatchers = 2;
+
+    /** Comment line sent to every subscriber this often to keep proxies from closing idle streams */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /** A stream is closed after this long; EventSource clients reconnect and resume */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    public int getReplayBuffer() { return replayBuffer; }
+    public void setReplayBuffer(int replayBuffer) { this.replayBuffer = replayBuffer; }
+
+    public int getSubscriberQueue() { return subscriberQueue; }
+    public void setSubscriberQueue(int subscriberQueue) { this.subscriberQueue = subscriberQueue; }
+
+    public int getMaxSubscribers() { return maxSubscribers; }
+    public void setMaxSubscribers(int maxSubscribers) { this.maxSubscribers = maxSubscribers; }
+
+    public int getDispatchers() { return dispatchers; }
+    public void setDispatchers(int dispatchers) { this.dispatchers = dispatchers; }
+
+    public Duration getHeartbeatInterval() { return heartbeatInterval; }
+    public void setHeartbeatInterval(Duration heartbeatInterval) { this.heartbeatInterval = heartbeatInterval; }
+
+    public Duration getTimeout() { return timeout; }
+    public void setTimeout(Duration timeout) { this.timeout = timeout; }
+}
@@ -0,0 +1,30 @@
+package com.cloudops.incidents.config;
+
+import com.cloudops.incidents.metrics.EndpointMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC customizations.
+ * 
+ * Registers EndpointMetricsInterceptor so every API and health endpoint
+ * gets a latency histogram (incidents.http.requests). The change feed is
+ * left out: a stream stays open for up to half an hour by design, and its
+ * connections are tracked by incidents.stream.subscribers instead.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new EndpointMetricsInterceptor(meterRegistry))
+                .addPathPatterns("/api/**", "/health/**", "/health")
+                .excludePathPatterns("/api/incidents/stream");
+    }
+}
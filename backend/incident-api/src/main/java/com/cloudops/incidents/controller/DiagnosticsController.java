@@ -0,0 +1,164 @@
+package com.cloudops.incidents.controller;
+
+import com.cloudops.incidents.dto.DiagnosticBatchResponse;
+import com.cloudops.incidents.dto.DiagnosticIngestResponse;
+import com.cloudops.incidents.dto.DiagnosticRequest;
+import com.cloudops.incidents.dto.IngestionStatsResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.service.DiagnosticsIngestionPipeline;
+import com.cloudops.incidents.service.DiagnosticsService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * REST API Controller for diagnostic records.
+ * 
+ * Diagnostic records are evidence attached to incidents, collected by the
+ * Node.js diagnostics-ingestor (logCollector, networkProbe).
+ * 
+ * Base URL: /api/diagnostics
+ * 
+ * Available endpoints:
+ * - POST /api/diagnostics/batch           - Queue many records at once (JSON array or NDJSON)
+ * - GET  /api/diagnostics?incidentId={id} - List an incident's records, oldest first
+ * - GET  /api/diagnostics/pipeline        - Ingestion queue depth, drop counts and stage latencies
+ * 
+ * Uploads are stored asynchronously by DiagnosticsIngestionPipeline:
+ * - 202 Accepted: the batch is queued and will be stored shortly
+ * - 429 Too Many Requests: the queue is full, retry after the Retry-After header (seconds)
+ */
+@RestController
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+
+    @Autowired
+    private DiagnosticsService diagnosticsService;
+
+    @Autowired
+    private DiagnosticsIngestionPipeline ingestionPipeline;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * POST /api/diagnostics/batch (Content-Type: application/json)
+     * 
+     * Queues a batch of diagnostic records sent as a JSON array.
+     * Up to 10,000 records per request. If any record is invalid (missing
+     * incidentId or source, fields too long), nothing is queued and the
+     * response is 400 with each invalid record's index. Records whose
+     * incident doesn't exist are found only after the 202; they are skipped
+     * and counted (GET /api/diagnostics/pipeline).
+     * 
+     * Example request:
+     * POST http://localhost:8080/api/diagnostics/batch
+     * Content-Type: application/json
+     * 
+     * [
+     *   { "incidentId": "550e8400-...", "source": "networkProbe", "data": "timeout after 5000ms" },
+     *   { "incidentId": "550e8400-...", "source": "logCollector", "data": "ERROR pool exhausted" }
+     * ]
+     * 
+     * Example response (HTTP 202):
+     * { "batchId": "3f2b8c1e-...", "records": 2, "queueDepth": 0 }
+     * 
+     * Example response (HTTP 400):
+     * { "accepted": 0, "rejected": 1, "ids": [], "errors": [ { "index": 1, "message": "Source is required" } ] }
+     * 
+     * @param requests The records to store
+     * @return HTTP 202 Accepted, HTTP 400 listing invalid records,
+     *         or HTTP 429 with Retry-After if the queue is full
+     */
+    @PostMapping(value = "/batch", consumes = "application/json")
+    public ResponseEntity<?> ingestBatch(@RequestBody List<DiagnosticRequest> requests) {
+        return submit(requests);
+    }
+
+    /**
+     * POST /api/diagnostics/batch (Content-Type: application/x-ndjson)
+     * 
+     * Same as above, but one JSON record per line. Collectors can write
+     * records to the request as they produce them.
+     * 
+     * Example request body:
+     * {"incidentId":"550e8400-...","source":"networkProbe","data":"timeout after 5000ms"}
+     * {"incidentId":"550e8400-...","source":"logCollector","data":"ERROR pool exhausted"}
+     * 
+     * @param request The raw HTTP request (body is read line by line)
+     * @return HTTP 202 Accepted, HTTP 400 listing invalid records,
+     *         or HTTP 429 with Retry-After if the queue is full
+     */
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    public ResponseEntity<?> ingestNdjson(HttpServletRequest request) throws IOException {
+        List<DiagnosticRequest> requests = new ArrayList<>();
+        try (MappingIterator<DiagnosticRequest> lines = objectMapper.readerFor(DiagnosticRequest.class)
+                .readValues(request.getInputStream())) {
+            while (lines.hasNextValue()) {
+                requests.add(lines.nextValue());
+                if (requests.size() > DiagnosticsService.MAX_BATCH_SIZE) {
+                    throw new ApiException("Batch must not exceed " + DiagnosticsService.MAX_BATCH_SIZE + " records", 413);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new ApiException("Malformed NDJSON at record " + requests.size() + ": " + e.getOriginalMessage(), 400);
+        }
+        return submit(requests);
+    }
+
+    /**
+     * GET /api/diagnostics?incidentId={id}
+     * 
+     * Lists all diagnostic records of an incident, oldest first.
+     * 
+     * @param incidentId The incident ID
+     * @return HTTP 200 OK with the incident's records (empty list if none)
+     */
+    @GetMapping
+    public ResponseEntity<List<DiagnosticRecord>> getDiagnostics(@RequestParam String incidentId) {
+        return ResponseEntity.ok(diagnosticsService.getDiagnosticsByIncident(incidentId));
+    }
+
+    /**
+     * GET /api/diagnostics/pipeline
+     * 
+     * Shows how the ingestion pipeline is keeping up: queue depth,
+     * accepted/dropped counts and per-stage latencies.
+     * 
+     * @return HTTP 200 OK with the pipeline stats
+     */
+    @GetMapping("/pipeline")
+    public ResponseEntity<IngestionStatsResponse> getPipelineStats() {
+        return ResponseEntity.ok(ingestionPipeline.getStats());
+    }
+
+    /**
+     * Validates a parsed batch, hands it to the pipeline and builds the
+     * 202, 400 or 429 response.
+     */
+    private ResponseEntity<?> submit(List<DiagnosticRequest> requests) {
+        diagnosticsService.checkBatchSize(requests);
+        DiagnosticBatchResponse invalid = diagnosticsService.validateBatch(requests);
+        if (invalid.getRejected() > 0) {
+            return ResponseEntity.badRequest().body(invalid);
+        }
+        String batchId = ingestionPipeline.submit(requests);
+        if (batchId == null) {
+            throw new ApiException("Diagnostics ingestion queue is full, retry later", 429)
+                    .withHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ingestionPipeline.retryAfterSeconds()));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new DiagnosticIngestResponse(batchId, requests.size(), ingestionPipeline.getQueueDepth()));
+    }
+}
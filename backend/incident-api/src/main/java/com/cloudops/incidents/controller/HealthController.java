@@ -1,54 +1,101 @@
 package com.cloudops.incidents.controller;
 
+import com.cloudops.incidents.dto.HealthResponse;
+import com.cloudops.incidents.service.HealthMonitor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
- * Health check endpoint for monitoring system availability.
- * 
- * This simple endpoint is critical for:
- * - Load balancers checking if the service is alive
- * - Monitoring systems verifying service health
- * - Kubernetes/Docker health probes
- * - Quick manual checks during deployments
- * 
- * URL: /health
- * 
- * If this endpoint returns 200 OK, the service is running.
- * If it doesn't respond, the service is down or unreachable.
+ * Health check endpoints for load balancers and orchestrators.
+ *
+ * Two different questions are answered here:
+ * - Liveness  (/health/live):  "Is the process working at all?" If not, restart it.
+ * - Readiness (/health/ready): "Should this instance get traffic right now?"
+ *   If not, the load balancer sends requests to healthier instances until it recovers.
+ *
+ * URL: /health (same as /health/ready, for existing load balancer configs)
+ *
+ * Readiness fails (HTTP 503) when a storage backend is down, the diagnostics
+ * ingestion queue is nearly full, the heap is nearly exhausted, or recent
+ * p99 latency is too high. Thresholds are in application.yml under incidents.health.
+ *
+ * Probes are cheap: the checks run in the background (see HealthMonitor)
+ * and these endpoints only return the latest result.
  */
 @RestController
 @RequestMapping("/health")
 public class HealthController {
 
+    @Autowired
+    private HealthMonitor healthMonitor;
+
     /**
      * GET /health
-     * 
-     * Simple health check that returns "OK" if the service is running.
-     * 
-     * This endpoint:
-     * - Requires no authentication
-     * - Returns immediately (no database calls)
-     * - Always returns 200 OK if service is alive
-     * 
-     * Use cases:
-     * - Load balancer: "Is this instance healthy?"
-     * - Monitoring: "Is the API responding?"
-     * - Deployment: "Did the new version start successfully?"
-     * 
+     *
+     * Readiness check (kept at the original URL).
+     *
      * Example request:
      * GET http://localhost:8080/health
-     * 
+     *
+     * @return HTTP 200 OK if ready, HTTP 503 Service Unavailable if not, with every check's result
+     */
+    @GetMapping
+    public ResponseEntity<HealthResponse> health() {
+        return ready();
+    }
+
+    /**
+     * GET /health/ready
+     *
+     * Readiness check: whether this instance should receive traffic.
+     *
+     * Example request:
+     * GET http://localhost:8080/health/ready
+     *
      * Example response:
      * HTTP 200 OK
-     * "OK"
-     * 
-     * @return HTTP 200 OK with "OK" message
+     * {
+     *   "status": "UP",
+     *   "checkedAt": "2024-01-15T14:30:02Z",
+     *   "checks": {
+     *     "incidentRepository": { "status": "UP", "detail": "1204 incidents" },
+     *     "ingestionQueue": { "status": "UP", "detail": "3/256 batches queued (1%)" },
+     *     ...
+     *   }
+     * }
+     *
+     * @return HTTP 200 OK if ready, HTTP 503 Service Unavailable if not
      */
-    @GetMapping
-    public ResponseEntity<String> health() {
-        return ResponseEntity.ok("OK");
+    @GetMapping("/ready")
+    public ResponseEntity<HealthResponse> ready() {
+        return respond(healthMonitor.getReadiness());
+    }
+
+    /**
+     * GET /health/live
+     *
+     * Liveness check: whether the process is still working. Does not look at
+     * dependencies, so an overloaded or degraded instance is not restarted.
+     *
+     * Example request:
+     * GET http://localhost:8080/health/live
+     *
+     * Example response:
+     * HTTP 200 OK
+     * { "status": "UP", "checkedAt": "...", "checks": { "monitor": { "status": "UP", "detail": "checks refreshed 840 ms ago" } } }
+     *
+     * @return HTTP 200 OK if alive, HTTP 503 Service Unavailable if not
+     */
+    @GetMapping("/live")
+    public ResponseEntity<HealthResponse> live() {
+        return respond(healthMonitor.getLiveness());
+    }
+
+    private static ResponseEntity<HealthResponse> respond(HealthResponse health) {
+        return ResponseEntity.status(health.isUp() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(health);
     }
-}
\ No newline at end of file
+}
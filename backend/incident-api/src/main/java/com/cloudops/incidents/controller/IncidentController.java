@@ -1,13 +1,38 @@
 package com.cloudops.incidents.controller;
 
+import com.cloudops.incidents.cache.SerializedPage;
+import com.cloudops.incidents.dto.ArchivedIncident;
+import com.cloudops.incidents.dto.IncidentAggregationResponse;
 import com.cloudops.incidents.dto.IncidentRequest;
 import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.dto.IncidentStatusRequest;
+import com.cloudops.incidents.dto.RetentionStatsResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.execution.RequestExecutor;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.service.IncidentAggregator;
+import com.cloudops.incidents.service.IncidentChangeFeed;
+import com.cloudops.incidents.service.IncidentExportService;
 import com.cloudops.incidents.service.IncidentService;
+import com.cloudops.incidents.service.RetentionEngine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,12 +42,42 @@ import java.util.List;
  * Base URL: /api/incidents
  * 
  * Available endpoints:
- * - GET    /api/incidents        - List all incidents
+ * - GET    /api/incidents        - List incidents (paginated, filterable)
+ * - GET    /api/incidents/export - Stream incidents as NDJSON (bulk export)
+ * - GET    /api/incidents/aggregate - Incident counts over time, grouped
+ * - GET    /api/incidents/stream - Live change feed (Server-Sent Events)
+ * - GET    /api/incidents/retention - What retention removed from memory
+ * - GET    /api/incidents/archive/{id} - Look up an incident removed by retention
  * - GET    /api/incidents/{id}   - Get specific incident details
  * - POST   /api/incidents        - Create new incident
  * - PUT    /api/incidents/{id}   - Update existing incident
+ * - PUT    /api/incidents/{id}/status - Change status (e.g. RESOLVED)
  * - DELETE /api/incidents/{id}   - Delete incident
  * 
+ * Optimistic concurrency:
+ * Single-incident responses carry an ETag header with the incident's version
+ * (e.g. ETag: "3"). Send it back as If-Match on PUT and the update is refused
+ * with 412 Precondition Failed if someone else changed the incident meanwhile.
+ * 
+ * Conditional GET:
+ * GET /api/incidents/{id} also sends Last-Modified (the incident's updatedAt),
+ * and GET /api/incidents an ETag that changes with any incident change. Send
+ * them back as If-None-Match / If-Modified-Since and an unchanged result is
+ * answered with 304 Not Modified and no body, without serializing anything.
+ * Both are sent with Cache-Control: no-cache, so browsers always revalidate.
+ * 
+ * Execution:
+ * Endpoints that read or write the store run their work through
+ * RequestExecutor: inline by default, or on a dedicated pool with
+ * incidents.execution.mode=async, so a slow store can't take all of
+ * Tomcat's threads (and /health with them). See ExecutionProperties.
+ * They are declared to return Object: the ResponseEntity itself when run
+ * inline, so Spring writes it at once, or a CompletableFuture of it on the
+ * pool, which makes the request async.
+ * On the pool, reads past incidents.execution.timeout get 503; changes
+ * (POST, PUT, DELETE) always wait for their outcome, so a client is never
+ * told a change failed while it is still being applied.
+ * 
  * This controller follows REST principles:
  * - Uses HTTP methods correctly (GET for read, POST for create, etc.)
  * - Returns proper HTTP status codes (200 OK, 204 No Content, etc.)
@@ -40,20 +95,78 @@ public class IncidentController {
     @Autowired
     private IncidentService incidentService;
 
+    /**
+     * Service that streams incidents as NDJSON for bulk export.
+     */
+    @Autowired
+    private IncidentExportService incidentExportService;
+
+    /**
+     * Live feed of incident changes for the dashboard.
+     */
+    @Autowired
+    private IncidentChangeFeed incidentChangeFeed;
+
+    /**
+     * Removes old resolved incidents and looks them up in the archive.
+     */
+    @Autowired
+    private RetentionEngine retentionEngine;
+
+    /**
+     * Runs the store-bound work of requests (inline, or on its own pool).
+     */
+    @Autowired
+    private RequestExecutor requestExecutor;
+
+    /**
+     * Media type for newline-delimited JSON (one JSON object per line).
+     */
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    /**
+     * Response header carrying the cursor for the next page.
+     * Absent on the last page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Request header that makes POST safe to retry: requests with the same
+     * key create at most one incident and all get the same response.
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     /**
      * GET /api/incidents
      * 
-     * Retrieves all incidents in the system.
+     * Retrieves one page of incidents, optionally filtered.
+     * Incidents are ordered by creation time (oldest first), then ID.
+     * 
+     * Query parameters (all optional):
+     * - limit: Page size, 1-1000 (default 100)
+     * - cursor: Value of X-Next-Cursor from the previous page
+     * - severity: LOW, MEDIUM, HIGH, CRITICAL
+     * - status: OPEN, INVESTIGATING, MITIGATED, RESOLVED
+     * - service: Exact service name
+     * - errorType: NETWORK, APPLICATION, CONFIGURATION, RESOURCE
+     * - from / to: Creation time range, ISO-8601 (from inclusive, to exclusive)
+     * 
+     * Filtering and paging happen in the repository, so only the incidents
+     * on the requested page are loaded and serialized. Each incident
+     * version is serialized once and its JSON reused (IncidentJsonCache),
+     * so the body is mostly assembled from already serialized incidents.
      * 
      * Use cases:
-     * - Dashboard displaying all active incidents
+     * - Dashboard displaying active incidents
      * - Reporting and analytics
      * - Incident history review
      * 
      * Example request:
-     * GET http://localhost:8080/api/incidents
+     * GET http://localhost:8080/api/incidents?severity=CRITICAL&status=OPEN&service=payment-processor&limit=50
      * 
      * Example response:
+     * HTTP 200 OK
+     * X-Next-Cursor: MTcwNTMyOTAwMC4wOjU1MGU4NDAw...
      * [
      *   {
      *     "id": "INC-001",
@@ -64,11 +177,272 @@ public class IncidentController {
      *   }
      * ]
      * 
-     * @return HTTP 200 OK with list of all incidents
+     * To get the next page, repeat the request with &cursor=<X-Next-Cursor>.
+     * 
+     * Polling: the response has an ETag that changes whenever any incident
+     * changes (ETag: "k3x9q2-1842"). Repeat the request with
+     * If-None-Match: <ETag> and get 304 Not Modified, without the store
+     * even being queried, until something changes. Not available in
+     * dynamodb mode, where other instances change the table too.
+     * 
+     * @return HTTP 200 OK with one page of incidents,
+     *         or HTTP 304 Not Modified if no incident changed since If-None-Match
      */
     @GetMapping
-    public ResponseEntity<List<IncidentResponse>> getAllIncidents() {
-        return ResponseEntity.ok(incidentService.getAllIncidents());
+    public Object getIncidents(
+            @RequestParam(defaultValue = "" + IncidentService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Severity severity,
+            @RequestParam(required = false) IncidentStatus status,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) ErrorType errorType,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            WebRequest webRequest) {
+        incidentService.validatePage(cursor, limit);    // 400 rather than 304 for a bad request
+
+        // Taken before the page is read (see IncidentService.getListETag)
+        String eTag = incidentService.getListETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;    // 304, ETag header already set
+        }
+
+        IncidentFilter filter = new IncidentFilter();
+        filter.setSeverity(severity);
+        filter.setStatus(status);
+        filter.setServiceName(service);
+        filter.setErrorType(errorType);
+        filter.setFrom(from);
+        filter.setTo(to);
+
+        return requestExecutor.run(() -> {
+            SerializedPage page = incidentService.getIncidentsJson(filter, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .cacheControl(CacheControl.noCache());
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getJson());
+        });
+    }
+
+    /**
+     * GET /api/incidents/export
+     * 
+     * Streams incidents as newline-delimited JSON (NDJSON), one incident per line.
+     * 
+     * Unlike GET /api/incidents, the whole result is never built in memory:
+     * incidents are read from the repository in small batches and written
+     * to the response as they are read.
+     * 
+     * Query parameters (all optional):
+     * - from / to: Creation time range, ISO-8601 (from inclusive, to exclusive)
+     * - updatedSince: Only incidents modified at or after this time (incremental pulls)
+     * - fields: Comma-separated fields to include (default: all IncidentResponse fields)
+     * - includeDiagnostics: true to add each incident's diagnostic records
+     * 
+     * Use cases:
+     * - Nightly analytics job pulling what changed since its last run
+     * - Full backups of incident history
+     * 
+     * Example request:
+     * GET http://localhost:8080/api/incidents/export?updatedSince=2024-01-15T00:00:00Z&fields=id,severity,status
+     * 
+     * Example response (Content-Type: application/x-ndjson):
+     * {"id":"550e8400-...","severity":"CRITICAL","status":"OPEN"}
+     * {"id":"7c9e6679-...","severity":"LOW","status":"RESOLVED"}
+     * 
+     * @return HTTP 200 OK with a streamed NDJSON body
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportIncidents(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) Instant updatedSince,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "false") boolean includeDiagnostics) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setFrom(from);
+        filter.setTo(to);
+        filter.setUpdatedSince(updatedSince);
+        List<String> exportFields = incidentExportService.resolveFields(fields);
+
+        StreamingResponseBody body = out -> incidentExportService.export(filter, exportFields, includeDiagnostics, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * GET /api/incidents/aggregate
+     * 
+     * Counts incidents per time interval, grouped by service, severity,
+     * error type and/or status. Incidents are counted in the interval they
+     * were created in.
+     * 
+     * Query parameters (all optional):
+     * - interval: Bucket length, e.g. 5m, 1h (default 5m; a multiple of incidents.aggregation.bucket-size)
+     * - groupBy: Comma-separated fields - serviceName, severity, errorType, status (default serviceName; empty = totals only)
+     * - from / to: Time range, ISO-8601 (default: the retention window, 24h, up to now)
+     * - severity, status, service, errorType: Only count matching incidents
+     * 
+     * Counts are kept pre-aggregated and updated on every create/update/delete,
+     * so this reads at most retention / bucket-size buckets no matter how many
+     * incidents exist.
+     * 
+     * Use cases:
+     * - Dashboard chart: incidents per service per 5 minutes by severity over the last 24h
+     * - Spotting which service started failing first during an outage
+     * 
+     * Example request:
+     * GET http://localhost:8080/api/incidents/aggregate?interval=5m&groupBy=serviceName,severity
+     * 
+     * Example response:
+     * {
+     *   "from": "2024-01-14T14:35:00Z",
+     *   "to": "2024-01-15T14:35:00Z",
+     *   "interval": "PT5M",
+     *   "groupBy": ["serviceName", "severity"],
+     *   "buckets": ["2024-01-14T14:35:00Z", "2024-01-14T14:40:00Z", ...],
+     *   "series": [
+     *     { "group": { "serviceName": "payment-processor", "severity": "CRITICAL" }, "counts": [0, 3, ...], "total": 12 }
+     *   ],
+     *   "total": 12
+     * }
+     * 
+     * @return HTTP 200 OK with one count series per group
+     */
+    @GetMapping("/aggregate")
+    public ResponseEntity<IncidentAggregationResponse> aggregateIncidents(
+            @RequestParam(defaultValue = "5m") String interval,
+            @RequestParam(defaultValue = "serviceName") List<String> groupBy,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) Severity severity,
+            @RequestParam(required = false) IncidentStatus status,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) ErrorType errorType) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setSeverity(severity);
+        filter.setStatus(status);
+        filter.setServiceName(service);
+        filter.setErrorType(errorType);
+
+        List<IncidentAggregator.Dimension> dimensions = new ArrayList<>();
+        for (String field : groupBy) {
+            if (field.trim().isEmpty()) {
+                continue;
+            }
+            IncidentAggregator.Dimension dimension = IncidentAggregator.Dimension.fromField(field);
+            if (!dimensions.contains(dimension)) {
+                dimensions.add(dimension);
+            }
+        }
+        return ResponseEntity.ok(incidentService.getAggregation(from, to, parseInterval(interval), dimensions, filter));
+    }
+
+    /**
+     * GET /api/incidents/stream
+     * 
+     * Opens a Server-Sent Events stream of incident changes, so the dashboard
+     * doesn't have to poll GET /api/incidents.
+     * 
+     * Every event has:
+     * - event: created, updated or deleted
+     * - id: sequence number of the change
+     * - data: {"sequence": ..., "type": ..., "incident": {...same as GET /api/incidents/{id}...}}
+     * 
+     * Query parameters (all optional):
+     * - service: Only changes to this service's incidents
+     * - minSeverity: Only changes to incidents with at least this severity
+     * - since: Resume after this sequence number (same as the Last-Event-ID header)
+     * 
+     * Reconnecting: browsers' EventSource reconnects by itself and sends
+     * Last-Event-ID, and the missed events are replayed. If they are no longer
+     * buffered (or the server restarted) a "reset" event is sent first:
+     * reload the incident list, then keep applying events.
+     * 
+     * A client that can't keep up is disconnected (and resumes as above)
+     * rather than buffered without limit.
+     * 
+     * Example request:
+     * GET http://localhost:8080/api/incidents/stream?service=payment-processor&minSeverity=HIGH
+     * Accept: text/event-stream
+     * 
+     * Example response:
+     * id: 17
+     * event: created
+     * data: {"sequence":17,"type":"created","incident":{"id":"550e8400-...","severity":"CRITICAL",...}}
+     * 
+     * @return An open event stream
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamIncidents(
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) Severity minSeverity,
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long resumeAfter = since;
+        if (lastEventId != null && !lastEventId.trim().isEmpty()) {
+            try {
+                resumeAfter = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                throw new ApiException("Last-Event-ID must be a sequence number from this stream", 400);
+            }
+        }
+        return incidentChangeFeed.subscribe(service, minSeverity, resumeAfter);
+    }
+
+    /**
+     * GET /api/incidents/retention
+     * 
+     * Shows what the retention engine has removed from memory: resolved
+     * incidents older than incidents.retention.resolved-ttl, and their diagnostics.
+     * 
+     * Example request:
+     * GET http://localhost:8080/api/incidents/retention
+     * 
+     * Example response:
+     * {
+     *   "enabled": true,
+     *   "resolvedTtlSeconds": 604800,
+     *   "pending": 1840,
+     *   "incidentsEvicted": 52000,
+     *   "diagnosticsEvicted": 2100000,
+     *   "lastPassAt": "2024-01-22T14:35:00Z",
+     *   ...
+     * }
+     * 
+     * @return HTTP 200 OK with the retention stats
+     */
+    @GetMapping("/retention")
+    public ResponseEntity<RetentionStatsResponse> getRetentionStats() {
+        return ResponseEntity.ok(retentionEngine.getStats());
+    }
+
+    /**
+     * GET /api/incidents/archive/{id}
+     * 
+     * Looks up an incident that retention removed from memory. Only works
+     * when incidents.retention.archive.enabled is true; the archive files are
+     * scanned newest first, so this is much slower than GET /api/incidents/{id}.
+     * 
+     * Example request:
+     * GET http://localhost:8080/api/incidents/archive/018d0d87-7f3a-7000-9a4e-1c2b3d4e5f60
+     * 
+     * Example response:
+     * {
+     *   "archivedAt": "2024-01-22T14:35:00Z",
+     *   "incident": { "id": "018d0d87-7f3a-7000-9a4e-1c2b3d4e5f60", "status": "RESOLVED", ... },
+     *   "diagnostics": [ ... ]
+     * }
+     * 
+     * @param id The ID of the removed incident
+     * @return HTTP 200 OK with the incident and its diagnostics,
+     *         or 404 Not Found if it is not in the archive
+     */
+    @GetMapping("/archive/{id}")
+    public Object getArchivedIncident(@PathVariable String id) {
+        return requestExecutor.run(() -> ResponseEntity.ok(retentionEngine.findArchived(id)));
     }
 
     /**
@@ -93,15 +467,35 @@ public class IncidentController {
      *   "serviceName": "payment-processor",
      *   "errorType": "NETWORK",
      *   "createdAt": "2024-01-15T14:30:00Z",
-     *   "updatedAt": "2024-01-15T14:35:00Z"
+     *   "updatedAt": "2024-01-15T14:35:00Z",
+     *   "version": 3
      * }
+     * (with headers ETag: "3" and Last-Modified: Mon, 15 Jan 2024 14:35:00 GMT)
+     * 
+     * The JSON of each incident version is cached (IncidentJsonCache), so
+     * repeated reads of an unchanged incident write the same bytes again
+     * without mapping or serializing it.
+     * 
+     * Polling: repeat the request with If-None-Match: "3" to get 304 Not
+     * Modified and no body while the incident is unchanged. If-Modified-Since
+     * works too, but only to the second, so prefer If-None-Match.
      * 
      * @param id The unique identifier of the incident
-     * @return HTTP 200 OK with incident details
+     * @return HTTP 200 OK with incident details and its ETag,
+     *         or HTTP 304 Not Modified if it still has the version in If-None-Match
      */
     @GetMapping("/{id}")
-    public ResponseEntity<IncidentResponse> getIncident(@PathVariable String id) {
-        return ResponseEntity.ok(incidentService.getIncident(id));
+    public Object getIncident(@PathVariable String id, WebRequest webRequest) {
+        return requestExecutor.run(() -> {
+            Incident incident = incidentService.findIncident(id);
+            if (webRequest.checkNotModified(eTag(incident.getVersion()), incident.getUpdatedAt().toEpochMilli())) {
+                return null;    // 304, ETag and Last-Modified headers already set
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .cacheControl(CacheControl.noCache())
+                    .body(incidentService.toJson(incident));
+        });
     }
 
     /**
@@ -127,9 +521,23 @@ public class IncidentController {
      * - Sets status to OPEN
      * - Records creation timestamp
      * 
+     * Duplicates: if an open incident with the same serviceName, errorType and
+     * correlationId was reported within the dedup window (default 10 minutes),
+     * no new incident is created. The existing one is returned with its
+     * occurrenceCount increased, lastSeenAt set to now and its severity raised
+     * if the report is more severe. Reports without a correlationId are never
+     * merged.
+     * 
+     * Safe retries: send an Idempotency-Key header (any unique string, up to
+     * 255 characters, e.g. a UUID per alert). Retrying with the same key within
+     * 24 hours returns the original response instead of creating or counting
+     * the incident again, even if the first request is still in progress.
+     * Reusing a key for a different incident returns 422 Unprocessable Entity.
+     * 
      * Example request:
      * POST http://localhost:8080/api/incidents
      * Content-Type: application/json
+     * Idempotency-Key: alert-7f3c2a
      * 
      * {
      *   "title": "Payment API Down",
@@ -149,11 +557,15 @@ public class IncidentController {
      * }
      * 
      * @param request The incident data from the client (validated)
-     * @return HTTP 200 OK with the created incident (including generated ID)
+     * @param idempotencyKey Optional Idempotency-Key header
+     * @return HTTP 200 OK with the created incident (including generated ID) and its ETag
      */
     @PostMapping
-    public ResponseEntity<IncidentResponse> createIncident(@Valid @RequestBody IncidentRequest request) {
-        return ResponseEntity.ok(incidentService.createIncident(request));
+    public Object createIncident(
+            @Valid @RequestBody IncidentRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return requestExecutor.runToCompletion(() ->
+                withETag(incidentService.createIncident(request, idempotencyKey)));
     }
 
     /**
@@ -172,11 +584,18 @@ public class IncidentController {
      * Note: This does NOT change:
      * - Incident ID (immutable)
      * - Creation timestamp (historical record)
-     * - Status (use separate endpoint for status transitions)
+     * - Status (use PUT /api/incidents/{id}/status)
+     * 
+     * Concurrent edits:
+     * - Send If-Match with the ETag from your last GET to make the update
+     *   conditional; if the incident changed since, you get 412 and should
+     *   reload, re-apply your edit and retry
+     * - Without If-Match the update always applies on top of the latest version
      * 
      * Example request:
      * PUT http://localhost:8080/api/incidents/INC-001
      * Content-Type: application/json
+     * If-Match: "3"
      * 
      * {
      *   "title": "Payment API Down - Database Connection Issue",
@@ -189,11 +608,51 @@ public class IncidentController {
      * 
      * @param id The ID of the incident to update
      * @param request The new incident data (validated)
-     * @return HTTP 200 OK with the updated incident
+     * @param ifMatch Optional ETag the update is conditional on
+     * @return HTTP 200 OK with the updated incident and its new ETag,
+     *         or HTTP 412 Precondition Failed if If-Match no longer matches
      */
     @PutMapping("/{id}")
-    public ResponseEntity<IncidentResponse> updateIncident(@PathVariable String id, @Valid @RequestBody IncidentRequest request) {
-        return ResponseEntity.ok(incidentService.updateIncident(id, request));
+    public Object updateIncident(
+            @PathVariable String id, @Valid @RequestBody IncidentRequest request,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Long expectedVersion = parseIfMatch(ifMatch);
+        return requestExecutor.runToCompletion(() ->
+                withETag(incidentService.updateIncident(id, request, expectedVersion)));
+    }
+
+    /**
+     * PUT /api/incidents/{id}/status
+     * 
+     * Moves an incident to another stage of resolution
+     * (OPEN, INVESTIGATING, MITIGATED, RESOLVED).
+     * 
+     * Resolved incidents are kept for a while (incidents.retention.resolved-ttl)
+     * and then removed, or moved to the archive if archiving is enabled.
+     * Re-opening an incident before then keeps it.
+     * 
+     * Supports If-Match exactly like PUT /api/incidents/{id}.
+     * 
+     * Example request:
+     * PUT http://localhost:8080/api/incidents/INC-001/status
+     * Content-Type: application/json
+     * If-Match: "4"
+     * 
+     * { "status": "RESOLVED" }
+     * 
+     * @param id The ID of the incident to change
+     * @param request The new status (validated)
+     * @param ifMatch Optional ETag the change is conditional on
+     * @return HTTP 200 OK with the updated incident and its new ETag,
+     *         or HTTP 412 Precondition Failed if If-Match no longer matches
+     */
+    @PutMapping("/{id}/status")
+    public Object updateStatus(
+            @PathVariable String id, @Valid @RequestBody IncidentStatusRequest request,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Long expectedVersion = parseIfMatch(ifMatch);
+        return requestExecutor.runToCompletion(() ->
+                withETag(incidentService.updateStatus(id, request.getStatus(), expectedVersion)));
     }
 
     /**
@@ -219,8 +678,60 @@ public class IncidentController {
      * @return HTTP 204 No Content (successful deletion with no response body)
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteIncident(@PathVariable String id) {
-        incidentService.deleteIncident(id);
-        return ResponseEntity.noContent().build();
+    public Object deleteIncident(@PathVariable String id) {
+        return requestExecutor.runToCompletion(() -> {
+            incidentService.deleteIncident(id);
+            return ResponseEntity.noContent().<Void>build();
+        });
+    }
+
+    /**
+     * Wraps a single incident in a 200 response with its version as a strong ETag.
+     */
+    private static ResponseEntity<IncidentResponse> withETag(IncidentResponse incident) {
+        return ResponseEntity.ok().eTag(eTag(incident.getVersion())).body(incident);
+    }
+
+    /**
+     * The strong ETag of an incident version, e.g. "3" (quotes included).
+     */
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Parses an interval like "5m", "1h" or "PT5M".
+     * 
+     * @throws ApiException with 400 status if the value isn't a duration
+     */
+    private static Duration parseInterval(String interval) {
+        try {
+            return DurationStyle.detectAndParse(interval);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException("interval must be a duration such as 5m, 1h or PT5M", 400);
+        }
+    }
+
+    /**
+     * Turns an If-Match header into the expected incident version.
+     * 
+     * Accepts "3" (as sent in the ETag header) or a bare 3.
+     * "*" and a missing header mean "any version".
+     * 
+     * @throws ApiException with 400 status if the value isn't a single version ETag
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException("If-Match must be a single ETag from this API, e.g. \"3\"", 400);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.cloudops.incidents.controller;
+
+import com.cloudops.incidents.dto.SearchIndexStatsResponse;
+import com.cloudops.incidents.dto.SearchResponse;
+import com.cloudops.incidents.search.SearchIndex;
+import com.cloudops.incidents.service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST API Controller for full-text search.
+ *
+ * Base URL: /api/search
+ *
+ * Available endpoints:
+ * - GET /api/search?q=...   - Search incident titles/descriptions and diagnostic data
+ * - GET /api/search/stats   - Size and estimated memory use of the search index
+ */
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    @Autowired
+    private SearchService searchService;
+
+    /**
+     * GET /api/search
+     *
+     * Finds incidents whose title or description, and diagnostic records
+     * whose data, contain every word of the query. Results are ranked by
+     * relevance (BM25): rarer words and shorter texts score higher, and words
+     * in an incident's title count double.
+     *
+     * Query parameters:
+     * - q: The words to search for (required; case-insensitive, no stemming)
+     * - type: INCIDENT or DIAGNOSTIC to search only one kind (default: both)
+     * - limit: Hits per page (default 20, max 100)
+     * - cursor: nextCursor from the previous page
+     *
+     * Example request:
+     * GET http://localhost:8080/api/search?q=timeout%20connecting%20to%20rds&limit=2
+     *
+     * Example response:
+     * {
+     *   "query": "timeout connecting to rds",
+     *   "total": 1342,
+     *   "hits": [
+     *     { "type": "INCIDENT", "id": "018d0d87-...", "incidentId": "018d0d87-...", "score": 9.02, "incident": { ... } },
+     *     { "type": "DIAGNOSTIC", "id": "7c9e6679-...", "incidentId": "018d0d87-...", "score": 7.31 }
+     *   ],
+     *   "nextCursor": "M2ZmZDk5..."
+     * }
+     *
+     * @return HTTP 200 OK with one page of hits,
+     *         or 400 Bad Request if the query has no searchable words
+     */
+    @GetMapping
+    public ResponseEntity<SearchResponse> search(
+            @RequestParam String q,
+            @RequestParam(required = false) SearchIndex.Type type,
+            @RequestParam(defaultValue = "" + SearchService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(searchService.search(q, type, cursor, limit));
+    }
+
+    /**
+     * GET /api/search/stats
+     *
+     * Example response:
+     * {
+     *   "incidents": 48210,
+     *   "diagnostics": 2104332,
+     *   "terms": 391220,
+     *   "postings": 31877410,
+     *   "memoryBytes": 702331904
+     * }
+     *
+     * @return HTTP 200 OK with the index size
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<SearchIndexStatsResponse> getStats() {
+        return ResponseEntity.ok(searchService.getStats());
+    }
+}
@@ -0,0 +1,59 @@
+package com.cloudops.incidents.dto;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for an incident that the retention engine
+ * removed from memory, together with its diagnostics.
+ *
+ * This is both one line of an archive file and the response of
+ * GET /api/incidents/archive/{id}.
+ *
+ * Example JSON response:
+ * {
+ *   "archivedAt": "2024-01-22T14:35:00Z",
+ *   "incident": { "id": "018d0d87-...", "status": "RESOLVED", ... },
+ *   "diagnostics": [
+ *     { "id": "...", "incidentId": "018d0d87-...", "source": "payment-api", "data": "...", "timestamp": "2024-01-15T14:31:00" }
+ *   ]
+ * }
+ */
+public class ArchivedIncident {
+
+    /** When the incident was removed from memory (UTC) */
+    private Instant archivedAt;
+
+    /** The incident as it was when it was removed */
+    private IncidentResponse incident;
+
+    /** Every diagnostic record that belonged to the incident */
+    private List<DiagnosticRecord> diagnostics = new ArrayList<>();
+
+    /** Default constructor required by Spring Boot for JSON deserialization */
+    public ArchivedIncident() {}
+
+    public ArchivedIncident(Instant archivedAt, IncidentResponse incident, List<DiagnosticRecord> diagnostics) {
+        this.archivedAt = archivedAt;
+        this.incident = incident;
+        this.diagnostics = diagnostics;
+    }
+
+    /** Gets when the incident was archived */
+    public Instant getArchivedAt() { return archivedAt; }
+    /** Sets when the incident was archived */
+    public void setArchivedAt(Instant archivedAt) { this.archivedAt = archivedAt; }
+
+    /** Gets the archived incident */
+    public IncidentResponse getIncident() { return incident; }
+    /** Sets the archived incident */
+    public void setIncident(IncidentResponse incident) { this.incident = incident; }
+
+    /** Gets the archived diagnostics */
+    public List<DiagnosticRecord> getDiagnostics() { return diagnostics; }
+    /** Sets the archived diagnostics */
+    public void setDiagnostics(List<DiagnosticRecord> diagnostics) { this.diagnostics = diagnostics; }
+}
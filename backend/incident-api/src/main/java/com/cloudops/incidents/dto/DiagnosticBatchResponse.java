@@ -0,0 +1,90 @@
+package com.cloudops.incidents.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) describing the outcome of a diagnostics batch upload.
+ * 
+ * Valid records in a batch are stored even if others are rejected, so one
+ * bad probe result doesn't make the collector resend thousands of good ones.
+ * Rejected records are listed by their position in the batch (0-based).
+ * 
+ * Example JSON response:
+ * {
+ *   "accepted": 998,
+ *   "rejected": 2,
+ *   "ids": ["7c9e6679-...", ...],
+ *   "errors": [
+ *     { "index": 17, "message": "Source is required" },
+ *     { "index": 512, "message": "Incident not found with id: abc" }
+ *   ]
+ * }
+ */
+public class DiagnosticBatchResponse {
+
+    /** Number of records stored */
+    private int accepted;
+
+    /** Number of records rejected */
+    private int rejected;
+
+    /** IDs assigned to the stored records, in batch order */
+    private List<String> ids = new ArrayList<>();
+
+    /** Why each rejected record was rejected */
+    private List<BatchError> errors = new ArrayList<>();
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public DiagnosticBatchResponse() {}
+
+    /** Gets the number of stored records */
+    public int getAccepted() { return accepted; }
+    /** Sets the number of stored records */
+    public void setAccepted(int accepted) { this.accepted = accepted; }
+
+    /** Gets the number of rejected records */
+    public int getRejected() { return rejected; }
+    /** Sets the number of rejected records */
+    public void setRejected(int rejected) { this.rejected = rejected; }
+
+    /** Gets the IDs assigned to stored records */
+    public List<String> getIds() { return ids; }
+    /** Sets the IDs assigned to stored records */
+    public void setIds(List<String> ids) { this.ids = ids; }
+
+    /** Gets the per-record errors */
+    public List<BatchError> getErrors() { return errors; }
+    /** Sets the per-record errors */
+    public void setErrors(List<BatchError> errors) { this.errors = errors; }
+
+    /**
+     * Why one record of the batch was rejected.
+     */
+    public static class BatchError {
+
+        /** Position of the record in the batch (0-based) */
+        private int index;
+
+        /** What was wrong with it */
+        private String message;
+
+        /** Default constructor required by Spring Boot for JSON serialization */
+        public BatchError() {}
+
+        public BatchError(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        /** Gets the record position */
+        public int getIndex() { return index; }
+        /** Sets the record position */
+        public void setIndex(int index) { this.index = index; }
+
+        /** Gets the error message */
+        public String getMessage() { return message; }
+        /** Sets the error message */
+        public void setMessage(String message) { this.message = message; }
+    }
+}
@@ -0,0 +1,50 @@
+package com.cloudops.incidents.dto;
+
+/**
+ * Data Transfer Object (DTO) returned when a diagnostics batch is queued (HTTP 202).
+ * 
+ * The records are validated and stored shortly afterwards by the ingestion
+ * pipeline's workers; per-record errors show up in the pipeline stats and logs.
+ * 
+ * Example JSON response:
+ * {
+ *   "batchId": "3f2b8c1e-...",
+ *   "records": 1000,
+ *   "queueDepth": 4
+ * }
+ */
+public class DiagnosticIngestResponse {
+
+    /** ID of the queued batch (appears in server logs) */
+    private String batchId;
+
+    /** Number of records in the batch */
+    private int records;
+
+    /** Batches waiting in the queue after this one was added */
+    private int queueDepth;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public DiagnosticIngestResponse() {}
+
+    public DiagnosticIngestResponse(String batchId, int records, int queueDepth) {
+        this.batchId = batchId;
+        this.records = records;
+        this.queueDepth = queueDepth;
+    }
+
+    /** Gets the batch ID */
+    public String getBatchId() { return batchId; }
+    /** Sets the batch ID */
+    public void setBatchId(String batchId) { this.batchId = batchId; }
+
+    /** Gets the number of records in the batch */
+    public int getRecords() { return records; }
+    /** Sets the number of records in the batch */
+    public void setRecords(int records) { this.records = records; }
+
+    /** Gets the queue depth at accept time */
+    public int getQueueDepth() { return queueDepth; }
+    /** Sets the queue depth at accept time */
+    public void setQueueDepth(int queueDepth) { this.queueDepth = queueDepth; }
+}
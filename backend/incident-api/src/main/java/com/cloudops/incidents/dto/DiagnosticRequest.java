@@ -0,0 +1,71 @@
+package com.cloudops.incidents.dto;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object (DTO) for one diagnostic record sent by the diagnostics-ingestor.
+ * 
+ * A diagnostic record is a piece of evidence attached to an incident:
+ * a log excerpt from logCollector or a result from networkProbe.
+ * 
+ * Fields like ID are set by the system. The timestamp is optional; if the
+ * collector doesn't send one, the time the batch was received is used.
+ * 
+ * Validation rules:
+ * - incidentId: Required, max 100 characters, must reference an existing incident
+ * - source: Required, 1-100 characters (e.g. "logCollector", "networkProbe")
+ * - data: Optional, max 65536 characters
+ * - timestamp: Optional, ISO-8601 (UTC)
+ * 
+ * Example JSON:
+ * {
+ *   "incidentId": "550e8400-e29b-41d4-a716-446655440000",
+ *   "source": "networkProbe",
+ *   "data": "GET https://payments.internal/health -> timeout after 5000ms",
+ *   "timestamp": "2024-01-15T14:31:02"
+ * }
+ */
+public class DiagnosticRequest {
+
+    /** Incident this evidence belongs to */
+    @NotBlank(message = "Incident ID is required")
+    @Size(max = 100, message = "Incident ID must not exceed 100 characters")
+    private String incidentId;
+
+    /** Which collector produced this record */
+    @NotBlank(message = "Source is required")
+    @Size(min = 1, max = 100, message = "Source must be between 1 and 100 characters")
+    private String source;
+
+    /** The collected data (log lines, probe output, ...) */
+    @Size(max = 65536, message = "Data must not exceed 65536 characters")
+    private String data;
+
+    /** When the data was collected (UTC); defaults to receive time */
+    private LocalDateTime timestamp;
+
+    /** Default constructor required by Spring Boot for JSON deserialization */
+    public DiagnosticRequest() {}
+
+    /** Gets the incident ID */
+    public String getIncidentId() { return incidentId; }
+    /** Sets the incident ID */
+    public void setIncidentId(String incidentId) { this.incidentId = incidentId; }
+
+    /** Gets the source collector */
+    public String getSource() { return source; }
+    /** Sets the source collector */
+    public void setSource(String source) { this.source = source; }
+
+    /** Gets the collected data */
+    public String getData() { return data; }
+    /** Sets the collected data */
+    public void setData(String data) { this.data = data; }
+
+    /** Gets the collection time */
+    public LocalDateTime getTimestamp() { return timestamp; }
+    /** Sets the collection time */
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+}
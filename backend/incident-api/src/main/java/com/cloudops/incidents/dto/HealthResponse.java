@@ -0,0 +1,95 @@
+package com.cloudops.incidents.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) returned by the health endpoints.
+ * 
+ * "status" is UP only if every check is UP. Each check says what it looked
+ * at, so an operator can see why an instance was taken out of rotation.
+ * 
+ * Example JSON response (GET /health/ready):
+ * {
+ *   "status": "DOWN",
+ *   "checkedAt": "2024-01-15T14:30:02Z",
+ *   "checks": {
+ *     "incidentRepository":    { "status": "UP",   "detail": "1204 incidents" },
+ *     "diagnosticsRepository": { "status": "UP",   "detail": "88412 records" },
+ *     "ingestionQueue":        { "status": "DOWN", "detail": "245/256 batches queued (96%)" },
+ *     "heap":                  { "status": "UP",   "detail": "71% of 2048 MB free after GC" },
+ *     "latency":               { "status": "UP",   "detail": "p99 <= 12 ms over 530 requests" }
+ *   }
+ * }
+ */
+public class HealthResponse {
+
+    public static final String UP = "UP";
+    public static final String DOWN = "DOWN";
+
+    /** UP if every check passed, otherwise DOWN */
+    private String status;
+
+    /** When the checks were last computed (they are refreshed in the background) */
+    private Instant checkedAt;
+
+    /** Individual checks by name, in a fixed order */
+    private Map<String, Check> checks = new LinkedHashMap<>();
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public HealthResponse() {}
+
+    public HealthResponse(String status, Instant checkedAt) {
+        this.status = status;
+        this.checkedAt = checkedAt;
+    }
+
+    /**
+     * Checks whether the overall status is UP.
+     */
+    @JsonIgnore
+    public boolean isUp() {
+        return UP.equals(status);
+    }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Instant getCheckedAt() { return checkedAt; }
+    public void setCheckedAt(Instant checkedAt) { this.checkedAt = checkedAt; }
+
+    public Map<String, Check> getChecks() { return checks; }
+    public void setChecks(Map<String, Check> checks) { this.checks = checks; }
+
+    /**
+     * Result of a single check.
+     */
+    public static class Check {
+
+        /** UP or DOWN */
+        private String status;
+
+        /** What was measured, or why the check failed */
+        private String detail;
+
+        /** Default constructor required by Spring Boot for JSON serialization */
+        public Check() {}
+
+        public Check(String status, String detail) {
+            this.status = status;
+            this.detail = detail;
+        }
+
+        public static Check up(String detail) { return new Check(UP, detail); }
+        public static Check down(String detail) { return new Check(DOWN, detail); }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+
+        public String getDetail() { return detail; }
+        public void setDetail(String detail) { this.detail = detail; }
+    }
+}
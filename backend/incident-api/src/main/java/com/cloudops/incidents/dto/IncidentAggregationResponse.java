@@ -0,0 +1,111 @@
+package com.cloudops.incidents.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) for incident counts over time.
+ * 
+ * The time range is split into equal intervals; "buckets" holds the start
+ * of each one. Every series is one combination of the groupBy fields, with
+ * one count per bucket (same order as "buckets"). Series are sorted by
+ * total, largest first.
+ * 
+ * Incidents are counted in the interval they were created in, under their
+ * current severity/status/service/error type.
+ * 
+ * Example JSON response (GET /api/incidents/aggregate?interval=5m&groupBy=serviceName,severity):
+ * {
+ *   "from": "2024-01-15T14:00:00Z",
+ *   "to": "2024-01-15T14:15:00Z",
+ *   "interval": "PT5M",
+ *   "groupBy": ["serviceName", "severity"],
+ *   "buckets": ["2024-01-15T14:00:00Z", "2024-01-15T14:05:00Z", "2024-01-15T14:10:00Z"],
+ *   "series": [
+ *     { "group": { "serviceName": "payment-processor", "severity": "CRITICAL" }, "counts": [4, 1, 0], "total": 5 },
+ *     { "group": { "serviceName": "user-auth", "severity": "LOW" }, "counts": [0, 0, 2], "total": 2 }
+ *   ],
+ *   "total": 7
+ * }
+ */
+public class IncidentAggregationResponse {
+
+    /** Start of the first bucket (inclusive) */
+    private Instant from;
+
+    /** End of the last bucket (exclusive) */
+    private Instant to;
+
+    /** Length of each bucket, ISO-8601 (e.g. PT5M) */
+    private String interval;
+
+    /** Fields the counts are grouped by */
+    private List<String> groupBy;
+
+    /** Start time of every bucket */
+    private List<Instant> buckets;
+
+    /** One series per group */
+    private List<Series> series;
+
+    /** Sum over all series and buckets */
+    private long total;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public IncidentAggregationResponse() {}
+
+    public Instant getFrom() { return from; }
+    public void setFrom(Instant from) { this.from = from; }
+
+    public Instant getTo() { return to; }
+    public void setTo(Instant to) { this.to = to; }
+
+    public String getInterval() { return interval; }
+    public void setInterval(String interval) { this.interval = interval; }
+
+    public List<String> getGroupBy() { return groupBy; }
+    public void setGroupBy(List<String> groupBy) { this.groupBy = groupBy; }
+
+    public List<Instant> getBuckets() { return buckets; }
+    public void setBuckets(List<Instant> buckets) { this.buckets = buckets; }
+
+    public List<Series> getSeries() { return series; }
+    public void setSeries(List<Series> series) { this.series = series; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    /**
+     * Counts over time for one group.
+     */
+    public static class Series {
+
+        /** Values of the groupBy fields for this series */
+        private Map<String, String> group;
+
+        /** Incidents per bucket */
+        private long[] counts;
+
+        /** Sum of counts */
+        private long total;
+
+        /** Default constructor required by Spring Boot for JSON serialization */
+        public Series() {}
+
+        public Series(Map<String, String> group, long[] counts, long total) {
+            this.group = group;
+            this.counts = counts;
+            this.total = total;
+        }
+
+        public Map<String, String> getGroup() { return group; }
+        public void setGroup(Map<String, String> group) { this.group = group; }
+
+        public long[] getCounts() { return counts; }
+        public void setCounts(long[] counts) { this.counts = counts; }
+
+        public long getTotal() { return total; }
+        public void setTotal(long total) { this.total = total; }
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudops.incidents.dto;
+
+/**
+ * Data Transfer Object (DTO) for one event on the incident change feed
+ * (GET /api/incidents/stream).
+ * 
+ * Sent as the data of a Server-Sent Event whose "event" name is the type
+ * and whose "id" is the sequence number.
+ * 
+ * Example SSE message:
+ * id: 1042
+ * event: updated
+ * data: {"sequence":1042,"type":"updated","incident":{"id":"INC-001","severity":"CRITICAL","version":4,...}}
+ * 
+ * Events of one incident arrive in version order: an update that reaches
+ * the feed after a newer one (or after the delete) is not sent.
+ */
+public class IncidentChangeEvent {
+
+    /** Event type when an incident was created */
+    public static final String CREATED = "created";
+
+    /** Event type when an incident was updated */
+    public static final String UPDATED = "updated";
+
+    /** Event type when an incident was deleted (incident holds its last state) */
+    public static final String DELETED = "deleted";
+
+    /** Position in the feed; pass as Last-Event-ID to resume after it */
+    private long sequence;
+
+    /** created, updated or deleted */
+    private String type;
+
+    /** The incident after the change (before it, for deletes) */
+    private IncidentResponse incident;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public IncidentChangeEvent() {}
+
+    public IncidentChangeEvent(long sequence, String type, IncidentResponse incident) {
+        this.sequence = sequence;
+        this.type = type;
+        this.incident = incident;
+    }
+
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public IncidentResponse getIncident() { return incident; }
+    public void setIncident(IncidentResponse incident) { this.incident = incident; }
+}
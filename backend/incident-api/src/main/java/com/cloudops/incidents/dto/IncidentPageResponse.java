@@ -0,0 +1,47 @@
+package com.cloudops.incidents.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of the incident list.
+ * 
+ * Contains:
+ * - The incidents on this page, ordered by creation time (oldest first)
+ * - An opaque cursor for fetching the next page (null on the last page)
+ * 
+ * The controller returns the items as the JSON array body and the cursor
+ * in the X-Next-Cursor response header, so existing clients that expect
+ * an array keep working.
+ */
+public class IncidentPageResponse {
+
+    /** Incidents on this page */
+    private List<IncidentResponse> items;
+
+    /** Cursor to pass as ?cursor= for the next page (null if this is the last page) */
+    private String nextCursor;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public IncidentPageResponse() {}
+
+    /**
+     * Creates a page response.
+     * 
+     * @param items Incidents on this page
+     * @param nextCursor Cursor for the next page (null on the last page)
+     */
+    public IncidentPageResponse(List<IncidentResponse> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /** Gets the incidents on this page */
+    public List<IncidentResponse> getItems() { return items; }
+    /** Sets the incidents on this page */
+    public void setItems(List<IncidentResponse> items) { this.items = items; }
+
+    /** Gets the cursor for the next page */
+    public String getNextCursor() { return nextCursor; }
+    /** Sets the cursor for the next page */
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -1,6 +1,7 @@
 package com.cloudops.incidents.dto;
 
 import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
 import com.cloudops.incidents.model.Severity;
 import com.cloudops.incidents.model.IncidentStatus;
 import java.time.Instant;
@@ -30,7 +31,10 @@ import java.time.Instant;
  *   "updatedAt": "2024-01-15T14:35:00Z",
  *   "serviceName": "payment-processor",
  *   "errorType": "NETWORK",
- *   "correlationId": "req-abc-123"
+ *   "correlationId": "req-abc-123",
+ *   "version": 3,
+ *   "occurrenceCount": 42,
+ *   "lastSeenAt": "2024-01-15T14:41:12Z"
  * }
  */
 public class IncidentResponse {
@@ -65,9 +69,42 @@ public class IncidentResponse {
     /** ID for linking related events across services */
     private String correlationId;
 
+    /** Revision number (also sent as the ETag header) */
+    private long version;
+
+    /** How many times this incident was reported (duplicates are merged into it) */
+    private long occurrenceCount;
+
+    /** When this incident was last reported (UTC) */
+    private Instant lastSeenAt;
+
     /** Default constructor required by Spring Boot for JSON serialization */
     public IncidentResponse() {}
 
+    /**
+     * Copies every field of an internal incident into a response.
+     * 
+     * @param incident The internal incident object from the repository
+     * @return API-safe response object with the same data
+     */
+    public static IncidentResponse from(Incident incident) {
+        IncidentResponse response = new IncidentResponse();
+        response.setId(incident.getId());
+        response.setTitle(incident.getTitle());
+        response.setDescription(incident.getDescription());
+        response.setSeverity(incident.getSeverity());
+        response.setStatus(incident.getStatus());
+        response.setCreatedAt(incident.getTimestamp());      // Note: timestamp becomes createdAt
+        response.setUpdatedAt(incident.getUpdatedAt());
+        response.setServiceName(incident.getServiceName());
+        response.setErrorType(incident.getErrorType());
+        response.setCorrelationId(incident.getCorrelationId());
+        response.setVersion(incident.getVersion());
+        response.setOccurrenceCount(incident.getOccurrenceCount());
+        response.setLastSeenAt(incident.getLastSeenAt());
+        return response;
+    }
+
     // Getter and setter methods for JSON conversion
     
     /** Gets the unique incident ID */
@@ -119,4 +156,19 @@ public class IncidentResponse {
     public String getCorrelationId() { return correlationId; }
     /** Sets the correlation ID */
     public void setCorrelationId(String correlationId) { this.correlationId = correlationId; }
-}
\ No newline at end of file
+
+    /** Gets the revision number */
+    public long getVersion() { return version; }
+    /** Sets the revision number */
+    public void setVersion(long version) { this.version = version; }
+
+    /** Gets how many times the incident was reported */
+    public long getOccurrenceCount() { return occurrenceCount; }
+    /** Sets how many times the incident was reported */
+    public void setOccurrenceCount(long occurrenceCount) { this.occurrenceCount = occurrenceCount; }
+
+    /** Gets when the incident was last reported */
+    public Instant getLastSeenAt() { return lastSeenAt; }
+    /** Sets when the incident was last reported */
+    public void setLastSeenAt(Instant lastSeenAt) { this.lastSeenAt = lastSeenAt; }
+}
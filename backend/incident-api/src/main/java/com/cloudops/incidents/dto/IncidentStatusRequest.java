@@ -0,0 +1,33 @@
+package com.cloudops.incidents.dto;
+
+import com.cloudops.incidents.model.IncidentStatus;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Data Transfer Object (DTO) for moving an incident to another stage of
+ * resolution (PUT /api/incidents/{id}/status).
+ *
+ * Any transition is allowed, including re-opening a RESOLVED incident.
+ *
+ * Example JSON request:
+ * {
+ *   "status": "RESOLVED"
+ * }
+ */
+public class IncidentStatusRequest {
+
+    /**
+     * The new status.
+     * Required field, must be one of: OPEN, INVESTIGATING, MITIGATED, RESOLVED
+     */
+    @NotNull(message = "Status is required")
+    private IncidentStatus status;
+
+    /** Default constructor required by Spring Boot for JSON deserialization */
+    public IncidentStatusRequest() {}
+
+    /** Gets the new status */
+    public IncidentStatus getStatus() { return status; }
+    /** Sets the new status */
+    public void setStatus(IncidentStatus status) { this.status = status; }
+}
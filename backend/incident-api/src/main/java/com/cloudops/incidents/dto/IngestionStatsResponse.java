@@ -0,0 +1,147 @@
+package com.cloudops.incidents.dto;
+
+/**
+ * Data Transfer Object (DTO) with the diagnostics ingestion pipeline's metrics.
+ * 
+ * Counters are totals since startup. Latencies are per batch, in microseconds.
+ * 
+ * Example JSON response:
+ * {
+ *   "queueDepth": 3,
+ *   "queueCapacity": 256,
+ *   "workers": 2,
+ *   "batchesAccepted": 1200,
+ *   "batchesDropped": 14,
+ *   "batchesFailed": 0,
+ *   "recordsAccepted": 1200000,
+ *   "recordsDropped": 14000,
+ *   "recordsStored": 1199990,
+ *   "recordsRejected": 10,
+ *   "queueWait": { "count": 1197, "totalMicros": 1017450, "avgMicros": 850, "maxMicros": 41000 },
+ *   "enrich":    { "count": 1197, "totalMicros": 2513700, "avgMicros": 2100, "maxMicros": 9000 },
+ *   "persist":   { "count": 1197, "totalMicros": 1556100, "avgMicros": 1300, "maxMicros": 7000 }
+ * }
+ */
+public class IngestionStatsResponse {
+
+    /** Batches waiting in the queue right now */
+    private int queueDepth;
+
+    /** Maximum number of queued batches before new ones get HTTP 429 */
+    private int queueCapacity;
+
+    /** Number of worker threads */
+    private int workers;
+
+    /** Batches accepted into the queue (HTTP 202) */
+    private long batchesAccepted;
+
+    /** Batches turned away because the queue was full (HTTP 429) */
+    private long batchesDropped;
+
+    /** Batches whose processing threw an unexpected error */
+    private long batchesFailed;
+
+    /** Records in accepted batches */
+    private long recordsAccepted;
+
+    /** Records in dropped batches */
+    private long recordsDropped;
+
+    /** Records that passed validation and were stored */
+    private long recordsStored;
+
+    /** Records that failed validation */
+    private long recordsRejected;
+
+    /** Time batches spent waiting in the queue */
+    private StageLatency queueWait;
+
+    /** Time spent validating and enriching batches */
+    private StageLatency enrich;
+
+    /** Time spent writing batches to the repository */
+    private StageLatency persist;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public IngestionStatsResponse() {}
+
+    public int getQueueDepth() { return queueDepth; }
+    public void setQueueDepth(int queueDepth) { this.queueDepth = queueDepth; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public int getWorkers() { return workers; }
+    public void setWorkers(int workers) { this.workers = workers; }
+
+    public long getBatchesAccepted() { return batchesAccepted; }
+    public void setBatchesAccepted(long batchesAccepted) { this.batchesAccepted = batchesAccepted; }
+
+    public long getBatchesDropped() { return batchesDropped; }
+    public void setBatchesDropped(long batchesDropped) { this.batchesDropped = batchesDropped; }
+
+    public long getBatchesFailed() { return batchesFailed; }
+    public void setBatchesFailed(long batchesFailed) { this.batchesFailed = batchesFailed; }
+
+    public long getRecordsAccepted() { return recordsAccepted; }
+    public void setRecordsAccepted(long recordsAccepted) { this.recordsAccepted = recordsAccepted; }
+
+    public long getRecordsDropped() { return recordsDropped; }
+    public void setRecordsDropped(long recordsDropped) { this.recordsDropped = recordsDropped; }
+
+    public long getRecordsStored() { return recordsStored; }
+    public void setRecordsStored(long recordsStored) { this.recordsStored = recordsStored; }
+
+    public long getRecordsRejected() { return recordsRejected; }
+    public void setRecordsRejected(long recordsRejected) { this.recordsRejected = recordsRejected; }
+
+    public StageLatency getQueueWait() { return queueWait; }
+    public void setQueueWait(StageLatency queueWait) { this.queueWait = queueWait; }
+
+    public StageLatency getEnrich() { return enrich; }
+    public void setEnrich(StageLatency enrich) { this.enrich = enrich; }
+
+    public StageLatency getPersist() { return persist; }
+    public void setPersist(StageLatency persist) { this.persist = persist; }
+
+    /**
+     * Count, total, average and maximum duration of one pipeline stage.
+     */
+    public static class StageLatency {
+
+        /** Number of batches timed */
+        private long count;
+
+        /** Sum of all durations in microseconds (for rate calculations in Prometheus) */
+        private long totalMicros;
+
+        /** Average duration in microseconds */
+        private long avgMicros;
+
+        /** Longest duration in microseconds */
+        private long maxMicros;
+
+        /** Default constructor required by Spring Boot for JSON serialization */
+        public StageLatency() {}
+
+        public StageLatency(long count, long totalMicros, long avgMicros, long maxMicros) {
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.avgMicros = avgMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+
+        public long getTotalMicros() { return totalMicros; }
+        public void setTotalMicros(long totalMicros) { this.totalMicros = totalMicros; }
+
+        public long getAvgMicros() { return avgMicros; }
+        public void setAvgMicros(long avgMicros) { this.avgMicros = avgMicros; }
+
+        public long getMaxMicros() { return maxMicros; }
+        public void setMaxMicros(long maxMicros) { this.maxMicros = maxMicros; }
+    }
+}
@@ -0,0 +1,110 @@
+package com.cloudops.incidents.dto;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) with what the retention engine has removed.
+ *
+ * Counters are totals since startup; the lastPass fields describe the most
+ * recent retention pass.
+ *
+ * Example JSON response:
+ * {
+ *   "enabled": true,
+ *   "resolvedTtlSeconds": 604800,
+ *   "pending": 1840,
+ *   "passes": 1440,
+ *   "incidentsEvicted": 52000,
+ *   "diagnosticsEvicted": 2100000,
+ *   "archiveFailures": 0,
+ *   "archiveFiles": 310,
+ *   "archiveBytes": 48211034,
+ *   "lastPassAt": "2024-01-22T14:35:00Z",
+ *   "lastPassMillis": 85,
+ *   "lastPassIncidents": 37,
+ *   "lastPassDiagnostics": 1490
+ * }
+ */
+public class RetentionStatsResponse {
+
+    /** Whether resolved incidents are removed at all */
+    private boolean enabled;
+
+    /** How long a resolved incident is kept after its last change */
+    private long resolvedTtlSeconds;
+
+    /** Resolved incidents still in memory, waiting for their time to live to pass */
+    private long pending;
+
+    /** Retention passes run */
+    private long passes;
+
+    /** Incidents removed from memory */
+    private long incidentsEvicted;
+
+    /** Diagnostic records removed together with their incidents */
+    private long diagnosticsEvicted;
+
+    /** Batches kept in memory because the archive could not be written */
+    private long archiveFailures;
+
+    /** Number of archive files on disk (0 when archiving is off) */
+    private int archiveFiles;
+
+    /** Size of the archive files on disk, in bytes */
+    private long archiveBytes;
+
+    /** When the last pass started (null before the first pass) */
+    private Instant lastPassAt;
+
+    /** How long the last pass took */
+    private long lastPassMillis;
+
+    /** Incidents removed by the last pass */
+    private long lastPassIncidents;
+
+    /** Diagnostic records removed by the last pass */
+    private long lastPassDiagnostics;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public RetentionStatsResponse() {}
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getResolvedTtlSeconds() { return resolvedTtlSeconds; }
+    public void setResolvedTtlSeconds(long resolvedTtlSeconds) { this.resolvedTtlSeconds = resolvedTtlSeconds; }
+
+    public long getPending() { return pending; }
+    public void setPending(long pending) { this.pending = pending; }
+
+    public long getPasses() { return passes; }
+    public void setPasses(long passes) { this.passes = passes; }
+
+    public long getIncidentsEvicted() { return incidentsEvicted; }
+    public void setIncidentsEvicted(long incidentsEvicted) { this.incidentsEvicted = incidentsEvicted; }
+
+    public long getDiagnosticsEvicted() { return diagnosticsEvicted; }
+    public void setDiagnosticsEvicted(long diagnosticsEvicted) { this.diagnosticsEvicted = diagnosticsEvicted; }
+
+    public long getArchiveFailures() { return archiveFailures; }
+    public void setArchiveFailures(long archiveFailures) { this.archiveFailures = archiveFailures; }
+
+    public int getArchiveFiles() { return archiveFiles; }
+    public void setArchiveFiles(int archiveFiles) { this.archiveFiles = archiveFiles; }
+
+    public long getArchiveBytes() { return archiveBytes; }
+    public void setArchiveBytes(long archiveBytes) { this.archiveBytes = archiveBytes; }
+
+    public Instant getLastPassAt() { return lastPassAt; }
+    public void setLastPassAt(Instant lastPassAt) { this.lastPassAt = lastPassAt; }
+
+    public long getLastPassMillis() { return lastPassMillis; }
+    public void setLastPassMillis(long lastPassMillis) { this.lastPassMillis = lastPassMillis; }
+
+    public long getLastPassIncidents() { return lastPassIncidents; }
+    public void setLastPassIncidents(long lastPassIncidents) { this.lastPassIncidents = lastPassIncidents; }
+
+    public long getLastPassDiagnostics() { return lastPassDiagnostics; }
+    public void setLastPassDiagnostics(long lastPassDiagnostics) { this.lastPassDiagnostics = lastPassDiagnostics; }
+}
@@ -0,0 +1,50 @@
+package com.cloudops.incidents.dto;
+
+import com.cloudops.incidents.search.SearchIndex;
+
+/**
+ * Data Transfer Object (DTO) for one search result.
+ *
+ * A hit is either an incident (matched in its title or description) or a
+ * diagnostic record (matched in its data). Incident hits include the
+ * incident itself; for diagnostic hits, fetch the records with
+ * GET /api/diagnostics?incidentId={incidentId}.
+ *
+ * Example JSON:
+ * { "type": "DIAGNOSTIC", "id": "7c9e6679-...", "incidentId": "018d0d87-...", "score": 7.31 }
+ */
+public class SearchHit {
+
+    /** INCIDENT or DIAGNOSTIC */
+    private SearchIndex.Type type;
+
+    /** ID of the incident or diagnostic record */
+    private String id;
+
+    /** Incident the hit belongs to (same as id for incident hits) */
+    private String incidentId;
+
+    /** Relevance, higher is better (only comparable within one query) */
+    private double score;
+
+    /** The matching incident (incident hits only) */
+    private IncidentResponse incident;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public SearchHit() {}
+
+    public SearchIndex.Type getType() { return type; }
+    public void setType(SearchIndex.Type type) { this.type = type; }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getIncidentId() { return incidentId; }
+    public void setIncidentId(String incidentId) { this.incidentId = incidentId; }
+
+    public double getScore() { return score; }
+    public void setScore(double score) { this.score = score; }
+
+    public IncidentResponse getIncident() { return incident; }
+    public void setIncident(IncidentResponse incident) { this.incident = incident; }
+}
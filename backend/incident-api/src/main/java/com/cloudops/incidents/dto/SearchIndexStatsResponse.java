@@ -0,0 +1,52 @@
+package com.cloudops.incidents.dto;
+
+/**
+ * Data Transfer Object (DTO) with the size of the full-text search index.
+ *
+ * memoryBytes is an estimate computed from the number of terms, documents
+ * and postings, not a heap measurement.
+ *
+ * Example JSON response:
+ * {
+ *   "incidents": 48210,
+ *   "diagnostics": 2104332,
+ *   "terms": 391220,
+ *   "postings": 31877410,
+ *   "memoryBytes": 702331904
+ * }
+ */
+public class SearchIndexStatsResponse {
+
+    /** Indexed incidents */
+    private long incidents;
+
+    /** Indexed diagnostic records */
+    private long diagnostics;
+
+    /** Distinct terms */
+    private long terms;
+
+    /** (term, document) pairs, i.e. the total length of all postings lists */
+    private long postings;
+
+    /** Estimated heap used by the index, in bytes */
+    private long memoryBytes;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public SearchIndexStatsResponse() {}
+
+    public long getIncidents() { return incidents; }
+    public void setIncidents(long incidents) { this.incidents = incidents; }
+
+    public long getDiagnostics() { return diagnostics; }
+    public void setDiagnostics(long diagnostics) { this.diagnostics = diagnostics; }
+
+    public long getTerms() { return terms; }
+    public void setTerms(long terms) { this.terms = terms; }
+
+    public long getPostings() { return postings; }
+    public void setPostings(long postings) { this.postings = postings; }
+
+    public long getMemoryBytes() { return memoryBytes; }
+    public void setMemoryBytes(long memoryBytes) { this.memoryBytes = memoryBytes; }
+}
@@ -0,0 +1,47 @@
+package com.cloudops.incidents.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of search results (GET /api/search).
+ *
+ * Example JSON response:
+ * {
+ *   "query": "timeout connecting to rds",
+ *   "total": 1342,
+ *   "hits": [
+ *     { "type": "INCIDENT", "id": "018d0d87-...", "incidentId": "018d0d87-...", "score": 9.02, "incident": { ... } },
+ *     { "type": "DIAGNOSTIC", "id": "7c9e6679-...", "incidentId": "018d0d87-...", "score": 7.31 }
+ *   ],
+ *   "nextCursor": "M2ZmZDk5..."
+ * }
+ */
+public class SearchResponse {
+
+    /** The query as sent */
+    private String query;
+
+    /** Number of matching documents across all pages */
+    private long total;
+
+    /** Hits on this page, best first */
+    private List<SearchHit> hits;
+
+    /** Pass as cursor to get the next page (null on the last page) */
+    private String nextCursor;
+
+    /** Default constructor required by Spring Boot for JSON serialization */
+    public SearchResponse() {}
+
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public List<SearchHit> getHits() { return hits; }
+    public void setHits(List<SearchHit> hits) { this.hits = hits; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,75 @@
+package com.cloudops.incidents.dynamodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A count that is expensive to get from DynamoDB (a COUNT query reads every
+ * matching item's key, DescribeTable is rate limited), kept for a while.
+ *
+ * The metrics gauges read counts on every scrape, so only the first get()
+ * waits for DynamoDB. After that get() returns the last value at once, and
+ * once it is older than the refresh interval starts one recount in the
+ * background. A refresh interval of zero counts on every get() (tests).
+ */
+public class CachedCount {
+
+    private static final Logger log = LoggerFactory.getLogger(CachedCount.class);
+
+    private final String name;
+    private final Supplier<CompletableFuture<Long>> counter;
+    private final long refreshNanos;
+    private final Duration timeout;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Long value;
+    private volatile long countedAt;
+
+    /**
+     * @param name What is counted (for the log)
+     * @param counter Starts a count
+     * @param refreshInterval How old a value may get before it is recounted
+     * @param timeout How long the first count may take
+     */
+    public CachedCount(String name, Supplier<CompletableFuture<Long>> counter, Duration refreshInterval,
+                       Duration timeout) {
+        this.name = name;
+        this.counter = counter;
+        this.refreshNanos = refreshInterval.toNanos();
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the count.
+     *
+     * @throws com.cloudops.incidents.exception.ApiException with 503 status
+     *         if there is no value yet and DynamoDB can't be reached
+     */
+    public long get() {
+        Long current = value;
+        if (current == null || refreshNanos == 0) {
+            return store(DynamoRetry.await(counter.get(), timeout));
+        }
+        if (System.nanoTime() - countedAt > refreshNanos && refreshing.compareAndSet(false, true)) {
+            counter.get().whenComplete((counted, error) -> {
+                if (error == null) {
+                    store(counted);
+                } else {
+                    log.warn("Recounting {} failed, keeping the old value: {}", name, error.toString());
+                }
+                refreshing.set(false);
+            });
+        }
+        return current;
+    }
+
+    private long store(long counted) {
+        countedAt = System.nanoTime();
+        value = counted;
+        return counted;
+    }
+}
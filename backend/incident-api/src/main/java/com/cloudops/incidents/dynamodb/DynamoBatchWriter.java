@@ -0,0 +1,369 @@
+package com.cloudops.incidents.dynamodb;
+
+import com.cloudops.incidents.exception.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends puts and deletes for one table as BatchWriteItem requests
+ * (group commit, like WriteAheadLog).
+ *
+ * How it works:
+ * - Callers hand a put or delete to put()/delete() and get a future back
+ * - A dispatcher thread takes the queued writes, up to 25 (the BatchWriteItem
+ *   limit) at a time, and sends them as one asynchronous request
+ * - Up to maxInFlight batches are outstanding at once. While all of them
+ *   are, writes keep queueing, so under load every batch is full: one
+ *   round trip stores 25 items instead of one
+ * - Writes to the same key in one batch are merged (DynamoDB rejects
+ *   duplicate keys in a batch); the last one wins, as if both had been sent
+ *
+ * Items DynamoDB doesn't process (UnprocessedItems, usually because of
+ * throttling) are sent again after a jittered backoff (see DynamoRetry), as
+ * are whole batches that fail with a retryable error. A write's future
+ * completes when its item is stored, or fails once its retries run out.
+ *
+ * BatchWriteItem has no conditions, so only unconditional writes go
+ * through here; conditional ones (replace, delete of an incident) are sent
+ * on their own.
+ *
+ * Metrics:
+ * - dynamodb.write.queue{table}: writes waiting for a batch
+ * - dynamodb.batch.size{table}: items per BatchWriteItem request
+ * - dynamodb.unprocessed.items{table}: items DynamoDB handed back for a retry
+ */
+public class DynamoBatchWriter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamoBatchWriter.class);
+
+    /** Most items BatchWriteItem accepts per request */
+    public static final int MAX_BATCH_SIZE = 25;
+
+    private static final String OPERATION = "BatchWriteItem";
+
+    private final DynamoDbAsyncClient client;
+    private final String table;
+    private final List<String> keyAttributes;
+    private final DynamoRetry retry;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread dispatcher;
+    private final DistributionSummary batchSizes;
+    private final Counter unprocessedItems;
+    private volatile boolean closed;
+
+    /**
+     * Creates the writer and starts its dispatcher thread.
+     *
+     * @param client The DynamoDB client
+     * @param table The table written to
+     * @param keyAttributes Names of the table's key attributes
+     * @param retry Backoff for unprocessed items and failed batches
+     * @param maxInFlight Most batches outstanding at once
+     * @param queueCapacity Most writes waiting for a batch (more fail with 503)
+     * @param meterRegistry Where the metrics are registered
+     */
+    public DynamoBatchWriter(DynamoDbAsyncClient client, String table, List<String> keyAttributes, DynamoRetry retry,
+                             int maxInFlight, int queueCapacity, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.table = table;
+        this.keyAttributes = keyAttributes;
+        this.retry = retry;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("dynamodb.write.queue", queue, BlockingQueue::size)
+                .description("Writes waiting to be sent in a BatchWriteItem request")
+                .tag("table", table)
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("dynamodb.batch.size")
+                .description("Items per BatchWriteItem request")
+                .tag("table", table)
+                .register(meterRegistry);
+        this.unprocessedItems = Counter.builder("dynamodb.unprocessed.items")
+                .description("Items returned unprocessed by BatchWriteItem and sent again")
+                .tag("table", table)
+                .register(meterRegistry);
+        this.dispatcher = new Thread(this::runDispatcher, "dynamodb-writer-" + table);
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queues an item to be stored (overwriting any item with the same key).
+     *
+     * @param item The full item
+     * @return Future completed once the item is stored
+     */
+    public CompletableFuture<Void> put(Map<String, AttributeValue> item) {
+        WriteRequest request = WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build();
+        return enqueue(keyOf(item), request);
+    }
+
+    /**
+     * Queues an item to be deleted (nothing happens if it doesn't exist).
+     *
+     * @param key The item's key
+     * @return Future completed once the item is gone
+     */
+    public CompletableFuture<Void> delete(Map<String, AttributeValue> key) {
+        WriteRequest request = WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(key).build()).build();
+        return enqueue(key, request);
+    }
+
+    /**
+     * Checks whether writes can currently be accepted and are getting through.
+     *
+     * @return null if they are, otherwise what's wrong
+     */
+    public String checkHealth() {
+        if (closed) {
+            return "DynamoDB writer for " + table + " is closed";
+        }
+        if (!dispatcher.isAlive()) {
+            return "DynamoDB writer for " + table + " is not running";
+        }
+        if (queue.remainingCapacity() == 0) {
+            return "DynamoDB write queue for " + table + " is full";
+        }
+        return retry.checkHealth();
+    }
+
+    /**
+     * Gets the number of writes waiting for a batch.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting writes, sends everything queued, and waits for the
+     * outstanding batches to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(30));
+            if (!inFlight.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS)) {
+                log.warn("DynamoDB batches for {} still outstanding at shutdown", table);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingWrite straggler;
+        while ((straggler = queue.poll()) != null) {
+            straggler.done.completeExceptionally(new ApiException("Storage is shutting down", 503));
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Map<String, AttributeValue> key, WriteRequest request) {
+        PendingWrite write = new PendingWrite(key, request);
+        if (closed) {
+            write.done.completeExceptionally(new ApiException("Storage is shutting down", 503));
+        } else if (!queue.offer(write)) {
+            write.done.completeExceptionally(new ApiException("Storage write queue is full, retry later", 503));
+        }
+        return write.done;
+    }
+
+    /**
+     * Dispatcher loop: wait for a free batch slot, then send everything
+     * queued (up to 25 keys) as one batch.
+     */
+    private void runDispatcher() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                inFlight.acquire();
+                Map<Map<String, AttributeValue>, BatchEntry> batch = new LinkedHashMap<>();
+                add(batch, first);
+                PendingWrite next;
+                while ((batch.size() < MAX_BATCH_SIZE || batch.containsKey(peekKey()))
+                        && (next = queue.poll()) != null) {
+                    add(batch, next);
+                }
+                batchSizes.record(batch.size());
+                send(new ArrayList<>(batch.values()), 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("DynamoDB writer for {} failed to send a batch", table, e);
+            }
+        }
+    }
+
+    private Map<String, AttributeValue> peekKey() {
+        PendingWrite next = queue.peek();
+        return next != null ? next.key : null;
+    }
+
+    private static void add(Map<Map<String, AttributeValue>, BatchEntry> batch, PendingWrite write) {
+        BatchEntry entry = batch.get(write.key);
+        if (entry == null) {
+            batch.put(write.key, new BatchEntry(write));
+        } else {
+            entry.merge(write);     // Later write to the same key wins
+        }
+    }
+
+    /**
+     * Sends one batch; resends the items DynamoDB didn't process. The batch
+     * slot is released once every item is stored or has failed.
+     */
+    private void send(List<BatchEntry> entries, int attempt) {
+        List<WriteRequest> requests = new ArrayList<>(entries.size());
+        for (BatchEntry entry : entries) {
+            requests.add(entry.request);
+        }
+        BatchWriteItemRequest request = BatchWriteItemRequest.builder()
+                .requestItems(Collections.singletonMap(table, requests))
+                .build();
+        CompletableFuture<BatchWriteItemResponse> response;
+        try {
+            response = client.batchWriteItem(request);
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        response.whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = DynamoRetry.unwrap(error);
+                if (retry.shouldRetry(cause, attempt)) {
+                    retry.countRetry(OPERATION);
+                    retry.schedule(() -> send(entries, attempt + 1), attempt);
+                    return;
+                }
+                if (retry.isRetryable(cause)) {
+                    retry.recordFailure(cause);
+                }
+                finish(entries, cause);
+                return;
+            }
+            List<WriteRequest> unprocessed = result.hasUnprocessedItems()
+                    ? result.unprocessedItems().getOrDefault(table, Collections.emptyList())
+                    : Collections.<WriteRequest>emptyList();
+            if (unprocessed.isEmpty()) {
+                retry.recordSuccess();
+                finish(entries, null);
+                return;
+            }
+            unprocessedItems.increment(unprocessed.size());
+            Map<Map<String, AttributeValue>, BatchEntry> byKey = new HashMap<>();
+            for (BatchEntry entry : entries) {
+                byKey.put(entry.key, entry);
+            }
+            List<BatchEntry> again = new ArrayList<>(unprocessed.size());
+            for (WriteRequest write : unprocessed) {
+                BatchEntry entry = byKey.remove(keyOf(write));
+                if (entry != null) {
+                    again.add(entry);
+                }
+            }
+            for (BatchEntry stored : byKey.values()) {
+                stored.complete(null);
+            }
+            if (again.isEmpty()) {
+                finish(again, null);
+            } else if (attempt < retry.getMaxAttempts()) {
+                retry.countRetry(OPERATION);
+                retry.schedule(() -> send(again, attempt + 1), attempt);
+            } else {
+                Throwable throttled = new ApiException("Storage is throttling writes, retry later", 503);
+                retry.recordFailure(throttled);
+                finish(again, throttled);
+            }
+        });
+    }
+
+    private void finish(List<BatchEntry> entries, Throwable error) {
+        for (BatchEntry entry : entries) {
+            entry.complete(error);
+        }
+        inFlight.release();
+    }
+
+    private Map<String, AttributeValue> keyOf(WriteRequest write) {
+        return write.putRequest() != null ? keyOf(write.putRequest().item()) : write.deleteRequest().key();
+    }
+
+    private Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        for (String attribute : keyAttributes) {
+            key.put(attribute, item.get(attribute));
+        }
+        return key;
+    }
+
+    /**
+     * A write waiting for a batch.
+     */
+    private static final class PendingWrite {
+        final Map<String, AttributeValue> key;
+        final WriteRequest request;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(Map<String, AttributeValue> key, WriteRequest request) {
+            this.key = key;
+            this.request = request;
+        }
+    }
+
+    /**
+     * One key in a batch: the write to send and everyone waiting for it.
+     */
+    private static final class BatchEntry {
+        final Map<String, AttributeValue> key;
+        WriteRequest request;
+        final List<CompletableFuture<Void>> waiters = new ArrayList<>(1);
+
+        BatchEntry(PendingWrite write) {
+            this.key = write.key;
+            this.request = write.request;
+            waiters.add(write.done);
+        }
+
+        void merge(PendingWrite write) {
+            request = write.request;
+            waiters.add(write.done);
+        }
+
+        void complete(Throwable error) {
+            for (CompletableFuture<Void> waiter : waiters) {
+                if (error == null) {
+                    waiter.complete(null);
+                } else {
+                    waiter.completeExceptionally(error);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.cloudops.incidents.dynamodb;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentCursor;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts incidents and diagnostic records to and from DynamoDB items.
+ *
+ * Every field is stored as its own attribute (enums by name, timestamps as
+ * ISO-8601 strings, numbers as N). Null fields are left out, which also
+ * keeps an item out of an index whose key it lacks.
+ *
+ * Incident items carry two extra attributes for the indexes (see DynamoTables):
+ * - createdKey: "0001705329000.123456789#<id>", sorts like IncidentCursor
+ * - entity: "INCIDENT#<shard>" (DynamoTables.incidentShard)
+ */
+public final class DynamoItems {
+
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String UPDATED_AT = "updatedAt";
+    /** Error type attribute (filtered on by queries) */
+    public static final String ERROR_TYPE = "errorType";
+    private static final String CORRELATION_ID = "correlationId";
+    /** Version attribute (checked by conditional writes) */
+    public static final String VERSION = "version";
+    private static final String OCCURRENCE_COUNT = "occurrenceCount";
+    private static final String LAST_SEEN_AT = "lastSeenAt";
+    private static final String SOURCE = "source";
+    private static final String DATA = "data";
+
+    private DynamoItems() {}
+
+    /**
+     * Builds the sortable position of an incident in list order: zero-padded
+     * epoch seconds and nanoseconds, then the ID. Comparing two keys as
+     * strings gives the same result as comparing the IncidentCursors.
+     *
+     * @param timestamp Creation time (null is treated as the epoch, like IncidentCursor)
+     * @param id Incident ID ("" gives the first position at that time)
+     */
+    public static String createdKey(Instant timestamp, String id) {
+        Instant time = timestamp != null ? timestamp : Instant.EPOCH;
+        return String.format("%013d.%09d#%s", time.getEpochSecond(), time.getNano(), id);
+    }
+
+    /**
+     * Gets the primary key of an incident item.
+     */
+    public static Map<String, AttributeValue> incidentKey(String id) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(DynamoTables.ID, string(id));
+        return key;
+    }
+
+    /**
+     * Builds the ExclusiveStartKey that continues an index query after a cursor.
+     *
+     * An index's LastEvaluatedKey holds the table key plus the index key,
+     * so it can be rebuilt from the cursor without having seen the item.
+     *
+     * @param partitionAttribute The index partition key attribute
+     * @param partitionValue The value being queried
+     * @param after The last incident already returned
+     */
+    public static Map<String, AttributeValue> indexStartKey(String partitionAttribute, String partitionValue,
+                                                            IncidentCursor after) {
+        Map<String, AttributeValue> key = incidentKey(after.getId());
+        key.put(partitionAttribute, string(partitionValue));
+        key.put(DynamoTables.CREATED_KEY, string(createdKey(after.getTimestamp(), after.getId())));
+        return key;
+    }
+
+    /**
+     * Converts an incident to an item, including the index attributes.
+     */
+    public static Map<String, AttributeValue> toItem(Incident incident) {
+        Map<String, AttributeValue> item = incidentKey(incident.getId());
+        item.put(DynamoTables.ENTITY, string(DynamoTables.incidentShard(incident.getId())));
+        item.put(DynamoTables.CREATED_KEY, string(createdKey(incident.getTimestamp(), incident.getId())));
+        putString(item, TITLE, incident.getTitle());
+        putString(item, DESCRIPTION, incident.getDescription());
+        putName(item, DynamoTables.SEVERITY, incident.getSeverity());
+        putName(item, DynamoTables.STATUS, incident.getStatus());
+        putString(item, TIMESTAMP, incident.getTimestamp());
+        putString(item, UPDATED_AT, incident.getUpdatedAt());
+        if (incident.getServiceName() != null && !incident.getServiceName().isEmpty()) {
+            item.put(DynamoTables.SERVICE_NAME, string(incident.getServiceName()));   // Index keys can't be empty
+        }
+        putName(item, ERROR_TYPE, incident.getErrorType());
+        putString(item, CORRELATION_ID, incident.getCorrelationId());
+        item.put(VERSION, number(incident.getVersion()));
+        item.put(OCCURRENCE_COUNT, number(incident.getOccurrenceCount()));
+        putString(item, LAST_SEEN_AT, incident.getLastSeenAt());
+        return item;
+    }
+
+    /**
+     * Converts an item back to an incident.
+     */
+    public static Incident toIncident(Map<String, AttributeValue> item) {
+        return Incident.builder()
+                .id(getString(item, DynamoTables.ID))
+                .title(getString(item, TITLE))
+                .description(getString(item, DESCRIPTION))
+                .severity(getEnum(item, DynamoTables.SEVERITY, Severity.class))
+                .status(getEnum(item, DynamoTables.STATUS, IncidentStatus.class))
+                .timestamp(getInstant(item, TIMESTAMP))
+                .updatedAt(getInstant(item, UPDATED_AT))
+                .serviceName(getString(item, DynamoTables.SERVICE_NAME))
+                .errorType(getEnum(item, ERROR_TYPE, ErrorType.class))
+                .correlationId(getString(item, CORRELATION_ID))
+                .version(getLong(item, VERSION, 0))
+                .occurrenceCount(getLong(item, OCCURRENCE_COUNT, 1))
+                .lastSeenAt(getInstant(item, LAST_SEEN_AT))
+                .build();
+    }
+
+    /**
+     * Gets the primary key of a diagnostic record item.
+     */
+    public static Map<String, AttributeValue> diagnosticKey(String incidentId, String id) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(DynamoTables.INCIDENT_ID, string(incidentId));
+        key.put(DynamoTables.ID, string(id));
+        return key;
+    }
+
+    /**
+     * Converts a diagnostic record to an item.
+     */
+    public static Map<String, AttributeValue> toItem(DiagnosticRecord record) {
+        Map<String, AttributeValue> item = diagnosticKey(record.getIncidentId(), record.getId());
+        putString(item, SOURCE, record.getSource());
+        putString(item, DATA, record.getData());
+        putString(item, TIMESTAMP, record.getTimestamp());
+        return item;
+    }
+
+    /**
+     * Converts an item back to a diagnostic record.
+     */
+    public static DiagnosticRecord toRecord(Map<String, AttributeValue> item) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setIncidentId(getString(item, DynamoTables.INCIDENT_ID));
+        record.setId(getString(item, DynamoTables.ID));
+        record.setSource(getString(item, SOURCE));
+        record.setData(getString(item, DATA));
+        String timestamp = getString(item, TIMESTAMP);
+        record.setTimestamp(timestamp != null ? LocalDateTime.parse(timestamp) : null);
+        return record;
+    }
+
+    /** Builds a string attribute value */
+    public static AttributeValue string(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    /** Builds a number attribute value */
+    public static AttributeValue number(long value) {
+        return AttributeValue.builder().n(Long.toString(value)).build();
+    }
+
+    private static void putString(Map<String, AttributeValue> item, String name, Object value) {
+        if (value != null) {
+            item.put(name, string(value.toString()));
+        }
+    }
+
+    private static void putName(Map<String, AttributeValue> item, String name, Enum<?> value) {
+        if (value != null) {
+            item.put(name, string(value.name()));
+        }
+    }
+
+    private static String getString(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value != null ? value.s() : null;
+    }
+
+    private static Instant getInstant(Map<String, AttributeValue> item, String name) {
+        String value = getString(item, name);
+        return value != null ? Instant.parse(value) : null;
+    }
+
+    private static <E extends Enum<E>> E getEnum(Map<String, AttributeValue> item, String name, Class<E> type) {
+        String value = getString(item, name);
+        return value != null ? Enum.valueOf(type, value) : null;
+    }
+
+    private static long getLong(Map<String, AttributeValue> item, String name, long missing) {
+        AttributeValue value = item.get(name);
+        return value != null && value.n() != null ? Long.parseLong(value.n()) : missing;
+    }
+}
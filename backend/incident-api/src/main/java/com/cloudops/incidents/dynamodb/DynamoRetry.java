@@ -0,0 +1,240 @@
+package com.cloudops.incidents.dynamodb;
+
+import com.cloudops.incidents.exception.ApiException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Retries DynamoDB requests that failed for a temporary reason, with
+ * exponential backoff and full jitter.
+ *
+ * Retried:
+ * - Throttling (ProvisionedThroughputExceeded, RequestLimitExceeded,
+ *   ThrottlingException and other 429s)
+ * - Server errors (5xx)
+ * - Network errors (an IOException somewhere in the cause chain)
+ * Everything else (validation errors, failed conditions) fails at once.
+ *
+ * The wait before attempt n + 1 is a random time between 0 and
+ * min(maxDelay, baseDelay * 2^n) ("full jitter"), so clients throttled at
+ * the same moment don't all come back at the same moment. Waits are
+ * scheduled on a timer thread; no thread sleeps while a request waits.
+ *
+ * The SDK's own retries should be turned off (RetryPolicy.none()) so the
+ * two don't multiply.
+ *
+ * Metrics:
+ * - dynamodb.retries{table,operation}: requests sent again
+ */
+public class DynamoRetry implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamoRetry.class);
+
+    private final String table;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler;
+
+    /** Last request that failed for good, cleared by the next success */
+    private volatile Throwable lastFailure;
+
+    /**
+     * @param table Table the requests go to (metrics tag, thread name)
+     * @param maxAttempts Attempts per request, including the first
+     * @param baseDelay Backoff cap after the first failure (doubles with each attempt)
+     * @param maxDelay Largest backoff cap
+     * @param meterRegistry Where the retry counter is registered
+     */
+    public DynamoRetry(String table, int maxAttempts, Duration baseDelay, Duration maxDelay,
+                       MeterRegistry meterRegistry) {
+        this.table = table;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dynamodb-retry-" + table);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends a request, and sends it again after a backoff while it fails
+     * with a retryable error.
+     *
+     * @param operation DynamoDB operation name (metrics tag)
+     * @param request Sends the request (called once per attempt)
+     * @return Future of the first successful response, or of the last error
+     */
+    public <T> CompletableFuture<T> call(String operation, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(operation, request, 1, result);
+        return result;
+    }
+
+    private <T> void attempt(String operation, Supplier<CompletableFuture<T>> request, int attempt,
+                             CompletableFuture<T> result) {
+        request.get().whenComplete((response, error) -> {
+            if (error == null) {
+                recordSuccess();
+                result.complete(response);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (shouldRetry(cause, attempt)) {
+                countRetry(operation);
+                schedule(() -> attempt(operation, request, attempt + 1, result), attempt);
+                return;
+            }
+            if (isRetryable(cause)) {
+                recordFailure(cause);
+            }
+            result.completeExceptionally(cause);
+        });
+    }
+
+    /**
+     * Whether a request that failed with this error on the given attempt
+     * should be sent again.
+     */
+    public boolean shouldRetry(Throwable error, int attempt) {
+        return attempt < maxAttempts && isRetryable(error);
+    }
+
+    /** Gets the number of attempts per request, including the first */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Whether an error is temporary (throttling, server or network error).
+     */
+    public boolean isRetryable(Throwable error) {
+        if (error instanceof ProvisionedThroughputExceededException || error instanceof RequestLimitExceededException) {
+            return true;
+        }
+        if (error instanceof AwsServiceException) {
+            AwsServiceException service = (AwsServiceException) error;
+            return service.isThrottlingException() || service.statusCode() >= 500;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs a task after the backoff for the given attempt.
+     *
+     * @param task What to run (usually the next attempt)
+     * @param attempt The attempt that just failed (1 = the first)
+     */
+    public void schedule(Runnable task, int attempt) {
+        long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        try {
+            scheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Shutting down: run now rather than leave the caller waiting forever
+            task.run();
+        }
+    }
+
+    /** Counts a request that is sent again */
+    public void countRetry(String operation) {
+        meterRegistry.counter("dynamodb.retries", "table", table, "operation", operation).increment();
+    }
+
+    /** Notes that a request succeeded (clears the health problem) */
+    public void recordSuccess() {
+        if (lastFailure != null) {
+            lastFailure = null;
+        }
+    }
+
+    /** Notes that a request failed even after retries (reported by checkHealth()) */
+    public void recordFailure(Throwable error) {
+        lastFailure = error;
+        log.warn("DynamoDB request to {} failed after retries: {}", table, error.toString());
+    }
+
+    /**
+     * Checks whether requests have been getting through.
+     *
+     * @return null if the last request that gave up was followed by a success, otherwise its error
+     */
+    public String checkHealth() {
+        Throwable failure = lastFailure;
+        return failure == null ? null : "DynamoDB table " + table + " failing: " + failure.getMessage();
+    }
+
+    /**
+     * Stops the timer thread. Pending retries run at once.
+     */
+    @Override
+    public void close() {
+        for (Runnable pending : scheduler.shutdownNow()) {
+            pending.run();
+        }
+    }
+
+    /**
+     * Waits for a request to finish, turning failures into API errors.
+     *
+     * @param future The pending request
+     * @param timeout How long to wait
+     * @return The response
+     * @throws ApiException thrown by the request itself, or with 503 status
+     *         if DynamoDB failed or didn't answer in time
+     */
+    public static <T> T await(CompletableFuture<T> future, Duration timeout) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof ApiException) {
+                throw (ApiException) cause;
+            }
+            log.error("DynamoDB request failed", cause);
+            throw new ApiException("Storage request failed", 503);
+        } catch (TimeoutException e) {
+            throw new ApiException("Storage request timed out", 503);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while waiting for storage", 503);
+        }
+    }
+
+    /**
+     * Gets the error inside CompletionException wrappers.
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
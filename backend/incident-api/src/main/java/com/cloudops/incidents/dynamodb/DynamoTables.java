@@ -0,0 +1,200 @@
+package com.cloudops.incidents.dynamodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.TableStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Layout of the DynamoDB tables (same as infrastructure/dynamodb/*.json).
+ *
+ * Incidents table:
+ * - Key: id
+ * - createdKey: creation timestamp + ID as one sortable string (see
+ *   DynamoItems.createdKey), the sort key of every index, so each index
+ *   lists incidents in the same order as IncidentCursor
+ * - Global secondary indexes (all attributes projected):
+ *   - serviceName-created-index: serviceName, createdKey
+ *   - severity-created-index: severity, createdKey
+ *   - status-created-index: status, createdKey
+ *   - entity-created-index: entity, createdKey - lists every incident in
+ *     order, for findAll, unfiltered pages and the total count. entity is
+ *     "INCIDENT#<shard>" (see incidentShard): with a single constant value
+ *     every incident write would land on one index partition, which
+ *     DynamoDB caps at about 1000 writes per second, and index back-pressure
+ *     throttles the table writes too. Readers query all INCIDENT_SHARDS
+ *     partitions in parallel and merge them by createdKey.
+ *
+ * Diagnostics table:
+ * - Key: incidentId (partition), id (sort), so one Query returns all of an
+ *   incident's records
+ *
+ * Both tables use on-demand capacity (PAY_PER_REQUEST).
+ */
+public final class DynamoTables {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamoTables.class);
+
+    // Incident attributes used as keys
+    public static final String ID = "id";
+    public static final String CREATED_KEY = "createdKey";
+    public static final String ENTITY = "entity";
+    public static final String SERVICE_NAME = "serviceName";
+    public static final String SEVERITY = "severity";
+    public static final String STATUS = "status";
+
+    // Diagnostic record attributes used as keys
+    public static final String INCIDENT_ID = "incidentId";
+
+    /** Prefix of the entity attribute on every incident item */
+    private static final String INCIDENT_ENTITY = "INCIDENT";
+
+    /**
+     * Partitions the entity-created-index is spread over. Each adds a
+     * Query to unfiltered reads; together they take about
+     * INCIDENT_SHARDS * 1000 incident writes per second.
+     */
+    public static final int INCIDENT_SHARDS = 16;
+
+    // Incident indexes
+    public static final String BY_CREATED_INDEX = "entity-created-index";
+    public static final String BY_SERVICE_INDEX = "serviceName-created-index";
+    public static final String BY_SEVERITY_INDEX = "severity-created-index";
+    public static final String BY_STATUS_INDEX = "status-created-index";
+
+    /** How long createIfMissing waits for a new table to become ACTIVE */
+    private static final long CREATE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private DynamoTables() {}
+
+    /**
+     * Gets the entity value of an incident: "INCIDENT#" plus a shard number
+     * derived from the ID, so it never changes for an incident.
+     *
+     * @param id Incident ID
+     */
+    public static String incidentShard(String id) {
+        return INCIDENT_ENTITY + "#" + Math.floorMod(id.hashCode(), INCIDENT_SHARDS);
+    }
+
+    /**
+     * Gets the entity values of all shards, to query every incident.
+     */
+    public static List<String> incidentShards() {
+        List<String> shards = new ArrayList<>(INCIDENT_SHARDS);
+        for (int shard = 0; shard < INCIDENT_SHARDS; shard++) {
+            shards.add(INCIDENT_ENTITY + "#" + shard);
+        }
+        return shards;
+    }
+
+    /**
+     * Describes the incidents table and its indexes.
+     *
+     * @param tableName Name of the table
+     */
+    public static CreateTableRequest incidentsTable(String tableName) {
+        List<GlobalSecondaryIndex> indexes = new ArrayList<>();
+        indexes.add(index(BY_CREATED_INDEX, ENTITY));
+        indexes.add(index(BY_SERVICE_INDEX, SERVICE_NAME));
+        indexes.add(index(BY_SEVERITY_INDEX, SEVERITY));
+        indexes.add(index(BY_STATUS_INDEX, STATUS));
+        return CreateTableRequest.builder()
+                .tableName(tableName)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(attribute(ID), attribute(CREATED_KEY), attribute(ENTITY),
+                        attribute(SERVICE_NAME), attribute(SEVERITY), attribute(STATUS))
+                .keySchema(key(ID, KeyType.HASH))
+                .globalSecondaryIndexes(indexes)
+                .build();
+    }
+
+    /**
+     * Describes the diagnostics table.
+     *
+     * @param tableName Name of the table
+     */
+    public static CreateTableRequest diagnosticsTable(String tableName) {
+        return CreateTableRequest.builder()
+                .tableName(tableName)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(attribute(INCIDENT_ID), attribute(ID))
+                .keySchema(key(INCIDENT_ID, KeyType.HASH), key(ID, KeyType.RANGE))
+                .build();
+    }
+
+    /**
+     * Creates a table unless it already exists, and waits until it is ACTIVE.
+     * Used for local development and tests (incidents.persistence.dynamodb.create-tables);
+     * production tables are created from infrastructure/dynamodb.
+     *
+     * @param client The DynamoDB client
+     * @param table The table to create
+     */
+    public static void createIfMissing(DynamoDbAsyncClient client, CreateTableRequest table) {
+        String name = table.tableName();
+        if (status(client, name) == null) {
+            log.info("Creating DynamoDB table {}", name);
+            client.createTable(table).join();
+        }
+        long deadline = System.currentTimeMillis() + CREATE_TIMEOUT_MILLIS;
+        while (status(client, name) != TableStatus.ACTIVE) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("DynamoDB table " + name + " did not become ACTIVE");
+            }
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for table " + name, e);
+            }
+        }
+    }
+
+    /**
+     * Gets a table's status, or null if it doesn't exist.
+     */
+    private static TableStatus status(DynamoDbAsyncClient client, String name) {
+        try {
+            return client.describeTable(DescribeTableRequest.builder().tableName(name).build())
+                    .join().table().tableStatus();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ResourceNotFoundException) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private static GlobalSecondaryIndex index(String name, String partitionKey) {
+        return GlobalSecondaryIndex.builder()
+                .indexName(name)
+                .keySchema(key(partitionKey, KeyType.HASH), key(CREATED_KEY, KeyType.RANGE))
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                .build();
+    }
+
+    private static AttributeDefinition attribute(String name) {
+        return AttributeDefinition.builder().attributeName(name).attributeType(ScalarAttributeType.S).build();
+    }
+
+    private static KeySchemaElement key(String name, KeyType type) {
+        return KeySchemaElement.builder().attributeName(name).keyType(type).build();
+    }
+}
@@ -0,0 +1,817 @@
+package com.cloudops.incidents.dynamodb;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.IndexStatus;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableStatus;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for DynamoDB, so the DynamoDB repositories can be
+ * run and tested without AWS or a DynamoDB Local container.
+ *
+ * Enabled with incidents.persistence.dynamodb.local=true; tests create it
+ * directly. Data lives in memory and is lost when the client is closed.
+ *
+ * Supports what DynamoIncidentRepository and DynamoDiagnosticsRepository
+ * use, with DynamoDB's rules and errors:
+ * - CreateTable / DescribeTable, string (S) keys, global secondary
+ *   indexes (always projecting all attributes)
+ * - GetItem, PutItem and DeleteItem, with ConditionExpression and
+ *   ReturnValues=ALL_OLD
+ * - BatchWriteItem: at most 25 writes, no duplicate keys, UnprocessedItems
+ * - Query on the table or an index: KeyConditionExpression,
+ *   FilterExpression, Limit, ExclusiveStartKey/LastEvaluatedKey,
+ *   ScanIndexForward, Select=COUNT; no consistent reads on indexes
+ * - Expressions: comparisons (=, <>, <, <=, >, >=), BETWEEN,
+ *   attribute_exists, attribute_not_exists and begins_with, joined with AND
+ * - Items up to 400 KB
+ * Anything else throws UnsupportedOperationException (the SDK's default).
+ *
+ * Unlike DynamoDB, indexes are updated together with the table (no
+ * eventual consistency) and Query pages are not cut at 1 MB.
+ *
+ * Requests complete on background threads, like the real asynchronous
+ * client. For tests and benchmarks the client can also simulate:
+ * - throttleNextRequests(n): the next n requests fail with
+ *   ProvisionedThroughputExceededException
+ * - setUnprocessedRate(r): BatchWriteItem leaves a fraction r of the items unprocessed
+ * - setLatency(d): every request takes d
+ * - setMaxConcurrency(n): at most n requests are served at once, the rest
+ *   wait (like the HTTP client's connection pool)
+ */
+public class LocalDynamoDbClient implements DynamoDbAsyncClient {
+
+    /** Largest item DynamoDB stores */
+    private static final int MAX_ITEM_BYTES = 400 * 1024;
+
+    /** Most writes in one BatchWriteItem request */
+    private static final int MAX_BATCH_WRITES = 25;
+
+    /** Separates key parts in the sorted maps (can't occur in the keys used here) */
+    private static final char SEPARATOR = '\u0000';
+
+    private static final Pattern TOKEN = Pattern.compile("\\s*(#\\w+|:\\w+|[A-Za-z_][\\w.]*|<=|>=|<>|[=<>(),])");
+
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger throttledRequests = new AtomicInteger();
+    private volatile double unprocessedRate;
+    private volatile long latencyMicros;
+
+    // Requests being served and waiting for a slot (guarded by this)
+    private int maxConcurrency = Integer.MAX_VALUE;
+    private int active;
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+
+    /**
+     * Creates an empty stand-in (no tables).
+     */
+    public LocalDynamoDbClient() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "local-dynamodb-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Makes the next {@code count} requests fail with ProvisionedThroughputExceededException */
+    public void throttleNextRequests(int count) {
+        throttledRequests.set(count);
+    }
+
+    /** Makes BatchWriteItem leave this fraction (0-1) of its items unprocessed */
+    public void setUnprocessedRate(double rate) {
+        this.unprocessedRate = rate;
+    }
+
+    /** Makes every request take this long */
+    public void setLatency(Duration latency) {
+        this.latencyMicros = TimeUnit.NANOSECONDS.toMicros(latency.toNanos());
+    }
+
+    /** Serves at most this many requests at once; the rest wait their turn */
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Gets how many requests of one operation were received.
+     *
+     * @param operation Operation name, e.g. "BatchWriteItem"
+     */
+    public long getRequestCount(String operation) {
+        AtomicLong count = requestCounts.get(operation);
+        return count != null ? count.get() : 0;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Stops the request threads; the data is dropped.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<CreateTableResponse> createTable(CreateTableRequest request) {
+        return execute("CreateTable", () -> {
+            Table table = new Table(request.tableName(), schema(request.keySchema()));
+            if (request.hasGlobalSecondaryIndexes()) {
+                for (GlobalSecondaryIndex index : request.globalSecondaryIndexes()) {
+                    table.indexes.put(index.indexName(), schema(index.keySchema()));
+                    table.indexed.put(index.indexName(), new TreeMap<>());
+                }
+            }
+            if (tables.putIfAbsent(table.name, table) != null) {
+                throw ResourceInUseException.builder().message("Table already exists: " + table.name)
+                        .statusCode(400).awsErrorDetails(error("ResourceInUseException")).build();
+            }
+            return CreateTableResponse.builder().tableDescription(describe(table)).build();
+        });
+    }
+
+    @Override
+    public CompletableFuture<DescribeTableResponse> describeTable(DescribeTableRequest request) {
+        return execute("DescribeTable", () -> DescribeTableResponse.builder()
+                .table(describe(table(request.tableName())))
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<GetItemResponse> getItem(GetItemRequest request) {
+        return execute("GetItem", () -> {
+            Table table = table(request.tableName());
+            String key = table.primary.encode(request.key(), true);
+            synchronized (table) {
+                Map<String, AttributeValue> item = table.items.get(key);
+                return item != null ? GetItemResponse.builder().item(item).build() : GetItemResponse.builder().build();
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<PutItemResponse> putItem(PutItemRequest request) {
+        return execute("PutItem", () -> {
+            Table table = table(request.tableName());
+            Map<String, AttributeValue> item = request.item();
+            String key = table.primary.encode(item, true);
+            checkSize(item);
+            List<Condition> conditions = parse(request.conditionExpression(),
+                    request.expressionAttributeNames(), request.expressionAttributeValues());
+            synchronized (table) {
+                Map<String, AttributeValue> old = table.items.get(key);
+                checkConditions(conditions, old);
+                table.put(key, item);
+                PutItemResponse.Builder response = PutItemResponse.builder();
+                if (old != null && request.returnValues() == ReturnValue.ALL_OLD) {
+                    response.attributes(old);
+                }
+                return response.build();
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<DeleteItemResponse> deleteItem(DeleteItemRequest request) {
+        return execute("DeleteItem", () -> {
+            Table table = table(request.tableName());
+            String key = table.primary.encode(request.key(), true);
+            List<Condition> conditions = parse(request.conditionExpression(),
+                    request.expressionAttributeNames(), request.expressionAttributeValues());
+            synchronized (table) {
+                Map<String, AttributeValue> old = table.items.get(key);
+                checkConditions(conditions, old);
+                table.remove(key);
+                DeleteItemResponse.Builder response = DeleteItemResponse.builder();
+                if (old != null && request.returnValues() == ReturnValue.ALL_OLD) {
+                    response.attributes(old);
+                }
+                return response.build();
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest request) {
+        return execute("BatchWriteItem", () -> {
+            int total = 0;
+            for (Map.Entry<String, List<WriteRequest>> entry : request.requestItems().entrySet()) {
+                Table table = table(entry.getKey());
+                Set<String> keys = new HashSet<>();
+                for (WriteRequest write : entry.getValue()) {
+                    Map<String, AttributeValue> item = write.putRequest() != null
+                            ? write.putRequest().item() : write.deleteRequest().key();
+                    if (!keys.add(table.primary.encode(item, true))) {
+                        throw validation("Provided list of item keys contains duplicates");
+                    }
+                    if (write.putRequest() != null) {
+                        checkSize(item);
+                    }
+                }
+                total += entry.getValue().size();
+            }
+            if (total == 0 || total > MAX_BATCH_WRITES) {
+                throw validation("BatchWriteItem takes 1 to " + MAX_BATCH_WRITES + " writes, got " + total);
+            }
+
+            Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+            for (Map.Entry<String, List<WriteRequest>> entry : request.requestItems().entrySet()) {
+                Table table = table(entry.getKey());
+                synchronized (table) {
+                    for (WriteRequest write : entry.getValue()) {
+                        if (unprocessedRate > 0 && ThreadLocalRandom.current().nextDouble() < unprocessedRate) {
+                            unprocessed.computeIfAbsent(table.name, name -> new ArrayList<>()).add(write);
+                        } else if (write.putRequest() != null) {
+                            Map<String, AttributeValue> item = write.putRequest().item();
+                            table.put(table.primary.encode(item, true), item);
+                        } else {
+                            table.remove(table.primary.encode(write.deleteRequest().key(), true));
+                        }
+                    }
+                }
+            }
+            return BatchWriteItemResponse.builder().unprocessedItems(unprocessed).build();
+        });
+    }
+
+    @Override
+    public CompletableFuture<QueryResponse> query(QueryRequest request) {
+        return execute("Query", () -> {
+            Table table = table(request.tableName());
+            KeySchema schema = table.primary;
+            NavigableMap<String, Map<String, AttributeValue>> entries = table.items;
+            if (request.indexName() != null) {
+                schema = table.indexes.get(request.indexName());
+                if (schema == null) {
+                    throw validation("The table does not have the specified index: " + request.indexName());
+                }
+                if (Boolean.TRUE.equals(request.consistentRead())) {
+                    throw validation("Consistent reads are not supported on global secondary indexes");
+                }
+                entries = table.indexed.get(request.indexName());
+            }
+            List<Condition> keyConditions = parse(request.keyConditionExpression(),
+                    request.expressionAttributeNames(), request.expressionAttributeValues());
+            List<Condition> filter = parse(request.filterExpression(),
+                    request.expressionAttributeNames(), request.expressionAttributeValues());
+            String partition = null;
+            String[] bounds = {"", null};
+            for (Condition condition : keyConditions) {
+                if (condition.attribute.equals(schema.hash) && condition.operator.equals("=")) {
+                    partition = condition.operands[0].s();
+                } else if (condition.attribute.equals(schema.range)) {
+                    bounds = condition.bounds();
+                } else {
+                    throw validation("Query key condition not supported: " + request.keyConditionExpression());
+                }
+            }
+            if (partition == null) {
+                throw validation("Query condition missed key schema element: " + schema.hash);
+            }
+            boolean forward = !Boolean.FALSE.equals(request.scanIndexForward());
+            boolean countOnly = request.select() == Select.COUNT;
+            Integer limit = request.limit();
+
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            int count = 0;
+            int scanned = 0;
+            Map<String, AttributeValue> lastKey = null;
+            synchronized (table) {
+                NavigableMap<String, Map<String, AttributeValue>> range = entries.subMap(
+                        partition + SEPARATOR + bounds[0], true,
+                        bounds[1] != null ? partition + SEPARATOR + bounds[1] : partition + (char) (SEPARATOR + 1),
+                        false);
+                if (request.hasExclusiveStartKey()) {
+                    String start = table.entryKey(schema, request.exclusiveStartKey());
+                    range = forward ? range.tailMap(start, false) : range.headMap(start, false);
+                }
+                for (Map<String, AttributeValue> item : forward ? range.values() : range.descendingMap().values()) {
+                    if (!matches(keyConditions, item)) {
+                        continue;
+                    }
+                    scanned++;
+                    if (matches(filter, item)) {
+                        count++;
+                        if (!countOnly) {
+                            items.add(item);
+                        }
+                    }
+                    if (limit != null && scanned == limit) {
+                        lastKey = table.keyOf(schema, item);
+                        break;
+                    }
+                }
+            }
+            QueryResponse.Builder response = QueryResponse.builder().count(count).scannedCount(scanned);
+            if (!countOnly) {
+                response.items(items);
+            }
+            if (lastKey != null) {
+                response.lastEvaluatedKey(lastKey);
+            }
+            return response.build();
+        });
+    }
+
+    /**
+     * Runs a request on the request threads, after the simulated latency and
+     * once a concurrency slot is free.
+     */
+    private <T> CompletableFuture<T> execute(String operation, Supplier<T> action) {
+        requestCounts.computeIfAbsent(operation, name -> new AtomicLong()).incrementAndGet();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable request = () -> {
+            try {
+                if (throttledRequests.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                    throw ProvisionedThroughputExceededException.builder()
+                            .message("The level of configured provisioned throughput for the table was exceeded")
+                            .statusCode(400).awsErrorDetails(error("ProvisionedThroughputExceededException")).build();
+                }
+                result.complete(action.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                finished();
+            }
+        };
+        synchronized (this) {
+            if (active >= maxConcurrency) {
+                waiting.add(request);
+                return result;
+            }
+            active++;
+        }
+        start(request);
+        return result;
+    }
+
+    private void finished() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                active--;
+            }
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    private void start(Runnable request) {
+        executor.schedule(request, latencyMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private Table table(String name) {
+        Table table = tables.get(name);
+        if (table == null) {
+            throw ResourceNotFoundException.builder().message("Requested resource not found: Table: " + name)
+                    .statusCode(400).awsErrorDetails(error("ResourceNotFoundException")).build();
+        }
+        return table;
+    }
+
+    private static TableDescription describe(Table table) {
+        List<GlobalSecondaryIndexDescription> indexes = new ArrayList<>();
+        synchronized (table) {
+            for (Map.Entry<String, TreeMap<String, Map<String, AttributeValue>>> index : table.indexed.entrySet()) {
+                indexes.add(GlobalSecondaryIndexDescription.builder()
+                        .indexName(index.getKey())
+                        .indexStatus(IndexStatus.ACTIVE)
+                        .itemCount((long) index.getValue().size())
+                        .build());
+            }
+            return TableDescription.builder()
+                    .tableName(table.name)
+                    .tableStatus(TableStatus.ACTIVE)
+                    .creationDateTime(table.created)
+                    .itemCount((long) table.items.size())
+                    .globalSecondaryIndexes(indexes.isEmpty() ? null : indexes)
+                    .build();
+        }
+    }
+
+    private static KeySchema schema(List<KeySchemaElement> elements) {
+        String hash = null;
+        String range = null;
+        for (KeySchemaElement element : elements) {
+            if (element.keyType() == KeyType.HASH) {
+                hash = element.attributeName();
+            } else {
+                range = element.attributeName();
+            }
+        }
+        if (hash == null) {
+            throw validation("Key schema has no HASH key");
+        }
+        return new KeySchema(hash, range);
+    }
+
+    private static void checkSize(Map<String, AttributeValue> item) {
+        long bytes = 0;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            AttributeValue value = attribute.getValue();
+            String text = value.s() != null ? value.s() : value.n() != null ? value.n() : value.toString();
+            bytes += attribute.getKey().getBytes(StandardCharsets.UTF_8).length
+                    + text.getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (bytes > MAX_ITEM_BYTES) {
+            throw validation("Item size has exceeded the maximum allowed size");
+        }
+    }
+
+    private static void checkConditions(List<Condition> conditions, Map<String, AttributeValue> existing) {
+        if (!matches(conditions, existing != null ? existing : Collections.emptyMap())) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed")
+                    .statusCode(400).awsErrorDetails(error("ConditionalCheckFailedException")).build();
+        }
+    }
+
+    private static boolean matches(List<Condition> conditions, Map<String, AttributeValue> item) {
+        for (Condition condition : conditions) {
+            if (!condition.test(item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses an expression of conditions joined with AND.
+     * Example: "#status = :status AND attribute_exists(#id)"
+     */
+    private static List<Condition> parse(String expression, Map<String, String> names,
+                                         Map<String, AttributeValue> values) {
+        List<Condition> conditions = new ArrayList<>();
+        if (expression == null || expression.trim().isEmpty()) {
+            return conditions;
+        }
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(expression);
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            tokens.add(matcher.group(1));
+            end = matcher.end();
+        }
+        if (!expression.substring(end).trim().isEmpty()) {
+            throw validation("Invalid expression: " + expression);
+        }
+        Parser parser = new Parser(expression, tokens, names, values);
+        do {
+            conditions.add(parser.condition());
+        } while (parser.acceptKeyword("AND"));
+        if (parser.hasMore()) {
+            throw validation("Unsupported expression (only AND is supported): " + expression);
+        }
+        return conditions;
+    }
+
+    private static DynamoDbException validation(String message) {
+        return (DynamoDbException) DynamoDbException.builder().message(message).statusCode(400)
+                .awsErrorDetails(error("ValidationException")).build();
+    }
+
+    private static AwsErrorDetails error(String code) {
+        return AwsErrorDetails.builder().errorCode(code).serviceName("DynamoDb").build();
+    }
+
+    /**
+     * Key attributes of a table or index.
+     */
+    private static final class KeySchema {
+        final String hash;
+        final String range;
+
+        KeySchema(String hash, String range) {
+            this.hash = hash;
+            this.range = range;
+        }
+
+        /**
+         * Encodes an item's key as "hash SEP range" (sorts by hash, then range),
+         * or null if the item lacks a key attribute (not in this index).
+         */
+        String encode(Map<String, AttributeValue> item, boolean required) {
+            String hashValue = keyValue(item, hash);
+            String rangeValue = range != null ? keyValue(item, range) : "";
+            if (hashValue == null || rangeValue == null) {
+                if (required) {
+                    throw validation("One of the required keys was not given a value");
+                }
+                return null;
+            }
+            return hashValue + SEPARATOR + rangeValue;
+        }
+
+        private static String keyValue(Map<String, AttributeValue> item, String name) {
+            AttributeValue value = item.get(name);
+            if (value == null) {
+                return null;
+            }
+            if (value.s() == null || value.s().isEmpty()) {
+                throw validation("Key attribute " + name + " must be a non-empty string");
+            }
+            return value.s();
+        }
+    }
+
+    /**
+     * One table: items by key, and each index as a sorted copy.
+     */
+    private static final class Table {
+        final String name;
+        final KeySchema primary;
+        final Instant created = Instant.now();
+        final Map<String, KeySchema> indexes = new LinkedHashMap<>();
+
+        /** Items by "hash SEP range" */
+        final TreeMap<String, Map<String, AttributeValue>> items = new TreeMap<>();
+
+        /** Per index: items by "index hash SEP index range SEP table key" */
+        final Map<String, TreeMap<String, Map<String, AttributeValue>>> indexed = new LinkedHashMap<>();
+
+        Table(String name, KeySchema primary) {
+            this.name = name;
+            this.primary = primary;
+        }
+
+        void put(String key, Map<String, AttributeValue> item) {
+            remove(key);
+            items.put(key, item);
+            for (Map.Entry<String, KeySchema> index : indexes.entrySet()) {
+                String indexKey = index.getValue().encode(item, false);
+                if (indexKey != null) {
+                    indexed.get(index.getKey()).put(indexKey + SEPARATOR + key, item);
+                }
+            }
+        }
+
+        void remove(String key) {
+            Map<String, AttributeValue> old = items.remove(key);
+            if (old == null) {
+                return;
+            }
+            for (Map.Entry<String, KeySchema> index : indexes.entrySet()) {
+                String indexKey = index.getValue().encode(old, false);
+                if (indexKey != null) {
+                    indexed.get(index.getKey()).remove(indexKey + SEPARATOR + key);
+                }
+            }
+        }
+
+        /** Position of a key (as in ExclusiveStartKey) in the table's or an index's sorted map */
+        String entryKey(KeySchema schema, Map<String, AttributeValue> key) {
+            String tableKey = primary.encode(key, true);
+            return schema == primary ? tableKey : schema.encode(key, true) + SEPARATOR + tableKey;
+        }
+
+        /** LastEvaluatedKey of an item: the table key plus the index key */
+        Map<String, AttributeValue> keyOf(KeySchema schema, Map<String, AttributeValue> item) {
+            Map<String, AttributeValue> key = new HashMap<>();
+            for (KeySchema part : new KeySchema[] {primary, schema}) {
+                key.put(part.hash, item.get(part.hash));
+                if (part.range != null) {
+                    key.put(part.range, item.get(part.range));
+                }
+            }
+            return key;
+        }
+    }
+
+    /**
+     * One condition of an expression.
+     */
+    private static final class Condition {
+        final String operator;
+        final String attribute;
+        final AttributeValue[] operands;
+
+        Condition(String operator, String attribute, AttributeValue... operands) {
+            this.operator = operator;
+            this.attribute = attribute;
+            this.operands = operands;
+        }
+
+        /**
+         * Range of sort keys a key condition selects, as {from (inclusive),
+         * to (exclusive, null = no end)}. Appending a character above the
+         * separator to a value sorts after every entry with that sort key.
+         */
+        String[] bounds() {
+            String value = operands.length > 0 ? operands[0].s() : null;
+            if (value == null) {
+                throw validation("Sort key conditions need a string value");
+            }
+            String after = value + (char) (SEPARATOR + 1);
+            switch (operator) {
+                case "=": return new String[] {value, after};
+                case ">=": return new String[] {value, null};
+                case ">": return new String[] {after, null};
+                case "<": return new String[] {"", value};
+                case "<=": return new String[] {"", after};
+                case "BETWEEN": return new String[] {value, operands[1].s() + (char) (SEPARATOR + 1)};
+                case "begins_with": return new String[] {value, value + Character.MAX_VALUE};
+                default: throw validation("Unsupported sort key condition " + operator);
+            }
+        }
+
+        boolean test(Map<String, AttributeValue> item) {
+            AttributeValue value = item.get(attribute);
+            switch (operator) {
+                case "attribute_exists":
+                    return value != null;
+                case "attribute_not_exists":
+                    return value == null;
+                case "begins_with":
+                    return value != null && value.s() != null && value.s().startsWith(operands[0].s());
+                case "=":
+                    return Objects.equals(value, operands[0]);
+                case "<>":
+                    return !Objects.equals(value, operands[0]);
+                case "BETWEEN":
+                    Integer low = compare(value, operands[0]);
+                    Integer high = compare(value, operands[1]);
+                    return low != null && high != null && low >= 0 && high <= 0;
+                default:
+                    Integer order = compare(value, operands[0]);
+                    if (order == null) {
+                        return false;
+                    }
+                    switch (operator) {
+                        case "<": return order < 0;
+                        case "<=": return order <= 0;
+                        case ">": return order > 0;
+                        default: return order >= 0;
+                    }
+            }
+        }
+
+        /** Compares two strings or two numbers; null if they can't be compared */
+        private static Integer compare(AttributeValue value, AttributeValue operand) {
+            if (value == null) {
+                return null;
+            }
+            if (value.s() != null && operand.s() != null) {
+                return value.s().compareTo(operand.s());
+            }
+            if (value.n() != null && operand.n() != null) {
+                return new BigDecimal(value.n()).compareTo(new BigDecimal(operand.n()));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads conditions from the tokens of an expression.
+     */
+    private static final class Parser {
+        private final String expression;
+        private final List<String> tokens;
+        private final Map<String, String> names;
+        private final Map<String, AttributeValue> values;
+        private int position;
+
+        Parser(String expression, List<String> tokens, Map<String, String> names, Map<String, AttributeValue> values) {
+            this.expression = expression;
+            this.tokens = tokens;
+            this.names = names;
+            this.values = values;
+        }
+
+        Condition condition() {
+            String first = next();
+            if (first.equals("attribute_exists") || first.equals("attribute_not_exists")
+                    || first.equals("begins_with")) {
+                expect("(");
+                String attribute = name(next());
+                AttributeValue[] operands = new AttributeValue[0];
+                if (first.equals("begins_with")) {
+                    expect(",");
+                    operands = new AttributeValue[] {value(next())};
+                }
+                expect(")");
+                return new Condition(first, attribute, operands);
+            }
+            String attribute = name(first);
+            String operator = next();
+            if (operator.equalsIgnoreCase("BETWEEN")) {
+                AttributeValue low = value(next());
+                if (!acceptKeyword("AND")) {
+                    throw validation("BETWEEN needs AND: " + expression);
+                }
+                return new Condition("BETWEEN", attribute, low, value(next()));
+            }
+            if (!Pattern.matches("=|<>|<|<=|>|>=", operator)) {
+                throw validation("Unsupported operator " + operator + " in " + expression);
+            }
+            return new Condition(operator, attribute, value(next()));
+        }
+
+        boolean acceptKeyword(String keyword) {
+            if (hasMore() && tokens.get(position).equalsIgnoreCase(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean hasMore() {
+            return position < tokens.size();
+        }
+
+        private String next() {
+            if (!hasMore()) {
+                throw validation("Incomplete expression: " + expression);
+            }
+            return tokens.get(position++);
+        }
+
+        private void expect(String token) {
+            if (!next().equals(token)) {
+                throw validation("Expected " + token + " in " + expression);
+            }
+        }
+
+        private String name(String token) {
+            if (!token.startsWith("#")) {
+                return token;
+            }
+            String name = names != null ? names.get(token) : null;
+            if (name == null) {
+                throw validation("Undefined attribute name " + token + " in " + expression);
+            }
+            return name;
+        }
+
+        private AttributeValue value(String token) {
+            AttributeValue value = token.startsWith(":") && values != null ? values.get(token) : null;
+            if (value == null) {
+                throw validation("Undefined attribute value " + token + " in " + expression);
+            }
+            return value;
+        }
+    }
+}
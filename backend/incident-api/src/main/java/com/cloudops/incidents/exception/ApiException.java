@@ -1,5 +1,8 @@
 package com.cloudops.incidents.exception;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Custom exception for API-specific errors.
  * 
@@ -18,12 +21,18 @@ package com.cloudops.incidents.exception;
  * This gets caught by GlobalExceptionHandler and converted to:
  * HTTP 404 Not Found
  * "Incident not found"
+ * 
+ * Errors that tell the client what to do next can carry response headers:
+ * throw new ApiException("Queue is full", 429).withHeader("Retry-After", "5");
  */
 public class ApiException extends RuntimeException {
     
     /** The HTTP status code to return (e.g., 404, 400, 500) */
     private final int statusCode;
 
+    /** Extra response headers, e.g. Retry-After */
+    private final Map<String, String> headers = new LinkedHashMap<>();
+
     /**
      * Creates a new API exception with a message and status code.
      * 
@@ -43,4 +52,25 @@ public class ApiException extends RuntimeException {
     public int getStatusCode() {
         return statusCode;
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds a header to the error response.
+     * 
+     * @param name Header name
+     * @param value Header value
+     * @return this exception, for chaining
+     */
+    public ApiException withHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Gets the extra headers to send with the error response.
+     * 
+     * @return Header names and values (empty if none)
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+}
@@ -1,8 +1,13 @@
 package com.cloudops.incidents.exception;
 
+import com.cloudops.incidents.metrics.StatusMeters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 /**
  * Global exception handler that catches all errors in the application.
@@ -23,10 +28,21 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
  * 
  * This class uses Spring's @ControllerAdvice to automatically catch
  * exceptions from all controllers.
+ * 
+ * Every handled error is counted in incidents.api.errors, tagged with the
+ * HTTP status and the kind of exception (ApiException, TypeMismatch, Unhandled).
  */
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** Error counters per status code, one set per exception kind */
+    private final StatusMeters<Counter> apiErrors = errorCounters("ApiException");
+    private final StatusMeters<Counter> typeMismatchErrors = errorCounters("TypeMismatch");
+    private final StatusMeters<Counter> unhandledErrors = errorCounters("Unhandled");
+
     /**
      * Handles custom ApiException errors.
      * 
@@ -39,13 +55,34 @@ public class GlobalExceptionHandler {
      * - Incident not found → 404 Not Found
      * - Invalid input → 400 Bad Request
      * - Duplicate incident → 409 Conflict
+     * - Diagnostics queue full → 429 Too Many Requests (with Retry-After)
+     * 
+     * Headers attached with ApiException.withHeader() are sent as well.
      * 
      * @param e The ApiException that was thrown
      * @return HTTP response with appropriate status code and message
      */
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<String> handleApiException(ApiException e) {
-        return ResponseEntity.status(e.getStatusCode()).body(e.getMessage());
+        apiErrors.get(e.getStatusCode()).increment();
+        return ResponseEntity.status(e.getStatusCode())
+                .headers(headers -> e.getHeaders().forEach(headers::set))
+                .body(e.getMessage());
+    }
+
+    /**
+     * Handles query/path parameters that can't be converted to their type.
+     * 
+     * Example: GET /api/incidents?severity=URGENT
+     * Client receives: HTTP 400 with message "Invalid value for parameter 'severity': URGENT"
+     * 
+     * @param e The conversion failure
+     * @return HTTP 400 naming the offending parameter
+     */
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<String> handleTypeMismatch(MethodArgumentTypeMismatchException e) {
+        typeMismatchErrors.get(400).increment();
+        return ResponseEntity.status(400).body("Invalid value for parameter '" + e.getName() + "': " + e.getValue());
     }
 
     /**
@@ -70,6 +107,18 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGenericException(Exception e) {
+        unhandledErrors.get(500).increment();
         return ResponseEntity.status(500).body("Internal server error");
     }
+
+    /**
+     * Creates lazily registered error counters for one kind of exception.
+     */
+    private StatusMeters<Counter> errorCounters(String exception) {
+        return new StatusMeters<>(status -> Counter.builder("incidents.api.errors")
+                .description("Errors returned to API clients")
+                .tag("status", String.valueOf(status))
+                .tag("exception", exception)
+                .register(meterRegistry));
+    }
 }
\ No newline at end of file
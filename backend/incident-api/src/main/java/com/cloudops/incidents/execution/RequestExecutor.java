@@ -0,0 +1,167 @@
+package com.cloudops.incidents.execution;
+
+import com.cloudops.incidents.exception.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the work of incident API requests, either right away on the
+ * calling (Tomcat or virtual) thread or on a dedicated bounded pool.
+ *
+ * Controllers return what run() returns. Inline, that is the result
+ * itself and Spring writes the response straight away, as for any other
+ * handler. On the pool it is a CompletableFuture, and Spring MVC releases
+ * the Tomcat thread until it completes (an async request).
+ *
+ * With a pool, a slow store only ties up pool threads: Tomcat's threads
+ * stay free for /health and the other endpoints. Once the pool and its
+ * queue are full, new requests get 503 at once instead of piling up.
+ * Errors thrown by the work reach GlobalExceptionHandler as usual.
+ *
+ * Timeout: reads still running after the timeout are answered with 503.
+ * Writes (runToCompletion) are not: the work would carry on and be applied
+ * after the client was told it failed, and a retried POST would create the
+ * incident twice. They are bounded by the store's own timeouts instead.
+ *
+ * Metrics (pool only): executor_* with name=incidents.requests (active
+ * threads, queued and completed tasks), and incidents.requests.rejected.
+ */
+public class RequestExecutor implements AutoCloseable {
+
+    /** null = run inline */
+    private final ThreadPoolExecutor pool;
+    private final long timeoutMillis;
+    private final Counter rejected;
+
+    /**
+     * Creates an executor that runs all work inline, on the calling thread.
+     */
+    public static RequestExecutor inline() {
+        return new RequestExecutor();
+    }
+
+    private RequestExecutor() {
+        this.pool = null;
+        this.timeoutMillis = 0;
+        this.rejected = null;
+    }
+
+    /**
+     * Creates an executor backed by its own pool of daemon threads.
+     *
+     * @param threads Threads running requests
+     * @param queueCapacity Requests that may wait for a thread
+     * @param timeout How long a request may run before it is answered with 503
+     * @param meterRegistry Where the pool metrics are registered
+     */
+    public RequestExecutor(int threads, int queueCapacity, Duration timeout, MeterRegistry meterRegistry) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "incident-request-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.timeoutMillis = timeout.toMillis();
+        new ExecutorServiceMetrics(pool, "incidents.requests", Collections.emptyList()).bindTo(meterRegistry);
+        this.rejected = Counter.builder("incidents.requests.rejected")
+                .description("Incident API requests refused with 503 because the request pool was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the work, inline or on the pool, for a controller to return.
+     * On the pool, it is answered with 503 if it runs past the timeout, so
+     * use it only for work that is safe to retry (reads).
+     *
+     * @param work What the request does; its result becomes the response
+     * @return The result when run inline, else a CompletableFuture of it
+     * @throws ApiException with 503 status if the pool and its queue are full
+     */
+    public Object run(Supplier<?> work) {
+        return pool == null ? work.get() : submit(work);
+    }
+
+    /**
+     * Same as run(), but on the pool the work is never cut off by the
+     * timeout; the response waits for its outcome. For changes, whose
+     * outcome the client must learn.
+     *
+     * @param work What the request does; its result becomes the response
+     * @return The result when run inline, else a CompletableFuture of it
+     * @throws ApiException with 503 status if the pool and its queue are full
+     */
+    public Object runToCompletion(Supplier<?> work) {
+        return pool == null ? work.get() : submit(work, 0);
+    }
+
+    /**
+     * Runs the work, inline or on the pool.
+     *
+     * @param work What the request does; its result becomes the response
+     * @return The result, possibly still pending
+     * @throws ApiException with 503 status if the pool and its queue are full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        if (pool == null) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        return submit(work, timeoutMillis);
+    }
+
+    /**
+     * Runs the work on the pool.
+     *
+     * @param timeoutMillis When to answer with 503 (0 = wait for the work)
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> work, long timeoutMillis) {
+        CompletableFuture<T> running;
+        try {
+            running = CompletableFuture.supplyAsync(work, pool);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ApiException("Too many requests in progress, retry shortly", 503);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (timeoutMillis > 0) {
+            running = running.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        running.whenComplete((value, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause == null) {
+                result.complete(value);
+            } else if (cause instanceof TimeoutException) {
+                result.completeExceptionally(new ApiException("Request timed out waiting for storage", 503));
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stops the pool threads once running requests finish.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.cloudops.incidents.execution;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads (Java 21) from code compiled for Java 11.
+ *
+ * The build targets Java 11 by default, so Executors.newVirtualThreadPerTaskExecutor()
+ * is looked up at runtime. On Java 21 or later it simply works; on an older
+ * JVM, asking for it fails at startup with a message naming the setting.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     *
+     * @throws IllegalStateException if this JVM has no virtual threads (before Java 21)
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        Method factory = factoryMethod();
+        if (factory == null) {
+            throw new IllegalStateException("incidents.execution.mode=virtual needs Java 21 or later, this is Java "
+                    + Runtime.version().feature());
+        }
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create a virtual thread executor", e);
+        }
+    }
+
+    private static Method factoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
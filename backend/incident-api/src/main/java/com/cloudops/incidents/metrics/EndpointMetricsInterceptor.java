@@ -0,0 +1,82 @@
+package com.cloudops.incidents.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every API endpoint as a histogram.
+ *
+ * Metric: incidents.http.requests (Prometheus: incidents_http_requests_seconds_*)
+ * Tags:   method (GET, POST, ...), uri (e.g. /api/incidents/{id}), status (200, 404, ...)
+ *
+ * Spring Boot's own http.server.requests timer builds a tag list for every
+ * request. Here the timers of an endpoint are created once (on its first
+ * request per status code) and then looked up by handler method and status
+ * code, so the request path only does a map lookup and an array read.
+ *
+ * Streaming endpoints (NDJSON export) are timed until the stream completes.
+ */
+public class EndpointMetricsInterceptor implements HandlerInterceptor {
+
+    /** Request attribute holding System.nanoTime() at the start of the request */
+    private static final String START_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".start";
+
+    private final MeterRegistry registry;
+    private final Map<Method, StatusMeters<Timer>> timers = new ConcurrentHashMap<>();
+
+    public EndpointMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Async (streaming) requests pass through here again when they resume; keep the first start time
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long) || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        long nanos = System.nanoTime() - (Long) start;
+        timers.computeIfAbsent(((HandlerMethod) handler).getMethod(), method -> timersFor(request))
+                .get(response.getStatus())
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates the per-status timers of one endpoint. The URI tag is the
+     * mapping pattern (/api/incidents/{id}), not the concrete path.
+     */
+    private StatusMeters<Timer> timersFor(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+        return new StatusMeters<>(status -> Timer.builder("incidents.http.requests")
+                .description("API request latency by endpoint")
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("status", String.valueOf(status))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry));
+    }
+}
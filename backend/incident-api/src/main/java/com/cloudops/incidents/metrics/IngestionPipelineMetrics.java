@@ -0,0 +1,76 @@
+package com.cloudops.incidents.metrics;
+
+import com.cloudops.incidents.dto.IngestionStatsResponse;
+import com.cloudops.incidents.service.DiagnosticsIngestionPipeline;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Exposes the diagnostics ingestion pipeline's own counters as Micrometer meters.
+ *
+ * The pipeline already counts everything with LongAdders (see getStats), so
+ * nothing is recorded twice: every meter here is a function meter that reads
+ * the pipeline's counters when Prometheus scrapes, and the ingest hot path
+ * is unchanged.
+ *
+ * Metrics:
+ * - diagnostics.pipeline.queue.depth / .capacity: batches waiting / queue size
+ * - diagnostics.pipeline.batches{outcome=accepted|dropped|failed}
+ * - diagnostics.pipeline.records{outcome=accepted|dropped|stored|rejected}
+ * - diagnostics.pipeline.stage{stage=queue|enrich|persist}: count and total time per stage
+ */
+public class IngestionPipelineMetrics implements MeterBinder {
+
+    private final DiagnosticsIngestionPipeline pipeline;
+
+    public IngestionPipelineMetrics(DiagnosticsIngestionPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("diagnostics.pipeline.queue.depth", pipeline, DiagnosticsIngestionPipeline::getQueueDepth)
+                .description("Batches waiting in the ingestion queue")
+                .register(registry);
+        Gauge.builder("diagnostics.pipeline.queue.capacity", pipeline, p -> p.getStats().getQueueCapacity())
+                .description("Maximum number of batches the ingestion queue holds")
+                .register(registry);
+
+        counter(registry, "diagnostics.pipeline.batches", "accepted", IngestionStatsResponse::getBatchesAccepted);
+        counter(registry, "diagnostics.pipeline.batches", "dropped", IngestionStatsResponse::getBatchesDropped);
+        counter(registry, "diagnostics.pipeline.batches", "failed", IngestionStatsResponse::getBatchesFailed);
+        counter(registry, "diagnostics.pipeline.records", "accepted", IngestionStatsResponse::getRecordsAccepted);
+        counter(registry, "diagnostics.pipeline.records", "dropped", IngestionStatsResponse::getRecordsDropped);
+        counter(registry, "diagnostics.pipeline.records", "stored", IngestionStatsResponse::getRecordsStored);
+        counter(registry, "diagnostics.pipeline.records", "rejected", IngestionStatsResponse::getRecordsRejected);
+
+        stage(registry, "queue", IngestionStatsResponse::getQueueWait);
+        stage(registry, "enrich", IngestionStatsResponse::getEnrich);
+        stage(registry, "persist", IngestionStatsResponse::getPersist);
+    }
+
+    private void counter(MeterRegistry registry, String name, String outcome,
+                         ToLongFunction<IngestionStatsResponse> value) {
+        FunctionCounter.builder(name, pipeline, p -> value.applyAsLong(p.getStats()))
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private void stage(MeterRegistry registry, String stage,
+                       Function<IngestionStatsResponse, IngestionStatsResponse.StageLatency> latency) {
+        FunctionTimer.builder("diagnostics.pipeline.stage", pipeline,
+                        p -> latency.apply(p.getStats()).getCount(),
+                        p -> latency.apply(p.getStats()).getTotalMicros(),
+                        TimeUnit.MICROSECONDS)
+                .description("Time batches spend in each pipeline stage")
+                .tag("stage", stage)
+                .register(registry);
+    }
+}
@@ -0,0 +1,121 @@
+package com.cloudops.incidents.metrics;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds metrics to any DiagnosticsRepository (decorator).
+ *
+ * Metrics:
+ * - incidents.repository.operations{repository="diagnostics", operation}: latency of every operation
+ * - diagnostics.store.size: number of stored diagnostic records
+ * - diagnostics.batch.size: records per saveAll call
+ *
+ * Like InstrumentedIncidentRepository, every meter is registered up front.
+ */
+public class InstrumentedDiagnosticsRepository implements DiagnosticsRepository, AutoCloseable {
+
+    private final DiagnosticsRepository delegate;
+
+    private final Timer findByIncidentId;
+    private final Timer save;
+    private final Timer saveAll;
+    private final Timer deleteByIncidentId;
+    private final DistributionSummary batchSize;
+
+    /**
+     * @param delegate The repository doing the actual work
+     * @param registry Where to register the metrics
+     */
+    public InstrumentedDiagnosticsRepository(DiagnosticsRepository delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.findByIncidentId = timer(registry, "findByIncidentId");
+        this.save = timer(registry, "save");
+        this.saveAll = timer(registry, "saveAll");
+        this.deleteByIncidentId = timer(registry, "deleteByIncidentId");
+        this.batchSize = DistributionSummary.builder("diagnostics.batch.size")
+                .description("Records per batched diagnostics write")
+                .baseUnit("records")
+                .register(registry);
+
+        Gauge.builder("diagnostics.store.size", delegate, DiagnosticsRepository::count)
+                .description("Number of stored diagnostic records")
+                .register(registry);
+    }
+
+    @Override
+    public List<DiagnosticRecord> findByIncidentId(String incidentId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByIncidentId(incidentId);
+        } finally {
+            findByIncidentId.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public DiagnosticRecord save(DiagnosticRecord record) {
+        long start = System.nanoTime();
+        try {
+            return delegate.save(record);
+        } finally {
+            save.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<DiagnosticRecord> saveAll(List<DiagnosticRecord> records) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveAll(records);
+        } finally {
+            saveAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSize.record(records.size());
+        }
+    }
+
+    @Override
+    public List<DiagnosticRecord> deleteByIncidentId(String incidentId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deleteByIncidentId(incidentId);
+        } finally {
+            deleteByIncidentId.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public String checkHealth() {
+        return delegate.checkHealth();
+    }
+
+    /**
+     * Closes the wrapped repository if it holds resources (e.g. mapped segments).
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+
+    private static Timer timer(MeterRegistry registry, String operation) {
+        return Timer.builder("incidents.repository.operations")
+                .description("Repository operation latency")
+                .tag("repository", "diagnostics")
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -0,0 +1,238 @@
+package com.cloudops.incidents.metrics;
+
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentCursor;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentPage;
+import com.cloudops.incidents.repository.IncidentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds metrics to any IncidentRepository (decorator).
+ *
+ * Metrics:
+ * - incidents.repository.operations{repository="incident", operation}: latency of every operation
+ * - incidents.store.size: number of stored incidents
+ * - incidents.by.severity{severity}: incidents per severity
+ * - incidents.by.status{status}: incidents per status
+ *
+ * All timers are registered up front, one field per operation, so an
+ * operation only reads System.nanoTime() twice and records into a known
+ * timer. Gauges use the repository's count methods, which don't load incidents.
+ */
+public class InstrumentedIncidentRepository implements IncidentRepository, AutoCloseable {
+
+    private final IncidentRepository delegate;
+
+    private final Timer findAll;
+    private final Timer findById;
+    private final Timer findByServiceName;
+    private final Timer findBySeverity;
+    private final Timer findByStatus;
+    private final Timer findByErrorType;
+    private final Timer findByFilter;
+    private final Timer findPage;
+    private final Timer save;
+    private final Timer replace;
+    private final Timer deleteById;
+
+    /**
+     * @param delegate The repository doing the actual work
+     * @param registry Where to register the metrics
+     */
+    public InstrumentedIncidentRepository(IncidentRepository delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.findAll = timer(registry, "findAll");
+        this.findById = timer(registry, "findById");
+        this.findByServiceName = timer(registry, "findByServiceName");
+        this.findBySeverity = timer(registry, "findBySeverity");
+        this.findByStatus = timer(registry, "findByStatus");
+        this.findByErrorType = timer(registry, "findByErrorType");
+        this.findByFilter = timer(registry, "findByFilter");
+        this.findPage = timer(registry, "findPage");
+        this.save = timer(registry, "save");
+        this.replace = timer(registry, "replace");
+        this.deleteById = timer(registry, "deleteById");
+
+        Gauge.builder("incidents.store.size", delegate, IncidentRepository::count)
+                .description("Number of stored incidents")
+                .register(registry);
+        for (Severity severity : Severity.values()) {
+            Gauge.builder("incidents.by.severity", delegate, repository -> repository.countBySeverity(severity))
+                    .description("Stored incidents per severity")
+                    .tag("severity", severity.name())
+                    .register(registry);
+        }
+        for (IncidentStatus status : IncidentStatus.values()) {
+            Gauge.builder("incidents.by.status", delegate, repository -> repository.countByStatus(status))
+                    .description("Stored incidents per status")
+                    .tag("status", status.name())
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public List<Incident> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            record(findAll, start);
+        }
+    }
+
+    @Override
+    public Incident findById(String id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            record(findById, start);
+        }
+    }
+
+    @Override
+    public List<Incident> findByServiceName(String serviceName) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByServiceName(serviceName);
+        } finally {
+            record(findByServiceName, start);
+        }
+    }
+
+    @Override
+    public List<Incident> findBySeverity(Severity severity) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findBySeverity(severity);
+        } finally {
+            record(findBySeverity, start);
+        }
+    }
+
+    @Override
+    public List<Incident> findByStatus(IncidentStatus status) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByStatus(status);
+        } finally {
+            record(findByStatus, start);
+        }
+    }
+
+    @Override
+    public List<Incident> findByErrorType(ErrorType errorType) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByErrorType(errorType);
+        } finally {
+            record(findByErrorType, start);
+        }
+    }
+
+    @Override
+    public List<Incident> findByFilter(IncidentFilter filter) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByFilter(filter);
+        } finally {
+            record(findByFilter, start);
+        }
+    }
+
+    @Override
+    public long count() { return delegate.count(); }
+
+    @Override
+    public String checkHealth() { return delegate.checkHealth(); }
+
+    @Override
+    public long countBySeverity(Severity severity) { return delegate.countBySeverity(severity); }
+
+    @Override
+    public long countByStatus(IncidentStatus status) { return delegate.countByStatus(status); }
+
+    @Override
+    public IncidentPage findPage(IncidentFilter filter, IncidentCursor after, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findPage(filter, after, limit);
+        } finally {
+            record(findPage, start);
+        }
+    }
+
+    @Override
+    public Incident save(Incident incident) {
+        long start = System.nanoTime();
+        try {
+            return delegate.save(incident);
+        } finally {
+            record(save, start);
+        }
+    }
+
+    @Override
+    public Incident replace(Incident incident, long expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.replace(incident, expectedVersion);
+        } finally {
+            record(replace, start);
+        }
+    }
+
+    @Override
+    public Incident deleteById(String id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            record(deleteById, start);
+        }
+    }
+
+    @Override
+    public Incident deleteById(String id, long expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deleteById(id, expectedVersion);
+        } finally {
+            record(deleteById, start);
+        }
+    }
+
+    /**
+     * Closes the wrapped repository if it holds resources (e.g. the write-ahead log).
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+
+    /**
+     * Records the time since start, whether the operation succeeded or threw.
+     */
+    private static void record(Timer timer, long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer timer(MeterRegistry registry, String operation) {
+        return Timer.builder("incidents.repository.operations")
+                .description("Repository operation latency")
+                .tag("repository", "incident")
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -0,0 +1,53 @@
+package com.cloudops.incidents.metrics;
+
+import io.micrometer.core.instrument.Meter;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * One meter per HTTP status code, created on first use and then reused.
+ *
+ * Looking a meter up by tags (registry.timer(name, "status", "200")) builds
+ * tag strings and a meter ID on every call. On the request path we instead
+ * index a small array by the status code, so recording allocates nothing.
+ *
+ * Example:
+ * StatusMeters<Counter> errors = new StatusMeters<>(status ->
+ *         Counter.builder("incidents.api.errors").tag("status", String.valueOf(status)).register(registry));
+ * errors.get(404).increment();
+ *
+ * @param <M> Meter type (Timer, Counter, ...)
+ */
+public final class StatusMeters<M extends Meter> {
+
+    /** Status codes outside 0..599 share slot 0 */
+    private static final int SLOTS = 600;
+
+    private final AtomicReferenceArray<M> meters = new AtomicReferenceArray<>(SLOTS);
+    private final IntFunction<M> factory;
+
+    /**
+     * @param factory Registers the meter for one status code (called once per code)
+     */
+    public StatusMeters(IntFunction<M> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Gets the meter for a status code, registering it on first use.
+     *
+     * @param status HTTP status code
+     * @return The meter for that status
+     */
+    public M get(int status) {
+        int slot = status > 0 && status < SLOTS ? status : 0;
+        M meter = meters.get(slot);
+        if (meter == null) {
+            // The registry returns the same meter for the same ID, so a lost race is harmless
+            meters.compareAndSet(slot, null, factory.apply(slot));
+            meter = meters.get(slot);
+        }
+        return meter;
+    }
+}
@@ -5,102 +5,250 @@ import java.time.Instant;
 /**
  * Represents a single incident in the CloudOps system.
  * An incident is a record of something that went wrong in your cloud infrastructure.
- * 
+ *
  * This class captures all the essential information needed to:
  * - Identify what broke (serviceName, errorType)
  * - Understand the impact (severity, description)
  * - Track the resolution process (status, timestamps)
  * - Enable distributed tracing (correlationId)
- * 
+ *
+ * Incidents are immutable: every field is final and there are no setters.
+ * A change is made by building a new incident from an existing one and
+ * saving that instead (copy-on-write). This means an Incident returned by a
+ * repository can be read, cached or shared between threads without locks,
+ * and will never change underneath the code holding it.
+ *
+ * Example: creating an incident
+ * Incident incident = Incident.builder()
+ *         .id("INC-001")
+ *         .title("Payment API Down")
+ *         .severity(Severity.CRITICAL)
+ *         .build();
+ *
+ * Example: changing one
+ * Incident escalated = incident.toBuilder().severity(Severity.CRITICAL).build();
+ *
  * Example incident: Payment API returning 500 errors due to database connection timeout
  */
-public class Incident {
-    
+public final class Incident {
+
     /** Unique identifier for this incident (auto-generated) */
-    private String id;
-    
+    private final String id;
+
     /** Short, descriptive title of what went wrong */
-    private String title;
-    
+    private final String title;
+
     /** Detailed description of the problem and its symptoms */
-    private String description;
-    
+    private final String description;
+
     /** How serious this incident is (CRITICAL, HIGH, MEDIUM, LOW) */
-    private Severity severity;
-    
+    private final Severity severity;
+
     /** Current stage of incident resolution (OPEN, INVESTIGATING, MITIGATED, RESOLVED) */
-    private IncidentStatus status;
-    
+    private final IncidentStatus status;
+
     /** When this incident was first created (UTC timestamp) */
-    private Instant timestamp;
-    
+    private final Instant timestamp;
+
     /** When this incident was last modified (UTC timestamp) */
-    private Instant updatedAt;
-    
+    private final Instant updatedAt;
+
     /** Which service or component failed (e.g., "payment-api", "user-auth") */
-    private String serviceName;
-    
+    private final String serviceName;
+
     /** What type of failure occurred (NETWORK, APPLICATION, CONFIGURATION, RESOURCE) */
-    private ErrorType errorType;
-    
+    private final ErrorType errorType;
+
     /** ID that links related events across multiple services (for distributed tracing) */
-    private String correlationId;
+    private final String correlationId;
 
-    /** Default constructor required by Spring Boot */
-    public Incident() {}
+    /**
+     * Revision number, starting at 1 and increased by every update.
+     * Used for optimistic concurrency: an update only succeeds if the
+     * incident still has the version the client last read (see ETag/If-Match).
+     */
+    private final long version;
+
+    /**
+     * How many times this incident has been reported. Starts at 1; duplicate
+     * reports (same service, error type and correlation ID) arriving within
+     * the deduplication window increase it instead of creating new incidents.
+     */
+    private final long occurrenceCount;
+
+    /** When this incident was last reported (creation, or the latest duplicate) */
+    private final Instant lastSeenAt;
+
+    /** Creates an incident from a builder (use Incident.builder()) */
+    private Incident(Builder builder) {
+        this.id = builder.id;
+        this.title = builder.title;
+        this.description = builder.description;
+        this.severity = builder.severity;
+        this.status = builder.status;
+        this.timestamp = builder.timestamp;
+        this.updatedAt = builder.updatedAt;
+        this.serviceName = builder.serviceName;
+        this.errorType = builder.errorType;
+        this.correlationId = builder.correlationId;
+        this.version = builder.version;
+        this.occurrenceCount = builder.occurrenceCount;
+        this.lastSeenAt = builder.lastSeenAt;
+    }
+
+    /**
+     * Starts building a new incident with every field unset.
+     *
+     * @return An empty builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts building a changed copy of this incident.
+     *
+     * @return A builder pre-filled with this incident's fields
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Returns a copy of this incident with a different version.
+     * Used by repositories when they store a new revision.
+     *
+     * @param version The new revision number
+     * @return This incident if the version is unchanged, otherwise a copy
+     */
+    public Incident withVersion(long version) {
+        return version == this.version ? this : toBuilder().version(version).build();
+    }
 
-    // Getter and setter methods for all fields
-    // These allow Spring Boot to convert between JSON and Java objects
-    
     /** Gets the unique incident ID */
     public String getId() { return id; }
-    /** Sets the unique incident ID (usually auto-generated) */
-    public void setId(String id) { this.id = id; }
 
     /** Gets the incident title */
     public String getTitle() { return title; }
-    /** Sets the incident title (should be short and descriptive) */
-    public void setTitle(String title) { this.title = title; }
 
     /** Gets the detailed description */
     public String getDescription() { return description; }
-    /** Sets the detailed description (include symptoms and context) */
-    public void setDescription(String description) { this.description = description; }
 
     /** Gets the severity level */
     public Severity getSeverity() { return severity; }
-    /** Sets the severity level (determines response priority) */
-    public void setSeverity(Severity severity) { this.severity = severity; }
 
     /** Gets the current status */
     public IncidentStatus getStatus() { return status; }
-    /** Sets the current status (tracks resolution progress) */
-    public void setStatus(IncidentStatus status) { this.status = status; }
 
     /** Gets when the incident was created */
     public Instant getTimestamp() { return this.timestamp; }
-    /** Sets when the incident was created (usually Instant.now()) */
-    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
 
     /** Gets when the incident was last updated */
     public Instant getUpdatedAt() { return updatedAt; }
-    /** Sets when the incident was last updated (should be updated on every change) */
-    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
 
     /** Gets which service failed */
     public String getServiceName() { return serviceName; }
-    /** Sets which service failed (helps identify responsible team) */
-    public void setServiceName(String serviceName) { this.serviceName = serviceName; }
 
     /** Gets the type of error that occurred */
     public ErrorType getErrorType() { return errorType; }
-    /** Sets the type of error (guides troubleshooting approach) */
-    public void setErrorType(ErrorType errorType) { this.errorType = errorType; }
 
     /** Gets the correlation ID for distributed tracing */
     public String getCorrelationId() { return correlationId; }
-    /** Sets the correlation ID (links related failures across services) */
-    public void setCorrelationId(String correlationId){
-        this.correlationId = correlationId;
+
+    /** Gets the revision number */
+    public long getVersion() { return version; }
+
+    /** Gets how many times this incident has been reported */
+    public long getOccurrenceCount() { return occurrenceCount; }
+
+    /** Gets when this incident was last reported */
+    public Instant getLastSeenAt() { return lastSeenAt; }
+
+    /**
+     * Collects field values for a new Incident.
+     *
+     * A builder is a short-lived, single-threaded scratch pad: set the fields
+     * you need, call build(), and share only the resulting Incident.
+     */
+    public static final class Builder {
+        private String id;
+        private String title;
+        private String description;
+        private Severity severity;
+        private IncidentStatus status;
+        private Instant timestamp;
+        private Instant updatedAt;
+        private String serviceName;
+        private ErrorType errorType;
+        private String correlationId;
+        private long version;
+        private long occurrenceCount = 1;
+        private Instant lastSeenAt;
+
+        private Builder() {}
+
+        private Builder(Incident incident) {
+            this.id = incident.id;
+            this.title = incident.title;
+            this.description = incident.description;
+            this.severity = incident.severity;
+            this.status = incident.status;
+            this.timestamp = incident.timestamp;
+            this.updatedAt = incident.updatedAt;
+            this.serviceName = incident.serviceName;
+            this.errorType = incident.errorType;
+            this.correlationId = incident.correlationId;
+            this.version = incident.version;
+            this.occurrenceCount = incident.occurrenceCount;
+            this.lastSeenAt = incident.lastSeenAt;
+        }
+
+        /** Sets the unique incident ID (usually auto-generated) */
+        public Builder id(String id) { this.id = id; return this; }
+
+        /** Sets the incident title (should be short and descriptive) */
+        public Builder title(String title) { this.title = title; return this; }
+
+        /** Sets the detailed description (include symptoms and context) */
+        public Builder description(String description) { this.description = description; return this; }
+
+        /** Sets the severity level (determines response priority) */
+        public Builder severity(Severity severity) { this.severity = severity; return this; }
+
+        /** Sets the current status (tracks resolution progress) */
+        public Builder status(IncidentStatus status) { this.status = status; return this; }
+
+        /** Sets when the incident was created (usually Instant.now()) */
+        public Builder timestamp(Instant timestamp) { this.timestamp = timestamp; return this; }
+
+        /** Sets when the incident was last updated (should be updated on every change) */
+        public Builder updatedAt(Instant updatedAt) { this.updatedAt = updatedAt; return this; }
+
+        /** Sets which service failed (helps identify responsible team) */
+        public Builder serviceName(String serviceName) { this.serviceName = serviceName; return this; }
+
+        /** Sets the type of error (guides troubleshooting approach) */
+        public Builder errorType(ErrorType errorType) { this.errorType = errorType; return this; }
+
+        /** Sets the correlation ID (links related failures across services) */
+        public Builder correlationId(String correlationId) { this.correlationId = correlationId; return this; }
+
+        /** Sets the revision number (managed by the repository on replace) */
+        public Builder version(long version) { this.version = version; return this; }
+
+        /** Sets how many times the incident has been reported (defaults to 1) */
+        public Builder occurrenceCount(long occurrenceCount) { this.occurrenceCount = occurrenceCount; return this; }
+
+        /** Sets when the incident was last reported */
+        public Builder lastSeenAt(Instant lastSeenAt) { this.lastSeenAt = lastSeenAt; return this; }
+
+        /**
+         * Creates the immutable incident.
+         *
+         * @return A new Incident with the fields set so far
+         */
+        public Incident build() {
+            return new Incident(this);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package com.cloudops.incidents.persistence;
+
+/**
+ * Controls when the write-ahead log forces written data to disk (fsync).
+ * 
+ * Writes are always group-committed: all writes that arrive while the
+ * previous group is being written go to disk together. The policy only
+ * decides how durable a write is when its caller is released.
+ * 
+ * - ALWAYS: fsync each group before acknowledging it. Nothing acknowledged
+ *   is ever lost, even on power failure. Throughput is bounded by fsync
+ *   latency per group, not per write.
+ * - INTERVAL: acknowledge once the group is handed to the OS, fsync at most
+ *   once per configured interval. A power failure can lose up to one
+ *   interval of writes; a process crash loses nothing.
+ * - NEVER: acknowledge once the group is handed to the OS and leave flushing
+ *   to the OS. Fastest, same crash guarantees as INTERVAL.
+ */
+public enum FsyncPolicy {
+
+    /** fsync every group commit before acknowledging it */
+    ALWAYS,
+
+    /** fsync in the background at most once per interval */
+    INTERVAL,
+
+    /** never fsync explicitly, let the OS flush */
+    NEVER
+}
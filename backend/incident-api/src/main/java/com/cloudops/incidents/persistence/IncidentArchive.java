@@ -0,0 +1,169 @@
+package com.cloudops.incidents.persistence;
+
+import com.cloudops.incidents.dto.ArchivedIncident;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed files of incidents removed from memory by the retention engine.
+ *
+ * Every batch the engine removes is written as one gzip-compressed NDJSON
+ * file (one ArchivedIncident per line), named after the time it was written:
+ *
+ *   incidents-20240122-143500123.ndjson.gz
+ *
+ * The files can be read with standard tools (zcat | jq) or looked up one
+ * incident at a time with find(). Like snapshots, each file is written to a
+ * temporary file, synced and then atomically renamed, so a crash never
+ * leaves a half-written archive file behind.
+ *
+ * Lookups scan the files newest first and only parse lines that contain the
+ * ID, so they cost one decompression of the archive in the worst case. That
+ * is fine for the occasional "what happened to this old incident?" question
+ * it is meant for; the archive is not an index.
+ */
+public class IncidentArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentArchive.class);
+
+    private static final String PREFIX = "incidents-";
+    private static final String SUFFIX = ".ndjson.gz";
+    private static final DateTimeFormatter FILE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS").withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+
+    /** Time in the name of the last file written, so names never repeat */
+    private long lastFileMillis;
+
+    /**
+     * Creates an archive over the given directory (created if missing).
+     *
+     * @param directory Where archive files live
+     * @param objectMapper Writes and reads the JSON lines
+     */
+    public IncidentArchive(Path directory, ObjectMapper objectMapper) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes incidents to a new archive file.
+     *
+     * @param incidents The incidents to archive (at least one)
+     * @return The file written
+     */
+    public synchronized Path append(List<ArchivedIncident> incidents) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 64 * 1024)) {
+            for (ArchivedIncident incident : incidents) {
+                gzip.write(objectMapper.writeValueAsBytes(incident));
+                gzip.write('\n');
+            }
+        }
+
+        lastFileMillis = Math.max(lastFileMillis + 1, incidents.get(0).getArchivedAt().toEpochMilli());
+        Path target = directory.resolve(PREFIX + FILE_TIME.format(Instant.ofEpochMilli(lastFileMillis)) + SUFFIX);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(compressed.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * Looks up an archived incident.
+     *
+     * If the incident was archived more than once (its diagnostics are
+     * archived again when some arrived while it was being removed), the
+     * newest copy is returned.
+     *
+     * @param id The incident ID
+     * @return The archived incident, or null if it is not in the archive
+     */
+    public ArchivedIncident find(String id) throws IOException {
+        List<Path> files = files();
+        Collections.reverse(files);
+        for (Path file : files) {
+            ArchivedIncident found = null;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.contains(id)) {
+                        continue;   // Cheap check before parsing
+                    }
+                    ArchivedIncident candidate = objectMapper.readValue(line, ArchivedIncident.class);
+                    if (id.equals(candidate.getIncident().getId())) {
+                        found = candidate;
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Skipping unreadable archive file {}", file, e);
+            }
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of archive files.
+     */
+    public int getFileCount() throws IOException {
+        return files().size();
+    }
+
+    /**
+     * Gets the total size of the archive files on disk, in bytes.
+     */
+    public long getSizeBytes() throws IOException {
+        long total = 0;
+        for (Path file : files()) {
+            total += Files.size(file);
+        }
+        return total;
+    }
+
+    /**
+     * Lists the archive files, oldest first.
+     */
+    private List<Path> files() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+}
@@ -0,0 +1,129 @@
+package com.cloudops.incidents.persistence;
+
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary encoding of Incident for the write-ahead log and snapshots.
+ * 
+ * Much smaller and faster to read back than JSON, which matters when
+ * recovering millions of incidents at startup.
+ * 
+ * Encoding rules:
+ * - Strings: int byte length (-1 for null) + UTF-8 bytes
+ * - Enums: written by name, so reordering enum constants never corrupts data
+ * - Instants: long epoch seconds (Long.MIN_VALUE for null) + int nanos
+ * 
+ * FORMAT_VERSION is stored in every file header. Bump it when the layout
+ * changes and keep reading older versions in read().
+ * 
+ * Versions:
+ * - 1: initial layout
+ * - 2: adds the incident version (long) at the end; version 1 records read as version 1
+ * - 3: adds occurrenceCount (long) and lastSeenAt (instant); older records read
+ *   as reported once, last seen at creation
+ */
+public final class IncidentCodec {
+
+    /** Current layout version */
+    public static final int FORMAT_VERSION = 3;
+
+    private IncidentCodec() {}
+
+    /**
+     * Writes all fields of an incident.
+     */
+    public static void write(DataOutput out, Incident incident) throws IOException {
+        writeString(out, incident.getId());
+        writeString(out, incident.getTitle());
+        writeString(out, incident.getDescription());
+        writeEnum(out, incident.getSeverity());
+        writeEnum(out, incident.getStatus());
+        writeInstant(out, incident.getTimestamp());
+        writeInstant(out, incident.getUpdatedAt());
+        writeString(out, incident.getServiceName());
+        writeEnum(out, incident.getErrorType());
+        writeString(out, incident.getCorrelationId());
+        out.writeLong(incident.getVersion());
+        out.writeLong(incident.getOccurrenceCount());
+        writeInstant(out, incident.getLastSeenAt());
+    }
+
+    /**
+     * Reads an incident written by write().
+     * 
+     * @param formatVersion Version from the file header
+     */
+    public static Incident read(DataInput in, int formatVersion) throws IOException {
+        if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+            throw new IOException("Unsupported incident format version: " + formatVersion);
+        }
+        Incident.Builder builder = Incident.builder()
+                .id(readString(in))
+                .title(readString(in))
+                .description(readString(in))
+                .severity(readEnum(in, Severity.class))
+                .status(readEnum(in, IncidentStatus.class));
+        Instant timestamp = readInstant(in);
+        builder.timestamp(timestamp)
+                .updatedAt(readInstant(in))
+                .serviceName(readString(in))
+                .errorType(readEnum(in, ErrorType.class))
+                .correlationId(readString(in))
+                .version(formatVersion >= 2 ? in.readLong() : 1);
+        if (formatVersion >= 3) {
+            builder.occurrenceCount(in.readLong()).lastSeenAt(readInstant(in));
+        } else {
+            builder.lastSeenAt(timestamp);
+        }
+        return builder.build();
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        writeString(out, value == null ? null : value.name());
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInput in, Class<E> type) throws IOException {
+        String name = readString(in);
+        return name == null ? null : Enum.valueOf(type, name);
+    }
+
+    private static void writeInstant(DataOutput out, Instant value) throws IOException {
+        out.writeLong(value == null ? Long.MIN_VALUE : value.getEpochSecond());
+        out.writeInt(value == null ? 0 : value.getNano());
+    }
+
+    private static Instant readInstant(DataInput in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return seconds == Long.MIN_VALUE ? null : Instant.ofEpochSecond(seconds, nanos);
+    }
+}
@@ -0,0 +1,146 @@
+package com.cloudops.incidents.persistence;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One append-only, memory-mapped segment file of variable-length entries.
+ * 
+ * The file is created at its full capacity and mapped into memory once.
+ * Appends copy bytes into the mapping (no system call per write), and
+ * reads return read-only views of the mapping, so payloads are served
+ * without copying them onto the Java heap.
+ * 
+ * Layout: [int length][entry bytes] repeated. The file starts zero-filled,
+ * so a length of 0 marks the end of the written data when the segment is
+ * reopened after a restart.
+ * 
+ * Appends must be serialized by the caller; reads of already-appended
+ * entries are safe from any thread.
+ */
+public class MappedSegment {
+
+    private final long number;
+    private final Path file;
+    private final long createdAtMillis;
+    private final MappedByteBuffer mapping;
+    private int writePosition;
+
+    private MappedSegment(long number, Path file, MappedByteBuffer mapping, int writePosition, long createdAtMillis) {
+        this.number = number;
+        this.file = file;
+        this.mapping = mapping;
+        this.writePosition = writePosition;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    /**
+     * Creates a new, empty segment file of the given capacity and maps it.
+     */
+    public static MappedSegment create(Path file, long number, int capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(capacity);
+            MappedByteBuffer mapping = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new MappedSegment(number, file, mapping, 0, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Maps an existing segment file and finds the end of its written data.
+     */
+    public static MappedSegment open(Path file, long number) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            MappedByteBuffer mapping = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+            int position = 0;
+            while (position + Integer.BYTES <= mapping.capacity()) {
+                int length = mapping.getInt(position);
+                if (length <= 0 || position + Integer.BYTES + length > mapping.capacity()) {
+                    break;
+                }
+                position += Integer.BYTES + length;
+            }
+            long createdAt = Files.getLastModifiedTime(file).toMillis();
+            return new MappedSegment(number, file, mapping, position, createdAt);
+        }
+    }
+
+    /**
+     * Appends one entry.
+     * 
+     * @param entry Bytes to store
+     * @return Offset of the entry bytes in this segment, or -1 if it doesn't fit
+     */
+    public int append(ByteBuffer entry) {
+        int length = entry.remaining();
+        if (writePosition + Integer.BYTES + length > mapping.capacity()) {
+            return -1;
+        }
+        ByteBuffer target = mapping.duplicate();
+        target.position(writePosition + Integer.BYTES);
+        target.put(entry);
+        // Length goes in last: a reader scanning after a crash never sees a
+        // length whose bytes weren't fully copied
+        mapping.putInt(writePosition, length);
+        int offset = writePosition + Integer.BYTES;
+        writePosition += Integer.BYTES + length;
+        return offset;
+    }
+
+    /**
+     * Returns a read-only view of stored bytes (no copy).
+     * 
+     * @param offset Offset returned by append() or visited by scan()
+     * @param length Number of bytes
+     */
+    public ByteBuffer slice(int offset, int length) {
+        ByteBuffer view = mapping.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Visits every entry written to this segment, oldest first.
+     */
+    public void scan(EntryVisitor visitor) {
+        int position = 0;
+        while (position < writePosition) {
+            int length = mapping.getInt(position);
+            visitor.visit(this, position + Integer.BYTES, length);
+            position += Integer.BYTES + length;
+        }
+    }
+
+    /**
+     * Flushes written bytes from the page cache to disk.
+     */
+    public void force() {
+        mapping.force();
+    }
+
+    /** Segment number (segments are read back in this order) */
+    public long getNumber() { return number; }
+
+    /** The backing file */
+    public Path getFile() { return file; }
+
+    /** When this segment was created (epoch millis) */
+    public long getCreatedAtMillis() { return createdAtMillis; }
+
+    /** Bytes used so far, including length prefixes */
+    public int getWrittenBytes() { return writePosition; }
+
+    /** Total size of the segment file */
+    public int getCapacity() { return mapping.capacity(); }
+
+    /**
+     * Callback for scan().
+     */
+    public interface EntryVisitor {
+        void visit(MappedSegment segment, int offset, int length);
+    }
+}
@@ -0,0 +1,95 @@
+package com.cloudops.incidents.persistence;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Framing shared by write-ahead log segments and snapshot files.
+ * 
+ * File layout:
+ * - Header: magic number (int) + format version (int)
+ * - Records: payload length (int) + CRC32 of payload (int) + payload bytes
+ * 
+ * The checksum lets readers detect a record that was only partly written
+ * when the process died (a "torn" write) and stop there instead of
+ * loading garbage.
+ */
+final class RecordFormat {
+
+    /** Bytes of framing in front of every payload (length + checksum) */
+    static final int FRAME_HEADER_BYTES = 8;
+
+    /** Bytes of the file header (magic + format version) */
+    static final int FILE_HEADER_BYTES = 8;
+
+    /** Upper bound on a single payload; anything larger is treated as corruption */
+    static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+    private RecordFormat() {}
+
+    /**
+     * Writes a file header into the buffer.
+     */
+    static void putFileHeader(ByteBuffer buffer, int magic, int formatVersion) {
+        buffer.putInt(magic);
+        buffer.putInt(formatVersion);
+    }
+
+    /**
+     * Writes one framed record into the buffer.
+     * The buffer must have room for FRAME_HEADER_BYTES + payload.length.
+     */
+    static void putFrame(ByteBuffer buffer, byte[] payload) {
+        buffer.putInt(payload.length);
+        buffer.putInt(checksum(payload));
+        buffer.put(payload);
+    }
+
+    /**
+     * Reads the file header and returns the format version.
+     * 
+     * @throws IOException if the magic number doesn't match
+     */
+    static int readFileHeader(DataInputStream in, int expectedMagic) throws IOException {
+        int magic = in.readInt();
+        if (magic != expectedMagic) {
+            throw new IOException("Unexpected file magic: " + Integer.toHexString(magic));
+        }
+        return in.readInt();
+    }
+
+    /**
+     * Reads the next framed record.
+     * 
+     * @return The payload, or null at a clean end of file, an end marker
+     *         (negative length), a torn record or a checksum mismatch
+     */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+            return null;
+        }
+        try {
+            int expectedChecksum = in.readInt();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            return checksum(payload) == expectedChecksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,42 @@
+package com.cloudops.incidents.persistence;
+
+/**
+ * What happened during startup recovery of a durable repository.
+ * 
+ * Logged at startup so recovery time can be tracked as the store grows.
+ * 
+ * Example log line:
+ * Recovered 2000000 incidents (snapshot: 1950000 records, WAL: 50000 records) in 4120 ms
+ */
+public class RecoveryStats {
+
+    private final long snapshotRecords;
+    private final long walRecords;
+    private final long liveRecords;
+    private final long durationMillis;
+
+    public RecoveryStats(long snapshotRecords, long walRecords, long liveRecords, long durationMillis) {
+        this.snapshotRecords = snapshotRecords;
+        this.walRecords = walRecords;
+        this.liveRecords = liveRecords;
+        this.durationMillis = durationMillis;
+    }
+
+    /** Records loaded from the snapshot */
+    public long getSnapshotRecords() { return snapshotRecords; }
+
+    /** Records replayed from the write-ahead log after the snapshot */
+    public long getWalRecords() { return walRecords; }
+
+    /** Records in the store once recovery finished */
+    public long getLiveRecords() { return liveRecords; }
+
+    /** Total wall-clock recovery time */
+    public long getDurationMillis() { return durationMillis; }
+
+    @Override
+    public String toString() {
+        return liveRecords + " records (snapshot: " + snapshotRecords + " records, WAL: " + walRecords
+                + " records) in " + durationMillis + " ms";
+    }
+}
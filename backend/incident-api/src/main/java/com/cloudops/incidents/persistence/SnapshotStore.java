@@ -0,0 +1,198 @@
+package com.cloudops.incidents.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Stores compact point-in-time snapshots of a repository.
+ * 
+ * A snapshot holds every live record once, so loading it is much faster
+ * than replaying the whole write-ahead log. Each snapshot is tagged with
+ * the WAL segment to resume replay from (snapshot-0000000042.bin means
+ * "replay segment 42 onwards").
+ * 
+ * Snapshots are written to a temporary file, synced, and then atomically
+ * renamed, so a crash mid-snapshot never leaves a half-written snapshot
+ * behind. A trailing end marker is checked on load as a second guard.
+ */
+public class SnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+    /** "CSNP" - identifies snapshot files */
+    private static final int MAGIC = 0x43534E50;
+
+    private final Path directory;
+    private final int formatVersion;
+
+    /**
+     * Creates a snapshot store over the given directory (created if missing).
+     * 
+     * @param directory Where snapshot files live
+     * @param formatVersion Version of the record encoding, stored in each snapshot header
+     */
+    public SnapshotStore(Path directory, int formatVersion) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.formatVersion = formatVersion;
+    }
+
+    /**
+     * Writes a new snapshot.
+     * 
+     * @param walSegment WAL segment that replay should resume from after loading this snapshot
+     * @param records Encoded records to store
+     * @return Number of records written
+     */
+    public long write(long walSegment, Iterator<byte[]> records) throws IOException {
+        Path target = snapshotFile(walSegment);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            RecordFormat.putFileHeader(buffer, MAGIC, formatVersion);
+            while (records.hasNext()) {
+                byte[] payload = records.next();
+                int frameSize = RecordFormat.FRAME_HEADER_BYTES + payload.length;
+                if (buffer.remaining() < frameSize) {
+                    drain(channel, buffer);
+                    if (buffer.capacity() < frameSize) {
+                        buffer = ByteBuffer.allocateDirect(frameSize);
+                    }
+                }
+                RecordFormat.putFrame(buffer, payload);
+                count++;
+            }
+            if (buffer.remaining() < Integer.BYTES) {
+                drain(channel, buffer);
+            }
+            buffer.putInt(-1);  // end marker: the snapshot is complete
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    /**
+     * Loads the newest complete snapshot.
+     * 
+     * Falls back to older snapshots if the newest one is unreadable.
+     * 
+     * @param handler Receives (payload, formatVersion) for each record
+     * @return The WAL segment to resume replay from, and the record count
+     *         (segment 0 and count 0 if there is no usable snapshot)
+     */
+    public LoadResult loadLatest(ObjIntConsumer<byte[]> handler) throws IOException {
+        for (Map.Entry<Long, Path> entry : snapshotFiles().descendingMap().entrySet()) {
+            Path file = entry.getValue();
+            if (!isComplete(file)) {
+                log.warn("Ignoring incomplete snapshot {}", file);
+                continue;
+            }
+            long count = 0;
+            try (DataInputStream in = open(file)) {
+                int version = RecordFormat.readFileHeader(in, MAGIC);
+                byte[] payload;
+                while ((payload = RecordFormat.readFrame(in)) != null) {
+                    handler.accept(payload, version);
+                    count++;
+                }
+            }
+            return new LoadResult(entry.getKey(), count);
+        }
+        return new LoadResult(0, 0);
+    }
+
+    /**
+     * Deletes snapshots older than the given one.
+     * 
+     * @param walSegment Segment tag of the snapshot to keep
+     */
+    public void deleteOlderThan(long walSegment) throws IOException {
+        for (Path file : snapshotFiles().headMap(walSegment, false).values()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Cheap completeness check: a finished snapshot ends with the end marker.
+     * (Snapshots only appear under their final name once fully written, so
+     * this mainly guards against files truncated by something else.)
+     */
+    private boolean isComplete(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < RecordFormat.FILE_HEADER_BYTES + Integer.BYTES) {
+                return false;
+            }
+            ByteBuffer tail = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(tail, size - Integer.BYTES);
+            tail.flip();
+            return tail.getInt() == -1;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private Path snapshotFile(long walSegment) {
+        return directory.resolve(String.format("snapshot-%010d.bin", walSegment));
+    }
+
+    private TreeMap<Long, Path> snapshotFiles() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(9, name.length() - 4)), file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Outcome of loading a snapshot.
+     */
+    public static final class LoadResult {
+        private final long walSegment;
+        private final long records;
+
+        LoadResult(long walSegment, long records) {
+            this.walSegment = walSegment;
+            this.records = records;
+        }
+
+        /** WAL segment to resume replay from */
+        public long getWalSegment() { return walSegment; }
+
+        /** Number of records loaded from the snapshot */
+        public long getRecords() { return records; }
+    }
+}
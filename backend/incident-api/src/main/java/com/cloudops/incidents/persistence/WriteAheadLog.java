@@ -0,0 +1,452 @@
+package com.cloudops.incidents.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Append-only write-ahead log (WAL) with group commit.
+ * 
+ * Every change is appended here before it is acknowledged, so the in-memory
+ * state can be rebuilt after a restart by replaying the log.
+ * 
+ * How it works:
+ * - Callers hand an encoded record to append() and get a future back
+ * - A single writer thread drains everything queued so far, writes it
+ *   with one write call, applies the FsyncPolicy, then completes all the
+ *   futures of that group at once (group commit)
+ * - Under load, groups get bigger instead of requests waiting on each
+ *   other's fsync, so durability doesn't cap throughput
+ * 
+ * The log is split into numbered segment files (wal-0000000001.log, ...).
+ * rotate() closes the current segment and starts the next one, which lets
+ * a snapshot make every older segment obsolete.
+ * 
+ * Failed writes:
+ * A group commit that fails partway may leave a torn record in the file,
+ * and replay stops at the first torn record. So the failed group is cut
+ * off again (truncated back to the end of the last committed group)
+ * before anything else is written; otherwise every record acknowledged
+ * after it would be skipped on recovery. If even that fails, the log
+ * stops: every later append fails until the application is restarted.
+ * 
+ * Typical lifecycle:
+ * 1. new WriteAheadLog(...)
+ * 2. replay(fromSegment, handler) to rebuild state
+ * 3. start() to open a fresh segment and begin accepting appends
+ * 4. close() on shutdown (drains and syncs pending writes)
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    /** "CWAL" - identifies write-ahead log segment files */
+    private static final int MAGIC = 0x4357414C;
+
+    /** Maximum records written per group commit */
+    private static final int MAX_GROUP_SIZE = 4096;
+
+    private final Path directory;
+    private final int formatVersion;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+
+    /** Writes waiting for the writer thread, in arrival order */
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    /** Reused write buffer (only touched by the writer thread) */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+
+    private Thread writer;
+    private FileChannel channel;
+    private long segment;
+
+    /** End of the last group written completely to the current segment (writer thread only) */
+    private long committedPosition;
+
+    private long lastSyncNanos;
+    private boolean unsynced;
+    private volatile boolean closed;
+
+    /** Error of the last failed group commit, cleared by the next successful one */
+    private volatile Exception lastFailure;
+
+    /** Set when a failed write could not be cut off again; no more appends are accepted */
+    private volatile IOException stopped;
+
+    /**
+     * Creates a log over the given directory (created if missing).
+     * Nothing is written until start() is called.
+     * 
+     * @param directory Where segment files live
+     * @param formatVersion Version of the record encoding, stored in each segment header
+     * @param fsyncPolicy When to force data to disk
+     * @param fsyncIntervalMillis Minimum time between fsyncs for FsyncPolicy.INTERVAL
+     */
+    public WriteAheadLog(Path directory, int formatVersion, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.formatVersion = formatVersion;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.segment = lastSegmentNumber();
+    }
+
+    /**
+     * Replays every record in segments numbered fromSegment or higher, oldest first.
+     * 
+     * A torn or corrupt record ends replay of its segment (with a warning);
+     * this is expected for the last segment after a crash mid-write.
+     * 
+     * @param fromSegment First segment to replay
+     * @param handler Receives (payload, formatVersion) for each record
+     * @return Number of records replayed
+     */
+    public long replay(long fromSegment, ObjIntConsumer<byte[]> handler) throws IOException {
+        long records = 0;
+        for (Path file : segmentFiles().tailMap(fromSegment, true).values()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                int version;
+                try {
+                    version = RecordFormat.readFileHeader(in, MAGIC);
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable WAL segment {}: {}", file, e.getMessage());
+                    continue;
+                }
+                long offset = RecordFormat.FILE_HEADER_BYTES;
+                byte[] payload;
+                while ((payload = RecordFormat.readFrame(in)) != null) {
+                    handler.accept(payload, version);
+                    offset += RecordFormat.FRAME_HEADER_BYTES + payload.length;
+                    records++;
+                }
+                if (offset < Files.size(file)) {
+                    log.warn("WAL segment {} has a torn or corrupt record at offset {}, ignoring the rest", file, offset);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Opens a new segment after the last existing one and starts the writer thread.
+     */
+    public synchronized void start() throws IOException {
+        openSegment(segment + 1);
+        writer = new Thread(this::runWriter, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an encoded record for writing.
+     * 
+     * The future completes when the record is durable according to the
+     * FsyncPolicy, or completes exceptionally if the write failed.
+     * Records are written in the order append() is called.
+     * 
+     * @param payload The encoded record
+     * @return Future completed once the record's group is committed
+     */
+    public CompletableFuture<Void> append(byte[] payload) {
+        PendingWrite write = new PendingWrite(payload);
+        enqueue(write);
+        return write.done.thenApply(ignored -> null);
+    }
+
+    /**
+     * Closes the current segment and starts a new one.
+     * 
+     * Ordered with appends: every record appended before this call ends up in
+     * an older segment, every record appended after it in the new one.
+     * 
+     * @return Future with the number of the new segment
+     */
+    public CompletableFuture<Long> rotate() {
+        PendingWrite marker = new PendingWrite(null);
+        enqueue(marker);
+        return marker.done;
+    }
+
+    /**
+     * Deletes segment files numbered below the given segment.
+     * Called after a snapshot has made them obsolete.
+     * 
+     * @param segmentNumber First segment to keep
+     */
+    public void deleteSegmentsBefore(long segmentNumber) throws IOException {
+        for (Path file : segmentFiles().headMap(segmentNumber, false).values()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Stops accepting appends, writes and syncs everything queued, and closes the segment.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        PendingWrite straggler;
+        while ((straggler = queue.poll()) != null) {
+            straggler.done.completeExceptionally(new IOException("Write-ahead log is closed"));
+        }
+        synchronized (this) {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the log can currently accept appends.
+     * 
+     * @return null if it can, otherwise why not (closed, stopped, writer thread gone, last write failed)
+     */
+    public String checkHealth() {
+        if (closed) {
+            return "write-ahead log is closed";
+        }
+        if (stopped != null) {
+            return stopped.getMessage();
+        }
+        Thread current = writer;
+        if (current == null || !current.isAlive()) {
+            return "write-ahead log writer is not running";
+        }
+        Exception failure = lastFailure;
+        return failure == null ? null : "last write-ahead log write failed: " + failure.getMessage();
+    }
+
+    private void enqueue(PendingWrite write) {
+        if (closed) {
+            write.done.completeExceptionally(new IOException("Write-ahead log is closed"));
+            return;
+        }
+        if (stopped != null) {
+            write.done.completeExceptionally(stopped);
+            return;
+        }
+        queue.add(write);
+    }
+
+    /**
+     * Writer thread loop: take everything queued, write it as one group,
+     * sync according to policy, then release the waiting callers.
+     */
+    private void runWriter() {
+        List<PendingWrite> group = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(fsyncPolicy == FsyncPolicy.INTERVAL ? 10 : 100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    syncIfIntervalElapsed();
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP_SIZE - 1);
+                IOException stop = stopped;
+                if (stop != null) {
+                    for (PendingWrite write : group) {
+                        write.done.completeExceptionally(stop);
+                    }
+                    continue;
+                }
+                commit(group);
+                lastFailure = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Write-ahead log write failed", e);
+                lastFailure = e;
+                for (PendingWrite write : group) {
+                    write.done.completeExceptionally(e);
+                }
+                discardUncommitted();
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Cuts the current segment back to the end of the last committed group,
+     * removing whatever part of a failed group reached the file, so records
+     * written after it are not hidden behind a torn record.
+     * Stops the log if that isn't possible.
+     */
+    private void discardUncommitted() {
+        try {
+            synchronized (this) {
+                if (channel.size() > committedPosition) {
+                    channel.truncate(committedPosition);
+                }
+                channel.position(committedPosition);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Cannot cut a failed write off the write-ahead log, refusing further writes", e);
+            stopped = new IOException("write-ahead log stopped after a failed write: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes one group. Rotation markers split the group: records before the
+     * marker go to the old segment, records after it to the new one.
+     */
+    private void commit(List<PendingWrite> group) throws IOException {
+        int start = 0;
+        for (int i = 0; i < group.size(); i++) {
+            PendingWrite write = group.get(i);
+            if (write.payload == null) {
+                writeAndRelease(group.subList(start, i));
+                sync();
+                openSegment(segment + 1);
+                write.done.complete(segment);
+                start = i + 1;
+            }
+        }
+        writeAndRelease(group.subList(start, group.size()));
+    }
+
+    private void writeAndRelease(List<PendingWrite> writes) throws IOException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        buffer.clear();
+        for (PendingWrite write : writes) {
+            int frameSize = RecordFormat.FRAME_HEADER_BYTES + write.payload.length;
+            if (buffer.remaining() < frameSize) {
+                flushBuffer();
+                if (buffer.capacity() < frameSize) {
+                    buffer = ByteBuffer.allocateDirect(frameSize);
+                }
+            }
+            RecordFormat.putFrame(buffer, write.payload);
+        }
+        flushBuffer();
+        unsynced = true;
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            sync();
+        } else {
+            syncIfIntervalElapsed();
+        }
+        committedPosition = channel.position();
+        for (PendingWrite write : writes) {
+            write.done.complete(segment);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            write(channel, buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes to the current segment. The only place log records reach the
+     * file, so tests can override it to simulate a failing disk.
+     */
+    protected int write(FileChannel channel, ByteBuffer data) throws IOException {
+        return channel.write(data);
+    }
+
+    private void syncIfIntervalElapsed() throws IOException {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && unsynced && System.nanoTime() - lastSyncNanos >= fsyncIntervalNanos) {
+            sync();
+        }
+    }
+
+    private synchronized void sync() throws IOException {
+        if (unsynced && fsyncPolicy != FsyncPolicy.NEVER) {
+            channel.force(false);
+        }
+        unsynced = false;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    /**
+     * Switches to a new segment file. If the new file can't be set up, the
+     * current segment stays open and in use.
+     */
+    private synchronized void openSegment(long number) throws IOException {
+        Path file = directory.resolve(String.format("wal-%010d.log", number));
+        FileChannel next = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RecordFormat.FILE_HEADER_BYTES);
+            RecordFormat.putFileHeader(header, MAGIC, formatVersion);
+            header.flip();
+            while (header.hasRemaining()) {
+                next.write(header);
+            }
+        } catch (IOException | RuntimeException e) {
+            next.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        channel = next;
+        committedPosition = RecordFormat.FILE_HEADER_BYTES;
+        segment = number;
+    }
+
+    private long lastSegmentNumber() throws IOException {
+        TreeMap<Long, Path> files = segmentFiles();
+        return files.isEmpty() ? 0 : files.lastKey();
+    }
+
+    /** Existing segment files by segment number */
+    private TreeMap<Long, Path> segmentFiles() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "wal-*.log")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(4, name.length() - 4)), file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * A record waiting to be written, or a rotation marker (payload == null).
+     * The future completes with the segment number the record landed in.
+     */
+    private static final class PendingWrite {
+        private final byte[] payload;
+        private final CompletableFuture<Long> done = new CompletableFuture<>();
+
+        private PendingWrite(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+}
@@ -5,8 +5,68 @@ import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
+/**
+ * Repository interface for diagnostic record data access operations.
+ * 
+ * Operations:
+ * - findByIncidentId(): Get an incident's records, oldest first
+ * - save(): Store one record
+ * - saveAll(): Store a batch of records in one write
+ * - deleteByIncidentId(): Remove all of an incident's records
+ * - count(): Number of stored records
+ */
 @Repository
 public interface DiagnosticsRepository {
+
+    /**
+     * Finds all diagnostic records for an incident.
+     * 
+     * @param incidentId The incident ID
+     * @return Records sorted by timestamp, oldest first (empty if none)
+     */
     List<DiagnosticRecord> findByIncidentId(String incidentId);
+
+    /**
+     * Stores one diagnostic record (overwrites a record with the same ID).
+     * 
+     * @param record The record to store
+     * @return The stored record
+     */
     DiagnosticRecord save(DiagnosticRecord record);
-}
\ No newline at end of file
+
+    /**
+     * Stores a batch of diagnostic records as one batched write.
+     * 
+     * Implementations take their locks and update their indexes once per
+     * batch (or per incident in the batch) rather than once per record.
+     * 
+     * @param records The records to store
+     * @return The stored records, in the same order
+     */
+    List<DiagnosticRecord> saveAll(List<DiagnosticRecord> records);
+
+    /**
+     * Removes every record of an incident (used when the incident itself is
+     * removed, e.g. by retention). Records saved for the incident afterwards
+     * are kept.
+     * 
+     * @param incidentId The incident whose records to remove
+     * @return The removed records with their data, oldest first (empty if there were none)
+     */
+    List<DiagnosticRecord> deleteByIncidentId(String incidentId);
+
+    /**
+     * Counts all stored records without loading them.
+     * 
+     * @return Number of records
+     */
+    long count();
+
+    /**
+     * Checks whether the storage backend can currently accept records.
+     * Must be cheap; called in the background by the readiness probe.
+     * 
+     * @return null if the backend is healthy, otherwise a short description of the problem
+     */
+    String checkHealth();
+}
@@ -0,0 +1,415 @@
+package com.cloudops.incidents.repository;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.persistence.FsyncPolicy;
+import com.cloudops.incidents.persistence.IncidentCodec;
+import com.cloudops.incidents.persistence.RecoveryStats;
+import com.cloudops.incidents.persistence.SnapshotStore;
+import com.cloudops.incidents.persistence.WriteAheadLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable IncidentRepository: in-memory speed, survives restarts.
+ * 
+ * Wraps InMemoryIncidentRepository (which still serves every read) and
+ * records every save/deleteById in an append-only write-ahead log before
+ * acknowledging it. Periodically a compact snapshot of all incidents is
+ * written so the log doesn't grow forever.
+ * 
+ * A change is only applied in memory once its log write is durable. If the
+ * write fails, the caller gets a 503 and nobody ever sees the change, so
+ * memory, the log and everything fed by successful writes (change feed,
+ * caches, aggregates) stay in agreement.
+ * 
+ * On startup:
+ * 1. Load the newest snapshot
+ * 2. Replay the write-ahead log segments written after it
+ * 3. Start a fresh log segment
+ * 
+ * Snapshots run in the background without blocking writes for long:
+ * 1. Wait for writes in progress to be applied, then rotate the log
+ *    (new writes go to a new segment)
+ * 2. Write every incident currently in memory to a snapshot
+ * 3. Delete the log segments and snapshots the new snapshot replaces
+ * Writes that land during step 2 are in both the snapshot and the new
+ * segment; replaying them again is harmless because save/delete are
+ * idempotent full-state operations.
+ * 
+ * Enabled with incidents.persistence.mode=wal (see RepositoryConfig).
+ */
+public class DurableIncidentRepository implements IncidentRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DurableIncidentRepository.class);
+
+    /** Log record types */
+    private static final byte OP_SAVE = 1;
+    private static final byte OP_DELETE = 2;
+
+    /**
+     * Number of lock stripes ordering writes to the same incident.
+     * A stripe stays locked while its write waits for the log, so this also
+     * bounds how many writes can share one group commit.
+     */
+    private static final int LOCK_STRIPES = 256;
+
+    private final InMemoryIncidentRepository delegate;
+    private final WriteAheadLog wal;
+    private final SnapshotStore snapshots;
+    private final long snapshotEvery;
+    private final RecoveryStats recoveryStats;
+
+    /**
+     * Locks held from "check and enqueue in log" until "apply in memory",
+     * so writes to one incident are logged and applied one at a time, in
+     * the same order. Different incidents rarely share a stripe.
+     */
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    /** Log records written since the last snapshot started */
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final ScheduledExecutorService snapshotScheduler;
+
+    /**
+     * Opens (or creates) a durable repository in the given directory and
+     * recovers its contents.
+     * 
+     * @param delegate Empty in-memory repository to load into and serve reads from
+     * @param directory Where log segments and snapshots are kept
+     * @param fsyncPolicy When log writes are forced to disk
+     * @param fsyncInterval Maximum time between fsyncs for FsyncPolicy.INTERVAL
+     * @param snapshotEvery Log records after which a new snapshot is taken
+     * @param snapshotCheckInterval How often to check whether a snapshot is due
+     */
+    public DurableIncidentRepository(InMemoryIncidentRepository delegate, Path directory, FsyncPolicy fsyncPolicy,
+                                     Duration fsyncInterval, long snapshotEvery, Duration snapshotCheckInterval)
+            throws IOException {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.delegate = delegate;
+        this.snapshotEvery = snapshotEvery;
+        this.snapshots = new SnapshotStore(directory, IncidentCodec.FORMAT_VERSION);
+        this.wal = new WriteAheadLog(directory, IncidentCodec.FORMAT_VERSION, fsyncPolicy, fsyncInterval.toMillis());
+        this.recoveryStats = recover();
+        log.info("Recovered {}", recoveryStats);
+        wal.start();
+
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "incident-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMillis = snapshotCheckInterval.toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotIfDue, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets what happened during startup recovery (record counts and duration).
+     */
+    public RecoveryStats getRecoveryStats() {
+        return recoveryStats;
+    }
+
+    // Reads are served straight from memory
+
+    @Override
+    public List<Incident> findAll() { return delegate.findAll(); }
+
+    @Override
+    public Incident findById(String id) { return delegate.findById(id); }
+
+    @Override
+    public List<Incident> findByServiceName(String serviceName) { return delegate.findByServiceName(serviceName); }
+
+    @Override
+    public List<Incident> findBySeverity(Severity severity) { return delegate.findBySeverity(severity); }
+
+    @Override
+    public List<Incident> findByStatus(IncidentStatus status) { return delegate.findByStatus(status); }
+
+    @Override
+    public List<Incident> findByErrorType(ErrorType errorType) { return delegate.findByErrorType(errorType); }
+
+    @Override
+    public List<Incident> findByFilter(IncidentFilter filter) { return delegate.findByFilter(filter); }
+
+    @Override
+    public long count() { return delegate.count(); }
+
+    @Override
+    public long countBySeverity(Severity severity) { return delegate.countBySeverity(severity); }
+
+    @Override
+    public long countByStatus(IncidentStatus status) { return delegate.countByStatus(status); }
+
+    /**
+     * Unhealthy while the write-ahead log can't take writes
+     * (writer stopped, or the last group commit failed).
+     */
+    @Override
+    public String checkHealth() { return wal.checkHealth(); }
+
+    @Override
+    public IncidentPage findPage(IncidentFilter filter, IncidentCursor after, int limit) {
+        return delegate.findPage(filter, after, limit);
+    }
+
+    /**
+     * Saves an incident in the write-ahead log, then in memory.
+     * 
+     * Returns once the log write is durable according to the fsync policy.
+     * Concurrent saves share a single group commit.
+     * 
+     * @throws ApiException with 503 status if the log write failed (nothing is changed)
+     */
+    @Override
+    public Incident save(Incident incident) {
+        ReentrantLock stripe = stripeFor(incident.getId());
+        stripe.lock();
+        try {
+            awaitDurable(wal.append(encodeSave(incident)));
+            return delegate.save(incident);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Replaces an incident if it is still at the expected version: logs the
+     * new state, then applies it in memory. Nothing is logged if the version
+     * doesn't match.
+     * 
+     * @throws ApiException with 404 status if the incident doesn't exist
+     * @throws ApiException with 503 status if the log write failed (nothing is changed)
+     */
+    @Override
+    public Incident replace(Incident incident, long expectedVersion) {
+        ReentrantLock stripe = stripeFor(incident.getId());
+        stripe.lock();
+        try {
+            if (delegate.findById(incident.getId()).getVersion() != expectedVersion) {
+                return null;
+            }
+            Incident next = incident.withVersion(expectedVersion + 1);
+            awaitDurable(wal.append(encodeSave(next)));
+            return delegate.save(next);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Records the deletion of an incident in the write-ahead log, then
+     * removes it from memory.
+     * 
+     * @throws ApiException with 404 status if the incident doesn't exist
+     * @throws ApiException with 503 status if the log write failed (nothing is changed)
+     */
+    @Override
+    public Incident deleteById(String id) {
+        ReentrantLock stripe = stripeFor(id);
+        stripe.lock();
+        try {
+            delegate.findById(id);
+            awaitDurable(wal.append(encodeDelete(id)));
+            return delegate.deleteById(id);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Same as deleteById(id), but nothing is logged or removed unless the
+     * incident is still at the expected version.
+     * 
+     * @return The removed incident, or null if the stored version differs
+     */
+    @Override
+    public Incident deleteById(String id, long expectedVersion) {
+        ReentrantLock stripe = stripeFor(id);
+        stripe.lock();
+        try {
+            if (delegate.findById(id).getVersion() != expectedVersion) {
+                return null;
+            }
+            awaitDurable(wal.append(encodeDelete(id)));
+            return delegate.deleteById(id);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Stops background snapshots and flushes the write-ahead log.
+     * Called by Spring on shutdown.
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotScheduler.shutdown();
+        try {
+            snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        wal.close();
+    }
+
+    /**
+     * Takes a snapshot now, regardless of how many records were logged.
+     * 
+     * @return Number of incidents written to the snapshot
+     */
+    public long snapshot() throws IOException {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            long started = System.nanoTime();
+            recordsSinceSnapshot.set(0);
+            long segment = rotateAfterWritesInProgress().join();
+            Iterator<Incident> incidents = delegate.findAll().iterator();
+            long written = snapshots.write(segment, new Iterator<byte[]>() {
+                @Override
+                public boolean hasNext() { return incidents.hasNext(); }
+
+                @Override
+                public byte[] next() { return encodeSave(incidents.next()); }
+            });
+            wal.deleteSegmentsBefore(segment);
+            snapshots.deleteOlderThan(segment);
+            log.info("Wrote incident snapshot of {} records in {} ms", written,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return written;
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    /**
+     * Rotates the log once every write already in it has been applied in
+     * memory, so the snapshot taken next contains everything in the
+     * segments it replaces. Holds each stripe for a moment; writes waiting
+     * for the log finish first.
+     */
+    private CompletableFuture<Long> rotateAfterWritesInProgress() {
+        int locked = 0;
+        try {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+                locked++;
+            }
+            return wal.rotate();
+        } finally {
+            for (int i = 0; i < locked; i++) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private void snapshotIfDue() {
+        if (recordsSinceSnapshot.get() < snapshotEvery) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Incident snapshot failed, will retry", e);
+        }
+    }
+
+    /**
+     * Rebuilds the in-memory state from the newest snapshot plus the log tail.
+     */
+    private RecoveryStats recover() throws IOException {
+        long started = System.nanoTime();
+        SnapshotStore.LoadResult snapshot = snapshots.loadLatest(this::apply);
+        long walRecords = wal.replay(snapshot.getWalSegment(), this::apply);
+        recordsSinceSnapshot.set(walRecords);
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return new RecoveryStats(snapshot.getRecords(), walRecords, delegate.findAll().size(), durationMillis);
+    }
+
+    /**
+     * Applies one logged change to the in-memory repository during recovery.
+     */
+    private void apply(byte[] record, int formatVersion) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            byte op = in.readByte();
+            if (op == OP_SAVE) {
+                delegate.save(IncidentCodec.read(in, formatVersion));
+            } else if (op == OP_DELETE) {
+                try {
+                    delegate.deleteById(in.readUTF());
+                } catch (ApiException e) {
+                    // Already absent: the snapshot was taken after this delete
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt incident log record", e);
+        }
+    }
+
+    private byte[] encodeSave(Incident incident) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_SAVE);
+            IncidentCodec.write(out, incident);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] encodeDelete(String id) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_DELETE);
+            out.writeUTF(id);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void awaitDurable(CompletableFuture<Void> logged) {
+        recordsSinceSnapshot.incrementAndGet();
+        try {
+            logged.join();
+        } catch (CompletionException e) {
+            log.error("Failed to persist incident change", e.getCause());
+            throw new ApiException("Failed to persist incident change", 503);
+        }
+    }
+
+    private ReentrantLock stripeFor(String id) {
+        return stripes[(id.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+}
@@ -0,0 +1,174 @@
+package com.cloudops.incidents.repository;
+
+import com.cloudops.incidents.dynamodb.CachedCount;
+import com.cloudops.incidents.dynamodb.DynamoBatchWriter;
+import com.cloudops.incidents.dynamodb.DynamoItems;
+import com.cloudops.incidents.dynamodb.DynamoRetry;
+import com.cloudops.incidents.dynamodb.DynamoTables;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * DiagnosticsRepository stored in a DynamoDB table (layout in DynamoTables).
+ *
+ * Records are keyed by incident ID (partition) and record ID (sort), so
+ * one Query returns all of an incident's records. Saves and deletes go
+ * through DynamoBatchWriter, so saveAll() of 100 records costs 4
+ * BatchWriteItem requests, and saves from concurrent requests share them.
+ *
+ * Enabled with incidents.persistence.diagnostics.mode=dynamodb (see RepositoryConfig).
+ */
+public class DynamoDiagnosticsRepository implements DiagnosticsRepository, AutoCloseable {
+
+    /** Same order as InMemoryDiagnosticsRepository: oldest first, then by ID */
+    private static final Comparator<DiagnosticRecord> TIME_ORDER = Comparator
+            .comparing(DiagnosticRecord::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(DiagnosticRecord::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final DynamoDbAsyncClient client;
+    private final String table;
+    private final DynamoRetry retry;
+    private final DynamoBatchWriter writer;
+    private final Duration requestTimeout;
+    private final CachedCount total;
+
+    /**
+     * Creates a repository on an existing table.
+     *
+     * @param client The DynamoDB client
+     * @param table Name of the diagnostics table
+     * @param retry Backoff for throttled requests
+     * @param writer Batches saves and deletes (for the same table)
+     * @param requestTimeout How long a caller waits for DynamoDB before getting a 503
+     * @param countRefreshInterval How long the cached count is used before being read again
+     */
+    public DynamoDiagnosticsRepository(DynamoDbAsyncClient client, String table, DynamoRetry retry,
+                                       DynamoBatchWriter writer, Duration requestTimeout,
+                                       Duration countRefreshInterval) {
+        this.client = client;
+        this.table = table;
+        this.retry = retry;
+        this.writer = writer;
+        this.requestTimeout = requestTimeout;
+        this.total = new CachedCount("diagnostic records", this::countAsync, countRefreshInterval, requestTimeout);
+    }
+
+    /**
+     * Reads every record of the incident with consistent Query requests
+     * (following LastEvaluatedKey) and sorts them by time.
+     */
+    @Override
+    public List<DiagnosticRecord> findByIncidentId(String incidentId) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#incident", DynamoTables.INCIDENT_ID);
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":incident", DynamoItems.string(incidentId));
+
+        List<DiagnosticRecord> records = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            QueryRequest request = QueryRequest.builder()
+                    .tableName(table)
+                    .keyConditionExpression("#incident = :incident")
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(values)
+                    .consistentRead(true)
+                    .exclusiveStartKey(startKey)
+                    .build();
+            QueryResponse response = DynamoRetry.await(retry.call("Query", () -> client.query(request)),
+                    requestTimeout);
+            for (Map<String, AttributeValue> item : response.items()) {
+                records.add(DynamoItems.toRecord(item));
+            }
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey() : null;
+        } while (startKey != null);
+        records.sort(TIME_ORDER);
+        return records;
+    }
+
+    @Override
+    public DiagnosticRecord save(DiagnosticRecord record) {
+        DynamoRetry.await(writer.put(DynamoItems.toItem(record)), requestTimeout);
+        return record;
+    }
+
+    /**
+     * Queues every record with the batch writer and waits for all of them.
+     *
+     * Records with the same key are written once (the last one), since
+     * writes in different batches may be stored in any order.
+     */
+    @Override
+    public List<DiagnosticRecord> saveAll(List<DiagnosticRecord> records) {
+        Map<String, DiagnosticRecord> latest = new LinkedHashMap<>();
+        for (DiagnosticRecord record : records) {
+            latest.put(record.getIncidentId() + "\u0000" + record.getId(), record);
+        }
+        List<CompletableFuture<Void>> writes = new ArrayList<>(latest.size());
+        for (DiagnosticRecord record : latest.values()) {
+            writes.add(writer.put(DynamoItems.toItem(record)));
+        }
+        DynamoRetry.await(CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])), requestTimeout);
+        return records;
+    }
+
+    /**
+     * Reads the incident's records, then deletes them with batched writes.
+     * Records saved after the read are kept.
+     */
+    @Override
+    public List<DiagnosticRecord> deleteByIncidentId(String incidentId) {
+        List<DiagnosticRecord> records = findByIncidentId(incidentId);
+        List<CompletableFuture<Void>> deletes = new ArrayList<>(records.size());
+        for (DiagnosticRecord record : records) {
+            deletes.add(writer.delete(DynamoItems.diagnosticKey(record.getIncidentId(), record.getId())));
+        }
+        DynamoRetry.await(CompletableFuture.allOf(deletes.toArray(new CompletableFuture<?>[0])), requestTimeout);
+        return records;
+    }
+
+    /**
+     * Gets the table's item count from DescribeTable. DynamoDB updates it
+     * about every six hours, so it is approximate; it costs nothing to read,
+     * unlike counting millions of records.
+     */
+    @Override
+    public long count() {
+        return total.get();
+    }
+
+    @Override
+    public String checkHealth() {
+        return writer.checkHealth();
+    }
+
+    /**
+     * Sends the queued writes and stops the writer and retry threads.
+     * Called by Spring on shutdown.
+     */
+    @Override
+    public void close() {
+        writer.close();
+        retry.close();
+    }
+
+    private CompletableFuture<Long> countAsync() {
+        DescribeTableRequest request = DescribeTableRequest.builder().tableName(table).build();
+        return retry.call("DescribeTable", () -> client.describeTable(request))
+                .thenApply(response -> response.table().itemCount());
+    }
+}
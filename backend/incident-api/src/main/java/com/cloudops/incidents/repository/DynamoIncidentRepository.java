@@ -0,0 +1,538 @@
+package com.cloudops.incidents.repository;
+
+import com.cloudops.incidents.dynamodb.CachedCount;
+import com.cloudops.incidents.dynamodb.DynamoBatchWriter;
+import com.cloudops.incidents.dynamodb.DynamoItems;
+import com.cloudops.incidents.dynamodb.DynamoRetry;
+import com.cloudops.incidents.dynamodb.DynamoTables;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * IncidentRepository stored in a DynamoDB table (layout in DynamoTables).
+ *
+ * Enabled with incidents.persistence.mode=dynamodb (see RepositoryConfig).
+ *
+ * Writes:
+ * - save() goes through DynamoBatchWriter: concurrent saves are grouped
+ *   into BatchWriteItem requests of up to 25 items, sent asynchronously
+ * - replace() and deleteById() need a condition (version check, must
+ *   exist), which BatchWriteItem can't carry, so they are single
+ *   conditional PutItem/DeleteItem requests
+ * Every request is retried on throttling with jittered backoff (DynamoRetry).
+ *
+ * Reads:
+ * - findById() is a strongly consistent GetItem
+ * - Everything else is a Query on a global secondary index, following
+ *   LastEvaluatedKey from page to page. The index is picked from the
+ *   filter (serviceName, then status, then severity, else the index of all
+ *   incidents); the other criteria become a FilterExpression and the time
+ *   range a sort key condition. Index reads are eventually consistent, so
+ *   an incident can show up in lists shortly after findById() sees it.
+ * - The index of all incidents is sharded (see DynamoTables): unfiltered
+ *   reads query every shard in parallel, each up to the requested number
+ *   of incidents, and merge the results in list order
+ * - Counts are COUNT queries on the indexes, cached (see CachedCount)
+ *   because the metrics gauges read them on every scrape
+ *
+ * DynamoDB errors that remain after retries surface as ApiException 503.
+ */
+public class DynamoIncidentRepository implements IncidentRepository, AutoCloseable {
+
+    /** Items read per Query request when a filter may drop most of them */
+    private static final int FILTERED_PAGE_SIZE = 100;
+
+    /** The order of IncidentCursor (and of the index sort key) */
+    private static final Comparator<Incident> IN_LIST_ORDER = Comparator.comparing(
+            (Incident incident) -> DynamoItems.createdKey(incident.getTimestamp(), incident.getId()));
+
+    private final DynamoDbAsyncClient client;
+    private final String table;
+    private final DynamoRetry retry;
+    private final DynamoBatchWriter writer;
+    private final Duration requestTimeout;
+
+    private final CachedCount total;
+    private final Map<Severity, CachedCount> bySeverity = new EnumMap<>(Severity.class);
+    private final Map<IncidentStatus, CachedCount> byStatus = new EnumMap<>(IncidentStatus.class);
+
+    /**
+     * Creates a repository on an existing table.
+     *
+     * @param client The DynamoDB client
+     * @param table Name of the incidents table
+     * @param retry Backoff for throttled requests
+     * @param writer Batches save() calls (for the same table)
+     * @param requestTimeout How long a caller waits for DynamoDB before getting a 503
+     * @param countRefreshInterval How long cached counts are used before being recounted
+     */
+    public DynamoIncidentRepository(DynamoDbAsyncClient client, String table, DynamoRetry retry,
+                                    DynamoBatchWriter writer, Duration requestTimeout, Duration countRefreshInterval) {
+        this.client = client;
+        this.table = table;
+        this.retry = retry;
+        this.writer = writer;
+        this.requestTimeout = requestTimeout;
+        this.total = new CachedCount("incidents", this::countAllAsync, countRefreshInterval, requestTimeout);
+        for (Severity severity : Severity.values()) {
+            bySeverity.put(severity, new CachedCount("incidents with severity " + severity,
+                    () -> countAsync(DynamoTables.BY_SEVERITY_INDEX, DynamoTables.SEVERITY, severity.name(), null, 0),
+                    countRefreshInterval, requestTimeout));
+        }
+        for (IncidentStatus status : IncidentStatus.values()) {
+            byStatus.put(status, new CachedCount("incidents in status " + status,
+                    () -> countAsync(DynamoTables.BY_STATUS_INDEX, DynamoTables.STATUS, status.name(), null, 0),
+                    countRefreshInterval, requestTimeout));
+        }
+    }
+
+    @Override
+    public List<Incident> findAll() {
+        return query(null, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads an incident with a strongly consistent GetItem.
+     *
+     * @throws ApiException with 404 status if the incident doesn't exist
+     */
+    @Override
+    public Incident findById(String id) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(table)
+                .key(DynamoItems.incidentKey(id))
+                .consistentRead(true)
+                .build();
+        GetItemResponse response = DynamoRetry.await(retry.call("GetItem", () -> client.getItem(request)),
+                requestTimeout);
+        if (!response.hasItem() || response.item().isEmpty()) {
+            throw new ApiException("Incident not found with id: " + id, 404);
+        }
+        return DynamoItems.toIncident(response.item());
+    }
+
+    @Override
+    public List<Incident> findByServiceName(String serviceName) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setServiceName(serviceName);
+        return query(filter, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Incident> findBySeverity(Severity severity) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setSeverity(severity);
+        return query(filter, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Incident> findByStatus(IncidentStatus status) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setStatus(status);
+        return query(filter, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Error type has no index (only four values, too coarse to be worth
+     * one), so this reads the index of all incidents with a filter.
+     */
+    @Override
+    public List<Incident> findByErrorType(ErrorType errorType) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setErrorType(errorType);
+        return query(filter, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Incident> findByFilter(IncidentFilter filter) {
+        return query(filter, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public IncidentPage findPage(IncidentFilter filter, IncidentCursor after, int limit) {
+        List<Incident> matches = query(filter, after, limit + 1);
+        if (matches.size() <= limit) {
+            return new IncidentPage(matches, null);
+        }
+        List<Incident> items = new ArrayList<>(matches.subList(0, limit));
+        return new IncidentPage(items, IncidentCursor.of(items.get(limit - 1)));
+    }
+
+    @Override
+    public long count() {
+        return total.get();
+    }
+
+    @Override
+    public long countBySeverity(Severity severity) {
+        return bySeverity.get(severity).get();
+    }
+
+    @Override
+    public long countByStatus(IncidentStatus status) {
+        return byStatus.get(status).get();
+    }
+
+    /**
+     * Unhealthy while writes can't be queued or keep failing after retries.
+     */
+    @Override
+    public String checkHealth() {
+        return writer.checkHealth();
+    }
+
+    /**
+     * Stores an incident with a batched write.
+     *
+     * Returns once DynamoDB has stored it. Concurrent saves share
+     * BatchWriteItem requests.
+     *
+     * @throws ApiException with 503 status if DynamoDB didn't store it
+     */
+    @Override
+    public Incident save(Incident incident) {
+        DynamoRetry.await(writer.put(DynamoItems.toItem(incident)), requestTimeout);
+        return incident;
+    }
+
+    /**
+     * Stores the new state with a PutItem that only succeeds if the stored
+     * item exists and is still at the expected version.
+     *
+     * A retried request whose first attempt did get through sees its own
+     * write and reports a conflict; the caller then rereads and retries,
+     * as for any other conflict.
+     */
+    @Override
+    public Incident replace(Incident incident, long expectedVersion) {
+        Incident next = incident.withVersion(expectedVersion + 1);
+        Map<String, String> names = new HashMap<>();
+        names.put("#id", DynamoTables.ID);
+        names.put("#version", DynamoItems.VERSION);
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":expected", DynamoItems.number(expectedVersion));
+        PutItemRequest request = PutItemRequest.builder()
+                .tableName(table)
+                .item(DynamoItems.toItem(next))
+                .conditionExpression("attribute_exists(#id) AND #version = :expected")
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build();
+        if (conditional("PutItem", () -> client.putItem(request)) != null) {
+            return next;
+        }
+        findById(incident.getId());   // 404 if it is gone rather than changed
+        return null;
+    }
+
+    /**
+     * Deletes an incident with a DeleteItem that only succeeds if it exists.
+     *
+     * @throws ApiException with 404 status if the incident doesn't exist
+     */
+    @Override
+    public Incident deleteById(String id) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#id", DynamoTables.ID);
+        DeleteItemRequest request = DeleteItemRequest.builder()
+                .tableName(table)
+                .key(DynamoItems.incidentKey(id))
+                .conditionExpression("attribute_exists(#id)")
+                .expressionAttributeNames(names)
+                .returnValues(ReturnValue.ALL_OLD)
+                .build();
+        DeleteItemResponse response = conditional("DeleteItem", () -> client.deleteItem(request));
+        if (response == null || !response.hasAttributes()) {
+            throw new ApiException("Incident not found with id: " + id, 404);
+        }
+        return DynamoItems.toIncident(response.attributes());
+    }
+
+    /**
+     * Deletes an incident with a DeleteItem that only succeeds if it exists
+     * and is still at the expected version.
+     *
+     * @return The removed incident, or null if the stored version differs
+     * @throws ApiException with 404 status if the incident doesn't exist
+     */
+    @Override
+    public Incident deleteById(String id, long expectedVersion) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#id", DynamoTables.ID);
+        names.put("#version", DynamoItems.VERSION);
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":expected", DynamoItems.number(expectedVersion));
+        DeleteItemRequest request = DeleteItemRequest.builder()
+                .tableName(table)
+                .key(DynamoItems.incidentKey(id))
+                .conditionExpression("attribute_exists(#id) AND #version = :expected")
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .returnValues(ReturnValue.ALL_OLD)
+                .build();
+        DeleteItemResponse response = conditional("DeleteItem", () -> client.deleteItem(request));
+        if (response != null && response.hasAttributes()) {
+            return DynamoItems.toIncident(response.attributes());
+        }
+        findById(id);   // 404 if it is gone rather than changed
+        return null;
+    }
+
+    /**
+     * Sends the queued writes and stops the writer and retry threads.
+     * Called by Spring on shutdown.
+     */
+    @Override
+    public void close() {
+        writer.close();
+        retry.close();
+    }
+
+    /**
+     * Queries the best index for the filter, in list order, starting after
+     * the cursor, until {@code max} matching incidents are found or the
+     * index has no more.
+     *
+     * On the sharded index of all incidents, every shard is read the same
+     * way, one page of each at a time in parallel, and the first {@code max}
+     * of the merged results are returned.
+     */
+    private List<Incident> query(IncidentFilter filter, IncidentCursor after, int max) {
+        IncidentFilter criteria = filter != null ? filter : new IncidentFilter();
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+
+        // Partition: the most selective indexed criterion
+        String index;
+        String partitionAttribute;
+        List<String> partitionValues;
+        if (criteria.getServiceName() != null) {
+            index = DynamoTables.BY_SERVICE_INDEX;
+            partitionAttribute = DynamoTables.SERVICE_NAME;
+            partitionValues = List.of(criteria.getServiceName());
+        } else if (criteria.getStatus() != null) {
+            index = DynamoTables.BY_STATUS_INDEX;
+            partitionAttribute = DynamoTables.STATUS;
+            partitionValues = List.of(criteria.getStatus().name());
+        } else if (criteria.getSeverity() != null) {
+            index = DynamoTables.BY_SEVERITY_INDEX;
+            partitionAttribute = DynamoTables.SEVERITY;
+            partitionValues = List.of(criteria.getSeverity().name());
+        } else {
+            index = DynamoTables.BY_CREATED_INDEX;
+            partitionAttribute = DynamoTables.ENTITY;
+            partitionValues = DynamoTables.incidentShards();
+        }
+        if (partitionValues.get(0).isEmpty()) {
+            return new ArrayList<>();   // Items with an empty service name aren't in the index
+        }
+        names.put("#pk", partitionAttribute);
+        String keyCondition = "#pk = :pk" + timeRangeCondition(criteria, names, values);
+
+        // Remaining equality criteria are checked by DynamoDB before items are returned
+        List<String> filters = new ArrayList<>();
+        addFilter(filters, names, values, partitionAttribute, DynamoTables.SERVICE_NAME, criteria.getServiceName());
+        addFilter(filters, names, values, partitionAttribute, DynamoTables.STATUS, criteria.getStatus());
+        addFilter(filters, names, values, partitionAttribute, DynamoTables.SEVERITY, criteria.getSeverity());
+        addFilter(filters, names, values, partitionAttribute, DynamoItems.ERROR_TYPE, criteria.getErrorType());
+        boolean filtered = !filters.isEmpty() || criteria.getUpdatedSince() != null;
+        Integer pageSize = max == Integer.MAX_VALUE ? null : filtered ? Math.max(max, FILTERED_PAGE_SIZE) : max;
+
+        List<PartitionQuery> partitions = new ArrayList<>(partitionValues.size());
+        for (String partitionValue : partitionValues) {
+            Map<String, AttributeValue> keyValues = new HashMap<>(values);
+            keyValues.put(":pk", DynamoItems.string(partitionValue));
+            partitions.add(new PartitionQuery(QueryRequest.builder()
+                    .tableName(table)
+                    .indexName(index)
+                    .keyConditionExpression(keyCondition)
+                    .filterExpression(filters.isEmpty() ? null : String.join(" AND ", filters))
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(keyValues)
+                    .exclusiveStartKey(after != null
+                            ? DynamoItems.indexStartKey(partitionAttribute, partitionValue, after) : null)
+                    .limit(pageSize)
+                    .build()));
+        }
+
+        List<PartitionQuery> reading = new ArrayList<>(partitions);
+        while (!reading.isEmpty()) {
+            List<CompletableFuture<QueryResponse>> pages = new ArrayList<>(reading.size());
+            for (PartitionQuery partition : reading) {
+                QueryRequest request = partition.next;
+                pages.add(retry.call("Query", () -> client.query(request)));
+            }
+            DynamoRetry.await(CompletableFuture.allOf(pages.toArray(new CompletableFuture<?>[0])), requestTimeout);
+            for (int i = 0; i < reading.size(); i++) {
+                reading.get(i).read(pages.get(i).join(), criteria, max);
+            }
+            reading.removeIf(partition -> partition.next == null);
+        }
+
+        if (partitions.size() == 1) {
+            return partitions.get(0).found;
+        }
+        List<Incident> merged = new ArrayList<>();
+        for (PartitionQuery partition : partitions) {
+            merged.addAll(partition.found);
+        }
+        merged.sort(IN_LIST_ORDER);
+        return merged.size() > max ? new ArrayList<>(merged.subList(0, max)) : merged;
+    }
+
+    /**
+     * Reading one index partition: the matches so far and the request for
+     * the next page (null once done).
+     */
+    private static final class PartitionQuery {
+        final List<Incident> found = new ArrayList<>();
+        QueryRequest next;
+
+        PartitionQuery(QueryRequest first) {
+            this.next = first;
+        }
+
+        void read(QueryResponse response, IncidentFilter criteria, int max) {
+            for (Map<String, AttributeValue> item : response.items()) {
+                Incident incident = DynamoItems.toIncident(item);
+                if (criteria.matches(incident)) {   // updatedSince, and a recheck of the rest
+                    found.add(incident);
+                    if (found.size() >= max) {
+                        next = null;
+                        return;
+                    }
+                }
+            }
+            Map<String, AttributeValue> startKey = nextKey(response);
+            next = startKey != null ? next.toBuilder().exclusiveStartKey(startKey).build() : null;
+        }
+    }
+
+    /**
+     * Builds the sort key condition for the filter's time range.
+     * createdKey(to, "") sorts before every incident created at {@code to},
+     * so "less than" it means "created before to".
+     */
+    private static String timeRangeCondition(IncidentFilter filter, Map<String, String> names,
+                                             Map<String, AttributeValue> values) {
+        if (filter.getFrom() == null && filter.getTo() == null) {
+            return "";
+        }
+        names.put("#created", DynamoTables.CREATED_KEY);
+        if (filter.getFrom() != null) {
+            values.put(":from", DynamoItems.string(DynamoItems.createdKey(filter.getFrom(), "")));
+        }
+        if (filter.getTo() != null) {
+            values.put(":to", DynamoItems.string(DynamoItems.createdKey(filter.getTo(), "")));
+        }
+        if (filter.getTo() == null) {
+            return " AND #created >= :from";
+        }
+        if (filter.getFrom() == null) {
+            return " AND #created < :to";
+        }
+        // BETWEEN is inclusive, but no incident's key equals createdKey(to, "")
+        return " AND #created BETWEEN :from AND :to";
+    }
+
+    private static void addFilter(List<String> filters, Map<String, String> names, Map<String, AttributeValue> values,
+                                  String partitionAttribute, String attribute, Object value) {
+        if (value == null || attribute.equals(partitionAttribute)) {
+            return;
+        }
+        String placeholder = "f" + filters.size();
+        names.put("#" + placeholder, attribute);
+        values.put(":" + placeholder, DynamoItems.string(value instanceof Enum ? ((Enum<?>) value).name()
+                : value.toString()));
+        filters.add("#" + placeholder + " = :" + placeholder);
+    }
+
+    /**
+     * Counts every incident: the shards of the index of all incidents,
+     * counted in parallel.
+     */
+    private CompletableFuture<Long> countAllAsync() {
+        List<CompletableFuture<Long>> shards = new ArrayList<>();
+        for (String shard : DynamoTables.incidentShards()) {
+            shards.add(countAsync(DynamoTables.BY_CREATED_INDEX, DynamoTables.ENTITY, shard, null, 0));
+        }
+        return CompletableFuture.allOf(shards.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> shards.stream().mapToLong(CompletableFuture::join).sum());
+    }
+
+    /**
+     * Counts the items of one index partition with COUNT queries
+     * (DynamoDB counts at most 1 MB of items per request).
+     */
+    private CompletableFuture<Long> countAsync(String index, String attribute, String value,
+                                               Map<String, AttributeValue> startKey, long counted) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#pk", attribute);
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":pk", DynamoItems.string(value));
+        QueryRequest request = QueryRequest.builder()
+                .tableName(table)
+                .indexName(index)
+                .keyConditionExpression("#pk = :pk")
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .select(Select.COUNT)
+                .exclusiveStartKey(startKey)
+                .build();
+        return retry.call("Query", () -> client.query(request)).thenCompose(response -> {
+            long sum = counted + response.count();
+            Map<String, AttributeValue> next = nextKey(response);
+            return next != null ? countAsync(index, attribute, value, next, sum) : CompletableFuture.completedFuture(sum);
+        });
+    }
+
+    private static Map<String, AttributeValue> nextKey(QueryResponse response) {
+        return response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                ? response.lastEvaluatedKey() : null;
+    }
+
+    /**
+     * Sends a conditional write and waits for it.
+     *
+     * @return The response, or null if the condition failed
+     */
+    private <T> T conditional(String operation, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> written = retry.call(operation, request).handle((response, error) -> {
+            if (error == null) {
+                return response;
+            }
+            Throwable cause = DynamoRetry.unwrap(error);
+            if (cause instanceof ConditionalCheckFailedException) {
+                return null;
+            }
+            throw new CompletionException(cause);
+        });
+        return DynamoRetry.await(written, requestTimeout);
+    }
+}
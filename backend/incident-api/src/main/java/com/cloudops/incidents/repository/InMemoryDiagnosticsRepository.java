@@ -1,13 +1,14 @@
 package com.cloudops.incidents.repository;
 
 import com.cloudops.incidents.model.DiagnosticRecord;
-import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * In-memory implementation of DiagnosticsRepository.
@@ -15,10 +16,21 @@ import java.util.stream.Collectors;
  * 
  * Diagnostic records are linked to incidents via incidentId.
  * Multiple diagnostic records can belong to one incident.
+ * 
+ * A second map groups records by incident, kept sorted by timestamp,
+ * so looking up an incident's diagnostics only touches that incident's
+ * records instead of scanning every record in the store.
  */
-@Repository
 public class InMemoryDiagnosticsRepository implements DiagnosticsRepository {
 
+    /**
+     * Order used for each incident's records: oldest first, records without
+     * a timestamp first, ties broken by record ID so the order is stable.
+     */
+    private static final Comparator<DiagnosticRecord> TIME_ORDER = Comparator
+            .comparing(DiagnosticRecord::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(DiagnosticRecord::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
     /**
      * In-memory storage for diagnostic records.
      * Key: Diagnostic record ID
@@ -26,28 +38,204 @@ public class InMemoryDiagnosticsRepository implements DiagnosticsRepository {
      */
     private final Map<String, DiagnosticRecord> storage = new ConcurrentHashMap<>();
 
+    /**
+     * Per-incident index of diagnostic records.
+     * Key: Incident ID
+     * Value: That incident's records, sorted by timestamp
+     */
+    private final Map<String, TimeOrderedRecords> byIncidentId = new ConcurrentHashMap<>();
+
     /**
      * Finds all diagnostic records for a specific incident.
      * 
+     * Implementation:
+     * - Looks up the incident's bucket in the per-incident index
+     * - Copies it (already sorted), so cost is O(records for that incident)
+     * 
      * @param incidentId The incident ID to search for
-     * @return List of diagnostic records (empty if none found)
+     * @return List of diagnostic records, oldest first (empty if none found)
      */
     @Override
     public List<DiagnosticRecord> findByIncidentId(String incidentId) {
-        return storage.values().stream()
-                .filter(record -> incidentId.equals(record.getIncidentId()))
-                .collect(Collectors.toList());
+        TimeOrderedRecords records = byIncidentId.get(incidentId);
+        return records == null ? Collections.emptyList() : records.copy();
+    }
+
+    /**
+     * Finds a single diagnostic record by its ID.
+     * 
+     * @param id The diagnostic record ID
+     * @return The record, or null if it doesn't exist
+     */
+    public DiagnosticRecord findById(String id) {
+        return storage.get(id);
+    }
+
+    /**
+     * Counts stored records (size of the HashMap).
+     */
+    @Override
+    public long count() {
+        return storage.size();
+    }
+
+    /**
+     * Always healthy: memory has no backend that can go away.
+     */
+    @Override
+    public String checkHealth() {
+        return null;
     }
 
     /**
      * Saves a diagnostic record to memory.
      * 
+     * Implementation:
+     * - Stores the record by ID (overwriting an older version if present)
+     * - Removes the older version from its incident bucket
+     * - Inserts the record into its incident bucket in timestamp order
+     * 
      * @param record The diagnostic record to save
      * @return The saved record
      */
     @Override
     public DiagnosticRecord save(DiagnosticRecord record) {
-        storage.put(record.getId(), record);
+        storage.compute(record.getId(), (id, previous) -> {
+            if (previous != null) {
+                unlink(previous);
+            }
+            link(record);
+            return record;
+        });
         return record;
     }
+
+    /**
+     * Saves a batch of diagnostic records.
+     * 
+     * Implementation:
+     * - Stores each record by ID (unlinking older versions)
+     * - Groups the batch by incident and sorts each group by timestamp
+     * - Merges each group into its incident bucket under a single lock,
+     *   instead of locking the bucket once per record
+     * 
+     * @param records The records to save
+     * @return The saved records
+     */
+    @Override
+    public List<DiagnosticRecord> saveAll(List<DiagnosticRecord> records) {
+        Map<String, List<DiagnosticRecord>> byIncident = new HashMap<>();
+        for (DiagnosticRecord record : records) {
+            storage.compute(record.getId(), (id, previous) -> {
+                if (previous != null) {
+                    unlink(previous);
+                }
+                return record;
+            });
+            if (record.getIncidentId() != null) {
+                byIncident.computeIfAbsent(record.getIncidentId(), key -> new ArrayList<>()).add(record);
+            }
+        }
+        byIncident.forEach((incidentId, group) -> {
+            group.sort(TIME_ORDER);
+            byIncidentId.compute(incidentId, (key, existing) -> {
+                TimeOrderedRecords bucket = existing != null ? existing : new TimeOrderedRecords();
+                bucket.insertAll(group);
+                return bucket;
+            });
+        });
+        return records;
+    }
+
+    /**
+     * Removes all records of an incident.
+     * 
+     * Implementation:
+     * - Detaches the incident's bucket from the index in one step
+     * - Removes each of its records from storage, unless a newer version
+     *   of the record was saved meanwhile
+     * 
+     * @param incidentId The incident whose records to remove
+     * @return The removed records, oldest first
+     */
+    @Override
+    public List<DiagnosticRecord> deleteByIncidentId(String incidentId) {
+        TimeOrderedRecords bucket = byIncidentId.remove(incidentId);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        List<DiagnosticRecord> removed = bucket.copy();
+        removed.removeIf(record -> !storage.remove(record.getId(), record));
+        return removed;
+    }
+
+    /** Adds a record to its incident's bucket, creating the bucket if needed */
+    private void link(DiagnosticRecord record) {
+        if (record.getIncidentId() == null) {
+            return;
+        }
+        byIncidentId.compute(record.getIncidentId(), (incidentId, records) -> {
+            TimeOrderedRecords bucket = records != null ? records : new TimeOrderedRecords();
+            bucket.insert(record);
+            return bucket;
+        });
+    }
+
+    /** Removes a record from its incident's bucket, dropping the bucket once empty */
+    private void unlink(DiagnosticRecord record) {
+        if (record.getIncidentId() == null) {
+            return;
+        }
+        byIncidentId.computeIfPresent(record.getIncidentId(), (incidentId, records) -> {
+            records.remove(record.getId());
+            return records.isEmpty() ? null : records;
+        });
+    }
+
+    /**
+     * The diagnostic records of one incident, kept sorted by timestamp.
+     * 
+     * Records usually arrive in time order, so inserts are almost always a
+     * plain append; late arrivals are placed with a binary search.
+     * Methods are synchronized so readers always copy a consistent list.
+     */
+    private static final class TimeOrderedRecords {
+        private final List<DiagnosticRecord> records = new ArrayList<>();
+
+        synchronized void insert(DiagnosticRecord record) {
+            int size = records.size();
+            if (size == 0 || TIME_ORDER.compare(records.get(size - 1), record) <= 0) {
+                records.add(record);
+                return;
+            }
+            int position = Collections.binarySearch(records, record, TIME_ORDER);
+            records.add(position >= 0 ? position + 1 : -(position + 1), record);
+        }
+
+        /** Inserts records that are already sorted, appending in one step when possible */
+        synchronized void insertAll(List<DiagnosticRecord> sorted) {
+            int size = records.size();
+            if (size == 0 || TIME_ORDER.compare(records.get(size - 1), sorted.get(0)) <= 0) {
+                records.addAll(sorted);
+                return;
+            }
+            for (DiagnosticRecord record : sorted) {
+                insert(record);
+            }
+        }
+
+        synchronized void remove(String recordId) {
+            // Overwrites are rare, and the old timestamp may no longer be known,
+            // so a linear scan by ID is simpler than a keyed search here
+            records.removeIf(existing -> recordId.equals(existing.getId()));
+        }
+
+        synchronized boolean isEmpty() {
+            return records.isEmpty();
+        }
+
+        synchronized List<DiagnosticRecord> copy() {
+            return new ArrayList<>(records);
+        }
+    }
 }
@@ -1,13 +1,24 @@
 package com.cloudops.incidents.repository;
 
 import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.ErrorType;
 import com.cloudops.incidents.model.Incident;
-import org.springframework.stereotype.Repository;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * In-memory implementation of IncidentRepository.
@@ -27,12 +38,20 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Uses ConcurrentHashMap for thread-safe storage
  * - Incident ID is the key, Incident object is the value
  * - All operations happen in memory (very fast)
+ * - Secondary indexes (serviceName, severity, status, errorType → incident IDs)
+ *   are kept up to date on every save/delete, so filtered lookups only touch
+ *   the matching incidents instead of scanning the whole map
+ * - A sorted index (timestamp, ID → incident ID) serves paginated and
+ *   time-range queries without sorting the store on every request
+ * - Incidents are immutable, so stored values are handed out as-is:
+ *   reads never copy or lock, and a result can't change after it's returned
+ * - Writes to one incident are serialized by ConcurrentHashMap.compute()
+ *   on its key; writes to different incidents don't block each other
  * 
  * To use a real database instead, create a different implementation
  * (e.g., SqliteIncidentRepository or DynamoDbIncidentRepository)
- * and Spring will automatically use it.
+ * and select it in RepositoryConfig.
  */
-@Repository
 public class InMemoryIncidentRepository implements IncidentRepository {
 
     /**
@@ -45,6 +64,25 @@ public class InMemoryIncidentRepository implements IncidentRepository {
      */
     private final Map<String, Incident> storage = new ConcurrentHashMap<>();
 
+    /**
+     * Secondary indexes: field value → IDs of incidents with that value.
+     *
+     * The enum indexes are pre-populated with one set per constant and are
+     * never modified structurally afterwards, so plain EnumMaps are safe to
+     * read from many threads. Service buckets come and go with the data.
+     */
+    private final Map<String, Set<String>> byServiceName = new ConcurrentHashMap<>();
+    private final Map<Severity, Set<String>> bySeverity = newEnumIndex(Severity.class);
+    private final Map<IncidentStatus, Set<String>> byStatus = newEnumIndex(IncidentStatus.class);
+    private final Map<ErrorType, Set<String>> byErrorType = newEnumIndex(ErrorType.class);
+
+    /**
+     * List order index used for pagination and time-range queries.
+     * Key: Position (creation timestamp, then ID)
+     * Value: Incident ID
+     */
+    private final ConcurrentNavigableMap<IncidentCursor, String> byCreationOrder = new ConcurrentSkipListMap<>();
+
     /**
      * Gets all incidents from memory.
      * 
@@ -86,16 +124,53 @@ public class InMemoryIncidentRepository implements IncidentRepository {
      * - Stores incident in HashMap using its ID as key
      * - If ID already exists, overwrites (update)
      * - If ID is new, creates new entry (create)
+     * - The replaced incident tells us which index entries are now stale
+     *   (it can't have changed since it was stored)
      * 
      * @param incident The incident to save
      * @return The saved incident (same object)
      */
     @Override
     public Incident save(Incident incident) {
-        storage.put(incident.getId(), incident);
+        storage.compute(incident.getId(), (id, previous) -> {
+            reindex(id, previous, incident);
+            return incident;
+        });
         return incident;
     }
 
+    /**
+     * Replaces an incident if it is still at the expected version.
+     * 
+     * Implementation:
+     * - The version check and the write happen inside the incident's
+     *   compute() lock, the same lock save() and deleteById() take,
+     *   so no other write to this incident can slip in between
+     * - Other incidents are not blocked (no global lock)
+     * 
+     * @param incident The new state of the incident
+     * @param expectedVersion The version the caller based its change on
+     * @return The stored incident (version expectedVersion + 1), or null if the stored version differs
+     * @throws ApiException with 404 status if incident doesn't exist
+     */
+    @Override
+    public Incident replace(Incident incident, long expectedVersion) {
+        Incident next = incident.withVersion(expectedVersion + 1);
+        Incident[] replaced = new Incident[1];
+        storage.compute(incident.getId(), (id, previous) -> {
+            if (previous == null) {
+                throw new ApiException("Incident not found with id: " + id, 404);
+            }
+            if (previous.getVersion() != expectedVersion) {
+                return previous;
+            }
+            reindex(id, previous, next);
+            replaced[0] = next;
+            return next;
+        });
+        return replaced[0];
+    }
+
     /**
      * Deletes an incident from memory.
      * 
@@ -105,13 +180,337 @@ public class InMemoryIncidentRepository implements IncidentRepository {
      * - Removes from HashMap if found
      * 
      * @param id The ID of the incident to delete
+     * @return The removed incident
      * @throws ApiException with 404 status if incident doesn't exist
      */
     @Override
-    public void deleteById(String id) {
-        if (!storage.containsKey(id)) {
-            throw new ApiException("Incident not found with id: " + id, 404);
+    public Incident deleteById(String id) {
+        Incident[] removed = new Incident[1];
+        storage.compute(id, (key, previous) -> {
+            if (previous == null) {
+                throw new ApiException("Incident not found with id: " + id, 404);
+            }
+            removeFromIndexes(key, previous, null);
+            removed[0] = previous;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Deletes an incident from memory if it is still at the expected version.
+     * The check and the removal happen inside the incident's compute() lock,
+     * like replace().
+     */
+    @Override
+    public Incident deleteById(String id, long expectedVersion) {
+        Incident[] removed = new Incident[1];
+        storage.compute(id, (key, previous) -> {
+            if (previous == null) {
+                throw new ApiException("Incident not found with id: " + id, 404);
+            }
+            if (previous.getVersion() != expectedVersion) {
+                return previous;
+            }
+            removeFromIndexes(key, previous, null);
+            removed[0] = previous;
+            return null;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public List<Incident> findByServiceName(String serviceName) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setServiceName(serviceName);
+        return findByFilter(filter);
+    }
+
+    @Override
+    public List<Incident> findBySeverity(Severity severity) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setSeverity(severity);
+        return findByFilter(filter);
+    }
+
+    @Override
+    public List<Incident> findByStatus(IncidentStatus status) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setStatus(status);
+        return findByFilter(filter);
+    }
+
+    @Override
+    public List<Incident> findByErrorType(ErrorType errorType) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setErrorType(errorType);
+        return findByFilter(filter);
+    }
+
+    /**
+     * Finds incidents matching all criteria of the filter using the indexes.
+     *
+     * Implementation:
+     * - Looks up the ID set for every non-null criterion
+     * - Picks the smallest set as the candidate list (intersection driver)
+     * - Checks each candidate against the remaining criteria
+     * - Time-range-only filters walk just that slice of the sorted index
+     * - Never scans the whole store unless the filter is empty
+     *
+     * @param filter The criteria to match (null fields are ignored)
+     * @return Matching incidents (empty list if none exist)
+     */
+    @Override
+    public List<Incident> findByFilter(IncidentFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return findAll();
+        }
+
+        List<Incident> result = new ArrayList<>();
+        if (!filter.hasIndexedCriteria()) {
+            // Time criteria only: walk the matching slice of the sorted index
+            collectInOrder(filter, null, Integer.MAX_VALUE, result);
+            return result;
+        }
+
+        for (String id : smallestCandidateSet(filter)) {
+            Incident incident = storage.get(id);
+            if (incident != null && filter.matches(incident)) {
+                result.add(incident);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts incidents.
+     * 
+     * Implementation: size of the HashMap, no iteration.
+     */
+    @Override
+    public long count() {
+        return storage.size();
+    }
+
+    /**
+     * Always healthy: memory has no backend that can go away.
+     */
+    @Override
+    public String checkHealth() {
+        return null;
+    }
+
+    /**
+     * Counts incidents with a severity.
+     * 
+     * Implementation: size of the severity index bucket. During a concurrent
+     * update an incident can briefly be in two buckets, so the count may be
+     * off by the number of in-flight updates.
+     */
+    @Override
+    public long countBySeverity(Severity severity) {
+        return bySeverity.get(severity).size();
+    }
+
+    /**
+     * Counts incidents in a status (size of the status index bucket).
+     */
+    @Override
+    public long countByStatus(IncidentStatus status) {
+        return byStatus.get(status).size();
+    }
+
+    /**
+     * Finds one page of incidents matching the filter, in list order.
+     *
+     * Implementation picks the cheaper of two strategies:
+     * - Walk the sorted index from the cursor, checking each incident against
+     *   the filter, until the page is full. Best when many incidents match.
+     * - Take the smallest index candidate set and keep the first {@code limit}
+     *   positions after the cursor in a bounded heap. Best for selective
+     *   filters, where a walk would skip over most of the store.
+     *
+     * The walk is expected to visit about limit * total / candidates entries,
+     * so candidates are used when candidates² &lt; limit * total.
+     *
+     * One extra incident is fetched to know whether a next page exists.
+     *
+     * @param filter The criteria to match (null or empty = all incidents)
+     * @param after Cursor of the last incident already seen (null = first page)
+     * @param limit Maximum number of incidents on the page
+     * @return The page, with a cursor for the next one if more results exist
+     */
+    @Override
+    public IncidentPage findPage(IncidentFilter filter, IncidentCursor after, int limit) {
+        IncidentFilter criteria = filter != null ? filter : new IncidentFilter();
+        int fetch = limit + 1;
+
+        List<Incident> matches = new ArrayList<>(Math.min(fetch, 1024));
+        Set<String> candidates = criteria.hasIndexedCriteria() ? smallestCandidateSet(criteria) : null;
+        if (candidates != null && (long) candidates.size() * candidates.size() < (long) fetch * byCreationOrder.size()) {
+            collectFromCandidates(candidates, criteria, after, fetch, matches);
+        } else {
+            collectInOrder(criteria, after, fetch, matches);
+        }
+
+        if (matches.size() <= limit) {
+            return new IncidentPage(matches, null);
+        }
+        List<Incident> items = new ArrayList<>(matches.subList(0, limit));
+        return new IncidentPage(items, IncidentCursor.of(items.get(limit - 1)));
+    }
+
+    /**
+     * Walks the sorted index within the filter's time range, starting after
+     * the cursor, and collects up to {@code max} matching incidents.
+     */
+    private void collectInOrder(IncidentFilter filter, IncidentCursor after, int max, List<Incident> out) {
+        NavigableMap<IncidentCursor, String> range = byCreationOrder;
+        IncidentCursor fromKey = filter.getFrom() != null ? new IncidentCursor(filter.getFrom(), "") : null;
+        if (after != null && (fromKey == null || after.compareTo(fromKey) >= 0)) {
+            range = range.tailMap(after, false);
+        } else if (fromKey != null) {
+            range = range.tailMap(fromKey, true);
+        }
+        if (filter.getTo() != null) {
+            range = range.headMap(new IncidentCursor(filter.getTo(), ""), false);
+        }
+
+        for (String id : range.values()) {
+            Incident incident = storage.get(id);
+            if (incident != null && filter.matches(incident)) {
+                out.add(incident);
+                if (out.size() >= max) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the first {@code max} matching candidates after the cursor using a
+     * bounded max-heap, then returns them in list order. O(candidates * log max).
+     */
+    private void collectFromCandidates(Set<String> candidates, IncidentFilter filter, IncidentCursor after,
+                                       int max, List<Incident> out) {
+        Comparator<Incident> listOrder = Comparator.comparing(IncidentCursor::of);
+        PriorityQueue<Incident> firstMatches = new PriorityQueue<>(Math.min(max, 1024), listOrder.reversed());
+        for (String id : candidates) {
+            Incident incident = storage.get(id);
+            if (incident == null || !filter.matches(incident)) {
+                continue;
+            }
+            if (after != null && IncidentCursor.of(incident).compareTo(after) <= 0) {
+                continue;
+            }
+            firstMatches.offer(incident);
+            if (firstMatches.size() > max) {
+                firstMatches.poll();
+            }
+        }
+        List<Incident> sorted = new ArrayList<>(firstMatches);
+        sorted.sort(listOrder);
+        out.addAll(sorted);
+    }
+
+    /**
+     * Looks up the ID set of every non-null indexed criterion and returns the
+     * smallest one. Callers must still verify candidates with filter.matches().
+     */
+    private Set<String> smallestCandidateSet(IncidentFilter filter) {
+        Set<String> candidates = null;
+        if (filter.getServiceName() != null) {
+            candidates = smaller(candidates, byServiceName.getOrDefault(filter.getServiceName(), Collections.emptySet()));
+        }
+        if (filter.getSeverity() != null) {
+            candidates = smaller(candidates, bySeverity.get(filter.getSeverity()));
+        }
+        if (filter.getStatus() != null) {
+            candidates = smaller(candidates, byStatus.get(filter.getStatus()));
+        }
+        if (filter.getErrorType() != null) {
+            candidates = smaller(candidates, byErrorType.get(filter.getErrorType()));
+        }
+        return candidates;
+    }
+
+    /**
+     * Moves an incident's index entries from its previous value (null for a
+     * new incident) to its current one. Called inside storage.compute().
+     */
+    private void reindex(String id, Incident previous, Incident current) {
+        IncidentCursor position = IncidentCursor.of(current);
+        // Add new entries before removing old ones so a concurrent query
+        // never misses the incident (stale hits are filtered out by matches())
+        addToIndexes(id, position, current);
+        if (previous != null) {
+            removeFromIndexes(id, previous, current);
+        }
+    }
+
+    /**
+     * Adds an incident ID to the index bucket of each of its field values.
+     * Service buckets are created inside compute() so they can't race with
+     * removal of an emptied bucket.
+     */
+    private void addToIndexes(String id, IncidentCursor position, Incident incident) {
+        byCreationOrder.put(position, id);
+        if (incident.getServiceName() != null) {
+            byServiceName.compute(incident.getServiceName(), (name, ids) -> {
+                Set<String> bucket = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                bucket.add(id);
+                return bucket;
+            });
+        }
+        if (incident.getSeverity() != null) {
+            bySeverity.get(incident.getSeverity()).add(id);
+        }
+        if (incident.getStatus() != null) {
+            byStatus.get(incident.getStatus()).add(id);
+        }
+        if (incident.getErrorType() != null) {
+            byErrorType.get(incident.getErrorType()).add(id);
+        }
+    }
+
+    /**
+     * Removes an incident ID from the buckets of its previous field values,
+     * skipping any value that is unchanged in the replacement (null on delete).
+     * Empty service buckets are dropped so the map doesn't grow forever.
+     */
+    private void removeFromIndexes(String id, Incident previous, Incident replacement) {
+        if (replacement == null || !Objects.equals(previous.getTimestamp(), replacement.getTimestamp())) {
+            byCreationOrder.remove(IncidentCursor.of(previous), id);
+        }
+        String serviceName = previous.getServiceName();
+        if (serviceName != null && (replacement == null || !serviceName.equals(replacement.getServiceName()))) {
+            byServiceName.computeIfPresent(serviceName, (name, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        if (previous.getSeverity() != null && (replacement == null || previous.getSeverity() != replacement.getSeverity())) {
+            bySeverity.get(previous.getSeverity()).remove(id);
+        }
+        if (previous.getStatus() != null && (replacement == null || previous.getStatus() != replacement.getStatus())) {
+            byStatus.get(previous.getStatus()).remove(id);
+        }
+        if (previous.getErrorType() != null && (replacement == null || previous.getErrorType() != replacement.getErrorType())) {
+            byErrorType.get(previous.getErrorType()).remove(id);
+        }
+    }
+
+    /** Returns whichever ID set is smaller (the first may be null) */
+    private static Set<String> smaller(Set<String> current, Set<String> other) {
+        return current == null || other.size() < current.size() ? other : current;
+    }
+
+    /** Creates an enum index with one concurrent ID set per constant */
+    private static <E extends Enum<E>> Map<E, Set<String>> newEnumIndex(Class<E> type) {
+        Map<E, Set<String>> index = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            index.put(value, ConcurrentHashMap.newKeySet());
         }
-        storage.remove(id);
+        return index;
     }
 }
@@ -0,0 +1,115 @@
+package com.cloudops.incidents.repository;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.Incident;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of an incident in the list order used for pagination.
+ *
+ * Incidents are listed by creation timestamp, oldest first, with the
+ * incident ID as a tie-breaker so the order is total and stable.
+ * A cursor marks the last incident of a page; the next page starts
+ * strictly after it (keyset pagination, no offsets).
+ *
+ * Clients only ever see the encoded form, an opaque URL-safe string.
+ * Example: "MTcwNTMyOTAwMC4wOjU1MGU4NDAw..."
+ */
+public final class IncidentCursor implements Comparable<IncidentCursor> {
+
+    /** Creation time of the incident at this position */
+    private final Instant timestamp;
+
+    /** ID of the incident at this position */
+    private final String id;
+
+    /**
+     * Creates a cursor at the given position.
+     *
+     * @param timestamp Creation time (null is treated as the epoch)
+     * @param id Incident ID
+     */
+    public IncidentCursor(Instant timestamp, String id) {
+        this.timestamp = timestamp != null ? timestamp : Instant.EPOCH;
+        this.id = id;
+    }
+
+    /**
+     * Creates the cursor pointing at an incident.
+     *
+     * @param incident The incident
+     * @return Cursor at that incident's position in list order
+     */
+    public static IncidentCursor of(Incident incident) {
+        return new IncidentCursor(incident.getTimestamp(), incident.getId());
+    }
+
+    /** Gets the creation time at this position */
+    public Instant getTimestamp() { return timestamp; }
+
+    /** Gets the incident ID at this position */
+    public String getId() { return id; }
+
+    /**
+     * Encodes this cursor as an opaque string for API clients.
+     *
+     * @return URL-safe Base64 string
+     */
+    public String encode() {
+        String raw = timestamp.getEpochSecond() + "." + timestamp.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously returned by encode().
+     *
+     * @param encoded The opaque cursor string from the client
+     * @return The decoded cursor
+     * @throws ApiException with 400 status if the cursor is malformed
+     */
+    public static IncidentCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int dot = raw.indexOf('.');
+            int colon = raw.indexOf(':');
+            if (dot < 0 || colon < dot) {
+                throw new IllegalArgumentException(raw);
+            }
+            long seconds = Long.parseLong(raw.substring(0, dot));
+            long nanos = Long.parseLong(raw.substring(dot + 1, colon));
+            return new IncidentCursor(Instant.ofEpochSecond(seconds, nanos), raw.substring(colon + 1));
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+            throw new ApiException("Invalid cursor: " + encoded, 400);
+        }
+    }
+
+    /**
+     * Orders cursors by timestamp, then by ID.
+     */
+    @Override
+    public int compareTo(IncidentCursor other) {
+        int byTime = timestamp.compareTo(other.timestamp);
+        return byTime != 0 ? byTime : id.compareTo(other.id);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof IncidentCursor)) {
+            return false;
+        }
+        IncidentCursor that = (IncidentCursor) other;
+        return timestamp.equals(that.timestamp) && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * timestamp.hashCode() + id.hashCode();
+    }
+}
@@ -0,0 +1,121 @@
+package com.cloudops.incidents.repository;
+
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+
+import java.time.Instant;
+
+/**
+ * Query criteria for looking up incidents by their indexed fields.
+ *
+ * Every criterion is optional. A null value means "don't filter on this field",
+ * and all non-null criteria must match (AND semantics).
+ *
+ * Example: all CRITICAL OPEN incidents for payment-processor
+ * IncidentFilter filter = new IncidentFilter();
+ * filter.setServiceName("payment-processor");
+ * filter.setSeverity(Severity.CRITICAL);
+ * filter.setStatus(IncidentStatus.OPEN);
+ */
+public class IncidentFilter {
+
+    /** Only incidents for this service (exact match) */
+    private String serviceName;
+
+    /** Only incidents with this severity */
+    private Severity severity;
+
+    /** Only incidents in this status */
+    private IncidentStatus status;
+
+    /** Only incidents with this error type */
+    private ErrorType errorType;
+
+    /** Only incidents created at or after this instant (inclusive) */
+    private Instant from;
+
+    /** Only incidents created before this instant (exclusive) */
+    private Instant to;
+
+    /** Only incidents last modified at or after this instant (not indexed) */
+    private Instant updatedSince;
+
+    /** Creates an empty filter that matches every incident */
+    public IncidentFilter() {}
+
+    /** Gets the service name criterion */
+    public String getServiceName() { return serviceName; }
+    /** Sets the service name criterion (null = any service) */
+    public void setServiceName(String serviceName) { this.serviceName = serviceName; }
+
+    /** Gets the severity criterion */
+    public Severity getSeverity() { return severity; }
+    /** Sets the severity criterion (null = any severity) */
+    public void setSeverity(Severity severity) { this.severity = severity; }
+
+    /** Gets the status criterion */
+    public IncidentStatus getStatus() { return status; }
+    /** Sets the status criterion (null = any status) */
+    public void setStatus(IncidentStatus status) { this.status = status; }
+
+    /** Gets the error type criterion */
+    public ErrorType getErrorType() { return errorType; }
+    /** Sets the error type criterion (null = any error type) */
+    public void setErrorType(ErrorType errorType) { this.errorType = errorType; }
+
+    /** Gets the lower bound of the creation time range */
+    public Instant getFrom() { return from; }
+    /** Sets the lower bound of the creation time range (inclusive, null = unbounded) */
+    public void setFrom(Instant from) { this.from = from; }
+
+    /** Gets the upper bound of the creation time range */
+    public Instant getTo() { return to; }
+    /** Sets the upper bound of the creation time range (exclusive, null = unbounded) */
+    public void setTo(Instant to) { this.to = to; }
+
+    /** Gets the last-modified lower bound */
+    public Instant getUpdatedSince() { return updatedSince; }
+    /** Sets the last-modified lower bound (inclusive, null = unbounded) */
+    public void setUpdatedSince(Instant updatedSince) { this.updatedSince = updatedSince; }
+
+    /**
+     * Checks whether this filter has no criteria at all.
+     *
+     * @return true if every criterion is null (filter matches everything)
+     */
+    public boolean isEmpty() {
+        return !hasIndexedCriteria() && from == null && to == null && updatedSince == null;
+    }
+
+    /**
+     * Checks whether any field-equality criterion is set
+     * (serviceName, severity, status or errorType).
+     *
+     * @return true if at least one indexed criterion is non-null
+     */
+    public boolean hasIndexedCriteria() {
+        return serviceName != null || severity != null || status != null || errorType != null;
+    }
+
+    /**
+     * Checks a single incident against every criterion of this filter.
+     *
+     * Repositories use this to verify index candidates, so a result is
+     * always consistent with the incident's current field values.
+     *
+     * @param incident The incident to check
+     * @return true if the incident matches all non-null criteria
+     */
+    public boolean matches(Incident incident) {
+        return (serviceName == null || serviceName.equals(incident.getServiceName()))
+                && (severity == null || severity == incident.getSeverity())
+                && (status == null || status == incident.getStatus())
+                && (errorType == null || errorType == incident.getErrorType())
+                && (from == null || (incident.getTimestamp() != null && !incident.getTimestamp().isBefore(from)))
+                && (to == null || (incident.getTimestamp() != null && incident.getTimestamp().isBefore(to)))
+                && (updatedSince == null
+                        || (incident.getUpdatedAt() != null && !incident.getUpdatedAt().isBefore(updatedSince)));
+    }
+}
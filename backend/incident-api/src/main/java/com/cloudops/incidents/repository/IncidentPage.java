@@ -0,0 +1,37 @@
+package com.cloudops.incidents.repository;
+
+import com.cloudops.incidents.model.Incident;
+
+import java.util.List;
+
+/**
+ * One page of incidents returned by a keyset-paginated query.
+ *
+ * Contains the incidents of this page (in list order) and the cursor
+ * to pass back for the next page. The cursor is null on the last page.
+ */
+public class IncidentPage {
+
+    /** Incidents on this page, oldest first */
+    private final List<Incident> items;
+
+    /** Position to continue from, or null if there are no more results */
+    private final IncidentCursor nextCursor;
+
+    /**
+     * Creates a page.
+     *
+     * @param items Incidents on this page
+     * @param nextCursor Cursor for the next page (null on the last page)
+     */
+    public IncidentPage(List<Incident> items, IncidentCursor nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /** Gets the incidents on this page */
+    public List<Incident> getItems() { return items; }
+
+    /** Gets the cursor for the next page (null on the last page) */
+    public IncidentCursor getNextCursor() { return nextCursor; }
+}
@@ -1,6 +1,9 @@
 package com.cloudops.incidents.repository;
 
+import com.cloudops.incidents.model.ErrorType;
 import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -20,8 +23,13 @@ import java.util.List;
  * Operations:
  * - findAll(): Get all incidents
  * - findById(): Get specific incident
+ * - findByServiceName/Severity/Status/ErrorType(): Indexed lookups by one field
+ * - findByFilter(): Indexed lookup combining several fields
+ * - findPage(): Filtered lookup, one keyset-paginated page at a time
+ * - count/countBySeverity/countByStatus(): Cheap totals for metrics
  * - save(): Create or update incident
- * - deleteById(): Remove incident
+ * - replace(): Update incident only if it is still at the expected version
+ * - deleteById(): Remove incident (optionally only if it is still at the expected version)
  */
 @Repository
 public interface IncidentRepository {
@@ -40,21 +48,150 @@ public interface IncidentRepository {
      * @return The incident if found, null otherwise
      */
     Incident findById(String id);
+
+    /**
+     * Finds all incidents reported for a specific service.
+     *
+     * @param serviceName The service name to match exactly
+     * @return Matching incidents (empty list if none exist)
+     */
+    List<Incident> findByServiceName(String serviceName);
+
+    /**
+     * Finds all incidents with a specific severity.
+     *
+     * @param severity The severity to match
+     * @return Matching incidents (empty list if none exist)
+     */
+    List<Incident> findBySeverity(Severity severity);
+
+    /**
+     * Finds all incidents in a specific status.
+     *
+     * @param status The status to match
+     * @return Matching incidents (empty list if none exist)
+     */
+    List<Incident> findByStatus(IncidentStatus status);
+
+    /**
+     * Finds all incidents with a specific error type.
+     *
+     * @param errorType The error type to match
+     * @return Matching incidents (empty list if none exist)
+     */
+    List<Incident> findByErrorType(ErrorType errorType);
+
+    /**
+     * Finds all incidents matching every criterion in the filter.
+     * Example: all CRITICAL OPEN incidents for payment-processor.
+     *
+     * @param filter The criteria to match (null fields are ignored)
+     * @return Matching incidents (empty list if none exist)
+     */
+    List<Incident> findByFilter(IncidentFilter filter);
+
+    /**
+     * Counts all stored incidents.
+     * 
+     * Used by the metrics gauges, which are read on every Prometheus
+     * scrape, so implementations must not load the incidents to count them.
+     * 
+     * @return Number of incidents
+     */
+    long count();
+
+    /**
+     * Counts incidents with a specific severity (without loading them).
+     * 
+     * @param severity The severity to count
+     * @return Number of matching incidents
+     */
+    long countBySeverity(Severity severity);
+
+    /**
+     * Counts incidents in a specific status (without loading them).
+     * 
+     * @param status The status to count
+     * @return Number of matching incidents
+     */
+    long countByStatus(IncidentStatus status);
+
+    /**
+     * Finds one page of incidents matching the filter, in list order
+     * (creation timestamp, then ID).
+     *
+     * Keyset pagination: the page starts strictly after the given cursor,
+     * so results stay stable while incidents are created or deleted.
+     *
+     * @param filter The criteria to match (null or empty = all incidents)
+     * @param after Cursor of the last incident already seen (null = first page)
+     * @param limit Maximum number of incidents on the page
+     * @return The page, with a cursor for the next one if more results exist
+     */
+    IncidentPage findPage(IncidentFilter filter, IncidentCursor after, int limit);
+
+    /**
+     * Checks whether the storage backend can currently serve requests.
+     * 
+     * Called by the readiness probe in the background (see HealthMonitor),
+     * so it must be cheap and must not block on I/O.
+     * 
+     * @return null if the backend is healthy, otherwise a short description of the problem
+     */
+    String checkHealth();
     
     /**
      * Saves an incident to storage.
      * If incident ID exists, updates it.
      * If incident ID is new, creates it.
      * 
+     * Incidents are immutable, so the stored value can be handed out to
+     * any number of readers without copying.
+     * 
      * @param incident The incident to save
      * @return The saved incident
      */
     Incident save(Incident incident);
+
+    /**
+     * Replaces a stored incident, but only if it is still at the expected
+     * version (compare-and-set). The stored copy gets version expectedVersion + 1.
+     * 
+     * This is how concurrent updates avoid overwriting each other: read the
+     * incident, build the changed copy, then replace. If someone else saved
+     * in between, the versions no longer match and nothing is written.
+     * 
+     * Example:
+     * Incident current = repository.findById(id);                      // version 3
+     * Incident changed = current.toBuilder().title("New title").build();
+     * Incident stored = repository.replace(changed, current.getVersion()); // version 4
+     * 
+     * @param incident The new state of the incident (its ID selects the incident)
+     * @param expectedVersion The version the caller based its change on
+     * @return The incident as stored (with its new version), or null if the stored version differs
+     * @throws ApiException with 404 status if the incident doesn't exist
+     */
+    Incident replace(Incident incident, long expectedVersion);
     
     /**
      * Deletes an incident from storage.
      * 
      * @param id The ID of the incident to delete
+     * @return The incident as it was when it was removed
+     * @throws ApiException with 404 status if the incident doesn't exist
+     */
+    Incident deleteById(String id);
+
+    /**
+     * Deletes an incident, but only if it is still at the expected version.
+     * 
+     * For removals decided on an earlier read (e.g. retention deleting a
+     * RESOLVED incident): if someone changed the incident since, it is kept.
+     * 
+     * @param id The ID of the incident to delete
+     * @param expectedVersion The version the caller based its decision on
+     * @return The incident as it was when it was removed, or null if the stored version differs
+     * @throws ApiException with 404 status if the incident doesn't exist
      */
-    void deleteById(String id);
+    Incident deleteById(String id, long expectedVersion);
 }
\ No newline at end of file
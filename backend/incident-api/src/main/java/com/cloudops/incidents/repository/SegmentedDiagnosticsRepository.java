@@ -0,0 +1,452 @@
+package com.cloudops.incidents.repository;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.persistence.MappedSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DiagnosticsRepository that keeps payloads off the Java heap.
+ * 
+ * DiagnosticRecord.data (log excerpts, probe output) is by far the largest
+ * part of a record. This repository splits records in two:
+ * - Metadata (id, incidentId, source, timestamp, payload location) stays on
+ *   the heap in an InMemoryDiagnosticsRepository, which provides the
+ *   per-incident, time-ordered index
+ * - Payload bytes go into append-only memory-mapped segment files
+ * 
+ * Heap use therefore grows with the number of records, not with log volume.
+ * Payloads are only turned into Strings when a caller asks for records;
+ * readPayload() returns a read-only view of the mapped bytes with no copy.
+ * 
+ * Segments are rolled when full or older than the configured age.
+ * Each entry also stores the record's metadata, so the on-heap index is
+ * rebuilt by scanning the segments on startup.
+ * 
+ * Deletes: deleteByIncidentId() appends a tombstone entry (an entry with a
+ * null record ID) so the records stay deleted after a restart. The number of
+ * live records per segment is tracked, and once the oldest segments hold no
+ * live records their files are deleted. Only the oldest end is reclaimed,
+ * so a tombstone is never removed while records it hides still exist on disk.
+ * 
+ * Enabled with incidents.persistence.diagnostics.mode=segments (see RepositoryConfig).
+ */
+public class SegmentedDiagnosticsRepository implements DiagnosticsRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentedDiagnosticsRepository.class);
+
+    /** Marks a null payload in the stored entry */
+    private static final int NULL_PAYLOAD = -1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long segmentMaxAgeMillis;
+
+    /** On-heap metadata and per-incident index (records hold no payload) */
+    private final InMemoryDiagnosticsRepository metadata = new InMemoryDiagnosticsRepository();
+
+    /** Open segments by number */
+    private final Map<Long, MappedSegment> segments = new ConcurrentHashMap<>();
+
+    /** Segment receiving appends (guarded by this) */
+    private MappedSegment active;
+
+    /** Number of live (not deleted or overwritten) records per segment (guarded by this) */
+    private final Map<Long, Integer> liveRecords = new HashMap<>();
+
+    /**
+     * Opens (or creates) a segment store in the given directory and rebuilds
+     * the metadata index from existing segments.
+     * 
+     * @param directory Where segment files are kept
+     * @param segmentSize Size of each segment file in bytes
+     * @param segmentMaxAge Start a new segment once the active one is this old
+     */
+    public SegmentedDiagnosticsRepository(Path directory, int segmentSize, Duration segmentMaxAge) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.segmentMaxAgeMillis = segmentMaxAge.toMillis();
+        recover();
+    }
+
+    /**
+     * Finds all diagnostic records for an incident, oldest first,
+     * with payloads read from the segments.
+     */
+    @Override
+    public List<DiagnosticRecord> findByIncidentId(String incidentId) {
+        List<DiagnosticRecord> stored = metadata.findByIncidentId(incidentId);
+        List<DiagnosticRecord> result = new ArrayList<>(stored.size());
+        for (DiagnosticRecord record : stored) {
+            result.add(materialize((StoredRecord) record));
+        }
+        return result;
+    }
+
+    /**
+     * Appends the record to the active segment and indexes its metadata.
+     */
+    @Override
+    public DiagnosticRecord save(DiagnosticRecord record) {
+        byte[] payload = record.getData() != null ? record.getData().getBytes(StandardCharsets.UTF_8) : null;
+        ByteBuffer entry = encode(record, payload);
+
+        synchronized (this) {
+            MappedSegment segment = activeSegmentFor(entry.remaining());
+            int offset = segment.append(entry);
+            // Indexed under the same lock so the index agrees with segment order on overwrites
+            StoredRecord stored = new StoredRecord(record, segment.getNumber(),
+                    offset + entry.limit() - payloadLength(payload), payload == null ? NULL_PAYLOAD : payload.length);
+            track(stored, (StoredRecord) metadata.findById(record.getId()));
+            metadata.save(stored);
+        }
+        return record;
+    }
+
+    /**
+     * Appends a batch of records under a single lock acquisition.
+     * Encoding happens before the lock is taken, so the critical section
+     * is just the copies into the mapped segment and the index update.
+     */
+    @Override
+    public List<DiagnosticRecord> saveAll(List<DiagnosticRecord> records) {
+        List<ByteBuffer> entries = new ArrayList<>(records.size());
+        int[] payloadLengths = new int[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            DiagnosticRecord record = records.get(i);
+            byte[] payload = record.getData() != null ? record.getData().getBytes(StandardCharsets.UTF_8) : null;
+            entries.add(encode(record, payload));
+            payloadLengths[i] = payload == null ? NULL_PAYLOAD : payload.length;
+        }
+
+        synchronized (this) {
+            List<DiagnosticRecord> stored = new ArrayList<>(records.size());
+            Map<String, StoredRecord> inBatch = new HashMap<>();
+            for (int i = 0; i < records.size(); i++) {
+                ByteBuffer entry = entries.get(i);
+                MappedSegment segment = activeSegmentFor(entry.remaining());
+                int offset = segment.append(entry);
+                int payloadOffset = offset + entry.limit() - Math.max(payloadLengths[i], 0);
+                StoredRecord record = new StoredRecord(records.get(i), segment.getNumber(), payloadOffset,
+                        payloadLengths[i]);
+                StoredRecord previous = inBatch.put(record.getId(), record);
+                track(record, previous != null ? previous : (StoredRecord) metadata.findById(record.getId()));
+                stored.add(record);
+            }
+            metadata.saveAll(stored);
+        }
+        return records;
+    }
+
+    /**
+     * Removes all records of an incident, writes a tombstone so they stay
+     * removed after a restart, and deletes segment files that no longer
+     * hold any live record.
+     * 
+     * @param incidentId The incident whose records to remove
+     * @return The removed records with their payloads, oldest first
+     */
+    @Override
+    public List<DiagnosticRecord> deleteByIncidentId(String incidentId) {
+        if (metadata.findByIncidentId(incidentId).isEmpty()) {
+            return Collections.emptyList();     // Common case, no lock or tombstone needed
+        }
+        ByteBuffer tombstone = encode(tombstone(incidentId), null);
+        synchronized (this) {
+            List<DiagnosticRecord> removed = metadata.deleteByIncidentId(incidentId);
+            List<DiagnosticRecord> result = new ArrayList<>(removed.size());
+            for (DiagnosticRecord record : removed) {
+                result.add(materialize((StoredRecord) record));     // Before its segment can be deleted
+                release(((StoredRecord) record).segment);
+            }
+            if (!removed.isEmpty()) {
+                activeSegmentFor(tombstone.remaining()).append(tombstone);
+                reclaim();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns a record's payload as a read-only view of the mapped segment.
+     * Nothing is copied onto the heap; decode or stream it as needed.
+     * 
+     * @param recordId The diagnostic record ID
+     * @return The payload bytes, or null if the record doesn't exist or has no data
+     */
+    public ByteBuffer readPayload(String recordId) {
+        StoredRecord stored = (StoredRecord) metadata.findById(recordId);
+        if (stored == null || stored.payloadLength == NULL_PAYLOAD) {
+            return null;
+        }
+        MappedSegment segment = segments.get(stored.segment);
+        // Missing if the record was deleted and its segment reclaimed after the lookup above
+        return segment == null ? null : segment.slice(stored.payloadOffset, stored.payloadLength);
+    }
+
+    /**
+     * Counts stored records (from the on-heap metadata).
+     */
+    @Override
+    public long count() {
+        return metadata.count();
+    }
+
+    /**
+     * Unhealthy when the disk no longer has room for another segment file,
+     * because the next roll-over would fail every save.
+     */
+    @Override
+    public String checkHealth() {
+        try {
+            long usable = Files.getFileStore(directory).getUsableSpace();
+            return usable < segmentSize ? "less than one segment of free disk space in " + directory : null;
+        } catch (IOException e) {
+            return "cannot read free space of " + directory + ": " + e.getMessage();
+        }
+    }
+
+    /**
+     * Flushes all segments to disk. Called by Spring on shutdown.
+     * (Mappings are released by the JVM once the segments are unreachable.)
+     */
+    @Override
+    public synchronized void close() {
+        for (MappedSegment segment : segments.values()) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Returns a segment with room for the entry, rolling to a new one when
+     * the active segment is full or too old. Caller holds the lock.
+     */
+    private MappedSegment activeSegmentFor(int entryBytes) {
+        int needed = Integer.BYTES + entryBytes;
+        boolean full = active == null || active.getWrittenBytes() + needed > active.getCapacity();
+        boolean expired = active != null && System.currentTimeMillis() - active.getCreatedAtMillis() >= segmentMaxAgeMillis;
+        if (full || expired) {
+            long next = active == null ? 1 : active.getNumber() + 1;
+            if (active != null) {
+                active.force();
+            }
+            Path file = directory.resolve(String.format("diagnostics-%010d.seg", next));
+            try {
+                active = MappedSegment.create(file, next, Math.max(segmentSize, needed));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create diagnostics segment " + file, e);
+            }
+            segments.put(next, active);
+        }
+        return active;
+    }
+
+    /**
+     * Maps every existing segment and re-indexes its entries in order.
+     * Appends continue in a new segment, so reopened ones are never written again.
+     */
+    private void recover() throws IOException {
+        long started = System.currentTimeMillis();
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "diagnostics-*.seg")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(12, name.length() - 4)), file);
+            }
+        }
+        long records = 0;
+        for (Map.Entry<Long, Path> entry : files.entrySet()) {
+            MappedSegment segment = MappedSegment.open(entry.getValue(), entry.getKey());
+            segments.put(entry.getKey(), segment);
+            List<StoredRecord> found = new ArrayList<>();
+            segment.scan((owner, offset, length) -> found.add(decode(owner, offset, length)));
+            for (StoredRecord record : found) {
+                if (record.getId() == null) {
+                    // Tombstone: drop everything saved for the incident so far
+                    for (DiagnosticRecord removed : metadata.deleteByIncidentId(record.getIncidentId())) {
+                        release(((StoredRecord) removed).segment);
+                        records--;
+                    }
+                } else {
+                    track(record, (StoredRecord) metadata.findById(record.getId()));
+                    metadata.save(record);
+                    records++;
+                }
+            }
+            active = segment;
+        }
+        if (active != null) {
+            // Never append to a reopened segment: force a roll on the next save
+            active = MappedSegment.create(directory.resolve(String.format("diagnostics-%010d.seg", active.getNumber() + 1)),
+                    active.getNumber() + 1, segmentSize);
+            segments.put(active.getNumber(), active);
+            reclaim();
+        }
+        log.info("Recovered {} diagnostic records from {} segments in {} ms", records, files.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Counts a newly stored record as live in its segment, and the version it
+     * replaces (if any) as no longer live. Caller holds the lock.
+     */
+    private void track(StoredRecord stored, StoredRecord previous) {
+        if (previous != null) {
+            release(previous.segment);
+        }
+        liveRecords.merge(stored.segment, 1, Integer::sum);
+    }
+
+    /** Counts one record of a segment as no longer live. Caller holds the lock. */
+    private void release(long segment) {
+        liveRecords.computeIfPresent(segment, (number, live) -> live > 1 ? live - 1 : null);
+    }
+
+    /**
+     * Deletes segment files from the oldest end while they hold no live
+     * records. The active segment is never deleted. Caller holds the lock.
+     */
+    private void reclaim() {
+        while (true) {
+            long oldest = Collections.min(segments.keySet());
+            MappedSegment segment = segments.get(oldest);
+            if (segment == active || liveRecords.containsKey(oldest)) {
+                return;
+            }
+            segments.remove(oldest);
+            try {
+                // An existing mapping stays readable until it is garbage collected
+                Files.deleteIfExists(segment.getFile());
+                log.info("Deleted diagnostics segment {} (no live records left)", segment.getFile().getFileName());
+            } catch (IOException e) {
+                log.warn("Cannot delete diagnostics segment {}", segment.getFile(), e);
+            }
+        }
+    }
+
+    /** A tombstone is an entry with no record ID, naming the incident whose records were deleted */
+    private static DiagnosticRecord tombstone(String incidentId) {
+        DiagnosticRecord tombstone = new DiagnosticRecord();
+        tombstone.setIncidentId(incidentId);
+        return tombstone;
+    }
+
+    /**
+     * Entry layout: id, incidentId, source (length-prefixed UTF-8),
+     * timestamp (epoch seconds UTC + nanos), payload length, payload bytes.
+     * The payload comes last so its offset is simply end - length.
+     */
+    private static ByteBuffer encode(DiagnosticRecord record, byte[] payload) {
+        byte[] id = utf8(record.getId());
+        byte[] incidentId = utf8(record.getIncidentId());
+        byte[] source = utf8(record.getSource());
+        int size = 3 * Integer.BYTES + lengthOf(id) + lengthOf(incidentId) + lengthOf(source)
+                + Long.BYTES + Integer.BYTES + Integer.BYTES + payloadLength(payload);
+        ByteBuffer entry = ByteBuffer.allocate(size);
+        putBytes(entry, id);
+        putBytes(entry, incidentId);
+        putBytes(entry, source);
+        LocalDateTime timestamp = record.getTimestamp();
+        entry.putLong(timestamp == null ? Long.MIN_VALUE : timestamp.toEpochSecond(ZoneOffset.UTC));
+        entry.putInt(timestamp == null ? 0 : timestamp.getNano());
+        putBytes(entry, payload);
+        entry.flip();
+        return entry;
+    }
+
+    private static StoredRecord decode(MappedSegment segment, int offset, int length) {
+        ByteBuffer entry = segment.slice(offset, length);
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setId(getString(entry));
+        record.setIncidentId(getString(entry));
+        record.setSource(getString(entry));
+        long seconds = entry.getLong();
+        int nanos = entry.getInt();
+        record.setTimestamp(seconds == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        int payloadLength = entry.getInt();
+        return new StoredRecord(record, segment.getNumber(), offset + entry.position(), payloadLength);
+    }
+
+    private DiagnosticRecord materialize(StoredRecord stored) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setId(stored.getId());
+        record.setIncidentId(stored.getIncidentId());
+        record.setSource(stored.getSource());
+        record.setTimestamp(stored.getTimestamp());
+        MappedSegment segment = segments.get(stored.segment);
+        // The segment is only missing if the record was deleted after the caller looked it up
+        if (stored.payloadLength != NULL_PAYLOAD && segment != null) {
+            record.setData(StandardCharsets.UTF_8.decode(
+                    segment.slice(stored.payloadOffset, stored.payloadLength)).toString());
+        }
+        return record;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static int payloadLength(byte[] payload) {
+        return payload == null ? 0 : payload.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * On-heap metadata of a stored record: the record without its data,
+     * plus where the payload lives.
+     */
+    private static final class StoredRecord extends DiagnosticRecord {
+        private final long segment;
+        private final int payloadOffset;
+        private final int payloadLength;
+
+        private StoredRecord(DiagnosticRecord record, long segment, int payloadOffset, int payloadLength) {
+            setId(record.getId());
+            setIncidentId(record.getIncidentId());
+            setSource(record.getSource());
+            setTimestamp(record.getTimestamp());
+            this.segment = segment;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+        }
+    }
+}
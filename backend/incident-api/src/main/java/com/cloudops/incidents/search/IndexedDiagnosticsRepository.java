@@ -0,0 +1,81 @@
+package com.cloudops.incidents.search;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.IncidentRepository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the SearchIndex up to date with any DiagnosticsRepository (decorator).
+ *
+ * Saved records are indexed right after they are stored (for batches from
+ * the ingestion pipeline, on the pipeline's worker threads), and records
+ * removed with deleteByIncidentId are removed from the index.
+ *
+ * Records already in the delegate (recovered segment files) are indexed
+ * when the decorator is created, incident by incident.
+ */
+public class IndexedDiagnosticsRepository implements DiagnosticsRepository, AutoCloseable {
+
+    private final DiagnosticsRepository delegate;
+    private final SearchIndex index;
+
+    /**
+     * @param delegate The repository doing the actual work
+     * @param index The index to keep up to date
+     * @param incidents Incidents whose existing records are indexed now
+     */
+    public IndexedDiagnosticsRepository(DiagnosticsRepository delegate, SearchIndex index, List<Incident> incidents) {
+        this.delegate = delegate;
+        this.index = index;
+        for (Incident incident : incidents) {
+            index.indexDiagnostics(delegate.findByIncidentId(incident.getId()));
+        }
+    }
+
+    @Override
+    public List<DiagnosticRecord> findByIncidentId(String incidentId) {
+        return delegate.findByIncidentId(incidentId);
+    }
+
+    @Override
+    public DiagnosticRecord save(DiagnosticRecord record) {
+        DiagnosticRecord stored = delegate.save(record);
+        index.indexDiagnostics(Collections.singletonList(stored));
+        return stored;
+    }
+
+    @Override
+    public List<DiagnosticRecord> saveAll(List<DiagnosticRecord> records) {
+        List<DiagnosticRecord> stored = delegate.saveAll(records);
+        index.indexDiagnostics(stored);
+        return stored;
+    }
+
+    @Override
+    public List<DiagnosticRecord> deleteByIncidentId(String incidentId) {
+        List<DiagnosticRecord> removed = delegate.deleteByIncidentId(incidentId);
+        index.removeDiagnostics(removed);
+        return removed;
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public String checkHealth() {
+        return delegate.checkHealth();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.cloudops.incidents.search;
+
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentCursor;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentPage;
+import com.cloudops.incidents.repository.IncidentRepository;
+
+import java.util.List;
+
+/**
+ * Keeps the SearchIndex up to date with any IncidentRepository (decorator).
+ *
+ * Every successful save, replace and delete is applied to the index right
+ * after the write, whoever made it (API requests, duplicate merges,
+ * retention). Reads go straight to the delegate.
+ *
+ * Incidents already in the delegate (recovered from the write-ahead log)
+ * are indexed when the decorator is created.
+ */
+public class IndexedIncidentRepository implements IncidentRepository, AutoCloseable {
+
+    private final IncidentRepository delegate;
+    private final SearchIndex index;
+
+    /**
+     * @param delegate The repository doing the actual work
+     * @param index The index to keep up to date
+     */
+    public IndexedIncidentRepository(IncidentRepository delegate, SearchIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+        for (Incident incident : delegate.findAll()) {
+            index.indexIncident(incident);
+        }
+    }
+
+    @Override
+    public List<Incident> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Incident findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Incident> findByServiceName(String serviceName) {
+        return delegate.findByServiceName(serviceName);
+    }
+
+    @Override
+    public List<Incident> findBySeverity(Severity severity) {
+        return delegate.findBySeverity(severity);
+    }
+
+    @Override
+    public List<Incident> findByStatus(IncidentStatus status) {
+        return delegate.findByStatus(status);
+    }
+
+    @Override
+    public List<Incident> findByErrorType(ErrorType errorType) {
+        return delegate.findByErrorType(errorType);
+    }
+
+    @Override
+    public List<Incident> findByFilter(IncidentFilter filter) {
+        return delegate.findByFilter(filter);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public long countBySeverity(Severity severity) {
+        return delegate.countBySeverity(severity);
+    }
+
+    @Override
+    public long countByStatus(IncidentStatus status) {
+        return delegate.countByStatus(status);
+    }
+
+    @Override
+    public IncidentPage findPage(IncidentFilter filter, IncidentCursor after, int limit) {
+        return delegate.findPage(filter, after, limit);
+    }
+
+    @Override
+    public String checkHealth() {
+        return delegate.checkHealth();
+    }
+
+    @Override
+    public Incident save(Incident incident) {
+        Incident stored = delegate.save(incident);
+        index.indexIncident(stored);
+        return stored;
+    }
+
+    @Override
+    public Incident replace(Incident incident, long expectedVersion) {
+        Incident stored = delegate.replace(incident, expectedVersion);
+        if (stored != null) {
+            index.indexIncident(stored);
+        }
+        return stored;
+    }
+
+    @Override
+    public Incident deleteById(String id) {
+        Incident removed = delegate.deleteById(id);
+        index.removeIncident(id);
+        return removed;
+    }
+
+    @Override
+    public Incident deleteById(String id, long expectedVersion) {
+        Incident removed = delegate.deleteById(id, expectedVersion);
+        if (removed != null) {
+            index.removeIncident(id);
+        }
+        return removed;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+}
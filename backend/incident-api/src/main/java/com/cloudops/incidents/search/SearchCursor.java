@@ -0,0 +1,79 @@
+package com.cloudops.incidents.search;
+
+import com.cloudops.incidents.exception.ApiException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a hit in search result order, for pagination.
+ *
+ * Hits are ordered by score, highest first, with the document number as a
+ * tie-breaker so the order is total (among equal scores, documents indexed
+ * earlier come first). A cursor marks the last hit of a page; the next page
+ * starts strictly after it (keyset pagination, like IncidentCursor).
+ *
+ * Document numbers are internal to SearchIndex and are handed out again
+ * when the index is rebuilt at startup, so, as when documents are added or
+ * changed between pages, the next page reflects the index as it is then.
+ *
+ * Clients only ever see the encoded form, an opaque URL-safe string.
+ */
+public final class SearchCursor {
+
+    private final double score;
+    private final int number;
+
+    /**
+     * @param score Score of the hit at this position
+     * @param number Document number of the hit in the index
+     */
+    public SearchCursor(double score, int number) {
+        this.score = score;
+        this.number = number;
+    }
+
+    /** Gets the score at this position */
+    public double getScore() { return score; }
+
+    /** Gets the document number at this position */
+    public int getNumber() { return number; }
+
+    /**
+     * Whether a hit comes after this position in result order.
+     */
+    public boolean isBefore(double otherScore, int otherNumber) {
+        return otherScore < score || (otherScore == score && otherNumber > number);
+    }
+
+    /**
+     * Encodes this cursor as an opaque string for API clients.
+     *
+     * @return URL-safe Base64 string
+     */
+    public String encode() {
+        String raw = Long.toHexString(Double.doubleToLongBits(score)) + ":" + number;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously returned by encode().
+     *
+     * @param encoded The opaque cursor string from the client
+     * @return The decoded cursor
+     * @throws ApiException with 400 status if the cursor is malformed
+     */
+    public static SearchCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int colon = raw.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException(raw);
+            }
+            double score = Double.longBitsToDouble(Long.parseUnsignedLong(raw.substring(0, colon), 16));
+            return new SearchCursor(score, Integer.parseInt(raw.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException("Invalid cursor: " + encoded, 400);
+        }
+    }
+}
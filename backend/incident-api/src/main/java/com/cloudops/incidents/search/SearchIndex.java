@@ -0,0 +1,607 @@
+package com.cloudops.incidents.search;
+
+import com.cloudops.incidents.dto.SearchIndexStatsResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.Incident;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index over incident titles and descriptions and
+ * diagnostic record data.
+ *
+ * Structure (an inverted index):
+ * - Every indexed incident or record is a document with an int document
+ *   number, handed out in increasing order
+ * - For every term (see Tokenizer) a postings list holds the numbers of the
+ *   documents containing it, sorted, with how often the term occurs in each
+ * - Every document remembers its terms, so it can be removed again
+ * - Documents are found by number in fixed-size pages. Numbers are never
+ *   reused, but old documents are removed roughly in order (retention), and
+ *   a page is freed once all its documents are gone
+ *
+ * Queries:
+ * - All query terms must match (AND). The shortest postings list is walked
+ *   and the others are searched with galloping search, so a query costs
+ *   about as much as its rarest term, not its most common one
+ * - Matches are ranked with BM25 (rare terms and short documents score
+ *   higher); title words count twice
+ * - Only the best limit + 1 hits are kept (bounded heap), and pages
+ *   continue from a SearchCursor
+ *
+ * Updates are incremental (see IndexedIncidentRepository and
+ * IndexedDiagnosticsRepository):
+ * - A new document is appended to the end of its terms' postings lists
+ * - A removed document is only counted as deleted in its terms' lists; a
+ *   list is compacted once more than half of it is deleted, so removal
+ *   stays cheap on average even for very common terms
+ * - Re-indexing an incident whose text did not change (a status change, a
+ *   merged duplicate) only updates its version
+ *
+ * Text is split into terms before the lock is taken. Writers then hold a
+ * write lock only while postings lists are updated; queries share a read
+ * lock.
+ *
+ * Memory use is estimated from the sizes of the arrays and the number of
+ * terms and documents, and reported by getStats() and as metrics:
+ * - search.index.documents{type=incident|diagnostic}: indexed documents
+ * - search.index.terms: distinct terms
+ * - search.index.memory: estimated heap used by the index, in bytes
+ */
+public class SearchIndex {
+
+    /** What kind of document a hit is */
+    public enum Type { INCIDENT, DIAGNOSTIC }
+
+    /** BM25 term frequency saturation */
+    private static final double K1 = 1.2;
+
+    /** BM25 document length normalization */
+    private static final double B = 0.75;
+
+    /** Each word of an incident title counts this many times */
+    private static final int TITLE_WEIGHT = 2;
+
+    /** Documents are found by number in pages of this many (a power of two) */
+    private static final int PAGE_SIZE = 4096;
+
+    // Rough per-object heap costs (64-bit JVM, compressed references) for the memory estimate
+    private static final int TERM_BYTES = 120;          // map entry, String, Postings, two array headers
+    private static final int DOCUMENT_BYTES = 130;      // Document, page slot, map entry, array headers
+    private static final int DOCUMENT_TERM_BYTES = 8;   // one term reference and frequency per document
+    private static final int POSTING_BYTES = 8;         // document number and frequency
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> terms = new HashMap<>();
+    private Document[][] pages = new Document[16][];
+    private int[] pageLive = new int[16];
+    private int documentCount;
+    private final Map<String, Document> incidents = new HashMap<>();
+    private final Map<String, Document> diagnostics = new HashMap<>();
+    private int nextNumber;
+    private long totalLength;
+    private long termChars;
+    private long postingSlots;
+    private long documentTerms;
+
+    /**
+     * A postings list: sorted document numbers containing one term.
+     */
+    private static final class Postings {
+        final String term;
+        int[] numbers = new int[2];
+        int[] frequencies = new int[2];
+        int size;
+        int deleted;
+
+        Postings(String term) {
+            this.term = term;
+        }
+    }
+
+    /**
+     * An indexed incident or diagnostic record.
+     */
+    private static final class Document {
+        final int number;
+        final Type type;
+        final String id;
+        final String incidentId;
+        final long version;
+        final int length;
+        final Postings[] terms;
+        final int[] frequencies;
+
+        Document(int number, Type type, String id, String incidentId, long version, int length,
+                 Postings[] terms, int[] frequencies) {
+            this.number = number;
+            this.type = type;
+            this.id = id;
+            this.incidentId = incidentId;
+            this.version = version;
+            this.length = length;
+            this.terms = terms;
+            this.frequencies = frequencies;
+        }
+
+        Document withVersion(long newVersion) {
+            return new Document(number, type, id, incidentId, newVersion, length, terms, frequencies);
+        }
+    }
+
+    /**
+     * One search hit.
+     */
+    public static final class Match {
+        private final int number;
+        private final Type type;
+        private final String id;
+        private final String incidentId;
+        private final double score;
+
+        Match(int number, Type type, String id, String incidentId, double score) {
+            this.number = number;
+            this.type = type;
+            this.id = id;
+            this.incidentId = incidentId;
+            this.score = score;
+        }
+
+        /** Gets whether this is an incident or a diagnostic record */
+        public Type getType() { return type; }
+
+        /** Gets the incident or diagnostic record ID */
+        public String getId() { return id; }
+
+        /** Gets the incident the hit belongs to (its own ID for incidents) */
+        public String getIncidentId() { return incidentId; }
+
+        /** Gets the relevance score (higher is better) */
+        public double getScore() { return score; }
+    }
+
+    /**
+     * One page of search results.
+     */
+    public static final class Result {
+        private final long total;
+        private final List<Match> matches;
+        private final SearchCursor next;
+
+        Result(long total, List<Match> matches, SearchCursor next) {
+            this.total = total;
+            this.matches = matches;
+            this.next = next;
+        }
+
+        /** Gets the number of documents matching the query (all pages) */
+        public long getTotal() { return total; }
+
+        /** Gets the hits on this page, best first */
+        public List<Match> getMatches() { return matches; }
+
+        /** Gets the cursor for the next page (null on the last page) */
+        public SearchCursor getNext() { return next; }
+    }
+
+    /**
+     * @param meterRegistry Where the index size metrics are registered
+     */
+    public SearchIndex(MeterRegistry meterRegistry) {
+        Gauge.builder("search.index.documents", this, index -> index.size(Type.INCIDENT))
+                .description("Documents in the full-text index")
+                .tag("type", "incident")
+                .register(meterRegistry);
+        Gauge.builder("search.index.documents", this, index -> index.size(Type.DIAGNOSTIC))
+                .description("Documents in the full-text index")
+                .tag("type", "diagnostic")
+                .register(meterRegistry);
+        Gauge.builder("search.index.terms", this, index -> index.getStats().getTerms())
+                .description("Distinct terms in the full-text index")
+                .register(meterRegistry);
+        Gauge.builder("search.index.memory", this, index -> index.getStats().getMemoryBytes())
+                .description("Estimated heap used by the full-text index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds an incident's title and description to the index, or updates them.
+     * A version older than the one already indexed is ignored, so racing
+     * writers can't leave outdated text behind.
+     *
+     * @param incident The stored incident
+     */
+    public void indexIncident(Incident incident) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        Tokenizer.count(incident.getTitle(), TITLE_WEIGHT, frequencies);
+        Tokenizer.count(incident.getDescription(), 1, frequencies);
+        lock.writeLock().lock();
+        try {
+            add(Type.INCIDENT, incident.getId(), incident.getId(), incident.getVersion(), frequencies);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an incident from the index.
+     *
+     * @param id The incident ID
+     */
+    public void removeIncident(String id) {
+        lock.writeLock().lock();
+        try {
+            remove(incidents.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds diagnostic records' data to the index (replacing earlier records with the same IDs).
+     *
+     * @param records The stored records
+     */
+    public void indexDiagnostics(Collection<DiagnosticRecord> records) {
+        List<Map<String, Integer>> frequencies = new ArrayList<>(records.size());
+        for (DiagnosticRecord record : records) {
+            Map<String, Integer> counts = new HashMap<>();
+            Tokenizer.count(record.getData(), 1, counts);
+            frequencies.add(counts);
+        }
+        lock.writeLock().lock();
+        try {
+            int i = 0;
+            for (DiagnosticRecord record : records) {
+                add(Type.DIAGNOSTIC, record.getId(), record.getIncidentId(), 0, frequencies.get(i++));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes diagnostic records from the index.
+     *
+     * @param records The removed records
+     */
+    public void removeDiagnostics(Collection<DiagnosticRecord> records) {
+        lock.writeLock().lock();
+        try {
+            for (DiagnosticRecord record : records) {
+                remove(diagnostics.remove(record.getId()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents containing every term of the query, best first.
+     *
+     * @param query The words to search for
+     * @param type Only this kind of document (null = both)
+     * @param after Cursor of the last hit already seen (null = first page)
+     * @param limit Maximum number of hits on the page
+     * @return One page of hits
+     * @throws ApiException with 400 status if the query has no searchable words
+     */
+    public Result search(String query, Type type, SearchCursor after, int limit) {
+        List<String> queryTerms = Tokenizer.queryTerms(query);
+        if (queryTerms.isEmpty()) {
+            throw new ApiException("Query must contain at least one word of 2 or more letters or digits"
+                    + " (common words like 'the' and 'to' are ignored)", 400);
+        }
+        Comparator<Match> bestFirst = Comparator.comparingDouble(Match::getScore).reversed()
+                .thenComparingInt(match -> match.number);
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[queryTerms.size()];
+            for (int t = 0; t < lists.length; t++) {
+                lists[t] = terms.get(queryTerms.get(t));
+                if (lists[t] == null) {
+                    return new Result(0, Collections.emptyList(), null);
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(postings -> postings.size));
+
+            double averageLength = (double) totalLength / documentCount;
+            double[] idf = new double[lists.length];
+            for (int t = 0; t < lists.length; t++) {
+                int df = lists[t].size - lists[t].deleted;
+                idf[t] = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            }
+
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 2, bestFirst.reversed());
+            int[] positions = new int[lists.length];
+            int[] frequencies = new int[lists.length];
+            long total = 0;
+            Postings lead = lists[0];
+            candidates:
+            for (int i = 0; i < lead.size; i++) {
+                int number = lead.numbers[i];
+                frequencies[0] = lead.frequencies[i];
+                for (int t = 1; t < lists.length; t++) {
+                    Postings other = lists[t];
+                    int position = advance(other, positions[t], number);
+                    positions[t] = position;
+                    if (position == other.size) {
+                        break candidates;       // A shorter list ran out: no more matches
+                    }
+                    if (other.numbers[position] != number) {
+                        continue candidates;
+                    }
+                    frequencies[t] = other.frequencies[position];
+                }
+                Document document = document(number);
+                if (document == null || (type != null && document.type != type)) {
+                    continue;   // Deleted (not compacted yet) or filtered out
+                }
+
+                double score = 0;
+                double norm = K1 * (1 - B + B * document.length / averageLength);
+                for (int t = 0; t < lists.length; t++) {
+                    score += idf[t] * frequencies[t] * (K1 + 1) / (frequencies[t] + norm);
+                }
+                total++;
+                if (after != null && !after.isBefore(score, number)) {
+                    continue;
+                }
+                if (best.size() > limit && best.peek().getScore() >= score) {
+                    continue;   // Can't make the page (ties go to the earlier number); skip the allocation
+                }
+                best.offer(new Match(number, document.type, document.id, document.incidentId, score));
+                if (best.size() > limit + 1) {
+                    best.poll();
+                }
+            }
+
+            List<Match> matches = new ArrayList<>(best);
+            matches.sort(bestFirst);
+            SearchCursor next = null;
+            if (matches.size() > limit) {
+                matches = new ArrayList<>(matches.subList(0, limit));
+                Match last = matches.get(limit - 1);
+                next = new SearchCursor(last.getScore(), last.number);
+            }
+            return new Result(total, matches, next);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the index size and estimated memory use.
+     */
+    public SearchIndexStatsResponse getStats() {
+        SearchIndexStatsResponse stats = new SearchIndexStatsResponse();
+        lock.readLock().lock();
+        try {
+            stats.setIncidents(incidents.size());
+            stats.setDiagnostics(diagnostics.size());
+            stats.setTerms(terms.size());
+            stats.setPostings(documentTerms);
+            stats.setMemoryBytes((long) terms.size() * TERM_BYTES + termChars
+                    + postingSlots * POSTING_BYTES
+                    + (long) documentCount * DOCUMENT_BYTES + documentTerms * DOCUMENT_TERM_BYTES
+                    + (long) pages.length * Long.BYTES + (long) pageCount() * PAGE_SIZE * Integer.BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    private int size(Type type) {
+        lock.readLock().lock();
+        try {
+            return type == Type.INCIDENT ? incidents.size() : diagnostics.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces one document. Caller holds the write lock.
+     */
+    private void add(Type type, String id, String incidentId, long version, Map<String, Integer> frequencies) {
+        Map<String, Document> byId = type == Type.INCIDENT ? incidents : diagnostics;
+        Document existing = byId.get(id);
+        if (existing != null) {
+            if (existing.version > version) {
+                return;     // A newer version was indexed already
+            }
+            if (sameTerms(existing, frequencies)) {
+                Document updated = existing.withVersion(version);
+                byId.put(id, updated);
+                pages[existing.number / PAGE_SIZE][existing.number % PAGE_SIZE] = updated;
+                return;
+            }
+            remove(existing);
+        }
+
+        int number = nextNumber++;
+        Postings[] documentPostings = new Postings[frequencies.size()];
+        int[] documentFrequencies = new int[frequencies.size()];
+        int length = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Postings postings = terms.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings(entry.getKey());
+                terms.put(postings.term, postings);
+                termChars += postings.term.length();
+                postingSlots += postings.numbers.length;
+            }
+            append(postings, number, entry.getValue());
+            documentPostings[i] = postings;
+            documentFrequencies[i] = entry.getValue();
+            length += entry.getValue();
+            i++;
+        }
+        Document document = new Document(number, type, id, incidentId, version, length,
+                documentPostings, documentFrequencies);
+        store(document);
+        byId.put(id, document);
+        totalLength += length;
+        documentTerms += documentPostings.length;
+    }
+
+    /**
+     * Removes a document (null = nothing to remove). The caller has already
+     * removed it from the by-ID map. Caller holds the write lock.
+     */
+    private void remove(Document document) {
+        if (document == null) {
+            return;
+        }
+        int page = document.number / PAGE_SIZE;
+        pages[page][document.number % PAGE_SIZE] = null;
+        if (--pageLive[page] == 0 && page != nextNumber / PAGE_SIZE) {
+            pages[page] = null;     // Every document on it is gone and no new ones will be added
+        }
+        documentCount--;
+        totalLength -= document.length;
+        documentTerms -= document.terms.length;
+        for (Postings postings : document.terms) {
+            postings.deleted++;
+            if (postings.deleted * 2 > postings.size) {
+                compact(postings);
+            }
+        }
+    }
+
+    /**
+     * Finds a live document by number (null if it was removed).
+     */
+    private Document document(int number) {
+        Document[] page = pages[number / PAGE_SIZE];
+        return page != null ? page[number % PAGE_SIZE] : null;
+    }
+
+    /**
+     * Puts a new document into its page, adding pages as numbers grow.
+     */
+    private void store(Document document) {
+        int page = document.number / PAGE_SIZE;
+        if (page == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+            pageLive = Arrays.copyOf(pageLive, pageLive.length * 2);
+        }
+        if (pages[page] == null) {
+            pages[page] = new Document[PAGE_SIZE];
+        }
+        pages[page][document.number % PAGE_SIZE] = document;
+        pageLive[page]++;
+        documentCount++;
+    }
+
+    private int pageCount() {
+        int count = 0;
+        for (Document[] page : pages) {
+            if (page != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean sameTerms(Document document, Map<String, Integer> frequencies) {
+        if (document.terms.length != frequencies.size()) {
+            return false;
+        }
+        for (int i = 0; i < document.terms.length; i++) {
+            Integer frequency = frequencies.get(document.terms[i].term);
+            if (frequency == null || frequency != document.frequencies[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(Postings postings, int number, int frequency) {
+        if (postings.size == postings.numbers.length) {
+            int capacity = postings.size * 2;
+            postingSlots += capacity - postings.numbers.length;
+            postings.numbers = Arrays.copyOf(postings.numbers, capacity);
+            postings.frequencies = Arrays.copyOf(postings.frequencies, capacity);
+        }
+        postings.numbers[postings.size] = number;
+        postings.frequencies[postings.size] = frequency;
+        postings.size++;
+    }
+
+    /**
+     * Drops deleted documents from a postings list, shrinking its arrays,
+     * or drops the whole term if nothing is left.
+     */
+    private void compact(Postings postings) {
+        int kept = 0;
+        for (int i = 0; i < postings.size; i++) {
+            if (document(postings.numbers[i]) != null) {
+                postings.numbers[kept] = postings.numbers[i];
+                postings.frequencies[kept] = postings.frequencies[i];
+                kept++;
+            }
+        }
+        postingSlots -= postings.numbers.length;
+        if (kept == 0) {
+            terms.remove(postings.term);
+            termChars -= postings.term.length();
+            postings.size = 0;
+            postings.deleted = 0;
+            return;
+        }
+        int capacity = Math.max(2, kept + kept / 2);
+        postings.numbers = Arrays.copyOf(postings.numbers, capacity);
+        postings.frequencies = Arrays.copyOf(postings.frequencies, capacity);
+        postingSlots += capacity;
+        postings.size = kept;
+        postings.deleted = 0;
+    }
+
+    /**
+     * Finds the first position at or after {@code from} whose document
+     * number is at least {@code target}: doubling steps, then binary search.
+     *
+     * @return That position, or size if there is none
+     */
+    private static int advance(Postings postings, int from, int target) {
+        int[] numbers = postings.numbers;
+        int size = postings.size;
+        if (from >= size || numbers[from] >= target) {
+            return from;
+        }
+        int low = from;     // numbers[low] < target
+        int step = 1;
+        while (low + step < size && numbers[low + step] < target) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, size);  // numbers[high] >= target, or high == size
+        int first = low + 1;
+        while (first < high) {
+            int middle = (first + high) >>> 1;
+            if (numbers[middle] < target) {
+                first = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return first;
+    }
+}
@@ -0,0 +1,82 @@
+package com.cloudops.incidents.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into search terms.
+ *
+ * A term is a run of letters and digits, lowercased:
+ * "Timeout connecting to RDS (db-prod-1)" -> timeout, connecting, rds, db, prod
+ *
+ * Dropped terms:
+ * - Single characters ("1" in db-prod-1)
+ * - Common English words that match almost everything (to, the, of, ...)
+ * - Terms longer than MAX_TERM_LENGTH (hashes, base64 blobs), which would
+ *   only grow the dictionary without ever being searched for
+ *
+ * There is no stemming: "connecting" does not match "connection".
+ * Documents and queries go through the same rules, so a query word that is
+ * dropped here is simply ignored.
+ */
+public final class Tokenizer {
+
+    /** Longest term that is indexed */
+    public static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "that", "the", "this", "to", "was", "with"));
+
+    private Tokenizer() {}
+
+    /**
+     * Counts the terms of a text into a term-frequency map.
+     *
+     * @param text The text (null is ignored)
+     * @param weight How much each occurrence counts (e.g. more for titles)
+     * @param frequencies Map to add the counts to
+     */
+    public static void count(String text, int weight, Map<String, Integer> frequencies) {
+        forEachTerm(text, term -> frequencies.merge(term, weight, Integer::sum));
+    }
+
+    /**
+     * Gets the distinct terms of a search query, in query order.
+     *
+     * @param query The query text
+     * @return The terms to look up (empty if the query has no searchable words)
+     */
+    public static List<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        forEachTerm(query, terms::add);
+        return new ArrayList<>(terms);
+    }
+
+    private static void forEachTerm(String text, Consumer<String> action) {
+        if (text == null) {
+            return;
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+                continue;
+            }
+            if (term.length() > 1 && term.length() <= MAX_TERM_LENGTH) {
+                String word = term.toString();
+                if (!STOP_WORDS.contains(word)) {
+                    action.accept(word);
+                }
+            }
+            term.setLength(0);
+        }
+    }
+}
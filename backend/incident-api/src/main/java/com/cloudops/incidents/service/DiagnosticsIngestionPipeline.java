@@ -0,0 +1,280 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.dto.DiagnosticBatchResponse;
+import com.cloudops.incidents.dto.DiagnosticRequest;
+import com.cloudops.incidents.dto.IngestionStatsResponse;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.util.UuidGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Staged, bounded pipeline that stores diagnostic batches off the request thread.
+ *
+ * Stages:
+ * 1. Accept  - the HTTP thread checks the batch size and offers it to the queue
+ *              (the controller has validated the records already)
+ * 2. Queue   - a fixed-size ring buffer (ArrayBlockingQueue) of pending batches
+ * 3. Enrich  - a worker checks that the incidents exist and assigns IDs/timestamps
+ *              (DiagnosticsService.prepareBatch)
+ * 4. Persist - the same worker writes the batch in one call (DiagnosticsService.persistBatch)
+ *
+ * Backpressure:
+ * When the queue is full, submit() returns null right away instead of blocking.
+ * The controller turns that into HTTP 429 with a Retry-After estimate, so a burst
+ * from the diagnostics-ingestor can never hold Tomcat threads that the incident
+ * CRUD endpoints need. Workers run on their own small thread pool for the same reason.
+ *
+ * Invalid records are refused with 400 before the batch is queued. Only the
+ * incident lookup needs the store, so it runs after the client got its 202:
+ * records for unknown incidents are counted (see getStats) and logged.
+ *
+ * Shutdown: close() stops accepting, lets the workers drain what is queued
+ * and waits up to the configured timeout for them to finish.
+ */
+public class DiagnosticsIngestionPipeline implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticsIngestionPipeline.class);
+
+    /** How long an idle worker waits for a batch before re-checking for shutdown */
+    private static final long POLL_MILLIS = 100;
+
+    /** Retry-After is clamped to this range (seconds) */
+    private static final long MIN_RETRY_AFTER = 1;
+    private static final long MAX_RETRY_AFTER = 30;
+
+    private final DiagnosticsService diagnosticsService;
+    private final BlockingQueue<Job> queue;
+    private final int capacity;
+    private final int workers;
+    private final Duration shutdownTimeout;
+    private final ExecutorService executor;
+
+    private volatile boolean closed;
+
+    // Counters
+    private final LongAdder batchesAccepted = new LongAdder();
+    private final LongAdder batchesDropped = new LongAdder();
+    private final LongAdder batchesFailed = new LongAdder();
+    private final LongAdder recordsAccepted = new LongAdder();
+    private final LongAdder recordsDropped = new LongAdder();
+    private final LongAdder recordsStored = new LongAdder();
+    private final LongAdder recordsRejected = new LongAdder();
+
+    // Stage latencies
+    private final StageTimer queueWait = new StageTimer();
+    private final StageTimer enrich = new StageTimer();
+    private final StageTimer persist = new StageTimer();
+
+    /**
+     * Creates the pipeline and starts its worker threads.
+     *
+     * @param diagnosticsService Does the actual validation and storage
+     * @param workers Number of worker threads
+     * @param capacity Maximum number of batches waiting in the queue
+     * @param shutdownTimeout How long close() waits for queued batches to drain
+     */
+    public DiagnosticsIngestionPipeline(DiagnosticsService diagnosticsService, int workers, int capacity,
+                                        Duration shutdownTimeout) {
+        if (workers < 1 || capacity < 1) {
+            throw new IllegalArgumentException("workers and capacity must be at least 1");
+        }
+        this.diagnosticsService = diagnosticsService;
+        this.workers = workers;
+        this.capacity = capacity;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "diagnostics-ingest-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * Queues a batch for asynchronous storage.
+     *
+     * Never blocks: if the queue is full (or the pipeline is shutting down)
+     * the batch is dropped and null is returned.
+     *
+     * @param requests The records to store
+     * @return The batch ID assigned to the queued batch, or null if it was not accepted
+     * @throws com.cloudops.incidents.exception.ApiException with 400/413 status if the batch size is invalid
+     */
+    public String submit(List<DiagnosticRequest> requests) {
+        diagnosticsService.checkBatchSize(requests);
+        Job job = new Job(UuidGenerator.timeOrdered().generate(), requests, System.nanoTime());
+        if (closed || !queue.offer(job)) {
+            batchesDropped.increment();
+            recordsDropped.add(requests.size());
+            return null;
+        }
+        batchesAccepted.increment();
+        recordsAccepted.add(requests.size());
+        return job.batchId;
+    }
+
+    /**
+     * Estimates how long a client should wait before retrying a dropped batch:
+     * the time the workers need to work through a full queue at the average
+     * observed speed, clamped to 1-30 seconds.
+     *
+     * @return Suggested Retry-After in seconds
+     */
+    public long retryAfterSeconds() {
+        long perBatchNanos = enrich.averageNanos() + persist.averageNanos();
+        long drainNanos = perBatchNanos * queue.size() / workers;
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(drainNanos) + 1;
+        return Math.max(MIN_RETRY_AFTER, Math.min(MAX_RETRY_AFTER, seconds));
+    }
+
+    /**
+     * Gets the number of batches currently waiting in the queue.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Takes a snapshot of the pipeline's counters and stage latencies.
+     *
+     * @return Queue depth, accept/drop counts and per-stage timings
+     */
+    public IngestionStatsResponse getStats() {
+        IngestionStatsResponse stats = new IngestionStatsResponse();
+        stats.setQueueDepth(queue.size());
+        stats.setQueueCapacity(capacity);
+        stats.setWorkers(workers);
+        stats.setBatchesAccepted(batchesAccepted.sum());
+        stats.setBatchesDropped(batchesDropped.sum());
+        stats.setBatchesFailed(batchesFailed.sum());
+        stats.setRecordsAccepted(recordsAccepted.sum());
+        stats.setRecordsDropped(recordsDropped.sum());
+        stats.setRecordsStored(recordsStored.sum());
+        stats.setRecordsRejected(recordsRejected.sum());
+        stats.setQueueWait(queueWait.snapshot());
+        stats.setEnrich(enrich.snapshot());
+        stats.setPersist(persist.snapshot());
+        return stats;
+    }
+
+    /**
+     * Stops accepting batches and waits for queued ones to be stored.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Diagnostics pipeline did not drain within {}; {} batches dropped", shutdownTimeout, queue.size());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Worker loop: take a batch, run the enrich and persist stages, repeat.
+     * Exits once the pipeline is closed and the queue is empty.
+     */
+    private void runWorker() {
+        while (true) {
+            Job job;
+            try {
+                job = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (job == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            process(job);
+        }
+    }
+
+    private void process(Job job) {
+        long dequeued = System.nanoTime();
+        queueWait.record(dequeued - job.enqueuedAt);
+        try {
+            List<DiagnosticRecord> valid = new ArrayList<>(job.requests.size());
+            DiagnosticBatchResponse result = diagnosticsService.prepareBatch(job.requests, valid);
+            long enriched = System.nanoTime();
+            enrich.record(enriched - dequeued);
+
+            diagnosticsService.persistBatch(valid);
+            persist.record(System.nanoTime() - enriched);
+
+            recordsStored.add(result.getAccepted());
+            recordsRejected.add(result.getRejected());
+            if (result.getRejected() > 0) {
+                DiagnosticBatchResponse.BatchError first = result.getErrors().get(0);
+                log.warn("Diagnostics batch {}: rejected {} of {} records (first: #{} {})", job.batchId,
+                        result.getRejected(), job.requests.size(), first.getIndex(), first.getMessage());
+            }
+        } catch (RuntimeException e) {
+            batchesFailed.increment();
+            log.error("Diagnostics batch {} failed ({} records)", job.batchId, job.requests.size(), e);
+        }
+    }
+
+    /**
+     * A batch waiting in the queue.
+     */
+    private static final class Job {
+        final String batchId;
+        final List<DiagnosticRequest> requests;
+        final long enqueuedAt;
+
+        Job(String batchId, List<DiagnosticRequest> requests, long enqueuedAt) {
+            this.batchId = batchId;
+            this.requests = requests;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * Lock-free count/total/max of one stage's durations.
+     */
+    private static final class StageTimer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        long averageNanos() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / n;
+        }
+
+        IngestionStatsResponse.StageLatency snapshot() {
+            return new IngestionStatsResponse.StageLatency(count.sum(),
+                    TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMicros(averageNanos()),
+                    TimeUnit.NANOSECONDS.toMicros(maxNanos.get()));
+        }
+    }
+}
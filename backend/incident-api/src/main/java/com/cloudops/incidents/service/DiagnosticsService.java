@@ -1,18 +1,39 @@
 package com.cloudops.incidents.service;
 
+import com.cloudops.incidents.dto.DiagnosticBatchResponse;
+import com.cloudops.incidents.dto.DiagnosticRequest;
+import com.cloudops.incidents.exception.ApiException;
 import com.cloudops.incidents.model.DiagnosticRecord;
 import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.util.UuidGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class DiagnosticsService {
 
+    /** Largest batch accepted in one upload */
+    public static final int MAX_BATCH_SIZE = 10_000;
+
     @Autowired
     private DiagnosticsRepository diagnosticsRepository;
 
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private Validator validator;
+
     public List<DiagnosticRecord> getDiagnosticsByIncident(String incidentId) {
         return diagnosticsRepository.findByIncidentId(incidentId);
     }
@@ -20,4 +41,121 @@ public class DiagnosticsService {
     public DiagnosticRecord saveDiagnostic(DiagnosticRecord record) {
         return diagnosticsRepository.save(record);
     }
-}
\ No newline at end of file
+
+    /**
+     * Rejects batches that are empty or larger than MAX_BATCH_SIZE.
+     * 
+     * @param requests The batch to check
+     * @throws ApiException with 400 status if the batch is empty, 413 if it is too large
+     */
+    public void checkBatchSize(List<DiagnosticRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ApiException("Batch must contain at least one diagnostic record", 400);
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new ApiException("Batch must not exceed " + MAX_BATCH_SIZE + " records", 413);
+        }
+    }
+
+    /**
+     * Checks every record of a batch against the validation rules of
+     * DiagnosticRequest, without touching the store. Cheap enough to run on
+     * the request thread, so clients learn about bad records right away.
+     * 
+     * @param requests The records to check
+     * @return Rejected count and per-record errors by index (none if all are valid)
+     */
+    public DiagnosticBatchResponse validateBatch(List<DiagnosticRequest> requests) {
+        DiagnosticBatchResponse response = new DiagnosticBatchResponse();
+        for (int i = 0; i < requests.size(); i++) {
+            String error = validate(requests.get(i));
+            if (error != null) {
+                response.getErrors().add(new DiagnosticBatchResponse.BatchError(i, error));
+            }
+        }
+        response.setRejected(response.getErrors().size());
+        return response;
+    }
+
+    /**
+     * Turns the entries of a batch that passed validateBatch into DiagnosticRecords.
+     * 
+     * This method:
+     * 1. Checks that each record's incident exists
+     * 2. Assigns IDs, and one receive timestamp for the whole batch to records without one
+     * 3. Adds each valid record to the given list, in batch order
+     * 
+     * Each distinct incident ID is looked up once per batch, not once per record.
+     * Records for unknown incidents are reported in the response and left out of the list.
+     * Nothing is stored yet; pass the list to persistBatch for that.
+     * 
+     * @param requests The records to check (already validated by validateBatch)
+     * @param valid Receives the records whose incident exists
+     * @return Counts, assigned IDs and per-record errors
+     * @throws ApiException if the incident store fails (the whole batch fails, nothing is rejected)
+     */
+    public DiagnosticBatchResponse prepareBatch(List<DiagnosticRequest> requests, List<DiagnosticRecord> valid) {
+        LocalDateTime receivedAt = LocalDateTime.now(ZoneOffset.UTC);
+        Map<String, Boolean> incidentExists = new HashMap<>();
+        DiagnosticBatchResponse response = new DiagnosticBatchResponse();
+
+        for (int i = 0; i < requests.size(); i++) {
+            DiagnosticRequest request = requests.get(i);
+            if (!incidentExists.computeIfAbsent(request.getIncidentId(), this::incidentExists)) {
+                response.getErrors().add(new DiagnosticBatchResponse.BatchError(i,
+                        "Incident not found with id: " + request.getIncidentId()));
+                continue;
+            }
+            DiagnosticRecord record = new DiagnosticRecord();
+            record.setId(UuidGenerator.timeOrdered().generate());
+            record.setIncidentId(request.getIncidentId());
+            record.setSource(request.getSource());
+            record.setData(request.getData());
+            record.setTimestamp(request.getTimestamp() != null ? request.getTimestamp() : receivedAt);
+            valid.add(record);
+            response.getIds().add(record.getId());
+        }
+
+        response.setAccepted(response.getIds().size());
+        response.setRejected(response.getErrors().size());
+        return response;
+    }
+
+    /**
+     * Stores prepared records as a single batched repository write.
+     * 
+     * @param records Records returned by prepareBatch (may be empty)
+     */
+    public void persistBatch(List<DiagnosticRecord> records) {
+        if (!records.isEmpty()) {
+            diagnosticsRepository.saveAll(records);
+        }
+    }
+
+    /**
+     * Checks one record and returns the first problem found, or null if it is valid.
+     */
+    private String validate(DiagnosticRequest request) {
+        if (request == null) {
+            return "Record must not be null";
+        }
+        Set<ConstraintViolation<DiagnosticRequest>> violations = validator.validate(request);
+        return violations.isEmpty() ? null : violations.iterator().next().getMessage();
+    }
+
+    /**
+     * Only a 404 means the incident doesn't exist; other errors (e.g. 503 from
+     * an unavailable store) are passed on instead of rejecting good records.
+     */
+    private boolean incidentExists(String incidentId) {
+        try {
+            incidentRepository.findById(incidentId);
+            return true;
+        } catch (ApiException e) {
+            if (e.getStatusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.config.HealthProperties;
+import com.cloudops.incidents.dto.HealthResponse;
+import com.cloudops.incidents.dto.IngestionStatsResponse;
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.IncidentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the liveness and readiness of this instance in the background.
+ *
+ * Probes hit /health/ready every few seconds from every load balancer, so
+ * they must not do any work themselves. Instead, a single thread refreshes
+ * all checks every refresh-interval and publishes the result as one
+ * immutable snapshot; the probe endpoints just return the latest one.
+ *
+ * Readiness checks (all must pass):
+ * - incidentRepository / diagnosticsRepository: the storage backend reports no problem
+ * - ingestionQueue: the diagnostics queue is below max-queue-saturation
+ * - heap: at least min-heap-free of the max heap is free after the last GC
+ * - latency: p99 API latency of the recent window is below max-p99-latency
+ *
+ * Liveness only checks that this monitor is still refreshing: if it stops,
+ * the JVM is wedged (deadlock, GC thrashing) and should be restarted.
+ *
+ * The latency window is the difference between two snapshots of the
+ * incidents.http.requests histograms (see EndpointMetricsInterceptor), so
+ * requests pay nothing extra for it. Health probes and the NDJSON export
+ * (which runs as long as the export is big) are left out.
+ */
+public class HealthMonitor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HealthMonitor.class);
+
+    private static final String REQUEST_TIMER = "incidents.http.requests";
+
+    /** Streaming export, whose duration reflects the export size rather than overload */
+    private static final String EXPORT_URI = "/api/incidents/export";
+
+    private final IncidentRepository incidentRepository;
+    private final DiagnosticsRepository diagnosticsRepository;
+    private final DiagnosticsIngestionPipeline pipeline;
+    private final MeterRegistry meterRegistry;
+    private final HealthProperties properties;
+    private final ScheduledExecutorService scheduler;
+
+    /** Latest readiness result, replaced as a whole on every refresh */
+    private volatile HealthResponse readiness;
+
+    /** System.nanoTime() of the last completed refresh */
+    private volatile long refreshedAt;
+
+    // Latency window baseline (only touched by the refresh thread)
+    private Map<Double, Long> baselineBuckets = Collections.emptyMap();
+    private long baselineCount;
+    private long baselineAt;
+
+    /**
+     * Runs the checks once, then keeps refreshing them every refresh-interval.
+     */
+    public HealthMonitor(IncidentRepository incidentRepository, DiagnosticsRepository diagnosticsRepository,
+                         DiagnosticsIngestionPipeline pipeline, MeterRegistry meterRegistry,
+                         HealthProperties properties) {
+        this.incidentRepository = incidentRepository;
+        this.diagnosticsRepository = diagnosticsRepository;
+        this.pipeline = pipeline;
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.baselineAt = System.nanoTime();
+        refresh();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = properties.getRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the latest readiness result (no work is done here).
+     */
+    public HealthResponse getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * Gets the liveness result: UP while the checks keep being refreshed.
+     */
+    public HealthResponse getLiveness() {
+        HealthResponse current = readiness;
+        long age = System.nanoTime() - refreshedAt;
+        boolean fresh = age < properties.getStaleAfter().toNanos();
+        HealthResponse liveness = new HealthResponse(fresh ? HealthResponse.UP : HealthResponse.DOWN,
+                current != null ? current.getCheckedAt() : null);
+        liveness.getChecks().put("monitor", fresh
+                ? HealthResponse.Check.up("checks refreshed " + TimeUnit.NANOSECONDS.toMillis(age) + " ms ago")
+                : HealthResponse.Check.down("checks not refreshed for " + TimeUnit.NANOSECONDS.toSeconds(age) + " s"));
+        return liveness;
+    }
+
+    /**
+     * Recomputes every readiness check and publishes the result.
+     * Runs on the monitor thread; tests call it directly instead of waiting.
+     */
+    public void refresh() {
+        try {
+            HealthResponse next = new HealthResponse(HealthResponse.UP, Instant.now());
+            next.getChecks().put("incidentRepository", checkIncidentRepository());
+            next.getChecks().put("diagnosticsRepository", checkDiagnosticsRepository());
+            next.getChecks().put("ingestionQueue", checkIngestionQueue());
+            next.getChecks().put("heap", checkHeap());
+            next.getChecks().put("latency", checkLatency());
+            for (HealthResponse.Check check : next.getChecks().values()) {
+                if (!HealthResponse.UP.equals(check.getStatus())) {
+                    next.setStatus(HealthResponse.DOWN);
+                }
+            }
+
+            HealthResponse previous = readiness;
+            if (previous != null && !previous.getStatus().equals(next.getStatus())) {
+                log.warn("Readiness changed to {}: {}", next.getStatus(), describeFailures(next));
+            }
+            readiness = next;
+            refreshedAt = System.nanoTime();
+        } catch (RuntimeException e) {
+            // Keep the scheduler alive; liveness reports the gap if this keeps failing
+            log.error("Health refresh failed", e);
+        }
+    }
+
+    /**
+     * Stops the refresh thread. Called by Spring on shutdown.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private HealthResponse.Check checkIncidentRepository() {
+        try {
+            String problem = incidentRepository.checkHealth();
+            return problem != null
+                    ? HealthResponse.Check.down(problem)
+                    : HealthResponse.Check.up(incidentRepository.count() + " incidents");
+        } catch (RuntimeException e) {
+            return HealthResponse.Check.down(e.toString());
+        }
+    }
+
+    private HealthResponse.Check checkDiagnosticsRepository() {
+        try {
+            String problem = diagnosticsRepository.checkHealth();
+            return problem != null
+                    ? HealthResponse.Check.down(problem)
+                    : HealthResponse.Check.up(diagnosticsRepository.count() + " records");
+        } catch (RuntimeException e) {
+            return HealthResponse.Check.down(e.toString());
+        }
+    }
+
+    private HealthResponse.Check checkIngestionQueue() {
+        IngestionStatsResponse stats = pipeline.getStats();
+        double saturation = (double) stats.getQueueDepth() / stats.getQueueCapacity();
+        String detail = String.format("%d/%d batches queued (%.0f%%)",
+                stats.getQueueDepth(), stats.getQueueCapacity(), saturation * 100);
+        return saturation >= properties.getMaxQueueSaturation()
+                ? HealthResponse.Check.down(detail)
+                : HealthResponse.Check.up(detail);
+    }
+
+    /**
+     * Heap headroom, measured as the heap still in use right after each
+     * pool's last collection. Plain "used" includes garbage that the next
+     * young GC frees, which would make the check flap under normal load.
+     */
+    private HealthResponse.Check checkHeap() {
+        long max = Runtime.getRuntime().maxMemory();
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            used += afterGc != null ? afterGc.getUsed() : pool.getUsage().getUsed();
+        }
+        double free = max > 0 ? 1.0 - (double) used / max : 1.0;
+        String detail = String.format("%.0f%% of %d MB free after GC", free * 100, max / (1024 * 1024));
+        return free < properties.getMinHeapFree()
+                ? HealthResponse.Check.down(detail)
+                : HealthResponse.Check.up(detail);
+    }
+
+    /**
+     * p99 of API requests since the window started, from histogram bucket deltas.
+     *
+     * A window is judged once it holds min-latency-samples requests, then a new
+     * one starts. A quiet window is restarted after latency-window, so an
+     * instance taken out of rotation recovers once its slow requests age out.
+     */
+    private HealthResponse.Check checkLatency() {
+        Map<Double, Long> buckets = new TreeMap<>();
+        long count = 0;
+        for (Timer timer : meterRegistry.find(REQUEST_TIMER).timers()) {
+            String uri = timer.getId().getTag("uri");
+            if (uri != null && (uri.startsWith("/health") || uri.equals(EXPORT_URI))) {
+                continue;
+            }
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            count += snapshot.count();
+            for (CountAtBucket bucket : snapshot.histogramCounts()) {
+                buckets.merge(bucket.bucket(), (long) bucket.count(), Long::sum);
+            }
+        }
+
+        long now = System.nanoTime();
+        long windowCount = count - baselineCount;
+        boolean windowExpired = now - baselineAt >= properties.getLatencyWindow().toNanos();
+        if (windowCount < 0) {
+            // Meters were reset or re-registered: start over
+            startWindow(buckets, count, now);
+            return HealthResponse.Check.up("latency window restarted");
+        }
+        if (windowCount < properties.getMinLatencySamples()) {
+            if (windowExpired) {
+                startWindow(buckets, count, now);
+            }
+            return HealthResponse.Check.up("not enough requests to judge (" + windowCount + ")");
+        }
+
+        if (buckets.isEmpty()) {
+            return HealthResponse.Check.up("no latency histogram published");
+        }
+        long target = (long) Math.ceil(windowCount * 0.99);
+        double p99Nanos = Double.POSITIVE_INFINITY;
+        for (Map.Entry<Double, Long> bucket : buckets.entrySet()) {
+            if (bucket.getValue() - baselineBuckets.getOrDefault(bucket.getKey(), 0L) >= target) {
+                p99Nanos = bucket.getKey();
+                break;
+            }
+        }
+        startWindow(buckets, count, now);
+
+        double limitNanos = properties.getMaxP99Latency().toNanos();
+        String detail = Double.isInfinite(p99Nanos)
+                ? "p99 above the largest histogram bucket over " + windowCount + " requests"
+                : String.format("p99 <= %.0f ms over %d requests", p99Nanos / 1_000_000, windowCount);
+        return p99Nanos > limitNanos
+                ? HealthResponse.Check.down(detail)
+                : HealthResponse.Check.up(detail);
+    }
+
+    private void startWindow(Map<Double, Long> buckets, long count, long now) {
+        baselineBuckets = buckets;
+        baselineCount = count;
+        baselineAt = now;
+    }
+
+    private static String describeFailures(HealthResponse health) {
+        StringBuilder failures = new StringBuilder();
+        health.getChecks().forEach((name, check) -> {
+            if (!HealthResponse.UP.equals(check.getStatus())) {
+                failures.append(failures.length() == 0 ? "" : "; ").append(name).append(": ").append(check.getDetail());
+            }
+        });
+        return failures.length() == 0 ? "all checks pass" : failures.toString();
+    }
+}
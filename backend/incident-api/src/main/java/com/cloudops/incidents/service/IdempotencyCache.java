@@ -0,0 +1,177 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.exception.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of each request sent with an Idempotency-Key, so a
+ * client that retries (for example after a timeout) gets the original
+ * result back instead of doing the work twice.
+ *
+ * Behaviour for a key:
+ * - First request: runs the action and remembers its result for the TTL
+ * - Retry after it finished: returns the remembered result
+ * - Retry while it is still running: waits for that run and returns its
+ *   result (concurrent requests are coalesced into one)
+ * - Same key with a different request body: 422, the key is being misused
+ * - Failed action: nothing is remembered, so the client may retry
+ *
+ * Concurrency: retries arrive exactly when the system is busiest, so there
+ * is no global lock. Keys live in a ConcurrentHashMap and the first request
+ * claims a key with putIfAbsent; everyone else waits on that request's
+ * CompletableFuture, not on a lock.
+ *
+ * Bounded memory: keys are also queued in arrival order. Each new key
+ * forgets keys from the front of the queue while they have expired or the
+ * cache holds more than maxKeys. Since every key has the same TTL, arrival
+ * order is also expiry order, so this never scans the whole cache.
+ *
+ * Metrics (prefixed with the name given to the constructor):
+ * - {name}.idempotency.replays: requests answered from the cache
+ * - {name}.idempotency.keys: keys currently remembered
+ *
+ * @param <T> Type of the remembered result
+ */
+public class IdempotencyCache<T> {
+
+    /** Longest key accepted, to keep the cache's memory per entry small */
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final long ttlMillis;
+    private final int maxKeys;
+    private final Clock clock;
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<T>> arrivalOrder = new ConcurrentLinkedQueue<>();
+    private final Counter replays;
+
+    /**
+     * @param name Metric name prefix (e.g. "incidents.create")
+     * @param ttl How long a key is remembered
+     * @param maxKeys Most keys remembered at once
+     * @param clock Source of "now" for expiry
+     * @param meterRegistry Where the cache's metrics are registered
+     */
+    public IdempotencyCache(String name, Duration ttl, int maxKeys, Clock clock, MeterRegistry meterRegistry) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        this.replays = Counter.builder(name + ".idempotency.replays")
+                .description("Requests answered with the remembered result of an earlier request with the same key")
+                .register(meterRegistry);
+        Gauge.builder(name + ".idempotency.keys", entries, Map::size)
+                .description("Idempotency keys currently remembered")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action once per key, or returns the result of the run that
+     * already happened (or is happening) for that key.
+     *
+     * @param key Client-chosen key from the Idempotency-Key header
+     * @param request What the request asked for; a replay must ask for the same (compared with equals)
+     * @param action Does the work when this is the first request with the key
+     * @return The action's result, from this run or an earlier one
+     * @throws ApiException with 400 status for an empty or overlong key
+     * @throws ApiException with 422 status if the key was used for a different request
+     */
+    public T execute(String key, Object request, Supplier<T> action) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new ApiException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters", 400);
+        }
+        long now = clock.millis();
+        Entry<T> claim = new Entry<>(key, request, now + ttlMillis);
+        while (true) {
+            Entry<T> existing = entries.putIfAbsent(key, claim);
+            if (existing == null) {
+                arrivalOrder.add(claim);
+                evict(now);
+                return run(claim, action);
+            }
+            if (existing.expiresAt <= now) {
+                entries.remove(key, existing);
+                continue;
+            }
+            if (!Objects.equals(existing.request, request)) {
+                throw new ApiException("Idempotency-Key " + key + " was already used for a different request", 422);
+            }
+            T result = await(existing);
+            replays.increment();
+            return result;
+        }
+    }
+
+    /**
+     * Gets the number of keys currently remembered.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private T run(Entry<T> claim, Supplier<T> action) {
+        try {
+            T result = action.get();
+            claim.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            // Forget the key so the client can retry; requests already waiting get the same error
+            entries.remove(claim.key, claim);
+            claim.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private T await(Entry<T> entry) {
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets keys from the front of the arrival queue while they have
+     * expired or there are too many.
+     */
+    private void evict(long now) {
+        Entry<T> oldest;
+        while ((oldest = arrivalOrder.peek()) != null
+                && (oldest.expiresAt <= now || entries.size() > maxKeys)) {
+            if (arrivalOrder.remove(oldest)) {
+                // Only removes the mapping if it still is this entry (not a newer one for the same key)
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    /**
+     * One key's request and its (possibly still pending) result.
+     */
+    private static final class Entry<T> {
+        final String key;
+        final Object request;
+        final long expiresAt;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Entry(String key, Object request, long expiresAt) {
+            this.key = key;
+            this.request = request;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.dto.IncidentAggregationResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentFilter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rolling, pre-aggregated incident counts by creation time.
+ *
+ * Time is cut into fixed buckets (default 1 minute) kept in a ring covering
+ * the retention window (default 24h = 1440 buckets). Each bucket counts its
+ * incidents per combination of serviceName, severity, errorType and status.
+ *
+ * IncidentService calls record(previous, current) after every create,
+ * update and delete, which moves one count from the old combination to the
+ * new one. A query then only reads buckets x combinations and never touches
+ * the incidents themselves, so its cost doesn't grow with the store.
+ *
+ * Old buckets are not cleaned up: a ring slot is simply reused when time
+ * comes round to it again, and changes to incidents older than the window
+ * are ignored.
+ *
+ * Counts are eventually consistent: two concurrent updates of one incident
+ * may apply their moves in either order, but both are applied.
+ */
+public class IncidentAggregator {
+
+    /** Largest number of buckets a single query may return */
+    public static final int MAX_POINTS = 10_000;
+
+    /** Fields incidents can be grouped and filtered by */
+    public enum Dimension {
+        SERVICE_NAME("serviceName"),
+        SEVERITY("severity"),
+        ERROR_TYPE("errorType"),
+        STATUS("status");
+
+        private final String field;
+
+        Dimension(String field) {
+            this.field = field;
+        }
+
+        /** Gets the field name used in the API (e.g. "serviceName") */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * Looks up a dimension by its API field name.
+         *
+         * @throws ApiException with 400 status for an unknown field
+         */
+        public static Dimension fromField(String field) {
+            for (Dimension dimension : values()) {
+                if (dimension.field.equalsIgnoreCase(field.trim())) {
+                    return dimension;
+                }
+            }
+            throw new ApiException("Cannot group by '" + field + "'; use serviceName, severity, errorType or status", 400);
+        }
+    }
+
+    private final long bucketMillis;
+    private final int slots;
+    private final Clock clock;
+    private final AtomicReferenceArray<Bucket> ring;
+
+    /**
+     * @param bucketSize Finest time resolution
+     * @param retention How far back counts are kept (a multiple of bucketSize)
+     * @param clock Source of "now" (decides which buckets are still retained)
+     */
+    public IncidentAggregator(Duration bucketSize, Duration retention, Clock clock) {
+        this.bucketMillis = bucketSize.toMillis();
+        if (bucketMillis <= 0 || retention.toMillis() % bucketMillis != 0) {
+            throw new IllegalArgumentException("retention must be a positive multiple of bucket-size");
+        }
+        this.slots = (int) (retention.toMillis() / bucketMillis);
+        this.clock = clock;
+        this.ring = new AtomicReferenceArray<>(slots);
+    }
+
+    /**
+     * Applies one incident change to the counts.
+     *
+     * @param previous The incident before the change (null when it was created)
+     * @param current The incident after the change (null when it was deleted)
+     */
+    public void record(Incident previous, Incident current) {
+        if (previous != null && current != null && GroupKey.of(previous).equals(GroupKey.of(current))
+                && Objects.equals(previous.getTimestamp(), current.getTimestamp())) {
+            return;     // Nothing counted changed (e.g. only the title was edited)
+        }
+        if (previous != null) {
+            add(previous, -1);
+        }
+        if (current != null) {
+            add(current, 1);
+        }
+    }
+
+    /**
+     * Counts incidents per interval and group.
+     *
+     * @param from Start of the range (rounded down to an interval; null = retention before to)
+     * @param to End of the range (rounded up to an interval; null = now)
+     * @param interval Length of each returned bucket (a multiple of the bucket size)
+     * @param groupBy Fields to group by (empty = one series with every incident)
+     * @param filter Only count incidents matching its serviceName/severity/status/errorType (may be null)
+     * @return Counts per group and interval
+     * @throws ApiException with 400 status for an invalid range or interval
+     */
+    public IncidentAggregationResponse aggregate(Instant from, Instant to, Duration interval,
+                                                 List<Dimension> groupBy, IncidentFilter filter) {
+        long intervalMillis = interval.toMillis();
+        if (intervalMillis <= 0 || intervalMillis % bucketMillis != 0) {
+            throw new ApiException("interval must be a multiple of " + Duration.ofMillis(bucketMillis), 400);
+        }
+        long perPoint = intervalMillis / bucketMillis;
+        long now = currentIndex();
+        long oldest = now - slots + 1;
+
+        long toIndex = to != null ? Math.floorDiv(to.toEpochMilli() + bucketMillis - 1, bucketMillis) : now + 1;
+        long fromIndex = from != null ? Math.floorDiv(from.toEpochMilli(), bucketMillis) : toIndex - slots;
+        // Widen to whole intervals so buckets start at round times (14:00, 14:05, ...)
+        fromIndex = Math.floorDiv(fromIndex, perPoint) * perPoint;
+        toIndex = -Math.floorDiv(-toIndex, perPoint) * perPoint;
+        if (fromIndex >= toIndex) {
+            throw new ApiException("from must be before to", 400);
+        }
+        long points = (toIndex - fromIndex) / perPoint;
+        if (points > MAX_POINTS) {
+            throw new ApiException("Range and interval give " + points + " buckets; the maximum is " + MAX_POINTS, 400);
+        }
+
+        // Sum every retained bucket into its output point, per projected group
+        Map<GroupKey, long[]> series = new HashMap<>();
+        for (long index = Math.max(fromIndex, oldest); index < Math.min(toIndex, now + 1); index++) {
+            Bucket bucket = ring.get(slot(index));
+            if (bucket == null || bucket.index != index) {
+                continue;
+            }
+            int point = (int) ((index - fromIndex) / perPoint);
+            for (Map.Entry<GroupKey, LongAdder> entry : bucket.counts.entrySet()) {
+                long count = entry.getValue().sum();
+                if (count <= 0 || !entry.getKey().matches(filter)) {
+                    continue;
+                }
+                series.computeIfAbsent(entry.getKey().project(groupBy), key -> new long[(int) points])[point] += count;
+            }
+        }
+
+        IncidentAggregationResponse response = new IncidentAggregationResponse();
+        response.setFrom(Instant.ofEpochMilli(fromIndex * bucketMillis));
+        response.setTo(Instant.ofEpochMilli(toIndex * bucketMillis));
+        response.setInterval(interval.toString());
+        List<String> fields = new ArrayList<>(groupBy.size());
+        groupBy.forEach(dimension -> fields.add(dimension.getField()));
+        response.setGroupBy(fields);
+        List<Instant> starts = new ArrayList<>((int) points);
+        for (long point = 0; point < points; point++) {
+            starts.add(Instant.ofEpochMilli((fromIndex + point * perPoint) * bucketMillis));
+        }
+        response.setBuckets(starts);
+
+        List<IncidentAggregationResponse.Series> result = new ArrayList<>(series.size());
+        long total = 0;
+        for (Map.Entry<GroupKey, long[]> entry : series.entrySet()) {
+            long seriesTotal = Arrays.stream(entry.getValue()).sum();
+            total += seriesTotal;
+            result.add(new IncidentAggregationResponse.Series(entry.getKey().describe(groupBy), entry.getValue(),
+                    seriesTotal));
+        }
+        result.sort(Comparator.comparingLong(IncidentAggregationResponse.Series::getTotal).reversed());
+        response.setSeries(result);
+        response.setTotal(total);
+        return response;
+    }
+
+    private void add(Incident incident, int delta) {
+        if (incident.getTimestamp() == null) {
+            return;
+        }
+        long index = Math.floorDiv(incident.getTimestamp().toEpochMilli(), bucketMillis);
+        long now = currentIndex();
+        if (index <= now - slots || index > now) {
+            return;     // Outside the retained window
+        }
+        Bucket bucket = bucketFor(index);
+        if (bucket != null) {
+            bucket.counts.computeIfAbsent(GroupKey.of(incident), key -> new LongAdder()).add(delta);
+        }
+    }
+
+    /**
+     * Gets the bucket for an index, taking over its ring slot from an expired bucket if needed.
+     *
+     * @return The bucket, or null if the slot already holds a newer one
+     */
+    private Bucket bucketFor(long index) {
+        int slot = slot(index);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.index == index) {
+                return bucket;
+            }
+            if (bucket != null && bucket.index > index) {
+                return null;
+            }
+            Bucket fresh = new Bucket(index);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private long currentIndex() {
+        return Math.floorDiv(clock.millis(), bucketMillis);
+    }
+
+    private int slot(long index) {
+        return (int) Math.floorMod(index, (long) slots);
+    }
+
+    /**
+     * Counts of one time bucket.
+     */
+    private static final class Bucket {
+        final long index;
+        final Map<GroupKey, LongAdder> counts = new ConcurrentHashMap<>();
+
+        Bucket(long index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * One combination of the four dimensions. A null field means "any"
+     * (used for the dimensions a query doesn't group by).
+     */
+    private static final class GroupKey {
+        final String serviceName;
+        final Severity severity;
+        final ErrorType errorType;
+        final IncidentStatus status;
+        final int hash;
+
+        GroupKey(String serviceName, Severity severity, ErrorType errorType, IncidentStatus status) {
+            this.serviceName = serviceName;
+            this.severity = severity;
+            this.errorType = errorType;
+            this.status = status;
+            this.hash = Objects.hash(serviceName, severity, errorType, status);
+        }
+
+        static GroupKey of(Incident incident) {
+            return new GroupKey(incident.getServiceName(), incident.getSeverity(), incident.getErrorType(),
+                    incident.getStatus());
+        }
+
+        boolean matches(IncidentFilter filter) {
+            return filter == null
+                    || ((filter.getServiceName() == null || filter.getServiceName().equals(serviceName))
+                        && (filter.getSeverity() == null || filter.getSeverity() == severity)
+                        && (filter.getErrorType() == null || filter.getErrorType() == errorType)
+                        && (filter.getStatus() == null || filter.getStatus() == status));
+        }
+
+        /** Keeps only the grouped dimensions */
+        GroupKey project(List<Dimension> groupBy) {
+            return new GroupKey(
+                    groupBy.contains(Dimension.SERVICE_NAME) ? serviceName : null,
+                    groupBy.contains(Dimension.SEVERITY) ? severity : null,
+                    groupBy.contains(Dimension.ERROR_TYPE) ? errorType : null,
+                    groupBy.contains(Dimension.STATUS) ? status : null);
+        }
+
+        Map<String, String> describe(List<Dimension> groupBy) {
+            Map<String, String> group = new LinkedHashMap<>();
+            for (Dimension dimension : groupBy) {
+                Object value;
+                switch (dimension) {
+                    case SERVICE_NAME: value = serviceName; break;
+                    case SEVERITY: value = severity; break;
+                    case ERROR_TYPE: value = errorType; break;
+                    default: value = status; break;
+                }
+                group.put(dimension.getField(), value == null ? null : value.toString());
+            }
+            return group;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof GroupKey)) {
+                return false;
+            }
+            GroupKey key = (GroupKey) other;
+            return hash == key.hash && Objects.equals(serviceName, key.serviceName) && severity == key.severity
+                    && errorType == key.errorType && status == key.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.config.StreamProperties;
+import com.cloudops.incidents.dto.IncidentChangeEvent;
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.Severity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes incident creates, updates and deletes to Server-Sent Event subscribers.
+ *
+ * How it scales:
+ * - Connections are async servlet requests (SseEmitter), so an idle
+ *   subscriber holds a socket but no thread
+ * - publish() only numbers the event and queues it; the lock it takes
+ *   doesn't grow with the number of subscribers
+ * - A small dispatcher pool hands events to matching subscribers (one
+ *   dispatcher at a time, in sequence order) and writes to them; a
+ *   subscriber only occupies a dispatcher while it has events waiting
+ * - Each event is serialized to JSON once, by the first dispatcher that
+ *   sends it, no matter how many subscribers get it
+ *
+ * Order: changes are published after the repository write, so two
+ * concurrent updates of one incident can reach publish() out of order.
+ * An event older than the version last published for its incident is
+ * dropped; otherwise a client could end up showing the older state.
+ *
+ * Slow consumers: every subscriber has a bounded queue. When it overflows the
+ * subscriber is disconnected instead of buffering without limit; its
+ * EventSource reconnects with Last-Event-ID and catches up (see Resume).
+ *
+ * Resume: the last replay-buffer events are kept in a ring. A subscriber that
+ * asks for events after sequence N gets the buffered ones first; if N is no
+ * longer buffered (or is from before a restart), or it missed more matching
+ * events than its queue holds, it gets a "reset" event and should reload
+ * the incident list. (Replaying more than the queue holds would only
+ * disconnect it again, over and over.)
+ *
+ * Metrics: incidents.stream.subscribers (gauge), incidents.stream.dropped
+ * (slow subscribers disconnected).
+ */
+public class IncidentChangeFeed implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentChangeFeed.class);
+
+    /** SSE event name telling a resuming client that events were missed */
+    public static final String RESET = "reset";
+
+    private final ObjectMapper objectMapper;
+    private final int subscriberQueue;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final ExecutorService dispatchers;
+    private final ScheduledExecutorService heartbeats;
+    private final Counter dropped;
+
+    /** Recent events by sequence % length (guarded by this) */
+    private final Event[] replay;
+
+    /**
+     * Version last published per recently changed incident (deletes count
+     * as newest), for dropping events that arrive late. Kept for as many
+     * incidents as the replay buffer holds events (guarded by this).
+     */
+    private final Map<String, Long> publishedVersions;
+
+    /** Published events waiting to be handed to subscribers, in sequence order */
+    private final Queue<Event> fanOutQueue = new ConcurrentLinkedQueue<>();
+
+    /** Whether a dispatcher is handing out events (at most one, to keep the order) */
+    private final AtomicBoolean fanningOut = new AtomicBoolean();
+
+    /** Sequence of the last published event (written under this; volatile for getSequence) */
+    private volatile long sequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /** Queued to send a keep-alive comment instead of an event */
+    private final Event heartbeat = new Event(0, null, null);
+
+    /**
+     * Creates the feed and starts its dispatcher and heartbeat threads.
+     */
+    public IncidentChangeFeed(StreamProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.subscriberQueue = properties.getSubscriberQueue();
+        this.maxSubscribers = properties.getMaxSubscribers();
+        this.timeoutMillis = properties.getTimeout().toMillis();
+        this.replay = new Event[properties.getReplayBuffer()];
+        int tracked = properties.getReplayBuffer();
+        this.publishedVersions = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > tracked;
+            }
+        };
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatchers = Executors.newFixedThreadPool(properties.getDispatchers(), runnable -> {
+            Thread thread = new Thread(runnable, "incident-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "incident-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeatMillis = properties.getHeartbeatInterval().toMillis();
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("incidents.stream.subscribers", subscribers, Set::size)
+                .description("Connected change feed subscribers")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("incidents.stream.dropped")
+                .description("Change feed subscribers disconnected for falling behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes one incident change to every matching subscriber.
+     * Never blocks on subscribers: the event is only numbered and queued
+     * here, and a dispatcher hands it out.
+     *
+     * @param previous The incident before the change (null when created)
+     * @param current The incident after the change (null when deleted)
+     * @param incident API form of the incident to send (current, or previous for deletes)
+     */
+    public void publish(Incident previous, Incident current, IncidentResponse incident) {
+        String type = previous == null ? IncidentChangeEvent.CREATED
+                : current == null ? IncidentChangeEvent.DELETED : IncidentChangeEvent.UPDATED;
+        String id = current != null ? current.getId() : previous.getId();
+        long version = current != null ? current.getVersion() : Long.MAX_VALUE;
+        synchronized (this) {
+            Long published = publishedVersions.get(id);
+            if (published != null && published > version) {
+                return;     // A newer change of this incident was already published
+            }
+            publishedVersions.put(id, version);
+            long next = sequence + 1;
+            Event event = new Event(next, type, incident, previous, current);
+            sequence = next;
+            replay[(int) (next % replay.length)] = event;
+            fanOutQueue.add(event);
+        }
+        scheduleFanOut();
+    }
+
+    /**
+     * Returns the sequence number of the latest published change (0 before
+     * the first). Every create, update and delete made through this
+     * instance, including retention removals, moves it forward, so an
+     * unchanged sequence means nothing changed (used for list ETags).
+     * Doesn't take the lock, so it never waits for a publish.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Opens a stream for a new subscriber.
+     *
+     * @param serviceName Only events for this service (null = all services)
+     * @param minSeverity Only events with at least this severity (null = all)
+     * @param lastEventId Resume after this sequence number (null = live events only)
+     * @return The emitter to return from the controller
+     * @throws ApiException with 503 status if the subscriber limit is reached
+     */
+    public SseEmitter subscribe(String serviceName, Severity minSeverity, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ApiException("Too many stream subscribers; retry later", 503);
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        return subscribe(emitter, serviceName, minSeverity, lastEventId);
+    }
+
+    /**
+     * Registers an emitter as a subscriber (separate so tests can pass their own).
+     */
+    public SseEmitter subscribe(SseEmitter emitter, String serviceName, Severity minSeverity, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(emitter, serviceName, minSeverity);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        synchronized (this) {
+            // Events up to here come from the replay buffer (if at all), later ones from the fan-out
+            subscriber.joinedAfter = sequence;
+            if (lastEventId != null) {
+                List<Event> missed = missedEvents(subscriber, lastEventId);
+                if (missed == null) {
+                    subscriber.offer(resetEvent(sequence));
+                } else {
+                    missed.forEach(subscriber::offer);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        if (subscriber.closed.get()) {
+            subscribers.remove(subscriber);     // Closed before it was added (client gone, feed closing)
+        }
+        return emitter;
+    }
+
+    /**
+     * Collects the buffered events after lastEventId that the subscriber
+     * wants (caller holds this).
+     *
+     * @return The events, or null if the subscriber must reset instead:
+     *         lastEventId isn't buffered, or the events don't fit its queue
+     */
+    private List<Event> missedEvents(Subscriber subscriber, long lastEventId) {
+        long oldest = Math.max(1, sequence - replay.length + 1);
+        if (lastEventId > sequence || lastEventId < oldest - 1) {
+            return null;
+        }
+        List<Event> missed = new ArrayList<>();
+        for (long seq = lastEventId + 1; seq <= sequence; seq++) {
+            Event event = replay[(int) (seq % replay.length)];
+            if (subscriber.wants(event)) {
+                if (missed.size() == subscriberQueue) {
+                    return null;
+                }
+                missed.add(event);
+            }
+        }
+        return missed;
+    }
+
+    /**
+     * Gets the number of connected subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Closes every stream and stops the feed's threads.
+     */
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        dispatchers.shutdown();
+    }
+
+    /** Tells a client it missed events and should reload the incident list */
+    private Event resetEvent(long sequence) {
+        return new Event(sequence, RESET, "{\"sequence\":" + sequence + "}");
+    }
+
+    private void scheduleFanOut() {
+        if (fanningOut.compareAndSet(false, true)) {
+            try {
+                dispatchers.execute(this::fanOut);
+            } catch (RejectedExecutionException e) {
+                fanningOut.set(false);  // Feed is shutting down
+            }
+        }
+    }
+
+    /**
+     * Hands queued events to the subscribers that want them, in sequence
+     * order. Runs on one dispatcher at a time.
+     */
+    private void fanOut() {
+        while (true) {
+            Event event;
+            while ((event = fanOutQueue.poll()) != null) {
+                for (Subscriber subscriber : subscribers) {
+                    if (event.sequence > subscriber.joinedAfter && subscriber.wants(event)) {
+                        subscriber.offer(event);
+                    }
+                }
+            }
+            fanningOut.set(false);
+            // An event may have been queued after the last poll but before the flag was cleared
+            if (fanOutQueue.isEmpty() || !fanningOut.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Serializes a change event; called at most once per event.
+     *
+     * @return The JSON, or null if it can't be serialized
+     */
+    private String toJson(Event event) {
+        try {
+            return objectMapper.writeValueAsString(new IncidentChangeEvent(event.sequence, event.type, event.incident));
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize change event {} for incident {}", event.sequence, event.incident.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Sends a comment line to every subscriber, keeping idle connections open
+     * through proxies and noticing ones the client already closed.
+     */
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(heartbeat);
+        }
+    }
+
+    /**
+     * One change. Serialized on first send (see json()).
+     */
+    private final class Event {
+        final long sequence;
+        final String type;
+        final IncidentResponse incident;
+        final Incident previous;
+        final Incident current;
+
+        /** The SSE data, once serialized (guarded by this) */
+        private String json;
+        private boolean serialized;
+
+        Event(long sequence, String type, IncidentResponse incident, Incident previous, Incident current) {
+            this.sequence = sequence;
+            this.type = type;
+            this.incident = incident;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        /** An event whose JSON is already known (reset) */
+        Event(long sequence, String type, String json) {
+            this(sequence, type, null, null, null);
+            this.json = json;
+            this.serialized = true;
+        }
+
+        /** The SSE data, serialized by the first caller; null if serialization failed */
+        synchronized String json() {
+            if (!serialized) {
+                json = toJson(this);
+                serialized = true;
+            }
+            return json;
+        }
+    }
+
+    /**
+     * One connected client: its filter, its queue, and the emitter to write to.
+     *
+     * At most one dispatcher drains a subscriber at a time ("scheduled" flag),
+     * so its events are written in order without locking the emitter.
+     */
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final String serviceName;
+        final Severity minSeverity;
+        final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(subscriberQueue);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        /** Sequence when this subscriber was added; only later events are fanned out to it */
+        long joinedAfter;
+
+        Subscriber(SseEmitter emitter, String serviceName, Severity minSeverity) {
+            this.emitter = emitter;
+            this.serviceName = serviceName;
+            this.minSeverity = minSeverity;
+        }
+
+        /** An update matches if the incident matched before or after it (so clients see it leave) */
+        boolean wants(Event event) {
+            return matches(event.previous) || matches(event.current);
+        }
+
+        private boolean matches(Incident incident) {
+            return incident != null
+                    && (serviceName == null || serviceName.equals(incident.getServiceName()))
+                    && (minSeverity == null
+                        || (incident.getSeverity() != null && incident.getSeverity().compareTo(minSeverity) >= 0));
+        }
+
+        void offer(Event event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                if (event != heartbeat) {
+                    dropped.increment();
+                    close();
+                }
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatchers.execute(this::drain);
+                } catch (RuntimeException e) {
+                    close();    // Feed is shutting down
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Event event;
+                while ((event = queue.poll()) != null) {
+                    if (closed.get() || !send(event)) {
+                        return;
+                    }
+                }
+                scheduled.set(false);
+                // An event may have been queued after the last poll but before the flag was cleared
+                if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean send(Event event) {
+            try {
+                if (event == heartbeat) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    return true;
+                }
+                String json = event.json();
+                if (json == null) {
+                    // The client can't be told what changed, so it must reload
+                    event = resetEvent(event.sequence);
+                    json = event.json();
+                }
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.sequence))
+                        .name(event.type)
+                        .data(json, MediaType.APPLICATION_JSON));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // Client went away (or the emitter already completed)
+                close();
+                return false;
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                queue.clear();
+                try {
+                    emitter.complete();
+                } catch (RuntimeException ignored) {
+                    // Already completed by the container
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Merges duplicate incident reports into one incident.
+ *
+ * During an outage every alert that fires becomes a POST /api/incidents,
+ * and most of them describe the same problem. Two reports are duplicates
+ * when they have the same fingerprint - serviceName, errorType and
+ * correlationId - and the earlier incident is not RESOLVED and was last
+ * seen less than the window ago. A duplicate increases the existing
+ * incident's occurrenceCount and moves its lastSeenAt forward instead of
+ * creating a new incident, and raises its severity if the duplicate is more
+ * severe. Because lastSeenAt moves, an ongoing storm keeps landing on the
+ * same incident however long it lasts.
+ *
+ * Reports without a correlationId are never merged: serviceName and
+ * errorType alone can't tell two different problems apart.
+ *
+ * How it stays cheap under an alert storm:
+ * - An in-memory index maps each fingerprint to the incident it was last
+ *   merged into, so a report costs one index lookup, one findById and one
+ *   write, no matter how many incidents are stored
+ * - Each fingerprint has its own slot with its own lock. All reports for
+ *   one fingerprint are handled under that lock, so concurrent duplicates
+ *   never create two incidents or lose a count. The map itself is only
+ *   touched to find or add a slot, so the repository calls (a log fsync,
+ *   a DynamoDB round trip) never hold up other fingerprints
+ * - Expired slots are removed by a background sweep, so the index only
+ *   holds fingerprints seen within the window
+ *
+ * The index is a hint, not the source of truth: if the incident it points to
+ * was deleted, resolved or edited to a different fingerprint, the report
+ * simply creates a new incident.
+ */
+public class IncidentDeduplicator implements AutoCloseable {
+
+    private final IncidentRepository repository;
+    private final long windowMillis;
+    private final Clock clock;
+    private final ConcurrentHashMap<Fingerprint, Slot> index = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Result of handling one report.
+     */
+    public static final class Outcome {
+        private final Incident previous;
+        private final Incident current;
+
+        Outcome(Incident previous, Incident current) {
+            this.previous = previous;
+            this.current = current;
+        }
+
+        /** Gets the existing incident before the duplicate was merged (null if a new one was created) */
+        public Incident getPrevious() { return previous; }
+
+        /** Gets the stored incident: the new one, or the existing one with its count increased */
+        public Incident getCurrent() { return current; }
+
+        /** Whether the report was merged into an existing incident */
+        public boolean isDuplicate() { return previous != null; }
+    }
+
+    /**
+     * @param repository Where incidents are stored
+     * @param window How long after its last report an incident still absorbs duplicates (zero = disabled)
+     * @param clock Source of "now" for lastSeenAt and the window
+     */
+    public IncidentDeduplicator(IncidentRepository repository, Duration window, Clock clock) {
+        this.repository = repository;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        if (windowMillis > 0) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "incident-dedup-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweep, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    /**
+     * Whether duplicate reports are merged (false when the window is zero).
+     */
+    public boolean isEnabled() {
+        return windowMillis > 0;
+    }
+
+    /**
+     * Saves a newly reported incident, or merges it into an open incident with
+     * the same fingerprint that was seen within the window.
+     *
+     * @param incident The new incident, fully built (ID, timestamps, version 1)
+     * @return What was stored
+     */
+    public Outcome create(Incident incident) {
+        if (!isEnabled() || incident.getCorrelationId() == null) {
+            return new Outcome(null, repository.save(incident));
+        }
+        Fingerprint fingerprint = Fingerprint.of(incident);
+        Slot slot = lockSlot(fingerprint);
+        try {
+            Instant now = clock.instant();
+            if (slot.incidentId != null && !slot.isExpired(now.toEpochMilli())) {
+                Outcome merged = merge(fingerprint, slot.incidentId, incident, now);
+                if (merged != null) {
+                    slot.lastSeenMillis = now.toEpochMilli();
+                    return merged;
+                }
+            }
+            Incident saved = repository.save(incident);
+            slot.incidentId = saved.getId();
+            slot.lastSeenMillis = now.toEpochMilli();
+            return new Outcome(null, saved);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an existing incident to the index (used at startup). If several
+     * incidents share a fingerprint, the most recently seen one wins.
+     */
+    public void remember(Incident incident) {
+        Instant lastSeen = incident.getLastSeenAt() != null ? incident.getLastSeenAt() : incident.getTimestamp();
+        if (!isEnabled() || lastSeen == null || incident.getCorrelationId() == null) {
+            return;
+        }
+        Slot slot = lockSlot(Fingerprint.of(incident));
+        try {
+            if (slot.incidentId == null || lastSeen.toEpochMilli() > slot.lastSeenMillis) {
+                slot.incidentId = incident.getId();
+                slot.lastSeenMillis = lastSeen.toEpochMilli();
+            }
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of fingerprints currently indexed.
+     */
+    public int getIndexSize() {
+        return index.size();
+    }
+
+    /**
+     * Removes index slots whose window has passed. Slots in use right now
+     * are skipped; they are being refreshed anyway.
+     */
+    public void sweep() {
+        long now = clock.millis();
+        for (Map.Entry<Fingerprint, Slot> entry : index.entrySet()) {
+            Slot slot = entry.getValue();
+            if (!slot.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (slot.isExpired(now)) {
+                    slot.removed = true;
+                    index.remove(entry.getKey(), slot);
+                }
+            } finally {
+                slot.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stops the cleanup thread.
+     */
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Increases the count of an indexed incident (and its severity, if the
+     * report is more severe), retrying if a concurrent update (PUT) changed
+     * it in between.
+     *
+     * @return The incident before and after, or null if it can no longer absorb duplicates
+     */
+    private Outcome merge(Fingerprint fingerprint, String incidentId, Incident report, Instant now) {
+        while (true) {
+            Incident existing = findOrNull(incidentId);
+            if (existing == null || existing.getStatus() == IncidentStatus.RESOLVED
+                    || !fingerprint.equals(Fingerprint.of(existing))) {
+                return null;
+            }
+            Incident bumped = existing.toBuilder()
+                    .severity(higher(existing.getSeverity(), report.getSeverity()))
+                    .occurrenceCount(existing.getOccurrenceCount() + 1)
+                    .lastSeenAt(now)
+                    .updatedAt(now)
+                    .build();
+            try {
+                Incident stored = repository.replace(bumped, existing.getVersion());
+                if (stored != null) {
+                    return new Outcome(existing, stored);
+                }
+            } catch (ApiException e) {
+                if (e.getStatusCode() == 404) {
+                    return null;    // Deleted in between
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Finds or adds the slot of a fingerprint and locks it. Retries if the
+     * sweeper removed the slot between the lookup and the lock.
+     *
+     * @return The locked slot; the caller unlocks it
+     */
+    private Slot lockSlot(Fingerprint fingerprint) {
+        while (true) {
+            Slot slot = index.computeIfAbsent(fingerprint, key -> new Slot());
+            slot.lock.lock();
+            if (!slot.removed) {
+                return slot;
+            }
+            slot.lock.unlock();
+        }
+    }
+
+    private static Severity higher(Severity a, Severity b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private Incident findOrNull(String id) {
+        try {
+            return repository.findById(id);
+        } catch (ApiException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Which incident a fingerprint was last merged into, and when.
+     * Fields are guarded by the lock, which is held across the repository
+     * calls for this fingerprint.
+     */
+    private final class Slot {
+        final ReentrantLock lock = new ReentrantLock();
+
+        /** null until the first incident with this fingerprint is stored */
+        String incidentId;
+        long lastSeenMillis;
+
+        /** Set by the sweeper once the slot is out of the index */
+        boolean removed;
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis - lastSeenMillis >= windowMillis;
+        }
+    }
+
+    /**
+     * The fields that make two reports "the same incident".
+     */
+    private static final class Fingerprint {
+        final String serviceName;
+        final ErrorType errorType;
+        final String correlationId;
+        final int hash;
+
+        Fingerprint(String serviceName, ErrorType errorType, String correlationId) {
+            this.serviceName = serviceName;
+            this.errorType = errorType;
+            this.correlationId = correlationId;
+            this.hash = Objects.hash(serviceName, errorType, correlationId);
+        }
+
+        static Fingerprint of(Incident incident) {
+            return new Fingerprint(incident.getServiceName(), incident.getErrorType(), incident.getCorrelationId());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint fingerprint = (Fingerprint) other;
+            return hash == fingerprint.hash && errorType == fingerprint.errorType
+                    && Objects.equals(serviceName, fingerprint.serviceName)
+                    && Objects.equals(correlationId, fingerprint.correlationId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
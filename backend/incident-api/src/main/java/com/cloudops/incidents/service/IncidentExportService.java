@@ -0,0 +1,167 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.IncidentCursor;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentPage;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Service that streams incidents out of the system as newline-delimited JSON (NDJSON).
+ * 
+ * Built for bulk consumers like the nightly analytics job:
+ * - One JSON object per line, so consumers can process the file as it arrives
+ * - The repository is walked page by page with a cursor, and each page is
+ *   written and flushed before the next one is loaded, so memory use stays
+ *   constant no matter how many incidents exist
+ * - Optional field projection keeps lines small when only a few fields are needed
+ * - Optional diagnostics are loaded per incident, never for the whole export
+ * 
+ * Example output line:
+ * {"id":"550e8400-...","severity":"CRITICAL","updatedAt":"2024-01-15T14:35:00Z"}
+ */
+@Service
+public class IncidentExportService {
+
+    /** Incidents loaded from the repository per step of the walk */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Fields that can be exported, in output order, and how to read them.
+     * Names match the JSON fields of IncidentResponse.
+     */
+    private static final Map<String, Function<IncidentResponse, Object>> FIELDS = new LinkedHashMap<>();
+    static {
+        FIELDS.put("id", IncidentResponse::getId);
+        FIELDS.put("title", IncidentResponse::getTitle);
+        FIELDS.put("description", IncidentResponse::getDescription);
+        FIELDS.put("severity", IncidentResponse::getSeverity);
+        FIELDS.put("status", IncidentResponse::getStatus);
+        FIELDS.put("createdAt", IncidentResponse::getCreatedAt);
+        FIELDS.put("updatedAt", IncidentResponse::getUpdatedAt);
+        FIELDS.put("serviceName", IncidentResponse::getServiceName);
+        FIELDS.put("errorType", IncidentResponse::getErrorType);
+        FIELDS.put("correlationId", IncidentResponse::getCorrelationId);
+        FIELDS.put("version", IncidentResponse::getVersion);
+        FIELDS.put("occurrenceCount", IncidentResponse::getOccurrenceCount);
+        FIELDS.put("lastSeenAt", IncidentResponse::getLastSeenAt);
+    }
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private DiagnosticsRepository diagnosticsRepository;
+
+    @Autowired
+    private IncidentService incidentService;
+
+    /**
+     * Spring's shared JSON mapper, so exported values (timestamps, enums)
+     * are formatted exactly like regular API responses.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Validates a field projection requested by a client.
+     * 
+     * Call this before the response starts streaming, so a bad request
+     * still gets a clean 400 instead of a truncated 200.
+     * 
+     * @param requested Field names from the client (null or empty = all fields)
+     * @return The field names to export, in output order
+     * @throws ApiException with 400 status if a field name is unknown
+     */
+    public List<String> resolveFields(List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return new ArrayList<>(FIELDS.keySet());
+        }
+        List<String> fields = new ArrayList<>();
+        for (String name : FIELDS.keySet()) {
+            if (requested.contains(name)) {
+                fields.add(name);
+            }
+        }
+        for (String name : requested) {
+            if (!FIELDS.containsKey(name)) {
+                throw new ApiException("Unknown export field: " + name + " (allowed: " + FIELDS.keySet() + ")", 400);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Writes every incident matching the filter to the stream, one JSON object per line.
+     * 
+     * This method:
+     * 1. Loads one page of incidents (BATCH_SIZE) after the last cursor
+     * 2. Writes each incident with the selected fields (plus diagnostics if asked)
+     * 3. Flushes, so the client receives data while the export is running
+     * 4. Repeats with the page's cursor until there are no more incidents
+     * 
+     * @param filter Which incidents to export (time range, updatedSince, ...)
+     * @param fields Fields to include, from resolveFields()
+     * @param includeDiagnostics Whether to add a "diagnostics" array to each line
+     * @param out Stream to write to (not closed by this method)
+     * @return Number of incidents written
+     * @throws IOException if the client disconnects or the stream fails
+     */
+    public long export(IncidentFilter filter, List<String> fields, boolean includeDiagnostics,
+                       OutputStream out) throws IOException {
+        long written = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);  // lines are separated by our own newline
+
+            IncidentCursor cursor = null;
+            do {
+                IncidentPage page = incidentRepository.findPage(filter, cursor, BATCH_SIZE);
+                for (Incident incident : page.getItems()) {
+                    writeLine(generator, incident, fields, includeDiagnostics);
+                    written++;
+                }
+                generator.flush();
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+        }
+        return written;
+    }
+
+    /**
+     * Writes one incident as a single JSON line.
+     */
+    private void writeLine(JsonGenerator generator, Incident incident, List<String> fields,
+                           boolean includeDiagnostics) throws IOException {
+        IncidentResponse response = incidentService.toResponse(incident);
+        generator.writeStartObject();
+        for (String field : fields) {
+            generator.writeObjectField(field, FIELDS.get(field).apply(response));
+        }
+        if (includeDiagnostics) {
+            generator.writeArrayFieldStart("diagnostics");
+            for (DiagnosticRecord record : diagnosticsRepository.findByIncidentId(incident.getId())) {
+                generator.writeObject(record);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
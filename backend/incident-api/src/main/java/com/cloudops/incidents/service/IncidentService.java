@@ -1,16 +1,32 @@
 package com.cloudops.incidents.service;
 
+import com.cloudops.incidents.cache.IncidentJsonCache;
+import com.cloudops.incidents.cache.SerializedPage;
+import com.cloudops.incidents.config.PersistenceProperties;
+import com.cloudops.incidents.dto.IncidentAggregationResponse;
+import com.cloudops.incidents.dto.IncidentPageResponse;
 import com.cloudops.incidents.dto.IncidentRequest;
 import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.exception.ApiException;
 import com.cloudops.incidents.model.Incident;
 import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.repository.IncidentCursor;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentPage;
 import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.util.UuidGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
@@ -19,18 +35,36 @@ import java.util.stream.Collectors;
  * the API layer (controllers) and the data layer (repositories).
  * 
  * Main responsibilities:
- * - Create new incidents from user requests
+ * - Create new incidents from user requests, merging duplicates (IncidentDeduplicator)
  * - Update existing incidents with new information
  * - Retrieve incident data for API responses
- * - Convert between different data formats (DTOs and entities)
+ * - Keep the rolling aggregate counts (IncidentAggregator) in step with every change
+ * - Publish every change to live subscribers (IncidentChangeFeed)
+ * - Tell the retention engine which incidents are resolved (RetentionEngine)
+ * - Convert between different data formats (DTOs and entities), reusing
+ *   cached JSON for reads (IncidentJsonCache)
  * - Apply business rules (like setting initial status to OPEN)
  * 
  * This class follows the Service Layer pattern, which keeps business logic
  * separate from web controllers and database access.
+ * 
+ * Metrics:
+ * - incidents.changes{operation=created|updated|deleted|deduplicated}: successful writes
+ * - incidents.update.conflicts: updates refused or retried because of a concurrent change
  */
 @Service
 public class IncidentService {
 
+    /** Page size used when the client doesn't ask for one */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** Largest page a client may request */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /** Part of list ETags that differs per process (see getListETag) */
+    private static final String INSTANCE_TAG =
+            Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
     /**
      * Repository for accessing incident data in the database.
      * Spring automatically injects this dependency.
@@ -39,19 +73,115 @@ public class IncidentService {
     private IncidentRepository incidentRepository;
 
     /**
-     * Gets all incidents from the database and returns them as API responses.
+     * Pre-aggregated counts over time, updated after every write.
+     */
+    @Autowired
+    private IncidentAggregator incidentAggregator;
+
+    /**
+     * Server-Sent Events feed of incident changes, published after every write.
+     */
+    @Autowired
+    private IncidentChangeFeed incidentChangeFeed;
+
+    /**
+     * Merges duplicate reports of the same problem into one incident.
+     */
+    @Autowired
+    private IncidentDeduplicator incidentDeduplicator;
+
+    /**
+     * Removes resolved incidents once they are old enough; told about every change.
+     */
+    @Autowired
+    private RetentionEngine retentionEngine;
+
+    /**
+     * Responses of earlier creates by Idempotency-Key, so client retries don't create twice.
+     */
+    @Autowired
+    private IdempotencyCache<IncidentResponse> incidentIdempotencyCache;
+
+    /**
+     * Generates IDs for new incidents (time-ordered UUIDv7 by default, see IdConfig).
+     */
+    @Autowired
+    private UuidGenerator incidentIdGenerator;
+
+    /**
+     * Serialized JSON of recently read incidents, dropped after every write.
+     */
+    @Autowired
+    private IncidentJsonCache incidentJsonCache;
+
+    /**
+     * Storage settings; list ETags depend on whether other instances share the store.
+     */
+    @Autowired
+    private PersistenceProperties persistenceProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Counters, registered once at startup
+    private Counter createdCount;
+    private Counter updatedCount;
+    private Counter deletedCount;
+    private Counter deduplicatedCount;
+    private Counter conflictCount;
+
+    @PostConstruct
+    void registerMetrics() {
+        createdCount = changeCounter("created");
+        updatedCount = changeCounter("updated");
+        deletedCount = changeCounter("deleted");
+        deduplicatedCount = changeCounter("deduplicated");
+        conflictCount = Counter.builder("incidents.update.conflicts")
+                .description("Incident updates that lost a race with a concurrent change")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gets one page of incidents matching the filter and returns them as API responses.
      * 
      * This method:
-     * 1. Asks the repository for all incidents
-     * 2. Converts each incident to an API response format
-     * 3. Returns the list of responses
+     * 1. Validates the page size and decodes the client's cursor
+     * 2. Asks the repository for the next page (filtering happens there, using its indexes)
+     * 3. Converts only the incidents on this page to API response format
+     * 4. Encodes the cursor for the following page
+     * 
+     * Incidents are ordered by creation time, then ID.
      * 
-     * @return List of all incidents formatted for API responses
+     * @param filter Criteria to match (severity, status, service, time range)
+     * @param cursor Opaque cursor from the previous page (null for the first page)
+     * @param limit Maximum number of incidents to return (1 to MAX_PAGE_SIZE)
+     * @return The page of incidents formatted for API responses
+     * @throws ApiException with 400 status if the limit or cursor is invalid
      */
-    public List<IncidentResponse> getAllIncidents() {
-        return incidentRepository.findAll().stream()
+    public IncidentPageResponse getIncidents(IncidentFilter filter, String cursor, int limit) {
+        IncidentPage page = findPage(filter, cursor, limit);
+        List<IncidentResponse> items = page.getItems().stream()
                 .map(this::toResponse)  // Convert each incident to response format
                 .collect(Collectors.toList());
+        return new IncidentPageResponse(items, encode(page.getNextCursor()));
+    }
+
+    /**
+     * Same as getIncidents, but returns the page as a ready-to-send JSON
+     * array (what GET /api/incidents writes).
+     * 
+     * Incidents whose current version was serialized before are not mapped
+     * or serialized again; their cached JSON is copied into the array.
+     * 
+     * @param filter Criteria to match (severity, status, service, time range)
+     * @param cursor Opaque cursor from the previous page (null for the first page)
+     * @param limit Maximum number of incidents to return (1 to MAX_PAGE_SIZE)
+     * @return The page as a JSON array of IncidentResponse objects
+     * @throws ApiException with 400 status if the limit or cursor is invalid
+     */
+    public SerializedPage getIncidentsJson(IncidentFilter filter, String cursor, int limit) {
+        IncidentPage page = findPage(filter, cursor, limit);
+        return new SerializedPage(incidentJsonCache.toJsonArray(page.getItems()), encode(page.getNextCursor()));
     }
 
     /**
@@ -65,46 +195,118 @@ public class IncidentService {
         return toResponse(incident);
     }
 
+    /**
+     * Gets a specific incident by its ID, unconverted.
+     * 
+     * For conditional GETs: the caller compares its version and updatedAt
+     * with what the client already has, and only calls toJson() if the
+     * client needs the body.
+     * 
+     * @param id The unique identifier of the incident to retrieve
+     * @return The stored incident
+     * @throws ApiException with 404 status if the incident doesn't exist
+     */
+    public Incident findIncident(String id) {
+        return incidentRepository.findById(id);
+    }
+
+    /**
+     * Returns the incident as ready-to-send JSON (the IncidentResponse form,
+     * what GET /api/incidents/{id} writes), serialized only once per version.
+     * 
+     * @param incident An incident as returned by findIncident
+     * @return UTF-8 JSON (shared, don't modify)
+     */
+    public byte[] toJson(Incident incident) {
+        return incidentJsonCache.get(incident).getJson();
+    }
+
+    /**
+     * Returns an ETag for the incident list as a whole: it changes whenever
+     * any incident is created, updated or deleted, so a client holding it
+     * has every list page it fetched with it up to date.
+     * 
+     * Built from the change feed's sequence plus a random tag for this
+     * process, so a restart or another instance never produces a match.
+     * Read it before reading the page: a write in between then only makes
+     * the page newer than its tag, never older.
+     * 
+     * In dynamodb mode other instances write to the same table without
+     * moving this instance's sequence, so there is no list ETag (null).
+     * 
+     * @return Strong ETag for list responses, or null if lists can't be validated
+     */
+    public String getListETag() {
+        if (persistenceProperties.getMode() == PersistenceProperties.Mode.DYNAMODB) {
+            return null;
+        }
+        return "\"" + INSTANCE_TAG + "-" + incidentChangeFeed.getSequence() + "\"";
+    }
+
     /**
      * Creates a brand new incident from user input.
      * 
      * This method handles the complete incident creation process:
-     * 1. Creates a new empty incident object
+     * 1. Starts building a new incident
      * 2. Generates a unique ID
      * 3. Copies user-provided data (title, description, etc.)
-     * 4. Sets system-controlled fields (status=OPEN, timestamps)
-     * 5. Saves to database
-     * 6. Returns the created incident as API response
+     * 4. Sets system-controlled fields (status=OPEN, timestamps, version=1)
+     * 5. Saves to database, unless it duplicates a recent open incident
+     * 6. Returns the created (or merged-into) incident as API response
      * 
      * Business rules applied:
      * - All new incidents start with status OPEN
      * - Creation and update timestamps are set to current time
      * - System generates unique ID (user cannot specify)
+     * - A report with the same serviceName, errorType and correlationId as an
+     *   open incident seen within the dedup window is not stored separately:
+     *   that incident's occurrenceCount and lastSeenAt are updated instead
+     * 
+     * Retries: if the client sends an Idempotency-Key, the first request with
+     * that key is processed and its response remembered; retries with the
+     * same key (including ones arriving while the first is still running)
+     * get that same response, and nothing is created or counted again.
      * 
      * @param request User input containing incident details
-     * @return The newly created incident formatted for API response
+     * @param idempotencyKey Client-chosen key identifying this request across retries (null = none)
+     * @return The newly created incident, or the existing one it was merged into
+     * @throws ApiException with 400 status for an invalid key
+     * @throws ApiException with 422 status if the key was already used for a different request
      */
-    public IncidentResponse createIncident(IncidentRequest request) {
-        // Create new incident object
-        Incident incident = new Incident();
-        
-        // Set system-controlled fields
-        incident.setId(UUID.randomUUID().toString());  // Generate unique ID
-        incident.setStatus(IncidentStatus.OPEN);       // All incidents start as OPEN
-        incident.setTimestamp(Instant.now());          // When created
-        incident.setUpdatedAt(Instant.now());          // Same as creation time initially
-        
-        // Copy user-provided data
-        incident.setTitle(request.getTitle());
-        incident.setDescription(request.getDescription());
-        incident.setSeverity(request.getSeverity());
-        incident.setServiceName(request.getServiceName());
-        incident.setErrorType(request.getErrorType());
-        incident.setCorrelationId(request.getCorrelationId());
+    public IncidentResponse createIncident(IncidentRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createIncident(request);
+        }
+        // A retry must send the same incident; equal field lists mean the same request
+        List<Object> fields = Arrays.asList(request.getTitle(), request.getDescription(), request.getSeverity(),
+                request.getServiceName(), request.getErrorType(), request.getCorrelationId());
+        return incidentIdempotencyCache.execute(idempotencyKey, fields, () -> createIncident(request));
+    }
+
+    private IncidentResponse createIncident(IncidentRequest request) {
+        Instant now = Instant.now();
+        Incident incident = Incident.builder()
+                // Set system-controlled fields
+                .id(incidentIdGenerator.generate()) // Generate unique, time-ordered ID
+                .status(IncidentStatus.OPEN)       // All incidents start as OPEN
+                .timestamp(now)                    // When created
+                .updatedAt(now)                    // Same as creation time initially
+                .version(1)                        // First revision
+                .occurrenceCount(1)                // First report
+                .lastSeenAt(now)
+                // Copy user-provided data
+                .title(request.getTitle())
+                .description(request.getDescription())
+                .severity(request.getSeverity())
+                .serviceName(request.getServiceName())
+                .errorType(request.getErrorType())
+                .correlationId(request.getCorrelationId())
+                .build();
         
-        // Save to database and return response
-        incident = incidentRepository.save(incident);
-        return toResponse(incident);
+        // Save to database (or merge into a duplicate) and return response
+        IncidentDeduplicator.Outcome outcome = incidentDeduplicator.create(incident);
+        (outcome.isDuplicate() ? deduplicatedCount : createdCount).increment();
+        return changed(outcome.getPrevious(), outcome.getCurrent());
     }
 
     /**
@@ -112,38 +314,155 @@ public class IncidentService {
      * 
      * This method:
      * 1. Finds the existing incident by ID
-     * 2. Updates it with new data from the request
-     * 3. Updates the "last modified" timestamp
-     * 4. Saves changes to database
+     * 2. Checks it is still at the version the client expects (if given)
+     * 3. Builds an updated copy with the new data and "last modified" timestamp
+     * 4. Swaps the copy in with a compare-and-set on the version
      * 5. Returns updated incident as API response
      * 
+     * Incidents are immutable, so concurrent readers always see either the
+     * old or the new state, never a mix.
+     * 
+     * Concurrent updates:
+     * - With expectedVersion (from If-Match): if anyone else updated the
+     *   incident first, the update is refused with 412 instead of silently
+     *   overwriting their change
+     * - Without expectedVersion: the update is retried on top of the latest
+     *   version (last writer wins, but each update is applied whole)
+     * 
      * Note: This method does NOT change:
      * - The incident ID (never changes)
      * - The creation timestamp (historical record)
-     * - The status (would need separate endpoint for status changes)
+     * - The status (see updateStatus)
      * 
      * @param id The ID of the incident to update
      * @param request New data to apply to the incident
+     * @param expectedVersion Version the client last read (null = update unconditionally)
      * @return The updated incident formatted for API response
+     * @throws ApiException with 404 status if the incident doesn't exist
+     * @throws ApiException with 412 status if the incident is no longer at expectedVersion
      */
-    public IncidentResponse updateIncident(String id, IncidentRequest request) {
-        // Find existing incident
-        Incident incident = incidentRepository.findById(id);
-        
-        // Update with new data
-        incident.setTitle(request.getTitle());
-        incident.setDescription(request.getDescription());
-        incident.setSeverity(request.getSeverity());
-        incident.setServiceName(request.getServiceName());
-        incident.setErrorType(request.getErrorType());
-        incident.setCorrelationId(request.getCorrelationId());
-        
-        // Update the "last modified" timestamp
-        incident.setUpdatedAt(Instant.now());
-        
-        // Save changes and return response
-        incident = incidentRepository.save(incident);
-        return toResponse(incident);
+    public IncidentResponse updateIncident(String id, IncidentRequest request, Long expectedVersion) {
+        return modify(id, expectedVersion, builder -> builder
+                .title(request.getTitle())
+                .description(request.getDescription())
+                .severity(request.getSeverity())
+                .serviceName(request.getServiceName())
+                .errorType(request.getErrorType())
+                .correlationId(request.getCorrelationId()));
+    }
+
+    /**
+     * Moves an incident to another stage of resolution.
+     * 
+     * Works like updateIncident (same concurrency rules), but only changes the
+     * status and the "last modified" timestamp. RESOLVED incidents are removed
+     * by the retention engine once they have been resolved for long enough.
+     * 
+     * @param id The ID of the incident to change
+     * @param status The new status
+     * @param expectedVersion Version the client last read (null = change unconditionally)
+     * @return The updated incident formatted for API response
+     * @throws ApiException with 404 status if the incident doesn't exist
+     * @throws ApiException with 412 status if the incident is no longer at expectedVersion
+     */
+    public IncidentResponse updateStatus(String id, IncidentStatus status, Long expectedVersion) {
+        return modify(id, expectedVersion, builder -> builder.status(status));
+    }
+
+    /**
+     * Applies a change to the latest version of an incident with a
+     * compare-and-set, retrying on conflicts unless expectedVersion is given.
+     * 
+     * @param change Sets the changed fields on a copy of the current incident
+     */
+    private IncidentResponse modify(String id, Long expectedVersion, UnaryOperator<Incident.Builder> change) {
+        while (true) {
+            Incident current = incidentRepository.findById(id);
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                conflictCount.increment();
+                throw versionConflict(id, current.getVersion());
+            }
+
+            // Build the new state as a copy; the stored incident is never modified
+            Incident updated = change.apply(current.toBuilder()).updatedAt(Instant.now()).build();
+
+            Incident stored = incidentRepository.replace(updated, current.getVersion());
+            if (stored != null) {
+                updatedCount.increment();
+                return changed(current, stored);
+            }
+            conflictCount.increment();
+            if (expectedVersion != null) {
+                throw versionConflict(id, incidentRepository.findById(id).getVersion());
+            }
+            // Someone else saved in between; rebase on their version and try again
+        }
+    }
+
+    /**
+     * Counts incidents per time interval, grouped by any of serviceName,
+     * severity, errorType and status.
+     * 
+     * Reads the pre-aggregated buckets only, so the cost depends on the
+     * number of buckets and groups, not on the number of incidents.
+     * 
+     * @param from Start of the range (null = retention window before to)
+     * @param to End of the range (null = now)
+     * @param interval Length of each bucket in the response
+     * @param groupBy Fields to group by
+     * @param filter Only count incidents matching these serviceName/severity/status/errorType criteria
+     * @return Counts per group and interval
+     * @throws ApiException with 400 status for an invalid range, interval or groupBy field
+     */
+    public IncidentAggregationResponse getAggregation(Instant from, Instant to, Duration interval,
+                                                      List<IncidentAggregator.Dimension> groupBy,
+                                                      IncidentFilter filter) {
+        return incidentAggregator.aggregate(from, to, interval, groupBy, filter);
+    }
+
+    /**
+     * Validates the page size and the client's cursor, for callers that
+     * must reject a bad request before doing anything else (such as
+     * answering 304 Not Modified).
+     * 
+     * @param cursor Opaque cursor from the previous page (null for the first page)
+     * @param limit Maximum number of incidents to return (1 to MAX_PAGE_SIZE)
+     * @return The decoded cursor, or null for the first page
+     * @throws ApiException with 400 status if the limit or cursor is invalid
+     */
+    public IncidentCursor validatePage(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ApiException("Limit must be between 1 and " + MAX_PAGE_SIZE, 400);
+        }
+        return cursor != null && !cursor.isEmpty() ? IncidentCursor.decode(cursor) : null;
+    }
+
+    /**
+     * Validates the page size, decodes the client's cursor and reads the page.
+     * 
+     * @throws ApiException with 400 status if the limit or cursor is invalid
+     */
+    private IncidentPage findPage(IncidentFilter filter, String cursor, int limit) {
+        return incidentRepository.findPage(filter, validatePage(cursor, limit), limit);
+    }
+
+    private static String encode(IncidentCursor cursor) {
+        return cursor != null ? cursor.encode() : null;
+    }
+
+    private Counter changeCounter(String operation) {
+        return Counter.builder("incidents.changes")
+                .description("Successful incident writes")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the 412 error for an update based on an outdated version.
+     */
+    private static ApiException versionConflict(String id, long currentVersion) {
+        return new ApiException("Incident " + id + " was modified by someone else (current version: "
+                + currentVersion + "); reload it and retry", 412);
     }
 
     /**
@@ -152,7 +471,27 @@ public class IncidentService {
      * @param id The ID of the incident to delete
      */
     public void deleteIncident(String id) {
-        incidentRepository.deleteById(id);
+        Incident removed = incidentRepository.deleteById(id);
+        deletedCount.increment();
+        changed(removed, null);
+    }
+
+    /**
+     * Passes a successful write on to everything derived from incidents:
+     * the cached JSON, the aggregate counts, the retention queue and the
+     * live change feed.
+     * 
+     * @param previous The incident before the change (null when created)
+     * @param current The incident after the change (null when deleted)
+     * @return API form of the incident (current, or previous for deletes)
+     */
+    private IncidentResponse changed(Incident previous, Incident current) {
+        incidentJsonCache.invalidate(current != null ? current.getId() : previous.getId());
+        incidentAggregator.record(previous, current);
+        retentionEngine.record(previous, current);
+        IncidentResponse response = toResponse(current != null ? current : previous);
+        incidentChangeFeed.publish(previous, current, response);
+        return response;
     }
 
     /**
@@ -167,26 +506,13 @@ public class IncidentService {
      * - Security (don't expose internal database fields)
      * - Flexibility (can format data differently for API consumers)
      * 
-     * This method copies every field from the internal incident to the response object.
+     * The field-by-field copy lives in IncidentResponse.from(), so code that
+     * can't depend on this service (like RetentionEngine) converts the same way.
      * 
      * @param incident The internal incident object from database
      * @return API-safe response object with the same data
      */
-    private IncidentResponse toResponse(Incident incident) {
-        IncidentResponse response = new IncidentResponse();
-        
-        // Copy all fields from incident to response
-        response.setId(incident.getId());
-        response.setTitle(incident.getTitle());
-        response.setDescription(incident.getDescription());
-        response.setSeverity(incident.getSeverity());
-        response.setStatus(incident.getStatus());
-        response.setCreatedAt(incident.getTimestamp());      // Note: timestamp becomes createdAt
-        response.setUpdatedAt(incident.getUpdatedAt());
-        response.setServiceName(incident.getServiceName());
-        response.setErrorType(incident.getErrorType());
-        response.setCorrelationId(incident.getCorrelationId());
-        
-        return response;
+    public IncidentResponse toResponse(Incident incident) {
+        return IncidentResponse.from(incident);
     }
 }
\ No newline at end of file
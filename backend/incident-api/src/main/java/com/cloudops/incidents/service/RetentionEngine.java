@@ -0,0 +1,474 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.dto.ArchivedIncident;
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.dto.RetentionStatsResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.persistence.IncidentArchive;
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.IncidentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes RESOLVED incidents and their diagnostics from memory once they
+ * have not changed for a while (the time to live), optionally copying them
+ * to the IncidentArchive first so they can still be looked up.
+ *
+ * Without this, nothing ever leaves the repositories and memory grows for
+ * as long as the service runs.
+ *
+ * How it stays incremental:
+ * - IncidentService reports every change with record(), which keeps a
+ *   queue of resolved incidents sorted by when they were resolved. A pass
+ *   only looks at the head of that queue - the incidents that are actually
+ *   due - instead of scanning every stored incident.
+ * - Incidents are removed one batch at a time, each removal a normal
+ *   repository delete, so requests are never blocked behind a pass.
+ * - Re-opening a resolved incident takes it off the queue again.
+ *
+ * For each batch: the incidents are checked again (still RESOLVED and old
+ * enough), written to the archive, and only then deleted. If the archive
+ * cannot be written, the batch stays in memory and is retried on the next
+ * pass. Removed incidents are published to the change feed as deletions so
+ * live dashboards drop them; the aggregate counts keep them, because they
+ * describe what happened, not what is still stored.
+ *
+ * What was reclaimed is reported in the log, in getStats()
+ * (GET /api/incidents/retention) and as metrics:
+ * - incidents.retention.evicted{kind=incidents|diagnostics}: records removed
+ * - incidents.retention.archive.failures: batches that could not be archived
+ * - incidents.retention.pending: resolved incidents waiting for their time to live
+ */
+public class RetentionEngine implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionEngine.class);
+
+    private final IncidentRepository incidentRepository;
+    private final DiagnosticsRepository diagnosticsRepository;
+    private final IncidentChangeFeed changeFeed;
+    private final IncidentArchive archive;
+    private final Duration resolvedTtl;
+    private final int batchSize;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    /** Resolved incidents, in the order they become due */
+    private final ConcurrentSkipListSet<Due> queue = new ConcurrentSkipListSet<>();
+
+    /** Queue entry of each resolved incident by ID; all queue changes happen inside its compute() */
+    private final Map<String, Due> pending = new ConcurrentHashMap<>();
+
+    private final Counter evictedIncidents;
+    private final Counter evictedDiagnostics;
+    private final Counter archiveFailures;
+
+    private long passes;
+    private volatile LastPass lastPass;
+
+    /**
+     * A resolved incident waiting in the queue, ordered by when it was last changed.
+     */
+    private static final class Due implements Comparable<Due> {
+
+        /** Sorts before every real entry */
+        static final Due FIRST = new Due(Long.MIN_VALUE, "");
+
+        final long changedMillis;
+        final String id;
+
+        Due(long changedMillis, String id) {
+            this.changedMillis = changedMillis;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Due other) {
+            int byTime = Long.compare(changedMillis, other.changedMillis);
+            return byTime != 0 ? byTime : id.compareTo(other.id);
+        }
+    }
+
+    /**
+     * Summary of the most recent pass.
+     */
+    private static final class LastPass {
+        final Instant startedAt;
+        final long millis;
+        final long incidents;
+        final long diagnostics;
+
+        LastPass(Instant startedAt, long millis, long incidents, long diagnostics) {
+            this.startedAt = startedAt;
+            this.millis = millis;
+            this.incidents = incidents;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    /**
+     * @param incidentRepository Where incidents are stored
+     * @param diagnosticsRepository Where their diagnostics are stored
+     * @param changeFeed Told about every removed incident
+     * @param archive Where removed incidents are copied to (null = they are just dropped)
+     * @param resolvedTtl How long a resolved incident is kept after its last change
+     * @param interval Time between passes (zero = retention disabled)
+     * @param batchSize Most incidents archived and removed in one step
+     * @param clock Source of "now" for the time to live
+     * @param meterRegistry Where the retention metrics are registered
+     */
+    public RetentionEngine(IncidentRepository incidentRepository, DiagnosticsRepository diagnosticsRepository,
+                           IncidentChangeFeed changeFeed, IncidentArchive archive, Duration resolvedTtl,
+                           Duration interval, int batchSize, Clock clock, MeterRegistry meterRegistry) {
+        this.incidentRepository = incidentRepository;
+        this.diagnosticsRepository = diagnosticsRepository;
+        this.changeFeed = changeFeed;
+        this.archive = archive;
+        this.resolvedTtl = resolvedTtl;
+        this.batchSize = batchSize;
+        this.clock = clock;
+
+        this.evictedIncidents = evictedCounter("incidents", meterRegistry);
+        this.evictedDiagnostics = evictedCounter("diagnostics", meterRegistry);
+        this.archiveFailures = Counter.builder("incidents.retention.archive.failures")
+                .description("Batches of resolved incidents kept in memory because the archive could not be written")
+                .register(meterRegistry);
+        Gauge.builder("incidents.retention.pending", pending, Map::size)
+                .description("Resolved incidents waiting for their time to live to pass")
+                .register(meterRegistry);
+
+        if (!interval.isZero()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "incident-retention");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = interval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::runScheduledPass, millis, millis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Whether resolved incidents are removed at all (false when the interval is zero).
+     */
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    /**
+     * Keeps the queue of resolved incidents in step with a write.
+     * Called by IncidentService after every change.
+     *
+     * @param previous The incident before the change (null when created)
+     * @param current The incident after the change (null when deleted)
+     */
+    public void record(Incident previous, Incident current) {
+        if (!isEnabled()) {
+            return;
+        }
+        String id = current != null ? current.getId() : previous.getId();
+        pending.compute(id, (key, queued) -> {
+            if (queued != null) {
+                queue.remove(queued);
+            }
+            if (current == null || current.getStatus() != IncidentStatus.RESOLVED) {
+                return null;
+            }
+            Due due = new Due(current.getUpdatedAt().toEpochMilli(), id);
+            queue.add(due);
+            return due;
+        });
+    }
+
+    /**
+     * Removes every resolved incident whose time to live has passed, one
+     * batch at a time. Runs in the background every interval.
+     *
+     * @return Number of incidents removed
+     */
+    public synchronized long runPass() {
+        Instant startedAt = clock.instant();
+        long startNanos = System.nanoTime();
+        Instant cutoff = startedAt.minus(resolvedTtl);
+        long incidents = 0;
+        long diagnostics = 0;
+
+        boolean storeFailed = false;
+        while (!storeFailed) {
+            List<Incident> batch = nextBatch(cutoff);
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<ArchivedIncident> copies = new ArrayList<>(batch.size());
+            for (Incident incident : batch) {
+                copies.add(new ArchivedIncident(startedAt, IncidentResponse.from(incident),
+                        diagnosticsRepository.findByIncidentId(incident.getId())));
+            }
+            if (!archive(copies)) {
+                archiveFailures.increment();
+                batch.forEach(incident -> record(null, incident));     // Try again next pass
+                break;
+            }
+
+            List<ArchivedIncident> late = new ArrayList<>();
+            for (int i = 0; i < copies.size(); i++) {
+                ArchivedIncident copy = copies.get(i);
+                Incident removed;
+                try {
+                    removed = remove(batch.get(i));
+                } catch (ApiException e) {
+                    log.warn("Cannot remove resolved incident {}, retrying next pass: {}",
+                            batch.get(i).getId(), e.getMessage());
+                    batch.subList(i, batch.size()).forEach(this::requeue);
+                    storeFailed = true;
+                    break;
+                }
+                if (removed == null) {
+                    continue;
+                }
+                List<DiagnosticRecord> removedDiagnostics = diagnosticsRepository.deleteByIncidentId(removed.getId());
+                if (removedDiagnostics.size() > copy.getDiagnostics().size()) {
+                    // Diagnostics arrived after the copy was made: archive the full set again
+                    late.add(new ArchivedIncident(startedAt, copy.getIncident(), removedDiagnostics));
+                }
+                changeFeed.publish(removed, null, copy.getIncident());
+                incidents++;
+                diagnostics += removedDiagnostics.size();
+            }
+            if (!late.isEmpty() && !archive(late)) {
+                archiveFailures.increment();
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        evictedIncidents.increment(incidents);
+        evictedDiagnostics.increment(diagnostics);
+        passes++;
+        lastPass = new LastPass(startedAt, millis, incidents, diagnostics);
+        if (incidents > 0) {
+            log.info("Retention removed {} resolved incidents and {} diagnostic records in {} ms ({} still pending)",
+                    incidents, diagnostics, millis, pending.size());
+        }
+        return incidents;
+    }
+
+    /**
+     * Looks up an incident that was removed by retention.
+     *
+     * @param id The incident ID
+     * @return The incident and its diagnostics as they were when removed
+     * @throws ApiException with 404 status if the incident is not in the archive
+     */
+    public ArchivedIncident findArchived(String id) {
+        ArchivedIncident found = null;
+        if (archive != null) {
+            try {
+                found = archive.find(id);
+            } catch (IOException e) {
+                throw new ApiException("Cannot read the incident archive: " + e.getMessage(), 500);
+            }
+        }
+        if (found == null) {
+            throw new ApiException("Archived incident not found with id: " + id, 404);
+        }
+        return found;
+    }
+
+    /**
+     * Gets what retention has removed so far.
+     */
+    public RetentionStatsResponse getStats() {
+        RetentionStatsResponse stats = new RetentionStatsResponse();
+        stats.setEnabled(isEnabled());
+        stats.setResolvedTtlSeconds(resolvedTtl.getSeconds());
+        stats.setPending(pending.size());
+        synchronized (this) {
+            stats.setPasses(passes);
+        }
+        stats.setIncidentsEvicted((long) evictedIncidents.count());
+        stats.setDiagnosticsEvicted((long) evictedDiagnostics.count());
+        stats.setArchiveFailures((long) archiveFailures.count());
+        if (archive != null) {
+            try {
+                stats.setArchiveFiles(archive.getFileCount());
+                stats.setArchiveBytes(archive.getSizeBytes());
+            } catch (IOException e) {
+                log.warn("Cannot list the incident archive", e);
+            }
+        }
+        LastPass last = lastPass;
+        if (last != null) {
+            stats.setLastPassAt(last.startedAt);
+            stats.setLastPassMillis(last.millis);
+            stats.setLastPassIncidents(last.incidents);
+            stats.setLastPassDiagnostics(last.diagnostics);
+        }
+        return stats;
+    }
+
+    /**
+     * Stops the background passes.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes up to batchSize due incidents off the head of the queue,
+     * checking each against the repository. If the repository fails, the
+     * entry goes back on the queue and the batch ends there.
+     */
+    private List<Incident> nextBatch(Instant cutoff) {
+        List<Incident> batch = new ArrayList<>();
+        long cutoffMillis = cutoff.toEpochMilli();
+        while (batch.size() < batchSize) {
+            Due due = queue.ceiling(Due.FIRST);
+            if (due == null || due.changedMillis > cutoffMillis) {
+                break;
+            }
+            if (!claim(due)) {
+                continue;
+            }
+            Incident incident;
+            try {
+                incident = findOrNull(due.id);
+            } catch (ApiException e) {
+                log.warn("Cannot read resolved incident {}, retrying next pass: {}", due.id, e.getMessage());
+                requeue(due);
+                break;
+            }
+            if (incident == null) {
+                continue;
+            }
+            if (incident.getStatus() != IncidentStatus.RESOLVED || incident.getUpdatedAt().isAfter(cutoff)) {
+                record(null, incident);     // Changed since it was queued
+                continue;
+            }
+            batch.add(incident);
+        }
+        return batch;
+    }
+
+    /**
+     * Takes an entry off the queue, unless a concurrent change already replaced it.
+     */
+    private boolean claim(Due due) {
+        Due remaining = pending.computeIfPresent(due.id, (id, queued) -> {
+            if (queued != due) {
+                return queued;
+            }
+            queue.remove(due);
+            return null;
+        });
+        return remaining == null;
+    }
+
+    /**
+     * Puts a claimed entry back on the queue, unless a newer change already
+     * queued the incident again.
+     */
+    private void requeue(Due due) {
+        pending.computeIfAbsent(due.id, id -> {
+            queue.add(due);
+            return due;
+        });
+    }
+
+    private void requeue(Incident incident) {
+        requeue(new Due(incident.getUpdatedAt().toEpochMilli(), incident.getId()));
+    }
+
+    /**
+     * Deletes an archived incident, unless it changed after it was copied.
+     * The version check is part of the delete, so a change that lands
+     * between the copy and the delete always keeps the incident.
+     *
+     * @param copied The incident as it was archived
+     * @return The deleted incident, or null if it was kept
+     * @throws ApiException if the repository fails (other than 404)
+     */
+    private Incident remove(Incident copied) {
+        try {
+            return incidentRepository.deleteById(copied.getId(), copied.getVersion());
+        } catch (ApiException e) {
+            if (e.getStatusCode() == 404) {
+                return null;    // Deleted meanwhile
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes copies to the archive, if there is one.
+     *
+     * @return false if the archive could not be written
+     */
+    private boolean archive(List<ArchivedIncident> copies) {
+        if (archive == null) {
+            return true;
+        }
+        try {
+            archive.append(copies);
+            return true;
+        } catch (IOException e) {
+            log.error("Cannot archive {} resolved incidents; keeping them in memory", copies.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * @return The incident, or null if it doesn't exist (404 only; other errors are thrown)
+     */
+    private Incident findOrNull(String id) {
+        try {
+            return incidentRepository.findById(id);
+        } catch (ApiException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private void runScheduledPass() {
+        try {
+            runPass();
+        } catch (RuntimeException e) {
+            log.error("Retention pass failed", e);    // Keep the schedule running
+        }
+    }
+
+    private static Counter evictedCounter(String kind, MeterRegistry meterRegistry) {
+        return Counter.builder("incidents.retention.evicted")
+                .description("Records removed from memory by retention")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+}
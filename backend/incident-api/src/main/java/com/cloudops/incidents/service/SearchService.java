@@ -0,0 +1,118 @@
+package com.cloudops.incidents.service;
+
+import com.cloudops.incidents.config.PersistenceProperties;
+import com.cloudops.incidents.config.SearchProperties;
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.dto.SearchHit;
+import com.cloudops.incidents.dto.SearchIndexStatsResponse;
+import com.cloudops.incidents.dto.SearchResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.search.SearchCursor;
+import com.cloudops.incidents.search.SearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service for full-text search over incidents and diagnostic records.
+ *
+ * The SearchIndex finds and ranks the matching documents; this service
+ * validates the request and adds the current incident to incident hits.
+ */
+@Service
+public class SearchService {
+
+    /** Page size used when the client doesn't ask for one */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /** Largest page a client may request */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private SearchProperties searchProperties;
+
+    @Autowired
+    private PersistenceProperties persistenceProperties;
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    /**
+     * Searches incident titles and descriptions and diagnostic data.
+     *
+     * @param query The words to search for (all must match)
+     * @param type Only incidents or only diagnostic records (null = both)
+     * @param cursor Opaque cursor from the previous page (null for the first page)
+     * @param limit Maximum number of hits to return (1 to MAX_PAGE_SIZE)
+     * @return One page of hits, best first
+     * @throws ApiException with 400 status for an invalid query, limit or cursor,
+     *         503 if search is disabled (or off in dynamodb mode) or the incident store fails
+     */
+    public SearchResponse search(String query, SearchIndex.Type type, String cursor, int limit) {
+        if (!searchProperties.isEnabled()) {
+            throw new ApiException("Search is disabled (incidents.search.enabled)", 503);
+        }
+        if (!searchProperties.isActive(persistenceProperties)) {
+            throw new ApiException("Search is off in dynamodb mode (incidents.search.with-dynamodb)", 503);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ApiException("Limit must be between 1 and " + MAX_PAGE_SIZE, 400);
+        }
+        SearchCursor after = cursor != null && !cursor.isEmpty() ? SearchCursor.decode(cursor) : null;
+
+        SearchIndex.Result result = searchIndex.search(query, type, after, limit);
+        List<SearchHit> hits = new ArrayList<>(result.getMatches().size());
+        for (SearchIndex.Match match : result.getMatches()) {
+            SearchHit hit = new SearchHit();
+            hit.setType(match.getType());
+            hit.setId(match.getId());
+            hit.setIncidentId(match.getIncidentId());
+            hit.setScore(match.getScore());
+            if (match.getType() == SearchIndex.Type.INCIDENT) {
+                Incident incident = findOrNull(match.getId());
+                if (incident == null) {
+                    searchIndex.removeIncident(match.getId());     // Deleted while being indexed
+                    continue;
+                }
+                hit.setIncident(IncidentResponse.from(incident));
+            }
+            hits.add(hit);
+        }
+
+        SearchResponse response = new SearchResponse();
+        response.setQuery(query);
+        response.setTotal(result.getTotal());
+        response.setHits(hits);
+        response.setNextCursor(result.getNext() != null ? result.getNext().encode() : null);
+        return response;
+    }
+
+    /**
+     * Gets the size and estimated memory use of the search index.
+     */
+    public SearchIndexStatsResponse getStats() {
+        return searchIndex.getStats();
+    }
+
+    /**
+     * @return The incident, or null if it was deleted (404 only; other
+     *         errors are thrown, so a store outage can't unindex it)
+     */
+    private Incident findOrNull(String id) {
+        try {
+            return incidentRepository.findById(id);
+        } catch (ApiException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.cloudops.incidents.util;
+
+import java.util.UUID;
+
+/**
+ * Generates random UUIDs (version 4) with UUID.randomUUID().
+ *
+ * Example output: "550e8400-e29b-41d4-a716-446655440000"
+ *
+ * The 122 random bits come from a shared SecureRandom, which can become a
+ * point of contention when many threads create IDs at once. Use this only
+ * when IDs must not reveal their creation time.
+ */
+public final class RandomUuidGenerator implements UuidGenerator {
+
+    /** Shared instance (the generator has no state of its own) */
+    static final RandomUuidGenerator INSTANCE = new RandomUuidGenerator();
+
+    private RandomUuidGenerator() {}
+
+    @Override
+    public String generate() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -1,34 +1,51 @@
 package com.cloudops.incidents.util;
 
-import java.util.UUID;
-
 /**
- * Utility class for generating unique identifiers.
- * 
- * Uses UUID (Universally Unique Identifier) which guarantees
- * uniqueness across all systems and time.
- * 
- * Example output: "550e8400-e29b-41d4-a716-446655440000"
- * 
+ * Strategy for generating unique identifiers.
+ *
+ * Every implementation returns standard UUID strings, so IDs look the same
+ * to API clients whichever strategy is configured:
+ *
+ * Example output: "018d0d87-7f3a-7f21-9a4e-1c2b3d4e5f60"
+ *
  * Why UUIDs are perfect for incident IDs:
  * - Globally unique (no collisions even across multiple servers)
  * - No need for centralized ID generation
  * - Can be generated offline
  * - 128-bit number = virtually impossible to duplicate
- * 
- * Used by IncidentService when creating new incidents.
+ *
+ * Available strategies:
+ * - timeOrdered(): UUIDv7, starts with the creation time in milliseconds.
+ *   IDs sort in creation order (as strings too) and are cheap to generate.
+ *   The default (see incidents.ids.strategy in application.yml).
+ * - random(): UUIDv4 from SecureRandom. Reveals nothing about when the ID
+ *   was made, but has no order and is slower under burst load.
+ *
+ * IncidentService gets its generator from IdConfig; other code that just
+ * needs a unique ID can use UuidGenerator.timeOrdered().generate().
  */
-public class UuidGenerator {
-    
+public interface UuidGenerator {
+
     /**
-     * Generates a new random UUID as a string.
-     * 
+     * Generates a new unique identifier.
+     *
      * Format: 8-4-4-4-12 hexadecimal digits
-     * Example: "550e8400-e29b-41d4-a716-446655440000"
-     * 
+     *
      * @return A unique identifier string
      */
-    public static String generate() {
-        return UUID.randomUUID().toString();
+    String generate();
+
+    /**
+     * Gets the shared time-ordered (UUIDv7) generator.
+     */
+    static UuidGenerator timeOrdered() {
+        return TimeOrderedUuidGenerator.INSTANCE;
+    }
+
+    /**
+     * Gets the random (UUIDv4) generator.
+     */
+    static UuidGenerator random() {
+        return RandomUuidGenerator.INSTANCE;
     }
-}
\ No newline at end of file
+}
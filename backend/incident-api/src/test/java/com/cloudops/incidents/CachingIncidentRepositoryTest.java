@@ -0,0 +1,123 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.cache.CachingIncidentRepository;
+import com.cloudops.incidents.config.CacheProperties;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import com.cloudops.incidents.repository.IncidentCursor;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.cloudops.incidents.TestIncidents.incident;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CachingIncidentRepositoryTest {
+
+    private final CountingRepository store = new CountingRepository();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CachingIncidentRepository repository =
+            new CachingIncidentRepository(store, new CacheProperties(), registry);
+
+    @Test
+    public void cachesIncidentsAndMissesUntilWritten() {
+        repository.save(incident("inc-1", "checkout", Severity.HIGH));
+        repository.findById("inc-1");
+        repository.findById("inc-1");
+        assertEquals(1, store.reads.get());
+
+        repository.save(incident("inc-1", "checkout", Severity.HIGH).toBuilder().status(IncidentStatus.RESOLVED).build());
+        assertEquals(IncidentStatus.RESOLVED, repository.findById("inc-1").getStatus());
+        assertEquals(2, store.reads.get());
+
+        assertThrows(ApiException.class, () -> repository.findById("inc-2"));
+        assertThrows(ApiException.class, () -> repository.findById("inc-2"));
+        assertEquals(3, store.reads.get());
+        repository.save(incident("inc-2", "checkout", Severity.HIGH));
+        assertEquals("inc-2", repository.findById("inc-2").getId());
+
+        repository.deleteById("inc-1");
+        assertThrows(ApiException.class, () -> repository.findById("inc-1"));
+
+        assertEquals(1, registry.get("cache.gets").tag("cache", "incidents").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tag("cache", "incidents.missing").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    public void invalidatesListsTheIncidentLeavesOrJoins() {
+        repository.save(incident("inc-1", "checkout", Severity.HIGH));
+        repository.save(incident("inc-2", "search", Severity.HIGH));
+        assertEquals(2, repository.findByStatus(IncidentStatus.OPEN).size());
+        assertEquals(0, repository.findByStatus(IncidentStatus.RESOLVED).size());
+        assertEquals(1, repository.findByServiceName("search").size());
+        int listReads = store.lists.get();
+
+        Incident resolved = repository.findById("inc-1").toBuilder().status(IncidentStatus.RESOLVED).build();
+        repository.replace(resolved, 1);
+
+        assertEquals(1, repository.findByStatus(IncidentStatus.OPEN).size());
+        assertEquals(1, repository.findByStatus(IncidentStatus.RESOLVED).size());
+        assertEquals(1, repository.findByServiceName("search").size());
+        assertEquals(listReads + 2, store.lists.get());   // The "search" list was still valid
+    }
+
+    @Test
+    public void cachesFirstPagesWithoutTimeRanges() {
+        for (int i = 0; i < 5; i++) {
+            repository.save(incident("inc-" + i, "checkout", Severity.HIGH));
+        }
+        IncidentPage first = repository.findPage(null, null, 2);
+        assertEquals(first.getItems(), repository.findPage(new IncidentFilter(), null, 2).getItems());
+        assertEquals(1, store.pages.get());
+
+        repository.findPage(null, first.getNextCursor(), 2);
+        IncidentFilter recent = new IncidentFilter();
+        recent.setFrom(Instant.EPOCH);
+        repository.findPage(recent, null, 2);
+        repository.findPage(recent, null, 2);
+        assertEquals(4, store.pages.get());
+
+        repository.save(incident("inc-5", "checkout", Severity.HIGH));
+        List<Incident> items = repository.findPage(null, null, 10).getItems();
+        assertEquals(6, items.size());
+        assertEquals(IncidentCursor.of(items.get(1)), repository.findPage(null, null, 2).getNextCursor());
+    }
+
+    /**
+     * In-memory store that counts the reads reaching it.
+     */
+    private static class CountingRepository extends InMemoryIncidentRepository {
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger lists = new AtomicInteger();
+        final AtomicInteger pages = new AtomicInteger();
+
+        @Override
+        public Incident findById(String id) {
+            reads.incrementAndGet();
+            return super.findById(id);
+        }
+
+        @Override
+        public List<Incident> findByFilter(IncidentFilter filter) {
+            lists.incrementAndGet();
+            return super.findByFilter(filter);
+        }
+
+        @Override
+        public IncidentPage findPage(IncidentFilter filter, IncidentCursor after, int limit) {
+            pages.incrementAndGet();
+            return super.findPage(filter, after, limit);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.cloudops.incidents;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void incidentIsNotSentAgainUntilItChanges() throws Exception {
+        String id = create("checkout");
+        MvcResult first = mockMvc.perform(get("/api/incidents/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn();
+        String lastModified = first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get("/api/incidents/" + id).header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/incidents/" + id).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put("/api/incidents/" + id + "/status")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"RESOLVED\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/incidents/" + id).header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(content().json("{\"status\":\"RESOLVED\",\"version\":2}"));
+    }
+
+    @Test
+    public void listIsNotSentAgainUntilAnyIncidentChanges() throws Exception {
+        create("search");
+        String eTag = mockMvc.perform(get("/api/incidents?service=search"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/incidents?service=search").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        create("search");
+        MvcResult changed = mockMvc.perform(get("/api/incidents?service=search").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(eTag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(2, objectMapper.readTree(changed.getResponse().getContentAsByteArray()).size());
+    }
+
+    @Test
+    public void invalidListRequestIsRejectedEvenWithAMatchingETag() throws Exception {
+        create("billing");
+        String eTag = mockMvc.perform(get("/api/incidents?service=billing"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/incidents?service=billing&limit=0").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/incidents?service=billing&cursor=not-a-cursor").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String create(String serviceName) throws Exception {
+        String body = "{\"title\":\"Timeouts\",\"serviceName\":\"" + serviceName
+                + "\",\"severity\":\"HIGH\",\"errorType\":\"NETWORK\",\"correlationId\":\"" + UUID.randomUUID() + "\"}";
+        byte[] response = mockMvc.perform(post("/api/incidents").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode incident = objectMapper.readTree(response);
+        return incident.get("id").asText();
+    }
+}
@@ -0,0 +1,149 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.cloudops.incidents.service.DiagnosticsIngestionPipeline;
+import com.cloudops.incidents.service.DiagnosticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.cloudops.incidents.TestIncidents.incident;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /api/diagnostics/batch against the application's pipeline.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class DiagnosticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private DiagnosticsService diagnosticsService;
+
+    @SpyBean
+    private DiagnosticsIngestionPipeline ingestionPipeline;
+
+    private String incidentId;
+
+    @BeforeEach
+    public void createIncident() {
+        incidentId = incidentRepository.save(
+                incident(UUID.randomUUID().toString(), "diagnostics-test", Severity.HIGH)).getId();
+    }
+
+    @Test
+    public void jsonArrayIsAcceptedAndStored() throws Exception {
+        String body = "[" + record(incidentId, "networkProbe", "timeout after 5000ms")
+                + "," + record(incidentId, "logCollector", "ERROR pool exhausted") + "]";
+
+        mockMvc.perform(post("/api/diagnostics/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.batchId").isNotEmpty())
+                .andExpect(jsonPath("$.records").value(2));
+        awaitStored(2);
+    }
+
+    @Test
+    public void ndjsonIsAcceptedAndStored() throws Exception {
+        String body = record(incidentId, "networkProbe", "timeout after 5000ms") + "\n"
+                + record(incidentId, "logCollector", "ERROR pool exhausted") + "\n"
+                + record(incidentId, "logCollector", "WARN retrying") + "\n";
+
+        mockMvc.perform(post("/api/diagnostics/batch").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.records").value(3));
+        awaitStored(3);
+    }
+
+    @Test
+    public void batchLargerThanTheLimitIsRejected() throws Exception {
+        String body = IntStream.rangeClosed(0, DiagnosticsService.MAX_BATCH_SIZE)
+                .mapToObj(i -> record(incidentId, "networkProbe", "probe " + i))
+                .collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/api/diagnostics/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(content().string("Batch must not exceed " + DiagnosticsService.MAX_BATCH_SIZE + " records"));
+    }
+
+    @Test
+    public void malformedNdjsonIsRejectedWithItsRecordIndex() throws Exception {
+        String body = record(incidentId, "networkProbe", "ok") + "\n"
+                + record(incidentId, "networkProbe", "ok") + "\n"
+                + "{\"incidentId\": oops}\n";
+
+        mockMvc.perform(post("/api/diagnostics/batch").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(startsWith("Malformed NDJSON at record 2: ")));
+    }
+
+    @Test
+    public void fullQueueIsAnsweredWithRetryAfter() throws Exception {
+        doReturn(null).when(ingestionPipeline).submit(anyList());
+
+        mockMvc.perform(post("/api/diagnostics/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + record(incidentId, "networkProbe", "ok") + "]"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(content().string("Diagnostics ingestion queue is full, retry later"));
+    }
+
+    @Test
+    public void invalidRecordsAreRejectedByIndexBeforeQueueing() throws Exception {
+        long accepted = ingestionPipeline.getStats().getBatchesAccepted();
+        String body = "[" + record(incidentId, "networkProbe", "ok")
+                + "," + record("", "networkProbe", "blank incident")
+                + "," + record(incidentId, "logCollector", "x".repeat(65537)) + "]";
+
+        mockMvc.perform(post("/api/diagnostics/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.accepted").value(0))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("Incident ID is required"))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andExpect(jsonPath("$.errors[1].message").value("Data must not exceed 65536 characters"));
+        assertEquals(accepted, ingestionPipeline.getStats().getBatchesAccepted());
+    }
+
+    /**
+     * Waits for the pipeline workers to store the incident's records.
+     */
+    private void awaitStored(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (diagnosticsService.getDiagnosticsByIncident(incidentId).size() < expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, diagnosticsService.getDiagnosticsByIncident(incidentId).size());
+    }
+
+    private static String record(String incidentId, String source, String data) {
+        return "{\"incidentId\":\"" + incidentId + "\",\"source\":\"" + source + "\",\"data\":\"" + data + "\"}";
+    }
+}
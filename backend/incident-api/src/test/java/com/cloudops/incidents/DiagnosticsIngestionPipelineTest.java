@@ -0,0 +1,94 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.dto.DiagnosticBatchResponse;
+import com.cloudops.incidents.dto.DiagnosticRequest;
+import com.cloudops.incidents.dto.IngestionStatsResponse;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.service.DiagnosticsIngestionPipeline;
+import com.cloudops.incidents.service.DiagnosticsService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DiagnosticsIngestionPipelineTest {
+
+    @Test
+    public void fullQueueDropsBatchesUntilWorkersCatchUp() throws Exception {
+        BlockingService service = new BlockingService();
+        DiagnosticsIngestionPipeline pipeline = new DiagnosticsIngestionPipeline(service, 1, 2, Duration.ofSeconds(5));
+        try {
+            // The single worker takes the first batch and blocks in persist; two more fill the queue
+            assertNotNull(pipeline.submit(batch(3)));
+            assertTrue(service.persisting.await(5, TimeUnit.SECONDS));
+            assertNotNull(pipeline.submit(batch(3)));
+            assertNotNull(pipeline.submit(batch(3)));
+
+            assertNull(pipeline.submit(batch(5)));
+            assertTrue(pipeline.retryAfterSeconds() >= 1);
+
+            service.release.countDown();
+        } finally {
+            pipeline.close();
+        }
+
+        IngestionStatsResponse stats = pipeline.getStats();
+        assertEquals(9, service.stored.get());
+        assertEquals(3, stats.getBatchesAccepted());
+        assertEquals(1, stats.getBatchesDropped());
+        assertEquals(5, stats.getRecordsDropped());
+        assertEquals(9, stats.getRecordsStored());
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(3, stats.getPersist().getCount());
+    }
+
+    private static List<DiagnosticRequest> batch(int size) {
+        DiagnosticRequest[] requests = new DiagnosticRequest[size];
+        for (int i = 0; i < size; i++) {
+            requests[i] = new DiagnosticRequest();
+            requests[i].setIncidentId("inc-1");
+            requests[i].setSource("networkProbe");
+        }
+        return List.of(requests);
+    }
+
+    /**
+     * Accepts every record and holds the first persist call until released.
+     */
+    private static class BlockingService extends DiagnosticsService {
+        final CountDownLatch persisting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger stored = new AtomicInteger();
+
+        @Override
+        public DiagnosticBatchResponse prepareBatch(List<DiagnosticRequest> requests, List<DiagnosticRecord> valid) {
+            DiagnosticBatchResponse response = new DiagnosticBatchResponse();
+            for (DiagnosticRequest request : requests) {
+                DiagnosticRecord record = new DiagnosticRecord();
+                record.setIncidentId(request.getIncidentId());
+                valid.add(record);
+            }
+            response.setAccepted(valid.size());
+            return response;
+        }
+
+        @Override
+        public void persistBatch(List<DiagnosticRecord> records) {
+            persisting.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stored.addAndGet(records.size());
+        }
+    }
+}
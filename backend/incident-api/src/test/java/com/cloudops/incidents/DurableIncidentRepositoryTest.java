@@ -0,0 +1,87 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.persistence.FsyncPolicy;
+import com.cloudops.incidents.repository.DurableIncidentRepository;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.cloudops.incidents.TestIncidents.incident;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DurableIncidentRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void recoversFromSnapshotPlusLogTail() throws Exception {
+        try (DurableIncidentRepository repository = open()) {
+            for (int i = 0; i < 100; i++) {
+                repository.save(incident("inc-" + i, "payment-processor", Severity.LOW));
+            }
+            repository.deleteById("inc-0");
+            assertEquals(99, repository.snapshot());
+
+            // Written after the snapshot: only in the log tail
+            repository.save(incident("inc-1", "payment-processor", Severity.CRITICAL));
+            repository.deleteById("inc-2");
+            repository.save(incident("inc-100", "payment-processor", Severity.HIGH));
+            Incident changed = repository.findById("inc-3").toBuilder().title("Escalated")
+                    .occurrenceCount(7).lastSeenAt(Instant.parse("2024-01-15T14:41:12Z")).build();
+            assertNotNull(repository.replace(changed, 1));
+            assertNull(repository.replace(changed, 1));
+        }
+
+        try (DurableIncidentRepository recovered = open()) {
+            assertEquals(99, recovered.getRecoveryStats().getSnapshotRecords());
+            assertEquals(4, recovered.getRecoveryStats().getWalRecords());
+            assertEquals(99, recovered.findAll().size());
+            assertEquals(Severity.CRITICAL, recovered.findById("inc-1").getSeverity());
+            assertEquals(1, recovered.findBySeverity(Severity.CRITICAL).size());
+            assertEquals(1, recovered.findBySeverity(Severity.HIGH).size());
+            assertThrows(ApiException.class, () -> recovered.findById("inc-2"));
+            assertEquals("Escalated", recovered.findById("inc-3").getTitle());
+            assertEquals(2, recovered.findById("inc-3").getVersion());
+            assertEquals(7, recovered.findById("inc-3").getOccurrenceCount());
+            assertEquals(Instant.parse("2024-01-15T14:41:12Z"), recovered.findById("inc-3").getLastSeenAt());
+        }
+    }
+
+    @Test
+    public void failedLogWriteLeavesMemoryUnchanged() throws Exception {
+        DurableIncidentRepository repository = open();
+        repository.save(incident("kept", "payment-processor", Severity.LOW));
+        Incident stored = repository.findById("kept");
+        repository.close();   // from now on every log write fails
+
+        ApiException saveFailed = assertThrows(ApiException.class,
+                () -> repository.save(incident("new", "payment-processor", Severity.LOW)));
+        assertEquals(503, saveFailed.getStatusCode());
+        assertThrows(ApiException.class, () -> repository.findById("new"));
+
+        Incident changed = stored.toBuilder().severity(Severity.CRITICAL).build();
+        assertThrows(ApiException.class, () -> repository.replace(changed, 1));
+        assertEquals(Severity.LOW, repository.findById("kept").getSeverity());
+        assertEquals(1, repository.findById("kept").getVersion());
+
+        assertThrows(ApiException.class, () -> repository.deleteById("kept"));
+        assertEquals(stored, repository.findById("kept"));
+        assertEquals(1, repository.count());
+    }
+
+    private DurableIncidentRepository open() throws Exception {
+        return new DurableIncidentRepository(new InMemoryIncidentRepository(), directory, FsyncPolicy.ALWAYS,
+                Duration.ofMillis(100), Long.MAX_VALUE, Duration.ofHours(1));
+    }
+}
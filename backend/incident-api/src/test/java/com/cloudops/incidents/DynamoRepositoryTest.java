@@ -0,0 +1,258 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.dynamodb.DynamoBatchWriter;
+import com.cloudops.incidents.dynamodb.DynamoRetry;
+import com.cloudops.incidents.dynamodb.DynamoTables;
+import com.cloudops.incidents.dynamodb.LocalDynamoDbClient;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.DynamoDiagnosticsRepository;
+import com.cloudops.incidents.repository.DynamoIncidentRepository;
+import com.cloudops.incidents.repository.IncidentCursor;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DynamoRepositoryTest {
+
+    private static final Instant START = Instant.parse("2024-01-15T14:00:00Z");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private LocalDynamoDbClient client;
+    private DynamoIncidentRepository incidents;
+    private DynamoDiagnosticsRepository diagnostics;
+
+    @BeforeEach
+    public void setUp() {
+        client = new LocalDynamoDbClient();
+        DynamoTables.createIfMissing(client, DynamoTables.incidentsTable("incidents"));
+        DynamoTables.createIfMissing(client, DynamoTables.diagnosticsTable("diagnostics"));
+        incidents = incidentRepository(8);
+        DynamoRetry retry = retry("diagnostics", 8);
+        diagnostics = new DynamoDiagnosticsRepository(client, "diagnostics", retry,
+                new DynamoBatchWriter(client, "diagnostics", Arrays.asList(DynamoTables.INCIDENT_ID, DynamoTables.ID),
+                        retry, 4, 1000, registry),
+                Duration.ofSeconds(10), Duration.ZERO);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        incidents.close();
+        diagnostics.close();
+        client.close();
+    }
+
+    @Test
+    public void savesReplacesAndDeletesWithConditions() {
+        incidents.save(incident("inc-1", 0, "payment-processor", Severity.HIGH, IncidentStatus.OPEN));
+        assertEquals(Severity.HIGH, incidents.findById("inc-1").getSeverity());
+
+        Incident changed = incidents.findById("inc-1").toBuilder().title("Escalated").build();
+        Incident stored = incidents.replace(changed, 1);
+        assertEquals(2, stored.getVersion());
+        assertNull(incidents.replace(changed, 1));
+        assertEquals("Escalated", incidents.findById("inc-1").getTitle());
+        assertEquals(2, incidents.findById("inc-1").getVersion());
+
+        ApiException missing = assertThrows(ApiException.class, () -> incidents.replace(
+                changed.toBuilder().id("inc-404").build(), 1));
+        assertEquals(404, missing.getStatusCode());
+
+        assertEquals("Escalated", incidents.deleteById("inc-1").getTitle());
+        assertEquals(404, assertThrows(ApiException.class, () -> incidents.deleteById("inc-1")).getStatusCode());
+        assertEquals(404, assertThrows(ApiException.class, () -> incidents.findById("inc-1")).getStatusCode());
+    }
+
+    @Test
+    public void pagesThroughIndexesInListOrder() {
+        List<Incident> all = new ArrayList<>();
+        Severity[] severities = Severity.values();
+        IncidentStatus[] statuses = IncidentStatus.values();
+        for (int i = 0; i < 240; i++) {
+            Incident incident = incident("inc-" + i, i / 2, i % 3 == 0 ? "checkout" : "payment-processor",
+                    severities[i % severities.length], statuses[i % statuses.length]);
+            all.add(incident);
+            incidents.save(incident);
+        }
+        all.sort((a, b) -> IncidentCursor.of(a).compareTo(IncidentCursor.of(b)));
+
+        List<IncidentFilter> filters = new ArrayList<>();
+        filters.add(new IncidentFilter());
+        filters.add(filter("checkout", null, null, null));
+        filters.add(filter("payment-processor", Severity.CRITICAL, null, null));
+        filters.add(filter(null, null, IncidentStatus.OPEN, ErrorType.NETWORK));
+        filters.add(filter(null, Severity.LOW, null, null));
+        IncidentFilter range = filter(null, null, null, null);
+        range.setFrom(START.plusSeconds(30));
+        range.setTo(START.plusSeconds(90));
+        filters.add(range);
+
+        for (IncidentFilter filter : filters) {
+            List<Incident> expected = all.stream().filter(filter::matches).collect(Collectors.toList());
+            List<Incident> paged = new ArrayList<>();
+            IncidentCursor cursor = null;
+            do {
+                IncidentPage page = incidents.findPage(filter, cursor, 7);
+                paged.addAll(page.getItems());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            assertEquals(ids(expected), ids(paged));
+            assertEquals(expected.size(), incidents.findByFilter(filter).size());
+        }
+
+        assertEquals(240, incidents.findAll().size());
+        assertEquals(80, incidents.findByServiceName("checkout").size());
+        assertEquals(240, incidents.count());
+        assertEquals(60, incidents.countBySeverity(Severity.LOW));
+        assertEquals(incidents.findByStatus(IncidentStatus.OPEN).size(), incidents.countByStatus(IncidentStatus.OPEN));
+    }
+
+    @Test
+    public void concurrentSavesShareBatches() throws Exception {
+        client.setLatency(Duration.ofMillis(5));
+        ExecutorService threads = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<Incident>> saves = new ArrayList<>();
+            for (int i = 0; i < 320; i++) {
+                Incident incident = incident("inc-" + i, i, "checkout", Severity.LOW, IncidentStatus.OPEN);
+                saves.add(threads.submit(() -> incidents.save(incident)));
+            }
+            for (Future<Incident> save : saves) {
+                save.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals(320, incidents.count());
+        assertTrue(client.getRequestCount("BatchWriteItem") < 160,
+                "Expected shared batches, got " + client.getRequestCount("BatchWriteItem") + " requests");
+    }
+
+    @Test
+    public void retriesThrottlingAndUnprocessedItems() {
+        client.throttleNextRequests(3);
+        client.setUnprocessedRate(0.3);
+        List<DiagnosticRecord> records = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            records.add(record("inc-1", "diag-" + i, LocalDateTime.of(2024, 1, 15, 14, 0).plusSeconds(60 - i)));
+        }
+        diagnostics.saveAll(records);
+        client.setUnprocessedRate(0);
+
+        assertEquals(60, diagnostics.findByIncidentId("inc-1").size());
+        assertTrue(registry.get("dynamodb.retries").tag("table", "diagnostics").counter().count() > 0);
+        assertTrue(registry.get("dynamodb.unprocessed.items").tag("table", "diagnostics").counter().count() > 0);
+        assertNull(diagnostics.checkHealth());
+    }
+
+    @Test
+    public void exhaustedRetriesFailWith503UntilRequestsGetThrough() {
+        DynamoIncidentRepository impatient = incidentRepository(2);
+        try {
+            client.throttleNextRequests(2);
+            Incident incident = incident("inc-1", 0, "checkout", Severity.LOW, IncidentStatus.OPEN);
+            ApiException error = assertThrows(ApiException.class, () -> impatient.save(incident));
+            assertEquals(503, error.getStatusCode());
+            assertNotNull(impatient.checkHealth());
+
+            impatient.save(incident);
+            assertNull(impatient.checkHealth());
+            assertEquals(Severity.LOW, impatient.findById("inc-1").getSeverity());
+        } finally {
+            impatient.close();
+        }
+    }
+
+    @Test
+    public void diagnosticsAreOrderedByTimeAndDeletedPerIncident() {
+        LocalDateTime time = LocalDateTime.of(2024, 1, 15, 14, 0);
+        diagnostics.save(record("inc-1", "b", time.plusSeconds(5)));
+        diagnostics.saveAll(Arrays.asList(record("inc-1", "a", time.plusSeconds(5)),
+                record("inc-1", "c", time), record("inc-2", "d", time)));
+
+        assertEquals(Arrays.asList("c", "a", "b"), diagnostics.findByIncidentId("inc-1").stream()
+                .map(DiagnosticRecord::getId).collect(Collectors.toList()));
+        assertEquals(4, diagnostics.count());
+
+        assertEquals(3, diagnostics.deleteByIncidentId("inc-1").size());
+        assertEquals(Collections.emptyList(), diagnostics.findByIncidentId("inc-1"));
+        assertEquals(1, diagnostics.findByIncidentId("inc-2").size());
+        assertEquals(1, diagnostics.count());
+    }
+
+    private DynamoIncidentRepository incidentRepository(int maxAttempts) {
+        DynamoRetry retry = retry("incidents", maxAttempts);
+        return new DynamoIncidentRepository(client, "incidents", retry,
+                new DynamoBatchWriter(client, "incidents", Collections.singletonList(DynamoTables.ID), retry, 4, 1000,
+                        registry),
+                Duration.ofSeconds(10), Duration.ZERO);
+    }
+
+    private DynamoRetry retry(String table, int maxAttempts) {
+        return new DynamoRetry(table, maxAttempts, Duration.ofMillis(1), Duration.ofMillis(5), registry);
+    }
+
+    private static IncidentFilter filter(String serviceName, Severity severity, IncidentStatus status,
+                                         ErrorType errorType) {
+        IncidentFilter filter = new IncidentFilter();
+        filter.setServiceName(serviceName);
+        filter.setSeverity(severity);
+        filter.setStatus(status);
+        filter.setErrorType(errorType);
+        return filter;
+    }
+
+    private static List<String> ids(List<Incident> incidents) {
+        return incidents.stream().map(Incident::getId).collect(Collectors.toList());
+    }
+
+    private static Incident incident(String id, int second, String serviceName, Severity severity,
+                                     IncidentStatus status) {
+        return Incident.builder()
+                .id(id)
+                .title("Incident " + id)
+                .serviceName(serviceName)
+                .severity(severity)
+                .errorType(second % 2 == 0 ? ErrorType.NETWORK : ErrorType.APPLICATION)
+                .status(status)
+                .timestamp(START.plusSeconds(second))
+                .updatedAt(START.plusSeconds(second))
+                .version(1)
+                .build();
+    }
+
+    private static DiagnosticRecord record(String incidentId, String id, LocalDateTime timestamp) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setIncidentId(incidentId);
+        record.setId(id);
+        record.setSource("cloudwatch");
+        record.setData("{\"latencyMs\":1200}");
+        record.setTimestamp(timestamp);
+        return record;
+    }
+}
@@ -0,0 +1,117 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.config.HealthProperties;
+import com.cloudops.incidents.dto.DiagnosticBatchResponse;
+import com.cloudops.incidents.dto.DiagnosticRequest;
+import com.cloudops.incidents.dto.HealthResponse;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.repository.InMemoryDiagnosticsRepository;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import com.cloudops.incidents.service.DiagnosticsIngestionPipeline;
+import com.cloudops.incidents.service.DiagnosticsService;
+import com.cloudops.incidents.service.HealthMonitor;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HealthMonitorTest {
+
+    @Test
+    public void readinessFlipsOnQueueSaturationAndSlowRequests() throws Exception {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        Timer requests = Timer.builder("incidents.http.requests")
+                .tag("method", "GET").tag("uri", "/api/incidents").tag("status", "200")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+
+        HealthProperties properties = new HealthProperties();
+        properties.setRefreshInterval(Duration.ofHours(1));
+        properties.setMinLatencySamples(100);
+        properties.setMaxP99Latency(Duration.ofSeconds(1));
+
+        BlockingService service = new BlockingService();
+        DiagnosticsIngestionPipeline pipeline = new DiagnosticsIngestionPipeline(service, 1, 2, Duration.ofSeconds(5));
+        HealthMonitor monitor = new HealthMonitor(new InMemoryIncidentRepository(), new InMemoryDiagnosticsRepository(),
+                pipeline, registry, properties);
+        try {
+            assertTrue(monitor.getReadiness().isUp());
+            assertTrue(monitor.getLiveness().isUp());
+
+            // Fast requests keep the instance ready
+            for (int i = 0; i < 200; i++) {
+                requests.record(5, TimeUnit.MILLISECONDS);
+            }
+            monitor.refresh();
+            assertTrue(monitor.getReadiness().isUp());
+
+            // 2% slow requests push p99 over the limit; only the new window counts
+            for (int i = 0; i < 98; i++) {
+                requests.record(5, TimeUnit.MILLISECONDS);
+            }
+            requests.record(3, TimeUnit.SECONDS);
+            requests.record(3, TimeUnit.SECONDS);
+            monitor.refresh();
+            assertEquals(HealthResponse.DOWN, monitor.getReadiness().getChecks().get("latency").getStatus());
+
+            // Quiet window: latency recovers, but a full ingestion queue keeps it not-ready
+            assertNotNull(pipeline.submit(batch()));
+            assertTrue(service.persisting.await(5, TimeUnit.SECONDS));
+            assertNotNull(pipeline.submit(batch()));
+            assertNotNull(pipeline.submit(batch()));
+            monitor.refresh();
+            HealthResponse readiness = monitor.getReadiness();
+            assertEquals(HealthResponse.UP, readiness.getChecks().get("latency").getStatus());
+            assertEquals(HealthResponse.DOWN, readiness.getChecks().get("ingestionQueue").getStatus());
+            assertEquals(HealthResponse.DOWN, readiness.getStatus());
+
+            service.release.countDown();
+        } finally {
+            monitor.close();
+            pipeline.close();
+        }
+        monitor.refresh();
+        assertTrue(monitor.getReadiness().isUp());
+    }
+
+    private static List<DiagnosticRequest> batch() {
+        DiagnosticRequest request = new DiagnosticRequest();
+        request.setIncidentId("inc-1");
+        request.setSource("networkProbe");
+        return List.of(request);
+    }
+
+    /**
+     * Holds the first persist call until released, so queued batches pile up.
+     */
+    private static class BlockingService extends DiagnosticsService {
+        final CountDownLatch persisting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public DiagnosticBatchResponse prepareBatch(List<DiagnosticRequest> requests, List<DiagnosticRecord> valid) {
+            return new DiagnosticBatchResponse();
+        }
+
+        @Override
+        public void persistBatch(List<DiagnosticRecord> records) {
+            persisting.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
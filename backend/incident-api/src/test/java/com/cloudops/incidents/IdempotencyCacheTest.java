@@ -0,0 +1,96 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.service.IdempotencyCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdempotencyCacheTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-15T14:00:00Z"));
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final IdempotencyCache<String> cache = new IdempotencyCache<>("test", Duration.ofHours(1), 3, clock,
+            registry);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    public void retriesGetTheFirstResultUntilTheKeyExpires() {
+        assertEquals("result-1", cache.execute("key-a", "body", this::work));
+        assertEquals("result-1", cache.execute("key-a", "body", this::work));
+        assertEquals(1, runs.get());
+        assertEquals(1.0, registry.get("test.idempotency.replays").counter().count());
+
+        ApiException misuse = assertThrows(ApiException.class, () -> cache.execute("key-a", "other body", this::work));
+        assertEquals(422, misuse.getStatusCode());
+
+        // A failed run is not remembered
+        assertThrows(IllegalStateException.class, () -> cache.execute("key-b", "body", () -> {
+            throw new IllegalStateException("storage down");
+        }));
+        assertEquals("result-2", cache.execute("key-b", "body", this::work));
+
+        clock.advance(Duration.ofHours(1));
+        assertEquals("result-3", cache.execute("key-a", "body", this::work));
+    }
+
+    @Test
+    public void oldestKeysAreForgottenBeyondTheLimit() {
+        for (int i = 0; i < 5; i++) {
+            cache.execute("key-" + i, "body", this::work);
+        }
+        assertEquals(3, cache.size());
+        // key-4 is still remembered, key-0 was forgotten and runs again
+        assertEquals("result-5", cache.execute("key-4", "body", this::work));
+        assertEquals("result-6", cache.execute("key-0", "body", this::work));
+    }
+
+    @Test
+    public void concurrentRequestsWithTheSameKeyRunOnce() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = pool.submit(() -> cache.execute("key", "body", () -> {
+                running.countDown();
+                await(release);
+                return work();
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            Future<String> second = pool.submit(() -> cache.execute("key", "body", this::work));
+            Future<String> third = pool.submit(() -> cache.execute("key", "body", this::work));
+            release.countDown();
+
+            assertEquals("result-1", first.get(5, TimeUnit.SECONDS));
+            assertEquals("result-1", second.get(5, TimeUnit.SECONDS));
+            assertEquals("result-1", third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, runs.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private String work() {
+        return "result-" + runs.incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
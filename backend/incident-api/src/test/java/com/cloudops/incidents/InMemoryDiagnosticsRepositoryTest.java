@@ -0,0 +1,97 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.repository.InMemoryDiagnosticsRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryDiagnosticsRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 15, 14, 0);
+
+    private final InMemoryDiagnosticsRepository repository = new InMemoryDiagnosticsRepository();
+
+    @Test
+    public void recordsAreReturnedOldestFirstWhateverTheArrivalOrder() {
+        repository.save(record("b", "inc-1", 20));
+        repository.save(record("d", "inc-1", 40));
+        repository.save(record("a", "inc-1", 10));   // late arrival, goes first
+        repository.save(record("c", "inc-1", 30));   // late arrival, goes in the middle
+        repository.save(record("e", "inc-1", 20));   // same time as "b", sorted after it by ID
+        repository.save(record("x", "inc-2", 0));
+
+        assertEquals(Arrays.asList("a", "b", "e", "c", "d"), ids(repository.findByIncidentId("inc-1")));
+        assertEquals(Arrays.asList("x"), ids(repository.findByIncidentId("inc-2")));
+        assertTrue(repository.findByIncidentId("unknown").isEmpty());
+    }
+
+    @Test
+    public void overwritingARecordReplacesItInItsBucket() {
+        repository.save(record("a", "inc-1", 10));
+        repository.save(record("b", "inc-1", 20));
+
+        // Same ID, new timestamp: the old copy must not stay behind
+        repository.save(record("a", "inc-1", 30));
+        assertEquals(Arrays.asList("b", "a"), ids(repository.findByIncidentId("inc-1")));
+        assertEquals(2, repository.count());
+
+        // Same ID, other incident: the record moves
+        repository.save(record("b", "inc-2", 20));
+        assertEquals(Arrays.asList("a"), ids(repository.findByIncidentId("inc-1")));
+        assertEquals(Arrays.asList("b"), ids(repository.findByIncidentId("inc-2")));
+
+        // Moving the last record empties the old bucket
+        repository.save(record("a", "inc-2", 30));
+        assertTrue(repository.findByIncidentId("inc-1").isEmpty());
+        assertEquals(Arrays.asList("b", "a"), ids(repository.findByIncidentId("inc-2")));
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    public void saveAllMergesBatchesIntoExistingBuckets() {
+        repository.save(record("b", "inc-1", 20));
+        repository.save(record("d", "inc-1", 40));
+        repository.save(record("m", "inc-2", 10));
+
+        repository.saveAll(Arrays.asList(
+                record("e", "inc-1", 50),    // after everything stored
+                record("a", "inc-1", 10),    // before everything stored
+                record("c", "inc-1", 30),    // in between
+                record("m", "inc-1", 35),    // moved here from inc-2
+                record("n", "inc-3", 10)));  // new bucket
+
+        assertEquals(Arrays.asList("a", "b", "c", "m", "d", "e"), ids(repository.findByIncidentId("inc-1")));
+        assertTrue(repository.findByIncidentId("inc-2").isEmpty());
+        assertEquals(Arrays.asList("n"), ids(repository.findByIncidentId("inc-3")));
+        assertEquals(7, repository.count());
+
+        // A batch that only appends takes the fast path and keeps the order
+        repository.saveAll(Arrays.asList(record("g", "inc-1", 70), record("f", "inc-1", 60)));
+        assertEquals(Arrays.asList("a", "b", "c", "m", "d", "e", "f", "g"), ids(repository.findByIncidentId("inc-1")));
+
+        assertEquals(8, repository.deleteByIncidentId("inc-1").size());
+        assertTrue(repository.findByIncidentId("inc-1").isEmpty());
+        assertEquals(1, repository.count());
+    }
+
+    private static DiagnosticRecord record(String id, String incidentId, int minutes) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setId(id);
+        record.setIncidentId(incidentId);
+        record.setSource("app-logs");
+        record.setData("line " + id);
+        record.setTimestamp(START.plusMinutes(minutes));
+        return record;
+    }
+
+    private static List<String> ids(List<DiagnosticRecord> records) {
+        return records.stream().map(DiagnosticRecord::getId).collect(Collectors.toList());
+    }
+}
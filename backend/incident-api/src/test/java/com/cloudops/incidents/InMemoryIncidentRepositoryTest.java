@@ -0,0 +1,147 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import com.cloudops.incidents.repository.IncidentCursor;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.repository.IncidentPage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.cloudops.incidents.TestIncidents.incident;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryIncidentRepositoryTest {
+
+    private final InMemoryIncidentRepository repository = new InMemoryIncidentRepository();
+
+    @Test
+    public void findByFilterIntersectsIndexes() {
+        repository.save(incident("1", "payment-processor", Severity.CRITICAL));
+        repository.save(incident("2", "payment-processor", Severity.LOW));
+        repository.save(incident("3", "user-auth", Severity.CRITICAL));
+
+        IncidentFilter filter = new IncidentFilter();
+        filter.setServiceName("payment-processor");
+        filter.setSeverity(Severity.CRITICAL);
+        filter.setStatus(IncidentStatus.OPEN);
+
+        List<Incident> result = repository.findByFilter(filter);
+        assertEquals(1, result.size());
+        assertEquals("1", result.get(0).getId());
+        assertEquals(2, repository.findBySeverity(Severity.CRITICAL).size());
+        assertEquals(3, repository.findByErrorType(ErrorType.NETWORK).size());
+    }
+
+    @Test
+    public void indexesFollowUpdatesAndDeletes() {
+        Incident incident = repository.save(incident("1", "payment-processor", Severity.HIGH).toBuilder()
+                .errorType(ErrorType.RESOURCE).build());
+
+        // Saving a changed copy must move it between buckets and leave the old value untouched
+        repository.save(incident.toBuilder().serviceName("billing").severity(Severity.LOW).build());
+        assertEquals("payment-processor", incident.getServiceName());
+
+        assertTrue(repository.findByServiceName("payment-processor").isEmpty());
+        assertTrue(repository.findBySeverity(Severity.HIGH).isEmpty());
+        assertEquals(1, repository.findByServiceName("billing").size());
+        assertEquals(1, repository.findBySeverity(Severity.LOW).size());
+
+        repository.deleteById("1");
+        assertTrue(repository.findByServiceName("billing").isEmpty());
+        assertTrue(repository.findByStatus(IncidentStatus.OPEN).isEmpty());
+    }
+
+    @Test
+    public void findPageWalksAllMatchesInCreationOrder() {
+        Instant start = Instant.parse("2024-01-15T14:00:00Z");
+        for (int i = 0; i < 50; i++) {
+            repository.save(incident(String.format("%02d", i), i % 10 == 0 ? "rare" : "common",
+                    Severity.HIGH, start.plusSeconds(i)));
+        }
+
+        // Dense filter: walks the sorted index
+        IncidentFilter common = new IncidentFilter();
+        common.setServiceName("common");
+        common.setFrom(start.plusSeconds(5));
+        assertEquals(expectedIds(5, 50, false), pageThrough(common, 7));
+
+        // Selective filter: pages from the smallest index bucket
+        IncidentFilter rare = new IncidentFilter();
+        rare.setServiceName("rare");
+        assertEquals(List.of("00", "10", "20", "30", "40"), pageThrough(rare, 2));
+
+        IncidentPage last = repository.findPage(rare, IncidentCursor.decode(IncidentCursor.of(repository.findById("30")).encode()), 5);
+        assertEquals(1, last.getItems().size());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    public void replaceOnlyAppliesToTheExpectedVersion() throws Exception {
+        repository.save(incident("1", "payment-processor", Severity.HIGH));
+
+        // Every thread retries on conflict, so no increment may be lost
+        int threads = 8;
+        int updatesPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < updatesPerThread; i++) {
+                    Incident current;
+                    Incident changed;
+                    do {
+                        current = repository.findById("1");
+                        changed = current.toBuilder()
+                                .severity(current.getSeverity() == Severity.HIGH ? Severity.LOW : Severity.HIGH)
+                                .build();
+                    } while (repository.replace(changed, current.getVersion()) == null);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Incident stored = repository.findById("1");
+        assertEquals(1 + threads * updatesPerThread, stored.getVersion());
+        assertEquals(1, repository.findBySeverity(stored.getSeverity()).size());
+        assertNull(repository.replace(stored, stored.getVersion() - 1));
+        assertThrows(ApiException.class, () -> repository.replace(incident("2", "x", Severity.LOW), 1));
+    }
+
+    private List<String> pageThrough(IncidentFilter filter, int limit) {
+        List<String> ids = new ArrayList<>();
+        IncidentCursor cursor = null;
+        do {
+            IncidentPage page = repository.findPage(filter, cursor, limit);
+            page.getItems().forEach(incident -> ids.add(incident.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<String> expectedIds(int from, int to, boolean rare) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if ((i % 10 == 0) == rare) {
+                ids.add(String.format("%02d", i));
+            }
+        }
+        return ids;
+    }
+}
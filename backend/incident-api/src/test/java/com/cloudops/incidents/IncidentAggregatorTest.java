@@ -0,0 +1,67 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.dto.IncidentAggregationResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.IncidentFilter;
+import com.cloudops.incidents.service.IncidentAggregator;
+import com.cloudops.incidents.service.IncidentAggregator.Dimension;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static com.cloudops.incidents.TestIncidents.incident;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IncidentAggregatorTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T15:00:00Z");
+
+    private final IncidentAggregator aggregator = new IncidentAggregator(Duration.ofMinutes(1), Duration.ofHours(1),
+            Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    public void countsFollowCreatesUpdatesAndDeletes() {
+        Incident a = incident("a", "payment-processor", Severity.CRITICAL, NOW.minusSeconds(20 * 60));
+        Incident b = incident("b", "payment-processor", Severity.LOW, NOW.minusSeconds(17 * 60));
+        Incident c = incident("c", "user-auth", Severity.LOW, NOW.minusSeconds(2 * 60));
+        aggregator.record(null, a);
+        aggregator.record(null, b);
+        aggregator.record(null, c);
+        aggregator.record(null, incident("old", "user-auth", Severity.LOW, NOW.minusSeconds(2 * 3600)));
+
+        // An update moves b between groups; a title-only edit changes nothing
+        Incident escalated = b.toBuilder().severity(Severity.CRITICAL).build();
+        aggregator.record(b, escalated);
+        aggregator.record(escalated, escalated.toBuilder().title("Renamed").build());
+        aggregator.record(c, null);
+
+        IncidentAggregationResponse bySeverity = aggregator.aggregate(NOW.minusSeconds(30 * 60), NOW,
+                Duration.ofMinutes(10), List.of(Dimension.SERVICE_NAME, Dimension.SEVERITY), null);
+        assertEquals(3, bySeverity.getBuckets().size());
+        assertEquals(Instant.parse("2024-01-15T14:30:00Z"), bySeverity.getFrom());
+        assertEquals(1, bySeverity.getSeries().size());
+        IncidentAggregationResponse.Series series = bySeverity.getSeries().get(0);
+        assertEquals(Map.of("serviceName", "payment-processor", "severity", "CRITICAL"), series.getGroup());
+        assertArrayEquals(new long[] {0, 2, 0}, series.getCounts());
+        assertEquals(2, bySeverity.getTotal());
+
+        // Whole retention window, filtered, totals only; the 2h-old incident was never counted
+        IncidentFilter filter = new IncidentFilter();
+        filter.setStatus(IncidentStatus.OPEN);
+        IncidentAggregationResponse totals = aggregator.aggregate(null, null, Duration.ofMinutes(5), List.of(), filter);
+        assertEquals(2, totals.getTotal());
+
+        assertThrows(ApiException.class,
+                () -> aggregator.aggregate(null, null, Duration.ofSeconds(90), List.of(), null));
+    }
+}
@@ -0,0 +1,211 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.config.StreamProperties;
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.service.IncidentChangeFeed;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.cloudops.incidents.TestIncidents.incident;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IncidentChangeFeedTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void filtersAndResumesFromTheReplayBuffer() throws Exception {
+        IncidentChangeFeed feed = feed(4, 16);
+        try {
+            RecordingEmitter live = new RecordingEmitter();
+            feed.subscribe(live, "payment-processor", Severity.HIGH, null);
+
+            Incident low = incident("1", "payment-processor", Severity.LOW);
+            Incident escalated = low.toBuilder().severity(Severity.CRITICAL).build();
+            publish(feed, null, low);                                              // 1: below minSeverity
+            publish(feed, null, incident("2", "user-auth", Severity.CRITICAL));    // 2: other service
+            publish(feed, low, escalated);                                         // 3: now matches
+            publish(feed, escalated, null);                                        // 4: deleted
+            assertEquals(List.of("updated:3", "deleted:4"), live.take(2));
+
+            // Resume after 2: events 3 and 4 are replayed, 1 and 2 don't match
+            RecordingEmitter resumed = new RecordingEmitter();
+            feed.subscribe(resumed, "payment-processor", null, 2L);
+            assertEquals(List.of("updated:3", "deleted:4"), resumed.take(2));
+
+            // Two more events push 1 and 2 out of the 4-event buffer: resuming after 1 needs a reset
+            publish(feed, null, incident("5", "user-auth", Severity.LOW));
+            publish(feed, null, incident("6", "user-auth", Severity.LOW));
+            RecordingEmitter stale = new RecordingEmitter();
+            feed.subscribe(stale, null, null, 1L);
+            assertEquals(List.of(IncidentChangeFeed.RESET + ":6"), stale.take(1));
+        } finally {
+            feed.close();
+        }
+    }
+
+    @Test
+    public void slowSubscriberIsDisconnectedInsteadOfBuffered() throws Exception {
+        IncidentChangeFeed feed = feed(100, 2);
+        try {
+            RecordingEmitter slow = new RecordingEmitter();
+            slow.blocked = new CountDownLatch(1);
+            feed.subscribe(slow, null, null, null);
+            RecordingEmitter fast = new RecordingEmitter();
+            feed.subscribe(fast, null, null, null);
+
+            // The slow subscriber's dispatcher blocks on the first event; two more fill its queue.
+            // The fast one keeps up on the other dispatcher.
+            for (int i = 1; i <= 10; i++) {
+                publish(feed, null, incident(String.valueOf(i), "svc", Severity.LOW));
+                assertEquals(List.of("created:" + i), fast.take(1));
+            }
+            assertEquals(1, feed.getSubscriberCount());
+            assertEquals(1.0, registry.get("incidents.stream.dropped").counter().count());
+            slow.blocked.countDown();
+        } finally {
+            feed.close();
+        }
+    }
+
+    @Test
+    public void resumingFurtherBackThanTheQueueHoldsGetsAReset() throws Exception {
+        IncidentChangeFeed feed = feed(100, 4);
+        try {
+            for (int i = 1; i <= 20; i++) {
+                publish(feed, null, incident(String.valueOf(i), i <= 18 ? "svc" : "other", Severity.LOW));
+            }
+
+            // 20 events missed, 4 fit the queue: replaying would just disconnect it again
+            RecordingEmitter behind = new RecordingEmitter();
+            feed.subscribe(behind, null, null, 0L);
+            assertEquals(List.of(IncidentChangeFeed.RESET + ":20"), behind.take(1));
+            assertEquals(1, feed.getSubscriberCount());
+            assertEquals(0.0, registry.get("incidents.stream.dropped").counter().count());
+
+            // Only the events it wants count: 2 for "other" fit
+            RecordingEmitter filtered = new RecordingEmitter();
+            feed.subscribe(filtered, "other", null, 0L);
+            assertEquals(List.of("created:19", "created:20"), filtered.take(2));
+
+            publish(feed, null, incident("21", "other", Severity.LOW));
+            assertEquals(List.of("created:21"), behind.take(1));
+            assertEquals(List.of("created:21"), filtered.take(1));
+        } finally {
+            feed.close();
+        }
+    }
+
+    @Test
+    public void lateEventsOfAnIncidentAreDropped() throws Exception {
+        IncidentChangeFeed feed = feed(16, 16);
+        try {
+            RecordingEmitter live = new RecordingEmitter();
+            feed.subscribe(live, null, null, null);
+
+            Incident v1 = incident("1", "svc", Severity.LOW);
+            Incident v2 = v1.withVersion(2);
+            Incident v3 = v1.withVersion(3);
+            publish(feed, null, v1);       // 1
+            publish(feed, v2, v3);         // 2: the later update wins the race to publish
+            publish(feed, v1, v2);         // dropped: older than v3
+            publish(feed, v3, null);       // 3: deleted
+            publish(feed, v2, v3);         // dropped: the incident is gone
+            publish(feed, null, incident("2", "svc", Severity.LOW));   // 4
+
+            assertEquals(List.of("created:1", "updated:2", "deleted:3", "created:4"), live.take(4));
+            assertEquals(4, feed.getSequence());
+        } finally {
+            feed.close();
+        }
+    }
+
+    @Test
+    public void changeThatCannotBeSerializedStillAdvancesTheSequence() throws Exception {
+        ObjectMapper failing = new ObjectMapper() {
+            @Override
+            public String writeValueAsString(Object value) throws JsonProcessingException {
+                throw new JsonMappingException(null, "Cannot serialize");
+            }
+        };
+        IncidentChangeFeed feed = new IncidentChangeFeed(new StreamProperties(), failing, registry);
+        try {
+            RecordingEmitter live = new RecordingEmitter();
+            feed.subscribe(live, null, null, null);
+
+            publish(feed, null, incident("1", "svc", Severity.LOW));
+            assertEquals(1, feed.getSequence());    // List ETags change with it
+            assertEquals(List.of(IncidentChangeFeed.RESET + ":1"), live.take(1));
+        } finally {
+            feed.close();
+        }
+    }
+
+    private IncidentChangeFeed feed(int replayBuffer, int subscriberQueue) {
+        StreamProperties properties = new StreamProperties();
+        properties.setReplayBuffer(replayBuffer);
+        properties.setSubscriberQueue(subscriberQueue);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return new IncidentChangeFeed(properties, objectMapper, registry);
+    }
+
+    private static void publish(IncidentChangeFeed feed, Incident previous, Incident current) {
+        Incident incident = current != null ? current : previous;
+        IncidentResponse response = new IncidentResponse();
+        response.setId(incident.getId());
+        response.setSeverity(incident.getSeverity());
+        response.setServiceName(incident.getServiceName());
+        feed.publish(previous, current, response);
+    }
+
+    /**
+     * Records "event:id" for every event sent, optionally blocking like a stalled client.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        volatile CountDownLatch blocked;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (blocked != null) {
+                try {
+                    blocked.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String text = builder.build().stream().map(data -> String.valueOf(data.getData()))
+                    .collect(Collectors.joining());
+            if (!text.startsWith(":")) {
+                String id = text.substring(text.indexOf("id:") + 3, text.indexOf('\n', text.indexOf("id:")));
+                String name = text.substring(text.indexOf("event:") + 6, text.indexOf('\n', text.indexOf("event:")));
+                events.add(name + ":" + id);
+            }
+        }
+
+        List<String> take(int count) throws InterruptedException {
+            List<String> taken = new java.util.ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String event = events.poll(5, TimeUnit.SECONDS);
+                assertTrue(event != null, "expected " + count + " events, got " + taken);
+                taken.add(event);
+            }
+            return taken;
+        }
+    }
+}
@@ -1,13 +1,120 @@
 package com.cloudops.incidents;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 public class IncidentControllerTest {
 
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Test
     public void contextLoads() {
         // Test that Spring context loads successfully
     }
-}
\ No newline at end of file
+
+    @Test
+    public void limitMustBeWithinBounds() throws Exception {
+        mockMvc.perform(get("/api/incidents?limit=0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Limit must be between 1 and 1000"));
+        mockMvc.perform(get("/api/incidents?limit=1001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/incidents?limit=1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/incidents?limit=1000"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void malformedCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/api/incidents?cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor: not-a-cursor"));
+    }
+
+    @Test
+    public void filterParametersAreParsedOrRejectedByName() throws Exception {
+        mockMvc.perform(get("/api/incidents?severity=URGENT"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid value for parameter 'severity': URGENT"));
+        mockMvc.perform(get("/api/incidents?status=CLOSED"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid value for parameter 'status': CLOSED"));
+        mockMvc.perform(get("/api/incidents?from=yesterday"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid value for parameter 'from': yesterday"));
+
+        Instant before = Instant.now().minusSeconds(1);
+        String id = create("ledger");
+        Instant after = Instant.now().plusSeconds(1);
+
+        assertEquals(Arrays.asList(id), ids(list("/api/incidents?service=ledger&severity=HIGH&status=OPEN"
+                + "&errorType=NETWORK&from=" + before + "&to=" + after)));
+        assertEquals(0, ids(list("/api/incidents?service=ledger&severity=LOW")).size());
+        assertEquals(0, ids(list("/api/incidents?service=ledger&from=" + after)).size());
+    }
+
+    @Test
+    public void nextCursorHeaderLeadsThroughAllPages() throws Exception {
+        List<String> created = Arrays.asList(create("inventory"), create("inventory"), create("inventory"));
+
+        MvcResult first = list("/api/incidents?service=inventory&limit=2");
+        String cursor = first.getResponse().getHeader("X-Next-Cursor");
+        assertNotNull(cursor);
+        MvcResult second = list("/api/incidents?service=inventory&limit=2&cursor=" + cursor);
+        assertNull(second.getResponse().getHeader("X-Next-Cursor"));
+
+        List<String> seen = new ArrayList<>(ids(first));
+        seen.addAll(ids(second));
+        assertEquals(2, ids(first).size());
+        assertEquals(created, seen);
+    }
+
+    private MvcResult list(String url) throws Exception {
+        return mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+    }
+
+    private List<String> ids(MvcResult result) throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (JsonNode incident : objectMapper.readTree(result.getResponse().getContentAsByteArray())) {
+            ids.add(incident.get("id").asText());
+        }
+        return ids;
+    }
+
+    private String create(String serviceName) throws Exception {
+        String body = "{\"title\":\"Timeouts\",\"serviceName\":\"" + serviceName
+                + "\",\"severity\":\"HIGH\",\"errorType\":\"NETWORK\",\"correlationId\":\"" + UUID.randomUUID() + "\"}";
+        byte[] response = mockMvc.perform(post("/api/incidents").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        return objectMapper.readTree(response).get("id").asText();
+    }
+}
@@ -0,0 +1,178 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import com.cloudops.incidents.service.IncidentDeduplicator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IncidentDeduplicatorTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-15T14:00:00Z"));
+    private final InMemoryIncidentRepository repository = new InMemoryIncidentRepository();
+
+    @Test
+    public void duplicatesWithinTheWindowAreMerged() {
+        try (IncidentDeduplicator deduplicator = new IncidentDeduplicator(repository, Duration.ofMinutes(10), clock)) {
+            IncidentDeduplicator.Outcome first = deduplicator.create(report("payment-processor", "req-1"));
+            assertFalse(first.isDuplicate());
+
+            // Keeps merging while reports keep coming, even past 10 minutes after the first one
+            for (int i = 0; i < 3; i++) {
+                clock.advance(Duration.ofMinutes(6));
+                IncidentDeduplicator.Outcome duplicate = deduplicator.create(report("payment-processor", "req-1"));
+                assertTrue(duplicate.isDuplicate());
+                assertEquals(first.getCurrent().getId(), duplicate.getCurrent().getId());
+                assertEquals(i + 1, duplicate.getPrevious().getOccurrenceCount());
+            }
+            Incident merged = repository.findById(first.getCurrent().getId());
+            assertEquals(4, merged.getOccurrenceCount());
+            assertEquals(clock.instant(), merged.getLastSeenAt());
+            assertEquals(4, merged.getVersion());
+
+            // A different correlation ID is a different problem
+            assertFalse(deduplicator.create(report("payment-processor", "req-2")).isDuplicate());
+
+            // Quiet for a whole window: the next report opens a new incident
+            clock.advance(Duration.ofMinutes(10));
+            IncidentDeduplicator.Outcome later = deduplicator.create(report("payment-processor", "req-1"));
+            assertFalse(later.isDuplicate());
+            assertNotEquals(first.getCurrent().getId(), later.getCurrent().getId());
+            assertEquals(3, repository.count());
+
+            // Resolved and deleted incidents don't absorb duplicates
+            repository.replace(later.getCurrent().toBuilder().status(IncidentStatus.RESOLVED).build(), 1);
+            assertFalse(deduplicator.create(report("payment-processor", "req-1")).isDuplicate());
+
+            clock.advance(Duration.ofMinutes(10));
+            deduplicator.sweep();
+            assertEquals(0, deduplicator.getIndexSize());
+        }
+    }
+
+    @Test
+    public void reportsWithoutCorrelationIdAreNotMerged() {
+        try (IncidentDeduplicator deduplicator = new IncidentDeduplicator(repository, Duration.ofMinutes(10), clock)) {
+            IncidentDeduplicator.Outcome first = deduplicator.create(report("payment-processor", null));
+            IncidentDeduplicator.Outcome second = deduplicator.create(report("payment-processor", null));
+            assertFalse(second.isDuplicate());
+            assertNotEquals(first.getCurrent().getId(), second.getCurrent().getId());
+            assertEquals(2, repository.count());
+            assertEquals(0, deduplicator.getIndexSize());
+        }
+    }
+
+    @Test
+    public void mergeKeepsTheHigherSeverity() {
+        try (IncidentDeduplicator deduplicator = new IncidentDeduplicator(repository, Duration.ofMinutes(10), clock)) {
+            Incident low = report("payment-processor", "req-1").toBuilder().severity(Severity.LOW).build();
+            String id = deduplicator.create(low).getCurrent().getId();
+
+            Incident critical = report("payment-processor", "req-1").toBuilder().severity(Severity.CRITICAL).build();
+            IncidentDeduplicator.Outcome escalated = deduplicator.create(critical);
+            assertTrue(escalated.isDuplicate());
+            assertEquals(Severity.CRITICAL, escalated.getCurrent().getSeverity());
+
+            // A less severe duplicate doesn't lower it again
+            Incident medium = report("payment-processor", "req-1").toBuilder().severity(Severity.MEDIUM).build();
+            assertEquals(Severity.CRITICAL, deduplicator.create(medium).getCurrent().getSeverity());
+            assertEquals(Severity.CRITICAL, repository.findById(id).getSeverity());
+            assertEquals(3, repository.findById(id).getOccurrenceCount());
+        }
+    }
+
+    @Test
+    public void concurrentStormCreatesOneIncident() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (IncidentDeduplicator deduplicator = new IncidentDeduplicator(repository, Duration.ofMinutes(10), clock)) {
+            List<Future<IncidentDeduplicator.Outcome>> results = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                results.add(pool.submit(() -> deduplicator.create(report("user-auth", "req-storm"))));
+            }
+            long created = 0;
+            for (Future<IncidentDeduplicator.Outcome> result : results) {
+                created += result.get().isDuplicate() ? 0 : 1;
+            }
+            assertEquals(1, created);
+            assertEquals(1, repository.count());
+            assertEquals(2000, repository.findAll().get(0).getOccurrenceCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void slowStoreOnlyHoldsUpItsOwnFingerprint() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryIncidentRepository slowForBilling = new InMemoryIncidentRepository() {
+            @Override
+            public Incident save(Incident incident) {
+                if ("billing".equals(incident.getServiceName())) {
+                    saving.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.save(incident);
+            }
+        };
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (IncidentDeduplicator deduplicator = new IncidentDeduplicator(slowForBilling, Duration.ofMinutes(10), clock)) {
+            Future<IncidentDeduplicator.Outcome> billing = pool.submit(() -> deduplicator.create(report("billing", "req-1")));
+            assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+            // Other fingerprints, and the sweeper, carry on while billing waits for the store
+            for (int i = 0; i < 100; i++) {
+                assertFalse(deduplicator.create(report("search-" + i, "req-1")).isDuplicate());
+            }
+            clock.advance(Duration.ofMinutes(10));
+            deduplicator.sweep();
+            assertEquals(1, deduplicator.getIndexSize());
+            assertFalse(billing.isDone());
+
+            release.countDown();
+            assertFalse(billing.get(5, TimeUnit.SECONDS).isDuplicate());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    private Incident report(String serviceName, String correlationId) {
+        Instant now = clock.instant();
+        return Incident.builder()
+                .id(UUID.randomUUID().toString())
+                .title("Connection refused")
+                .serviceName(serviceName)
+                .severity(Severity.HIGH)
+                .errorType(ErrorType.NETWORK)
+                .correlationId(correlationId)
+                .status(IncidentStatus.OPEN)
+                .timestamp(now)
+                .updatedAt(now)
+                .lastSeenAt(now)
+                .version(1)
+                .build();
+    }
+}
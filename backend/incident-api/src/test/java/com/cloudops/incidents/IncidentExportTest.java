@@ -0,0 +1,188 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.controller.IncidentController;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.DiagnosticsRepository;
+import com.cloudops.incidents.repository.IncidentRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/incidents/export against the application's repositories.
+ *
+ * Each test stores its incidents directly in the repository, in a creation
+ * time range of its own, and exports only that range, so incidents created
+ * by other tests sharing the context don't show up.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IncidentExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private DiagnosticsRepository diagnosticsRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void unknownFieldIsRejectedBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/api/incidents/export").param("fields", "id,password"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("password")));
+    }
+
+    @Test
+    public void linesSpanBatchBoundaryInCreationOrder() throws Exception {
+        Instant start = uniqueRange();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            ids.add(save(start.plusSeconds(i), start.plusSeconds(i)).getId());
+        }
+
+        String body = export("from=" + start + "&to=" + start.plusSeconds(3600));
+        assertTrue(body.endsWith("\n"));
+        List<JsonNode> lines = parseLines(body);
+        assertEquals(1001, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(ids.get(i), lines.get(i).get("id").asText());
+        }
+        assertFalse(lines.get(0).has("diagnostics"));
+    }
+
+    @Test
+    public void projectionKeepsFieldOrderWhateverTheRequestedOrder() throws Exception {
+        Instant start = uniqueRange();
+        Incident incident = save(start, start);
+
+        String body = export("from=" + start + "&to=" + start.plusSeconds(1)
+                + "&fields=status,id,severity");
+        List<JsonNode> lines = parseLines(body);
+        assertEquals(1, lines.size());
+
+        List<String> names = new ArrayList<>();
+        Iterator<String> fieldNames = lines.get(0).fieldNames();
+        fieldNames.forEachRemaining(names::add);
+        assertEquals(List.of("id", "severity", "status"), names);
+        assertEquals(incident.getId(), lines.get(0).get("id").asText());
+        assertEquals("HIGH", lines.get(0).get("severity").asText());
+    }
+
+    @Test
+    public void updatedSinceOnlyExportsRecentChanges() throws Exception {
+        Instant start = uniqueRange();
+        save(start, start.plusSeconds(10));
+        Incident changed = save(start.plusSeconds(1), start.plusSeconds(100));
+        Incident changedAtBound = save(start.plusSeconds(2), start.plusSeconds(50));
+
+        String body = export("from=" + start + "&to=" + start.plusSeconds(60)
+                + "&updatedSince=" + start.plusSeconds(50) + "&fields=id");
+        List<JsonNode> lines = parseLines(body);
+        assertEquals(2, lines.size());
+        assertEquals(changed.getId(), lines.get(0).get("id").asText());
+        assertEquals(changedAtBound.getId(), lines.get(1).get("id").asText());
+    }
+
+    @Test
+    public void includeDiagnosticsAddsEachIncidentsRecords() throws Exception {
+        Instant start = uniqueRange();
+        Incident withRecords = save(start, start);
+        Incident withoutRecords = save(start.plusSeconds(1), start.plusSeconds(1));
+        diagnosticsRepository.save(diagnostic(withRecords.getId(), "second", 2));
+        diagnosticsRepository.save(diagnostic(withRecords.getId(), "first", 1));
+
+        String body = export("from=" + start + "&to=" + start.plusSeconds(2)
+                + "&fields=id&includeDiagnostics=true");
+        List<JsonNode> lines = parseLines(body);
+        assertEquals(2, lines.size());
+
+        JsonNode diagnostics = lines.get(0).get("diagnostics");
+        assertEquals(2, diagnostics.size());
+        assertEquals("first", diagnostics.get(0).get("data").asText());
+        assertEquals("second", diagnostics.get(1).get("data").asText());
+        assertEquals(withoutRecords.getId(), lines.get(1).get("id").asText());
+        assertEquals(0, lines.get(1).get("diagnostics").size());
+    }
+
+    /** Runs an export and returns the whole streamed body */
+    private String export(String query) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/incidents/export?" + query))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(IncidentController.NDJSON))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private List<JsonNode> parseLines(String body) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    /** A creation time range far from "now" and from other tests' ranges */
+    private static Instant uniqueRange() {
+        long day = 86_400L * (1 + (UUID.randomUUID().getLeastSignificantBits() & 0xFFFF));
+        return Instant.parse("2040-01-01T00:00:00Z").plusSeconds(day);
+    }
+
+    private Incident save(Instant createdAt, Instant updatedAt) {
+        return incidentRepository.save(Incident.builder()
+                .id(UUID.randomUUID().toString())
+                .title("Timeouts")
+                .serviceName("export-test")
+                .severity(Severity.HIGH)
+                .errorType(ErrorType.NETWORK)
+                .status(IncidentStatus.OPEN)
+                .timestamp(createdAt)
+                .updatedAt(updatedAt)
+                .version(1)
+                .build());
+    }
+
+    private static DiagnosticRecord diagnostic(String incidentId, String data, int minute) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setId(UUID.randomUUID().toString());
+        record.setIncidentId(incidentId);
+        record.setSource("app-logs");
+        record.setData(data);
+        record.setTimestamp(LocalDateTime.of(2024, 1, 15, 14, minute));
+        return record;
+    }
+}
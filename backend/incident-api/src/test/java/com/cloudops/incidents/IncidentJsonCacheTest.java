@@ -0,0 +1,97 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.cache.IncidentJsonCache;
+import com.cloudops.incidents.cache.SerializedIncident;
+import com.cloudops.incidents.config.CacheProperties;
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class IncidentJsonCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final IncidentJsonCache cache = new IncidentJsonCache(new CacheProperties(), objectMapper, registry);
+
+    @Test
+    public void reusesJsonUntilTheVersionChanges() throws Exception {
+        Incident first = incident("inc-1", 1, IncidentStatus.OPEN);
+        SerializedIncident json = cache.get(first);
+        assertArrayEquals(objectMapper.writeValueAsBytes(IncidentResponse.from(first)), json.getJson());
+        assertSame(json, cache.get(first));
+
+        Incident resolved = first.toBuilder().status(IncidentStatus.RESOLVED).version(2).build();
+        SerializedIncident updated = cache.get(resolved);
+        assertEquals(2, updated.getVersion());
+        assertEquals(IncidentStatus.RESOLVED,
+                objectMapper.readValue(updated.getJson(), IncidentResponse.class).getStatus());
+
+        // A reader still holding version 1 doesn't replace the newer JSON
+        cache.get(first);
+        assertSame(updated, cache.get(resolved));
+
+        cache.invalidate("inc-1");
+        assertNotSame(updated, cache.get(resolved));
+        assertEquals(2, registry.get("cache.gets").tag("cache", "incidents.json").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    public void assemblesTheSameArrayJacksonWrites() throws Exception {
+        List<Incident> page = Arrays.asList(incident("inc-1", 1, IncidentStatus.OPEN),
+                incident("inc-2", 3, IncidentStatus.MITIGATED), incident("inc-3", 1, IncidentStatus.RESOLVED));
+        cache.get(page.get(1));
+        List<IncidentResponse> responses = page.stream().map(IncidentResponse::from).collect(Collectors.toList());
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(responses), cache.toJsonArray(page));
+        assertArrayEquals(objectMapper.writeValueAsBytes(Collections.emptyList()),
+                cache.toJsonArray(Collections.emptyList()));
+    }
+
+    @Test
+    public void serializesEveryTimeWhenDisabled() throws Exception {
+        CacheProperties properties = new CacheProperties();
+        properties.setJsonEnabled(false);
+        IncidentJsonCache disabled = new IncidentJsonCache(properties, objectMapper, registry);
+
+        Incident incident = incident("inc-1", 1, IncidentStatus.OPEN);
+        assertNotSame(disabled.get(incident), disabled.get(incident));
+        assertArrayEquals(objectMapper.writeValueAsBytes(Collections.singletonList(IncidentResponse.from(incident))),
+                disabled.toJsonArray(Collections.singletonList(incident)));
+    }
+
+    private static Incident incident(String id, long version, IncidentStatus status) {
+        Instant now = Instant.parse("2024-01-15T14:30:00Z");
+        return Incident.builder()
+                .id(id)
+                .title("Incident \"" + id + "\"")
+                .description("Connection pool exhausted – é")
+                .serviceName("payment-processor")
+                .severity(Severity.CRITICAL)
+                .errorType(ErrorType.RESOURCE)
+                .status(status)
+                .timestamp(now)
+                .updatedAt(now.plusSeconds(version))
+                .version(version)
+                .occurrenceCount(1)
+                .lastSeenAt(now)
+                .build();
+    }
+}
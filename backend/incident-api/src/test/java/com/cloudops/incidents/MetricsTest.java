@@ -0,0 +1,148 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.exception.GlobalExceptionHandler;
+import com.cloudops.incidents.metrics.EndpointMetricsInterceptor;
+import com.cloudops.incidents.metrics.InstrumentedDiagnosticsRepository;
+import com.cloudops.incidents.metrics.InstrumentedIncidentRepository;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.InMemoryDiagnosticsRepository;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+import static com.cloudops.incidents.TestIncidents.incident;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The meters behind GET /actuator/prometheus, recorded into a SimpleMeterRegistry.
+ */
+public class MetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void endpointTimersAreTaggedWithTheRouteTemplate() throws Exception {
+        MockMvc mockMvc = mockMvc();
+
+        mockMvc.perform(get("/probe/a1")).andExpect(status().isOk());
+        mockMvc.perform(get("/probe/b2")).andExpect(status().isOk());
+        mockMvc.perform(get("/probe/missing")).andExpect(status().isNotFound());
+
+        Timer ok = registry.find("incidents.http.requests")
+                .tags("method", "GET", "uri", "/probe/{id}", "status", "200").timer();
+        assertNotNull(ok);
+        assertEquals(2, ok.count());
+        assertEquals(1, registry.get("incidents.http.requests")
+                .tags("uri", "/probe/{id}", "status", "404").timer().count());
+        assertNull(registry.find("incidents.http.requests").tag("uri", "/probe/a1").timer());
+    }
+
+    @Test
+    public void errorsAreCountedByStatus() throws Exception {
+        MockMvc mockMvc = mockMvc();
+
+        mockMvc.perform(get("/probe/missing")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/probe/missing")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/probe/conflict")).andExpect(status().isConflict());
+        mockMvc.perform(get("/probe/crash")).andExpect(status().isInternalServerError());
+
+        assertEquals(2, registry.get("incidents.api.errors")
+                .tags("status", "404", "exception", "ApiException").counter().count());
+        assertEquals(1, registry.get("incidents.api.errors")
+                .tags("status", "409", "exception", "ApiException").counter().count());
+        assertEquals(1, registry.get("incidents.api.errors")
+                .tags("status", "500", "exception", "Unhandled").counter().count());
+    }
+
+    @Test
+    public void incidentRepositoryRecordsOperationsAndSizes() {
+        InstrumentedIncidentRepository repository =
+                new InstrumentedIncidentRepository(new InMemoryIncidentRepository(), registry);
+
+        repository.save(incident("inc-1", "checkout", Severity.HIGH));
+        repository.save(incident("inc-2", "checkout", Severity.LOW));
+        repository.findById("inc-1");
+
+        assertEquals(2, operation("incident", "save").count());
+        assertEquals(1, operation("incident", "findById").count());
+        assertEquals(0, operation("incident", "deleteById").count());
+        assertEquals(2.0, registry.get("incidents.store.size").gauge().value());
+        assertEquals(1.0, registry.get("incidents.by.severity").tag("severity", "HIGH").gauge().value());
+        assertEquals(2.0, registry.get("incidents.by.status").tag("status", "OPEN").gauge().value());
+    }
+
+    @Test
+    public void diagnosticsRepositoryRecordsOperationsAndSizes() {
+        InstrumentedDiagnosticsRepository repository =
+                new InstrumentedDiagnosticsRepository(new InMemoryDiagnosticsRepository(), registry);
+
+        repository.save(record("d1"));
+        repository.findByIncidentId("inc-1");
+
+        assertEquals(1, operation("diagnostics", "save").count());
+        assertEquals(1, operation("diagnostics", "findByIncidentId").count());
+        assertNotNull(registry.find("incidents.repository.operations")
+                .tags("repository", "diagnostics", "operation", "saveAll").timer());
+        assertEquals(1.0, registry.get("diagnostics.store.size").gauge().value());
+    }
+
+    private MockMvc mockMvc() {
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+        ReflectionTestUtils.setField(handler, "meterRegistry", registry);
+        return MockMvcBuilders.standaloneSetup(new ProbeController())
+                .addInterceptors(new EndpointMetricsInterceptor(registry))
+                .setControllerAdvice(handler)
+                .build();
+    }
+
+    private Timer operation(String repository, String operation) {
+        return registry.get("incidents.repository.operations")
+                .tags("repository", repository, "operation", operation).timer();
+    }
+
+    private static DiagnosticRecord record(String id) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setId(id);
+        record.setIncidentId("inc-1");
+        record.setSource("app-logs");
+        record.setData("line " + id);
+        record.setTimestamp(LocalDateTime.now());
+        return record;
+    }
+
+    /**
+     * One templated route that answers 200, or fails the way real endpoints do.
+     */
+    @RestController
+    static class ProbeController {
+
+        @GetMapping("/probe/{id}")
+        public String probe(@PathVariable String id) {
+            switch (id) {
+                case "missing":
+                    throw new ApiException("Probe not found with id: " + id, 404);
+                case "conflict":
+                    throw new ApiException("Probe was modified", 409);
+                case "crash":
+                    throw new IllegalStateException("boom");
+                default:
+                    return id;
+            }
+        }
+    }
+}
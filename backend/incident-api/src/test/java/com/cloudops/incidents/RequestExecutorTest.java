@@ -0,0 +1,106 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.execution.RequestExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final RequestExecutor executor = new RequestExecutor(1, 1, Duration.ofMillis(200), registry);
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    @Test
+    public void inlineWorkCompletesOnTheCallingThread() {
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Thread> ran = RequestExecutor.inline().submit(Thread::currentThread);
+        assertTrue(ran.isDone());
+        assertEquals(caller, ran.join());
+        assertEquals(caller, RequestExecutor.inline().run(Thread::currentThread));   // Not wrapped in a future
+        assertThrows(ApiException.class, () -> RequestExecutor.inline().submit(() -> {
+            throw new ApiException("Incident not found with id: inc-1", 404);
+        }));
+    }
+
+    @Test
+    public void pooledWorkIsReturnedAsAFuture() throws Exception {
+        Object result = executor.run(() -> "pooled");
+        assertTrue(result instanceof CompletableFuture);
+        assertEquals("pooled", ((CompletableFuture<?>) result).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fullPoolIsRefusedWith503() throws Exception {
+        CompletableFuture<String> running = executor.submit(this::blocked);
+        CompletableFuture<String> queued = executor.submit(() -> "queued");
+
+        ApiException busy = assertThrows(ApiException.class, () -> executor.submit(() -> "refused"));
+        assertEquals(503, busy.getStatusCode());
+        assertEquals(1, registry.get("incidents.requests.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("done", running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void slowAndFailedWorkCompleteWithApiExceptions() {
+        ExecutionException slow = assertThrows(ExecutionException.class,
+                () -> executor.submit(this::blocked).get(5, TimeUnit.SECONDS));
+        assertEquals(503, ((ApiException) slow.getCause()).getStatusCode());
+        release.countDown();
+
+        ExecutionException missing = assertThrows(ExecutionException.class, () -> executor.submit(() -> {
+            throw new ApiException("Incident not found with id: inc-1", 404);
+        }).get(5, TimeUnit.SECONDS));
+        assertEquals(404, ((ApiException) missing.getCause()).getStatusCode());
+    }
+
+    @Test
+    public void createRunningPastTheTimeoutIsAnsweredWithItsOutcome() throws Exception {
+        // Like POST /api/incidents on a slow store: a 503 here would make the client
+        // retry a create that still goes through
+        Object created = executor.runToCompletion(() -> {
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "created";
+        });
+        assertEquals("created", ((CompletableFuture<?>) created).get(5, TimeUnit.SECONDS));
+
+        ExecutionException missing = assertThrows(ExecutionException.class,
+                () -> ((CompletableFuture<?>) executor.runToCompletion(() -> {
+                    throw new ApiException("Incident not found with id: inc-1", 404);
+                })).get(5, TimeUnit.SECONDS));
+        assertEquals(404, ((ApiException) missing.getCause()).getStatusCode());
+    }
+
+    private String blocked() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}
@@ -0,0 +1,234 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.config.StreamProperties;
+import com.cloudops.incidents.dto.ArchivedIncident;
+import com.cloudops.incidents.dto.RetentionStatsResponse;
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.persistence.IncidentArchive;
+import com.cloudops.incidents.repository.InMemoryDiagnosticsRepository;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import com.cloudops.incidents.service.IncidentChangeFeed;
+import com.cloudops.incidents.service.RetentionEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetentionEngineTest {
+
+    private static final Duration TTL = Duration.ofDays(7);
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-15T14:00:00Z"));
+    private final StoreWithFaults incidents = new StoreWithFaults();
+    private final InMemoryDiagnosticsRepository diagnostics = new InMemoryDiagnosticsRepository();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final IncidentChangeFeed feed = new IncidentChangeFeed(new StreamProperties(), objectMapper, registry);
+
+    @AfterEach
+    public void closeFeed() {
+        feed.close();
+    }
+
+    @Test
+    public void expiredResolvedIncidentsAreArchivedAndRemovedInBatches() throws Exception {
+        IncidentArchive archive = new IncidentArchive(directory.resolve("archive"), objectMapper);
+        try (RetentionEngine engine = engine(archive, 2)) {
+            String first = null;
+            for (int i = 0; i < 5; i++) {
+                Incident resolved = store(engine, IncidentStatus.RESOLVED);
+                diagnostics.save(diagnostic(resolved.getId(), "connection reset #" + i));
+                first = first != null ? first : resolved.getId();
+            }
+            Incident open = store(engine, IncidentStatus.OPEN);
+            clock.advance(Duration.ofDays(1));
+            Incident resolvedLater = store(engine, IncidentStatus.RESOLVED);
+
+            clock.advance(TTL.minusDays(1).minusHours(1));
+            assertEquals(0, engine.runPass());          // Nothing is old enough yet
+
+            clock.advance(Duration.ofHours(2));
+            assertEquals(5, engine.runPass());          // Three batches of at most 2
+            assertEquals(2, incidents.count());
+            incidents.findById(open.getId());
+            incidents.findById(resolvedLater.getId());
+            assertTrue(diagnostics.findByIncidentId(first).isEmpty());
+
+            ArchivedIncident archived = engine.findArchived(first);
+            assertEquals(IncidentStatus.RESOLVED, archived.getIncident().getStatus());
+            assertEquals("connection reset #0", archived.getDiagnostics().get(0).getData());
+            assertEquals(clock.instant(), archived.getArchivedAt());
+            assertThrows(ApiException.class, () -> engine.findArchived(open.getId()));
+
+            RetentionStatsResponse stats = engine.getStats();
+            assertEquals(5, stats.getIncidentsEvicted());
+            assertEquals(5, stats.getDiagnosticsEvicted());
+            assertEquals(1, stats.getPending());        // resolvedLater
+            assertEquals(3, stats.getArchiveFiles());
+            assertEquals(5.0, registry.get("incidents.retention.evicted").tag("kind", "incidents").counter().count());
+        }
+    }
+
+    @Test
+    public void reopenedIncidentsAreKept() throws Exception {
+        try (RetentionEngine engine = engine(null, 100)) {
+            Incident resolved = store(engine, IncidentStatus.RESOLVED);
+            clock.advance(Duration.ofDays(3));
+            Incident reopened = incidents.replace(resolved.toBuilder()
+                    .status(IncidentStatus.INVESTIGATING).updatedAt(clock.instant()).version(2).build(), 1);
+            engine.record(resolved, reopened);
+
+            clock.advance(TTL);
+            assertEquals(0, engine.runPass());
+            assertEquals(1, incidents.count());
+            assertEquals(0, engine.getStats().getPending());
+        }
+    }
+
+    @Test
+    public void incidentsStayInMemoryWhenTheArchiveCannotBeWritten() throws Exception {
+        Path archiveDirectory = directory.resolve("archive");
+        IncidentArchive archive = new IncidentArchive(archiveDirectory, objectMapper);
+        try (RetentionEngine engine = engine(archive, 100)) {
+            Incident resolved = store(engine, IncidentStatus.RESOLVED);
+            clock.advance(TTL.plusMinutes(1));
+
+            Files.delete(archiveDirectory);
+            Files.createFile(archiveDirectory);         // Writes into it now fail
+            assertEquals(0, engine.runPass());
+            assertEquals(resolved.getId(), incidents.findById(resolved.getId()).getId());
+            assertEquals(1, engine.getStats().getArchiveFailures());
+
+            Files.delete(archiveDirectory);
+            Files.createDirectory(archiveDirectory);
+            assertEquals(1, engine.runPass());          // Retried on the next pass
+            assertEquals(0, incidents.count());
+        }
+    }
+
+    @Test
+    public void incidentReopenedWhileBeingArchivedIsKept() throws Exception {
+        try (RetentionEngine engine = engine(null, 100)) {
+            Incident resolved = store(engine, IncidentStatus.RESOLVED);
+            clock.advance(TTL.plusMinutes(1));
+
+            // A PUT lands after the copy was taken, right before the delete
+            incidents.beforeDelete = () -> engine.record(resolved, incidents.replace(resolved.toBuilder()
+                    .status(IncidentStatus.INVESTIGATING).updatedAt(clock.instant()).version(2).build(), 1));
+            assertEquals(0, engine.runPass());
+            assertEquals(IncidentStatus.INVESTIGATING, incidents.findById(resolved.getId()).getStatus());
+            assertEquals(0, engine.getStats().getIncidentsEvicted());
+        }
+    }
+
+    @Test
+    public void storeErrorsLeaveIncidentsQueued() throws Exception {
+        try (RetentionEngine engine = engine(null, 100)) {
+            Incident first = store(engine, IncidentStatus.RESOLVED);
+            Incident second = store(engine, IncidentStatus.RESOLVED);
+            clock.advance(TTL.plusMinutes(1));
+
+            incidents.failingReads = 1;
+            assertEquals(0, engine.runPass());
+            assertEquals(2, engine.getStats().getPending());
+
+            incidents.failingDeletes = 1;
+            assertEquals(0, engine.runPass());
+            assertEquals(2, engine.getStats().getPending());
+            assertEquals(2, incidents.count());
+
+            assertEquals(2, engine.runPass());          // Retried once the store is back
+            assertThrows(ApiException.class, () -> incidents.findById(first.getId()));
+            assertThrows(ApiException.class, () -> incidents.findById(second.getId()));
+            assertEquals(0, engine.getStats().getPending());
+        }
+    }
+
+    private RetentionEngine engine(IncidentArchive archive, int batchSize) {
+        return new RetentionEngine(incidents, diagnostics, feed, archive, TTL, Duration.ofHours(1), batchSize,
+                clock, registry);
+    }
+
+    /** Saves an incident and reports it to the engine, like IncidentService does */
+    private Incident store(RetentionEngine engine, IncidentStatus status) {
+        Instant now = clock.instant();
+        Incident incident = incidents.save(Incident.builder()
+                .id(UUID.randomUUID().toString())
+                .title("Connection refused")
+                .serviceName("payment-processor")
+                .severity(Severity.HIGH)
+                .errorType(ErrorType.NETWORK)
+                .status(status)
+                .timestamp(now)
+                .updatedAt(now)
+                .lastSeenAt(now)
+                .version(1)
+                .build());
+        engine.record(null, incident);
+        return incident;
+    }
+
+    private static DiagnosticRecord diagnostic(String incidentId, String data) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setId(UUID.randomUUID().toString());
+        record.setIncidentId(incidentId);
+        record.setSource("logCollector");
+        record.setTimestamp(LocalDateTime.of(2024, 1, 15, 14, 30));
+        record.setData(data);
+        return record;
+    }
+
+    /**
+     * An in-memory store whose next reads or deletes can be made to fail
+     * with 503, like a store that is briefly unreachable.
+     */
+    private static final class StoreWithFaults extends InMemoryIncidentRepository {
+        volatile int failingReads;
+        volatile int failingDeletes;
+        volatile Runnable beforeDelete;
+
+        @Override
+        public Incident findById(String id) {
+            if (failingReads > 0) {
+                failingReads--;
+                throw new ApiException("Store unavailable", 503);
+            }
+            return super.findById(id);
+        }
+
+        @Override
+        public Incident deleteById(String id, long expectedVersion) {
+            if (failingDeletes > 0) {
+                failingDeletes--;
+                throw new ApiException("Store unavailable", 503);
+            }
+            Runnable hook = beforeDelete;
+            if (hook != null) {
+                beforeDelete = null;
+                hook.run();
+            }
+            return super.deleteById(id, expectedVersion);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.exception.ApiException;
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.search.SearchCursor;
+import com.cloudops.incidents.search.SearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchIndexTest {
+
+    private final SearchIndex index = new SearchIndex(new SimpleMeterRegistry());
+
+    @Test
+    public void findsDocumentsContainingEveryWordBestFirst() {
+        index.indexIncident(incident("inc-1", 1, "RDS timeout", "Payment API cannot reach the database"));
+        index.indexIncident(incident("inc-2", 1, "Payment API down", "All requests return 500"));
+        index.indexDiagnostics(Arrays.asList(
+                diagnostic("d-1", "inc-1", "Timeout connecting to RDS db-prod after 30s, retrying the connection"),
+                diagnostic("d-2", "inc-2", "Timeout connecting to redis cache"),
+                diagnostic("d-3", "inc-2", "Connection reset by peer")));
+
+        assertEquals(Arrays.asList("d-1"), ids(index.search("timeout connecting to rds", null, null, 10)));
+        // The short title match ranks above the long diagnostic, "To" and case are ignored
+        assertEquals(Arrays.asList("inc-1", "d-1"), ids(index.search("RDS Timeout", null, null, 10)));
+        assertEquals(Arrays.asList("inc-1"), ids(index.search("rds timeout", SearchIndex.Type.INCIDENT, null, 10)));
+        assertEquals("inc-2", index.search("redis", null, null, 10).getMatches().get(0).getIncidentId());
+        assertTrue(index.search("timeout mongodb", null, null, 10).getMatches().isEmpty());
+        assertThrows(ApiException.class, () -> index.search("to the", null, null, 10));
+    }
+
+    @Test
+    public void followsUpdatesAndDeletes() {
+        index.indexIncident(incident("inc-1", 1, "Disk full", "var/log is at 100%"));
+        index.indexIncident(incident("inc-1", 2, "Disk full", "var/log is at 100%"));     // Status change only
+        assertEquals(1, index.search("disk", null, null, 10).getTotal());
+
+        index.indexIncident(incident("inc-1", 3, "Memory leak", "heap keeps growing"));
+        index.indexIncident(incident("inc-1", 2, "Disk full", "var/log is at 100%"));     // Late, older write
+        assertTrue(index.search("disk", null, null, 10).getMatches().isEmpty());
+        assertEquals(1, index.search("memory leak", null, null, 10).getTotal());
+
+        index.removeIncident("inc-1");
+        assertTrue(index.search("memory", null, null, 10).getMatches().isEmpty());
+
+        List<DiagnosticRecord> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(diagnostic("d-" + i, "inc-2", "connection refused on port " + (5000 + i)));
+        }
+        index.indexDiagnostics(records);
+        long memory = index.getStats().getMemoryBytes();
+        index.removeDiagnostics(records.subList(0, 90));
+        assertEquals(10, index.search("connection refused", null, null, 100).getTotal());
+        assertEquals(10, index.getStats().getDiagnostics());
+        assertTrue(index.getStats().getMemoryBytes() < memory);    // Lists were compacted, port terms dropped
+    }
+
+    @Test
+    public void pagesThroughAllHitsWithCursors() {
+        List<DiagnosticRecord> records = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            // Different lengths give different scores; repeats give equal ones
+            records.add(diagnostic("d-" + i, "inc-1", "timeout" + String.join("", Collections.nCopies(i % 5, " waiting"))));
+        }
+        index.indexDiagnostics(records);
+
+        Set<String> seen = new HashSet<>();
+        double previousScore = Double.MAX_VALUE;
+        SearchCursor cursor = null;
+        int pages = 0;
+        do {
+            SearchIndex.Result page = index.search("timeout", null, cursor, 10);
+            assertEquals(45, page.getTotal());
+            for (SearchIndex.Match match : page.getMatches()) {
+                assertTrue(match.getScore() <= previousScore);
+                previousScore = match.getScore();
+                assertTrue(seen.add(match.getId()));
+            }
+            cursor = page.getNext() != null ? SearchCursor.decode(page.getNext().encode()) : null;
+            pages++;
+        } while (cursor != null);
+        assertEquals(5, pages);
+        assertEquals(45, seen.size());
+        assertNull(index.search("timeout", null, null, 45).getNext());
+    }
+
+    private static List<String> ids(SearchIndex.Result result) {
+        return result.getMatches().stream().map(SearchIndex.Match::getId).collect(Collectors.toList());
+    }
+
+    private static Incident incident(String id, long version, String title, String description) {
+        return Incident.builder().id(id).version(version).title(title).description(description).build();
+    }
+
+    private static DiagnosticRecord diagnostic(String id, String incidentId, String data) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setId(id);
+        record.setIncidentId(incidentId);
+        record.setSource("logCollector");
+        record.setData(data);
+        return record;
+    }
+}
@@ -0,0 +1,97 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.repository.SegmentedDiagnosticsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentedDiagnosticsRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void payloadsSurviveRollingAndRestart() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 14, 30);
+        // Tiny segments force a roll every couple of records
+        try (SegmentedDiagnosticsRepository repository = new SegmentedDiagnosticsRepository(directory, 256, Duration.ofHours(1))) {
+            repository.save(record("d2", "inc-1", start.plusSeconds(2), "connection reset by peer"));
+            repository.save(record("d1", "inc-1", start.plusSeconds(1), "timeout connecting to rds"));
+            repository.save(record("d3", "inc-2", start, null));
+
+            ByteBuffer payload = repository.readPayload("d1");
+            assertEquals("timeout connecting to rds", StandardCharsets.UTF_8.decode(payload).toString());
+        }
+
+        try (SegmentedDiagnosticsRepository reopened = new SegmentedDiagnosticsRepository(directory, 256, Duration.ofHours(1))) {
+            List<DiagnosticRecord> records = reopened.findByIncidentId("inc-1");
+            assertEquals(2, records.size());
+            assertEquals("d1", records.get(0).getId());
+            assertEquals("connection reset by peer", records.get(1).getData());
+            assertEquals(start.plusSeconds(2), records.get(1).getTimestamp());
+            assertNull(reopened.findByIncidentId("inc-2").get(0).getData());
+
+            reopened.save(record("d4", "inc-2", start.plusSeconds(5), "dns lookup failed"));
+            assertEquals(2, reopened.findByIncidentId("inc-2").size());
+        }
+    }
+
+    @Test
+    public void deletedIncidentsStayDeletedAndFreeTheirSegments() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 14, 30);
+        try (SegmentedDiagnosticsRepository repository = new SegmentedDiagnosticsRepository(directory, 256, Duration.ofHours(1))) {
+            for (int i = 0; i < 6; i++) {
+                repository.save(record("old-" + i, "inc-1", start.plusSeconds(i), "connection reset by peer"));
+            }
+            repository.save(record("kept", "inc-2", start.plusSeconds(10), "dns lookup failed"));
+            long segmentsBefore = segmentFiles();
+
+            List<DiagnosticRecord> removed = repository.deleteByIncidentId("inc-1");
+            assertEquals(6, removed.size());
+            assertEquals("connection reset by peer", removed.get(0).getData());
+            assertTrue(repository.findByIncidentId("inc-1").isEmpty());
+            assertTrue(segmentFiles() < segmentsBefore);
+            assertTrue(repository.deleteByIncidentId("inc-1").isEmpty());
+
+            // New records for the same incident after the delete are kept
+            repository.save(record("new", "inc-1", start.plusSeconds(20), "timeout"));
+        }
+
+        try (SegmentedDiagnosticsRepository reopened = new SegmentedDiagnosticsRepository(directory, 256, Duration.ofHours(1))) {
+            List<DiagnosticRecord> records = reopened.findByIncidentId("inc-1");
+            assertEquals(1, records.size());
+            assertEquals("new", records.get(0).getId());
+            assertEquals("dns lookup failed", reopened.findByIncidentId("inc-2").get(0).getData());
+        }
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static DiagnosticRecord record(String id, String incidentId, LocalDateTime timestamp, String data) {
+        DiagnosticRecord record = new DiagnosticRecord();
+        record.setId(id);
+        record.setIncidentId(incidentId);
+        record.setSource("logCollector");
+        record.setTimestamp(timestamp);
+        record.setData(data);
+        return record;
+    }
+}
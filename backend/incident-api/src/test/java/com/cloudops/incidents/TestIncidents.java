@@ -0,0 +1,36 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+
+import java.time.Instant;
+
+/**
+ * Incidents for tests: an open NETWORK incident at version 1.
+ * Use toBuilder() for anything else, e.g. incident(...).toBuilder().status(IncidentStatus.RESOLVED).build().
+ */
+public final class TestIncidents {
+
+    private TestIncidents() {
+    }
+
+    public static Incident incident(String id, String serviceName, Severity severity) {
+        return incident(id, serviceName, severity, Instant.now());
+    }
+
+    public static Incident incident(String id, String serviceName, Severity severity, Instant timestamp) {
+        return Incident.builder()
+                .id(id)
+                .title("Incident " + id)
+                .serviceName(serviceName)
+                .severity(severity)
+                .errorType(ErrorType.NETWORK)
+                .status(IncidentStatus.OPEN)
+                .timestamp(timestamp)
+                .updatedAt(timestamp)
+                .version(1)
+                .build();
+    }
+}
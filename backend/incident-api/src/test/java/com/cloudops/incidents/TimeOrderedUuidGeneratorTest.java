@@ -0,0 +1,75 @@
+package com.cloudops.incidents;
+
+import com.cloudops.incidents.util.TimeOrderedUuidGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimeOrderedUuidGeneratorTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T14:30:00.250Z");
+
+    @Test
+    public void idsAreVersion7AndSortInCreationOrder() {
+        MutableClock clock = new MutableClock(NOW);
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(clock);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {      // More than the 4096 counter values of one millisecond
+            ids.add(generator.generate());
+        }
+        clock.advance(Duration.ofSeconds(1));
+        ids.add(generator.generate());
+        clock.advance(Duration.ofSeconds(-5));  // Clock stepped back: still increasing
+        ids.add(generator.generate());
+
+        List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        assertEquals(ids, sorted);
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+
+        UUID first = UUID.fromString(ids.get(0));
+        assertEquals(7, first.version());
+        assertEquals(2, first.variant());
+        assertTrue(ids.get(0).startsWith("018d0d87-7f3a-7000-"));
+        assertEquals(NOW, TimeOrderedUuidGenerator.timestampOf(ids.get(0)));
+        assertEquals(NOW.plusSeconds(1), TimeOrderedUuidGenerator.timestampOf(ids.get(10_000)));
+    }
+
+    @Test
+    public void concurrentThreadsNeverGetTheSameId() throws Exception {
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(new MutableClock(NOW));
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                workers.add(pool.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        ids.add(generator.generate());
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(40_000, ids.size());
+    }
+}
@@ -0,0 +1,69 @@
+package com.cloudops.incidents.benchmark;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.repository.InMemoryDiagnosticsRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryDiagnosticsRepository.findByIncidentId with different numbers of
+ * records per incident (the lookup cost should follow the result size,
+ * not the total number of records stored).
+ *
+ * mvn -Pbenchmarks verify -Djmh.args="DiagnosticsRepository -t 4"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class DiagnosticsRepositoryBenchmark {
+
+    /** Number of incidents with diagnostics */
+    @Param({"1000"})
+    public int incidents;
+
+    /** Diagnostic records per incident */
+    @Param({"10", "100", "1000"})
+    public int recordsPerIncident;
+
+    private InMemoryDiagnosticsRepository repository;
+
+    @Setup
+    public void setUp() {
+        repository = new InMemoryDiagnosticsRepository();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 0, 0);
+        int n = 0;
+        for (int r = 0; r < recordsPerIncident; r++) {
+            for (int i = 0; i < incidents; i++) {
+                DiagnosticRecord record = new DiagnosticRecord();
+                record.setId("diag-" + n);
+                record.setIncidentId("inc-" + i);
+                record.setSource(r % 2 == 0 ? "networkProbe" : "logCollector");
+                record.setData("timeout after 5000ms connecting to payments-db:5432");
+                record.setTimestamp(start.plusSeconds(n++));
+                repository.save(record);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<DiagnosticRecord> findByIncidentId() {
+        return repository.findByIncidentId("inc-" + ThreadLocalRandom.current().nextInt(incidents));
+    }
+}
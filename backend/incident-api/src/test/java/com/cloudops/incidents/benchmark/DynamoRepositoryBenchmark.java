@@ -0,0 +1,116 @@
+package com.cloudops.incidents.benchmark;
+
+import com.cloudops.incidents.dynamodb.DynamoBatchWriter;
+import com.cloudops.incidents.dynamodb.DynamoItems;
+import com.cloudops.incidents.dynamodb.DynamoRetry;
+import com.cloudops.incidents.dynamodb.DynamoTables;
+import com.cloudops.incidents.dynamodb.LocalDynamoDbClient;
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.DynamoIncidentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write throughput of DynamoIncidentRepository.save (batched through
+ * DynamoBatchWriter) against sending one PutItem per save, with 64 threads
+ * saving at once.
+ *
+ * Runs against LocalDynamoDbClient with 2 ms per request and at most 8
+ * requests served at once, roughly a same-region round trip over a small
+ * connection pool, so the score reflects round trips rather than the
+ * stand-in's own speed.
+ *
+ * Run with:
+ * mvn -Pbenchmarks verify -Djmh.args="DynamoRepository"
+ *
+ * Benchmarks:
+ * - batchedSave:       repository.save, up to 25 items per BatchWriteItem
+ * - putItemPerRequest: client.putItem for every incident, one round trip each
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class DynamoRepositoryBenchmark {
+
+    private static final String TABLE = "incidents";
+
+    private final AtomicLong ids = new AtomicLong();
+    private LocalDynamoDbClient client;
+    private DynamoIncidentRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = new LocalDynamoDbClient();
+        DynamoTables.createIfMissing(client, DynamoTables.incidentsTable(TABLE));
+        client.setLatency(Duration.ofMillis(2));
+        client.setMaxConcurrency(8);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DynamoRetry retry = new DynamoRetry(TABLE, 8, Duration.ofMillis(25), Duration.ofSeconds(2), registry);
+        repository = new DynamoIncidentRepository(client, TABLE, retry,
+                new DynamoBatchWriter(client, TABLE, Collections.singletonList(DynamoTables.ID), retry, 8, 10_000,
+                        registry),
+                Duration.ofSeconds(30), Duration.ofSeconds(30));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+        client.close();
+    }
+
+    @Benchmark
+    public Incident batchedSave() {
+        return repository.save(nextIncident());
+    }
+
+    @Benchmark
+    public Object putItemPerRequest() {
+        PutItemRequest request = PutItemRequest.builder()
+                .tableName(TABLE)
+                .item(DynamoItems.toItem(nextIncident()))
+                .build();
+        return client.putItem(request).join();
+    }
+
+    private Incident nextIncident() {
+        long id = ids.incrementAndGet();
+        Instant now = Instant.now();
+        return Incident.builder()
+                .id("inc-" + id)
+                .title("Database connection timeout " + id)
+                .serviceName("payment-processor")
+                .severity(Severity.HIGH)
+                .errorType(ErrorType.NETWORK)
+                .status(IncidentStatus.OPEN)
+                .timestamp(now)
+                .updatedAt(now)
+                .version(1)
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.cloudops.incidents.benchmark;
+
+import com.cloudops.incidents.model.ErrorType;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.model.IncidentStatus;
+import com.cloudops.incidents.model.Severity;
+import com.cloudops.incidents.repository.InMemoryIncidentRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryIncidentRepository hot paths at different store sizes.
+ *
+ * The repository is shared by all benchmark threads, so running with more
+ * threads measures contention on the same store:
+ * mvn -Pbenchmarks verify -Djmh.args="IncidentRepository -t 4"
+ * mvn -Pbenchmarks verify -Djmh.args="IncidentRepository.findById -p size=1000000"
+ *
+ * Benchmarks:
+ * - findById: lookup of a random existing incident
+ * - save:     overwrite of a random incident with a changed copy (moves it between severity buckets)
+ * - findAll:  copy of the whole store into a list (microseconds)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class IncidentRepositoryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private InMemoryIncidentRepository repository;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        repository = new InMemoryIncidentRepository();
+        ids = new String[size];
+        Instant start = Instant.parse("2024-01-15T00:00:00Z");
+        for (int i = 0; i < size; i++) {
+            ids[i] = "inc-" + i;
+            repository.save(incident(ids[i], i, start.plusMillis(i)));
+        }
+    }
+
+    @Benchmark
+    public Incident findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public Incident save() {
+        Incident current = repository.findById(randomId());
+        Severity severity = current.getSeverity() == Severity.HIGH ? Severity.LOW : Severity.HIGH;
+        return repository.save(current.toBuilder().severity(severity).build());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Incident> findAll() {
+        return repository.findAll();
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    /**
+     * Builds a realistic incident: 50 services, all severities and error types.
+     */
+    static Incident incident(String id, int i, Instant timestamp) {
+        return Incident.builder()
+                .id(id)
+                .title("Payment API Down")
+                .description("All payment requests returning 500 errors")
+                .severity(Severity.values()[i % Severity.values().length])
+                .status(IncidentStatus.values()[i % IncidentStatus.values().length])
+                .timestamp(timestamp)
+                .updatedAt(timestamp)
+                .serviceName("service-" + (i % 50))
+                .errorType(ErrorType.values()[i % ErrorType.values().length])
+                .correlationId("req-" + i)
+                .version(1)
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.cloudops.incidents.benchmark;
+
+import com.cloudops.incidents.cache.IncidentJsonCache;
+import com.cloudops.incidents.config.CacheProperties;
+import com.cloudops.incidents.dto.IncidentResponse;
+import com.cloudops.incidents.model.Incident;
+import com.cloudops.incidents.service.IncidentService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response path of GET /api/incidents for one page of incidents:
+ * mapping to IncidentResponse, then JSON serialization, against putting
+ * the page together from cached per-incident JSON (IncidentJsonCache).
+ *
+ * The ObjectMapper is built the way Spring Boot builds its own
+ * (Jackson2ObjectMapperBuilder, ISO-8601 dates).
+ *
+ * mvn -Pbenchmarks verify -Djmh.args="IncidentSerialization -prof gc"
+ *
+ * Benchmarks:
+ * - toResponse:             IncidentService.toResponse for every incident on the page
+ * - serialize:              Jackson serialization of an already mapped page
+ * - toResponseAndSerialize: both, as a request did before the JSON cache
+ * - cachedJsonArray:        IncidentJsonCache.toJsonArray with every incident cached
+ *                           (repeat reads of unchanged incidents)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncidentSerializationBenchmark {
+
+    /** Incidents per page (100 = default page size, 1000 = maximum) */
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    private final IncidentService incidentService = new IncidentService();
+    private ObjectMapper objectMapper;
+    private List<Incident> page;
+    private List<IncidentResponse> responses;
+    private IncidentJsonCache jsonCache;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        page = new ArrayList<>(pageSize);
+        Instant start = Instant.parse("2024-01-15T00:00:00Z");
+        for (int i = 0; i < pageSize; i++) {
+            page.add(IncidentRepositoryBenchmark.incident("inc-" + i, i, start.plusSeconds(i)));
+        }
+        responses = toResponse();
+        jsonCache = new IncidentJsonCache(new CacheProperties(), objectMapper, new SimpleMeterRegistry());
+        jsonCache.toJsonArray(page);
+    }
+
+    @Benchmark
+    public List<IncidentResponse> toResponse() {
+        List<IncidentResponse> result = new ArrayList<>(page.size());
+        for (Incident incident : page) {
+            result.add(incidentService.toResponse(incident));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public byte[] toResponseAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(toResponse());
+    }
+
+    @Benchmark
+    public byte[] cachedJsonArray() {
+        return jsonCache.toJsonArray(page);
+    }
+}
@@ -0,0 +1,133 @@
+package com.cloudops.incidents.benchmark;
+
+import com.cloudops.incidents.Application;
+import com.cloudops.incidents.dynamodb.LocalDynamoDbClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole API under load with a slow store: 256 clients read incidents
+ * while one client polls /health/live, per incidents.execution.mode.
+ *
+ * The app runs in-process on a random port, in dynamodb mode against
+ * LocalDynamoDbClient with 200 ms per request (a store in trouble; the wait
+ * doesn't use CPU). Tomcat has 64 threads and the async pool 64 as well,
+ * so both modes can block on the store 64 requests at a time: what differs
+ * is whether /health has to queue behind them.
+ *
+ * Run with:
+ * mvn -Pbenchmarks verify -Djmh.args="RequestExecution"
+ * On Java 21, add the virtual thread mode: -Djmh.args="RequestExecution -p mode=platform,async,virtual"
+ *
+ * Benchmarks (group slowStore, run together):
+ * - getIncident: GET /api/incidents/{id}, 256 threads
+ * - health:      GET /health/live, 1 thread
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestExecutionBenchmark {
+
+    private static final int INCIDENTS = 1000;
+
+    /** incidents.execution.mode */
+    @Param({"platform", "async"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private final List<URI> incidents = new ArrayList<>();
+    private URI health;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=64",
+                "--incidents.execution.mode=" + mode,
+                "--incidents.execution.threads=64",
+                "--incidents.persistence.mode=dynamodb",
+                "--incidents.persistence.dynamodb.local=true",
+                "--incidents.search.enabled=false",
+                "--logging.level.com.cloudops.incidents=WARN");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        health = URI.create(baseUrl + "/health/live");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (int i = 0; i < INCIDENTS; i++) {
+            String body = "{\"title\":\"Timeouts " + i + "\",\"serviceName\":\"payment-processor\","
+                    + "\"severity\":\"HIGH\",\"errorType\":\"NETWORK\",\"correlationId\":\"req-" + i + "\"}";
+            HttpResponse<String> created = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/incidents"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            String id = objectMapper.readTree(created.body()).get("id").asText();
+            incidents.add(URI.create(baseUrl + "/api/incidents/" + id));
+        }
+        ((LocalDynamoDbClient) context.getBean(DynamoDbAsyncClient.class)).setLatency(Duration.ofMillis(200));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("slowStore")
+    @GroupThreads(256)
+    public int getIncident() throws IOException, InterruptedException {
+        URI incident = incidents.get(ThreadLocalRandom.current().nextInt(incidents.size()));
+        return get(incident);
+    }
+
+    @Benchmark
+    @Group("slowStore")
+    @GroupThreads(1)
+    public int health() throws IOException, InterruptedException {
+        return get(health);
+    }
+
+    private int get(URI uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(uri + " returned " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,101 @@
+package com.cloudops.incidents.benchmark;
+
+import com.cloudops.incidents.model.DiagnosticRecord;
+import com.cloudops.incidents.search.SearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchIndex queries over millions of indexed diagnostic payloads.
+ *
+ * Payloads are generated log lines: a few very common words, a few hundred
+ * component and host names, and rare words like "rds" (about 1 in 50 lines).
+ *
+ * mvn -Pbenchmarks verify -Djmh.args="SearchIndex"
+ *
+ * Benchmarks:
+ * - rarePhrase:  "timeout connecting to rds" (walks the short "rds" list)
+ * - commonWord:  "timeout" (scores about a third of all documents)
+ * - commonPair:  "connection refused" (two long lists intersected)
+ * - missingWord: a word that is not indexed (dictionary lookup only)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+
+    private static final String[] LEVELS = {"error", "warn", "fatal"};
+    private static final String[] MESSAGES = {
+            "timeout connecting to", "connection refused by", "connection reset by peer on",
+            "slow response from", "certificate expired for", "dns lookup failed for"};
+
+    /** Indexed diagnostic records */
+    @Param({"2000000"})
+    public int records;
+
+    private SearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new SearchIndex(new SimpleMeterRegistry());
+        Random random = new Random(42);
+        List<DiagnosticRecord> batch = new ArrayList<>(10_000);
+        for (int n = 0; n < records; n++) {
+            String target = random.nextInt(50) == 0 ? "rds" : "svc" + random.nextInt(500);
+            DiagnosticRecord record = new DiagnosticRecord();
+            record.setId("diag-" + n);
+            record.setIncidentId("inc-" + (n / 100));
+            record.setData(LEVELS[random.nextInt(LEVELS.length)] + " "
+                    + MESSAGES[random.nextInt(MESSAGES.length)] + " " + target
+                    + " host" + random.nextInt(2000) + " after " + random.nextInt(30_000) + "ms");
+            batch.add(record);
+            if (batch.size() == 10_000) {
+                index.indexDiagnostics(batch);
+                batch = new ArrayList<>(10_000);
+            }
+        }
+        index.indexDiagnostics(batch);
+        System.out.println("\nIndex: " + index.getStats().getTerms() + " terms, "
+                + index.getStats().getPostings() + " postings, ~"
+                + index.getStats().getMemoryBytes() / (1024 * 1024) + " MB");
+    }
+
+    @Benchmark
+    public SearchIndex.Result rarePhrase() {
+        return index.search("timeout connecting to rds", null, null, 20);
+    }
+
+    @Benchmark
+    public SearchIndex.Result commonWord() {
+        return index.search("timeout", null, null, 20);
+    }
+
+    @Benchmark
+    public SearchIndex.Result commonPair() {
+        return index.search("connection refused", null, null, 20);
+    }
+
+    @Benchmark
+    public SearchIndex.Result missingWord() {
+        return index.search("kafka", null, null, 20);
+    }
+}
@@ -0,0 +1,60 @@
+package com.cloudops.incidents.benchmark;
+
+import com.cloudops.incidents.util.UuidGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating incident IDs, single-threaded and with 8 threads
+ * creating IDs at once (a burst of incident creates).
+ *
+ * Run with:
+ * mvn -Pbenchmarks verify -Djmh.args="UuidGenerator"
+ *
+ * Benchmarks:
+ * - random / randomContended:           UUIDv4 from the shared SecureRandom
+ * - timeOrdered / timeOrderedContended: UUIDv7 from an AtomicLong + ThreadLocalRandom
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidGeneratorBenchmark {
+
+    private final UuidGenerator random = UuidGenerator.random();
+    private final UuidGenerator timeOrdered = UuidGenerator.timeOrdered();
+
+    @Benchmark
+    public String random() {
+        return random.generate();
+    }
+
+    @Benchmark
+    public String timeOrdered() {
+        return timeOrdered.generate();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String randomContended() {
+        return random.generate();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String timeOrderedContended() {
+        return timeOrdered.generate();
+    }
+}